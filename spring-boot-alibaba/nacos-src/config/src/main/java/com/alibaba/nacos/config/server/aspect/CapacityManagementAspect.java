@@ -20,8 +20,12 @@ import com.alibaba.nacos.config.server.constant.CounterMode;
 import com.alibaba.nacos.config.server.model.ConfigInfo;
 import com.alibaba.nacos.config.server.model.capacity.Capacity;
 import com.alibaba.nacos.config.server.service.PersistService;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
 import com.alibaba.nacos.config.server.service.capacity.CapacityService;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
+import com.alibaba.nacos.config.server.utils.JSONUtils;
 import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
 import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -32,10 +36,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * 容量管理切面：批量写入、更新暂不处理
+ * 容量管理切面：批量发布整批检验content大小和group/tenant的配额，写入后按group/tenant修正usage
  *
  * @author hexu.hxy
  * @date 2018/3/13
@@ -52,6 +61,10 @@ public class CapacityManagementAspect {
         = "execution(* com.alibaba.nacos.config.server.controller.ConfigController.deleteConfig(..)) && args"
         + "(request,response,dataId,group,tenant,..)";
 
+    private static final String PUBLISH_CONFIG_BATCH
+        = "execution(* com.alibaba.nacos.config.server.controller.ConfigController.publishConfigBatch(..)) && args"
+        + "(request,response,configs,..)";
+
     @Autowired
     private CapacityService capacityService;
     @Autowired
@@ -84,6 +97,177 @@ public class CapacityManagementAspect {
         return pjp.proceed();
     }
 
+    /**
+     * 批量发布：开启限制检验时逐条检验content大小，并检验每个group/tenant的usage加上本批新增的配置数是否超出配额，
+     * 任何一项超限整批拒绝；每个group/tenant的容量信息只查一次。写入后每个group/tenant修正一次usage，而不是逐条加减计数
+     */
+    @Around(PUBLISH_CONFIG_BATCH)
+    public Object aroundPublishConfigBatch(ProceedingJoinPoint pjp, HttpServletRequest request,
+                                           HttpServletResponse response, String configs) throws Throwable {
+        if (!PropertyUtil.isManageCapacity()) {
+            return pjp.proceed();
+        }
+        List<ConfigInfo> configInfos;
+        try {
+            configInfos = parseBatch(configs);
+        } catch (Exception e) {
+            // 格式错误由controller返回
+            return pjp.proceed();
+        }
+        Map<String, Capacity> groupCapacities = new HashMap<String, Capacity>(configInfos.size());
+        Map<String, Capacity> tenantCapacities = new HashMap<String, Capacity>(configInfos.size());
+        LimitType limitType = getBatchLimitType(configInfos, groupCapacities, tenantCapacities);
+        if (limitType != null) {
+            return response4Limit(request, response, limitType);
+        }
+        Object result = pjp.proceed();
+        refreshBatchUsage(groupCapacities, tenantCapacities);
+        return result;
+    }
+
+    /**
+     * 不经过controller的批量写入（如导入配置），按和批量发布相同的规则检验和修正usage
+     *
+     * @param writer 写入configInfos
+     * @return 超限时返回超限类型，整批不写入；否则返回null
+     */
+    public LimitType publishBatch(List<ConfigInfo> configInfos, Runnable writer) {
+        if (!PropertyUtil.isManageCapacity()) {
+            writer.run();
+            return null;
+        }
+        Map<String, Capacity> groupCapacities = new HashMap<String, Capacity>(configInfos.size());
+        Map<String, Capacity> tenantCapacities = new HashMap<String, Capacity>(configInfos.size());
+        LimitType limitType = getBatchLimitType(configInfos, groupCapacities, tenantCapacities);
+        if (limitType != null) {
+            return limitType;
+        }
+        writer.run();
+        refreshBatchUsage(groupCapacities, tenantCapacities);
+        return null;
+    }
+
+    /**
+     * 查出本批涉及的group/tenant的容量信息放入groupCapacities和tenantCapacities，开启限制检验时检验content大小和配额
+     */
+    private LimitType getBatchLimitType(List<ConfigInfo> configInfos, Map<String, Capacity> groupCapacities,
+                                        Map<String, Capacity> tenantCapacities) {
+        for (ConfigInfo configInfo : configInfos) {
+            String group = configInfo.getGroup();
+            String tenant = configInfo.getTenant();
+            boolean hasTenant = hasTenant(tenant);
+            Map<String, Capacity> capacities = hasTenant ? tenantCapacities : groupCapacities;
+            String owner = hasTenant ? tenant : group;
+            if (!capacities.containsKey(owner)) {
+                capacities.put(owner, getCapacity(group, tenant, hasTenant));
+            }
+            if (PropertyUtil.isCapacityLimitCheck() && configInfo.getContent() != null
+                && isSizeLimited(group, tenant, getCurrentSize(configInfo.getContent()), hasTenant, false,
+                capacities.get(owner))) {
+                return LimitType.OVER_MAX_SIZE;
+            }
+        }
+        if (PropertyUtil.isCapacityLimitCheck()) {
+            return getBatchQuotaLimitType(configInfos, groupCapacities, tenantCapacities);
+        }
+        return null;
+    }
+
+    private void refreshBatchUsage(Map<String, Capacity> groupCapacities, Map<String, Capacity> tenantCapacities) {
+        for (Map.Entry<String, Capacity> entry : groupCapacities.entrySet()) {
+            refreshUsage(entry.getKey(), null, false, entry.getValue());
+        }
+        for (Map.Entry<String, Capacity> entry : tenantCapacities.entrySet()) {
+            refreshUsage(null, entry.getKey(), true, entry.getValue());
+        }
+    }
+
+    /**
+     * 按本批中库里还不存在的配置数检验配额。还没有容量信息的group/tenant先初始化，初始化时统计现有usage
+     */
+    private LimitType getBatchQuotaLimitType(List<ConfigInfo> configInfos, Map<String, Capacity> groupCapacities,
+                                             Map<String, Capacity> tenantCapacities) {
+        try {
+            Map<String, ConfigInfo> newConfigs = new HashMap<String, ConfigInfo>(configInfos.size());
+            for (ConfigInfo configInfo : configInfos) {
+                newConfigs.put(GroupKey2.getKey(configInfo.getDataId(), configInfo.getGroup(),
+                    configInfo.getTenant()), configInfo);
+            }
+            List<ConfigInfoWrapper> olds = persistService.findConfigInfoByGroupKeys(
+                new ArrayList<String>(newConfigs.keySet()));
+            for (ConfigInfoWrapper old : olds) {
+                newConfigs.remove(GroupKey2.getKey(old.getDataId(), old.getGroup(), old.getTenant()));
+            }
+            Map<String, Integer> groupAdds = new HashMap<String, Integer>(groupCapacities.size());
+            Map<String, Integer> tenantAdds = new HashMap<String, Integer>(tenantCapacities.size());
+            for (ConfigInfo configInfo : newConfigs.values()) {
+                boolean hasTenant = hasTenant(configInfo.getTenant());
+                Map<String, Integer> adds = hasTenant ? tenantAdds : groupAdds;
+                String owner = hasTenant ? configInfo.getTenant() : configInfo.getGroup();
+                Integer count = adds.get(owner);
+                adds.put(owner, count == null ? 1 : count + 1);
+            }
+            for (Map.Entry<String, Integer> entry : groupAdds.entrySet()) {
+                if (isOverQuota(entry.getKey(), null, false, entry.getValue(), groupCapacities)) {
+                    return LimitType.OVER_GROUP_QUOTA;
+                }
+            }
+            for (Map.Entry<String, Integer> entry : tenantAdds.entrySet()) {
+                if (isOverQuota(null, entry.getKey(), true, entry.getValue(), tenantCapacities)) {
+                    return LimitType.OVER_TENANT_QUOTA;
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("[capacityManagement] getBatchQuotaLimitType ", e);
+        }
+        return null;
+    }
+
+    private boolean isOverQuota(String group, String tenant, boolean hasTenant, int adds,
+                                Map<String, Capacity> capacities) {
+        String owner = hasTenant ? tenant : group;
+        Capacity capacity = capacities.get(owner);
+        if (capacity == null) {
+            insertCapacity(group, tenant, hasTenant);
+            capacity = capacityService.getCapacity(group, hasTenant ? tenant : null);
+            capacities.put(owner, capacity);
+        }
+        if (capacity == null) {
+            return false;
+        }
+        int quota = capacity.getQuota();
+        if (quota == 0) {
+            quota = hasTenant ? PropertyUtil.getDefaultTenantQuota() : PropertyUtil.getDefaultGroupQuota();
+        }
+        if (capacity.getUsage() + adds > quota) {
+            LOGGER.warn("[capacityManagement] batch exceeds quota, group: {}, tenant: {}, usage: {}, adds: {}, "
+                + "quota: {}", group, tenant, capacity.getUsage(), adds, quota);
+            return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ConfigInfo> parseBatch(String configs) throws IOException {
+        return (List<ConfigInfo>)JSONUtils.deserializeObject(configs, new TypeReference<List<ConfigInfo>>() {
+        });
+    }
+
+    /**
+     * 没有容量信息时初始化（初始化时统计usage），否则按实际配置数修正usage
+     */
+    private void refreshUsage(String group, String tenant, boolean hasTenant, Capacity capacity) {
+        try {
+            if (capacity == null) {
+                insertCapacity(group, tenant, hasTenant);
+            } else {
+                correctUsage(group, tenant, hasTenant);
+            }
+        } catch (Exception e) {
+            LOGGER.error("[capacityManagement] refreshUsage ", e);
+        }
+    }
+
     /**
      * 更新操作：开启容量管理的限制检验功能，会检验"content的大小"是否超过限制
      *
@@ -308,13 +492,7 @@ public class CapacityManagementAspect {
     }
 
     private Capacity getCapacity(String group, String tenant, boolean hasTenant) {
-        Capacity capacity;
-        if (hasTenant) {
-            capacity = capacityService.getTenantCapacity(tenant);
-        } else {
-            capacity = capacityService.getGroupCapacity(group);
-        }
-        return capacity;
+        return capacityService.getCachedCapacity(group, hasTenant ? tenant : null);
     }
 
     private boolean isSizeLimited(String group, String tenant, int currentSize, boolean hasTenant, boolean isAggr,
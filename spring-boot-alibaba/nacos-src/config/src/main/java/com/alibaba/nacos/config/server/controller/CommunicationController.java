@@ -19,7 +19,9 @@ import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.model.SampleResult;
 import com.alibaba.nacos.config.server.service.LongPollingService;
 import com.alibaba.nacos.config.server.service.dump.DumpService;
+import com.alibaba.nacos.config.server.service.notify.DataChangeBatch;
 import com.alibaba.nacos.config.server.service.notify.NotifyService;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -31,6 +33,8 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 用于其他节点通知的控制器
@@ -78,6 +82,35 @@ public class CommunicationController {
         return true;
     }
 
+    /**
+     * 批量通知配置信息改变，普通配置一次批量查库后dump，beta和tag配置仍逐条dump
+     */
+    @RequestMapping(value = "/dataChangeBatch", method = RequestMethod.POST)
+    @ResponseBody
+    public Boolean notifyConfigInfoBatch(HttpServletRequest request, HttpServletResponse response,
+                                         @RequestParam("changes") String changes) {
+        String handleIp = request.getHeader(NotifyService.NOTIFY_HEADER_OP_HANDLE_IP);
+        List<DataChangeBatch.Item> items = DataChangeBatch.decode(changes);
+        List<String> groupKeys = new ArrayList<String>(items.size());
+        List<Long> lastModifieds = new ArrayList<Long>(items.size());
+        for (DataChangeBatch.Item item : items) {
+            String dataId = item.getDataId().trim();
+            String group = item.getGroup().trim();
+            if (item.isBeta()) {
+                dumpService.dump(dataId, group, item.getTenant(), item.getLastModified(), handleIp, true);
+            } else if (StringUtils.isNotBlank(item.getTag())) {
+                dumpService.dump(dataId, group, item.getTenant(), item.getTag(), item.getLastModified(), handleIp);
+            } else {
+                groupKeys.add(GroupKey2.getKey(dataId, group, item.getTenant()));
+                lastModifieds.add(item.getLastModified());
+            }
+        }
+        if (!groupKeys.isEmpty()) {
+            dumpService.dumpBatch(groupKeys, lastModifieds, handleIp);
+        }
+        return true;
+    }
+
     /**
      * 在本台机器上获得订阅改配置的客户端信息
      */
@@ -19,12 +19,15 @@ import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.exception.NacosException;
 import com.alibaba.nacos.config.server.model.*;
 import com.alibaba.nacos.config.server.service.AggrWhitelist;
+import com.alibaba.nacos.config.server.service.ConfigArchiveService;
 import com.alibaba.nacos.config.server.service.ConfigDataChangeEvent;
+import com.alibaba.nacos.config.server.service.ConfigSearchIndex;
 import com.alibaba.nacos.config.server.service.ConfigSubService;
 import com.alibaba.nacos.config.server.service.PersistService;
 import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.*;
 import com.alibaba.nacos.config.server.utils.event.EventDispatcher;
+import com.fasterxml.jackson.core.type.TypeReference;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +45,7 @@ import java.io.IOException;
 import java.net.URLDecoder;
 import java.sql.Timestamp;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.LOCAL_IP;
@@ -57,18 +61,26 @@ public class ConfigController {
 
     private static final Logger log = LoggerFactory.getLogger(ConfigController.class);
 
+    /**
+     * 批量发布和批量查询单次最多的配置数
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
     private final transient ConfigServletInner inner;
 
     private final transient PersistService persistService;
 
     private final transient ConfigSubService configSubService;
 
+    private final transient ConfigArchiveService configArchiveService;
+
     @Autowired
     public ConfigController(ConfigServletInner configServletInner, PersistService persistService,
-                            ConfigSubService configSubService) {
+                            ConfigSubService configSubService, ConfigArchiveService configArchiveService) {
         this.inner = configServletInner;
         this.persistService = persistService;
         this.configSubService = configSubService;
+        this.configArchiveService = configArchiveService;
     }
 
     /**
@@ -146,6 +158,138 @@ public class ConfigController {
         return true;
     }
 
+    /**
+     * 批量增加或更新非聚合数据，configs为ConfigInfo的JSON数组(dataId、group、tenant、appName、content)。
+     * 整批在一个事务内写入，只发布一次合并的变更通知；不支持beta、tag和配置的附加信息。
+     *
+     * @throws NacosException
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST)
+    @ResponseBody
+    public Boolean publishConfigBatch(HttpServletRequest request, HttpServletResponse response,
+                                      @RequestParam("configs") String configs,
+                                      @RequestParam(value = "src_user", required = false) String srcUser)
+        throws NacosException {
+        final String srcIp = RequestUtil.getRemoteIp(request);
+        String requestIpApp = RequestUtil.getAppName(request);
+        List<ConfigInfo> configInfos = parseBatch(configs);
+        for (ConfigInfo configInfo : configInfos) {
+            ParamUtils.checkParam(configInfo.getDataId(), configInfo.getGroup(), "datumId", configInfo.getContent());
+            if (AggrWhitelist.isAggrDataId(configInfo.getDataId())) {
+                log.warn("[aggr-conflict] {} attemp to publish single data, {}, {}",
+                    srcIp, configInfo.getDataId(), configInfo.getGroup());
+                throw new NacosException(NacosException.NO_RIGHT, "dataId:" + configInfo.getDataId() + " is aggr");
+            }
+            if (configInfo.getTenant() == null) {
+                configInfo.setTenant(StringUtils.EMPTY);
+            }
+        }
+
+        final Timestamp time = TimeUtils.getCurrentTime();
+        persistService.batchInsertOrUpdate(configInfos, srcIp, srcUser, time, true);
+        for (ConfigInfo configInfo : configInfos) {
+            ConfigTraceService.logPersistenceEvent(configInfo.getDataId(), configInfo.getGroup(),
+                configInfo.getTenant(), requestIpApp, time.getTime(), LOCAL_IP,
+                ConfigTraceService.PERSISTENCE_EVENT_PUB, configInfo.getContent());
+        }
+        return true;
+    }
+
+    /**
+     * 批量取数据，configKeys为dataId、group、tenant组成的JSON数组。返回配置内容和md5，不存在的配置不在结果中。
+     * 上千个key超出URL长度限制，所以和监听一样用POST在请求体中传参
+     *
+     * @throws IOException
+     * @throws NacosException
+     */
+    @RequestMapping(value = "/batch", params = "query=true", method = RequestMethod.POST)
+    @ResponseBody
+    public List<ConfigInfo> getConfigBatch(HttpServletRequest request, HttpServletResponse response,
+                                           @RequestParam("configKeys") String configKeys)
+        throws IOException, NacosException {
+        List<ConfigInfo> keys = parseBatch(configKeys);
+        for (ConfigInfo key : keys) {
+            ParamUtils.checkParam(key.getDataId(), key.getGroup(), "datumId", "content");
+            if (key.getTenant() == null) {
+                key.setTenant(StringUtils.EMPTY);
+            }
+        }
+        final String clientIp = RequestUtil.getRemoteIp(request);
+        return inner.doGetConfigBatch(request, keys, clientIp);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ConfigInfo> parseBatch(String json) throws NacosException {
+        List<ConfigInfo> configInfos;
+        try {
+            configInfos = (List<ConfigInfo>)JSONUtils.deserializeObject(json, new TypeReference<List<ConfigInfo>>() {
+            });
+        } catch (IOException e) {
+            throw new NacosException(NacosException.INVALID_PARAM, "invalid batch: " + e.getMessage());
+        }
+        if (configInfos == null || configInfos.isEmpty()) {
+            throw new NacosException(NacosException.INVALID_PARAM, "empty batch");
+        }
+        if (configInfos.size() > MAX_BATCH_SIZE) {
+            throw new NacosException(NacosException.INVALID_PARAM,
+                "batch size " + configInfos.size() + " exceeds " + MAX_BATCH_SIZE);
+        }
+        return configInfos;
+    }
+
+    /**
+     * 导出命名空间下的所有配置为zip，边查边写，不含beta和tag
+     *
+     * @throws IOException
+     */
+    @RequestMapping(params = "export=true", method = RequestMethod.GET)
+    public void exportConfigs(HttpServletRequest request, HttpServletResponse response,
+                              @RequestParam(value = "tenant", required = false, defaultValue = StringUtils.EMPTY)
+                                  String tenant) throws IOException {
+        String fileName = "nacos_config_" + (StringUtils.isBlank(tenant) ? "public" : tenant) + ".zip";
+        response.setContentType("application/zip");
+        response.setHeader("Content-Disposition", "attachment;filename=" + fileName);
+        int count = configArchiveService.exportConfigs(tenant, response.getOutputStream());
+        log.info("[export] {} exported {} configs of tenant {}", RequestUtil.getRemoteIp(request), count, tenant);
+    }
+
+    /**
+     * 从请求体中的zip(导出的格式)导入配置到命名空间，policy为已存在配置的处理策略：abort(默认)、skip或overwrite。
+     * 按批写入，批之间不是原子的。
+     *
+     * @throws IOException
+     */
+    @RequestMapping(params = "import=true", method = RequestMethod.POST)
+    @ResponseBody
+    public RestResult<Map<String, Object>> importConfigs(HttpServletRequest request, HttpServletResponse response,
+                                                         @RequestParam(value = "tenant", required = false,
+                                                             defaultValue = StringUtils.EMPTY) String tenant,
+                                                         @RequestParam(value = "policy", required = false,
+                                                             defaultValue = ConfigArchiveService.POLICY_ABORT)
+                                                             String policy,
+                                                         @RequestParam(value = "src_user", required = false)
+                                                             String srcUser) throws IOException {
+        final String srcIp = RequestUtil.getRemoteIp(request);
+        RestResult<Map<String, Object>> rr = new RestResult<Map<String, Object>>();
+        try {
+            rr.setData(configArchiveService.importConfigs(request.getInputStream(), tenant, policy, srcIp, srcUser));
+        } catch (NacosException e) {
+            rr.setCode(e.getErrCode());
+            rr.setMessage(e.getErrMsg());
+            return rr;
+        }
+        log.info("[import] {} imported configs to tenant {}, {}", srcIp, tenant, rr.getData());
+        rr.setCode(200);
+        if (rr.getData().containsKey(ConfigArchiveService.RESULT_CONFLICT)) {
+            rr.setMessage("import aborted on conflict");
+        } else if (rr.getData().containsKey(ConfigArchiveService.RESULT_LIMIT)) {
+            rr.setMessage("import aborted over capacity limit");
+        } else {
+            rr.setMessage("import ok");
+        }
+        return rr;
+    }
+
     /**
      * 取数据
      *
@@ -288,7 +432,8 @@ public class ConfigController {
                                              defaultValue = StringUtils.EMPTY) String tenant,
                                          @RequestParam(value = "config_tags", required = false) String configTags,
                                          @RequestParam("pageNo") int pageNo,
-                                         @RequestParam("pageSize") int pageSize) {
+                                         @RequestParam("pageSize") int pageSize,
+                                         @RequestParam(value = "cursor", required = false) Long cursor) {
         Map<String, Object> configAdvanceInfo = new HashMap<String, Object>(100);
         if (StringUtils.isNotBlank(appName)) {
             configAdvanceInfo.put("appName", appName);
@@ -297,8 +442,9 @@ public class ConfigController {
             configAdvanceInfo.put("config_tags", configTags);
         }
         try {
+            // 带cursor时按id游标翻页，不再随页码增大而扫描越来越多的行
             return persistService.findConfigInfo4Page(pageNo, pageSize, dataId, group, tenant,
-                configAdvanceInfo);
+                configAdvanceInfo, cursor);
         } catch (Exception e) {
             String errorMsg = "serialize page error, dataId=" + dataId + ", group=" + group;
             log.error(errorMsg, e);
@@ -327,6 +473,17 @@ public class ConfigController {
         if (StringUtils.isNotBlank(configTags)) {
             configAdvanceInfo.put("config_tags", configTags);
         }
+        if (ConfigSearchIndex.isReady()) {
+            try {
+                return ConfigSearchIndex.search(persistService, pageNo, pageSize, dataId, group, tenant, appName,
+                    configTags);
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("[search-index] fuzzy search failed, fallback to db, dataId=" + dataId + ", group="
+                    + group, e);
+            }
+        }
         try {
             return persistService.findConfigInfoLike4Page(pageNo, pageSize, dataId, group, tenant,
                 configAdvanceInfo);
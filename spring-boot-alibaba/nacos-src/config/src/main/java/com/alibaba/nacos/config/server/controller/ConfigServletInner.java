@@ -17,13 +17,19 @@ package com.alibaba.nacos.config.server.controller;
 
 import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.model.CacheItem;
+import com.alibaba.nacos.config.server.model.CacheItem.ContentEntry;
+import com.alibaba.nacos.config.server.model.ConfigInfo;
 import com.alibaba.nacos.config.server.model.ConfigInfoBase;
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.service.ConfigContentCache;
 import com.alibaba.nacos.config.server.service.ConfigService;
 import com.alibaba.nacos.config.server.service.DiskUtil;
 import com.alibaba.nacos.config.server.service.LongPollingService;
 import com.alibaba.nacos.config.server.service.PersistService;
 import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.*;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -32,17 +38,19 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URLEncoder;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.STANDALONE_MODE;
-import static com.alibaba.nacos.config.server.utils.LogUtil.pullLog;
 
 /**
  * ConfigServlet inner for aop
@@ -62,6 +70,16 @@ public class ConfigServletInner {
 
     private static final int START_LONGPOLLING_VERSION_NUM = 204;
 
+    /**
+     * 小于该大小的文件直接写出，sendfile的额外开销不划算，与tomcat默认的sendfileSize一致
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     /**
      * 轮询接口
      */
@@ -114,154 +132,12 @@ public class ConfigServletInner {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
         String autoTag = request.getHeader("Vipserver-Tag");
         String requestIpApp = RequestUtil.getAppName(request);
-        int lockResult = tryConfigReadLock(request, response, groupKey);
-
         final String requestIp = RequestUtil.getRemoteIp(request);
-        boolean isBeta = false;
-        if (lockResult > 0) {
-            FileInputStream fis = null;
-            try {
-                String md5 = Constants.NULL;
-                long lastModified = 0L;
-                CacheItem cacheItem = ConfigService.getContentCache(groupKey);
-                if (cacheItem != null) {
-                    if (cacheItem.isBeta()) {
-                        if (cacheItem.getIps4Beta().contains(clientIp)) {
-                            isBeta = true;
-                        }
-                    }
-                }
-                File file = null;
-                ConfigInfoBase configInfoBase = null;
-                PrintWriter out = null;
-                if (isBeta) {
-                    md5 = cacheItem.getMd54Beta();
-                    lastModified = cacheItem.getLastModifiedTs4Beta();
-                    if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                        configInfoBase = persistService.findConfigInfo4Beta(dataId, group, tenant);
-                    } else {
-                        file = DiskUtil.targetBetaFile(dataId, group, tenant);
-                    }
-                    response.setHeader("isBeta", "true");
-                } else {
-                    if (StringUtils.isBlank(tag)) {
-                        if (isUseTag(cacheItem, autoTag)) {
-                            if (cacheItem != null) {
-                                if (cacheItem.tagMd5 != null) {
-                                    md5 = cacheItem.tagMd5.get(autoTag);
-                                }
-                                if (cacheItem.tagLastModifiedTs != null) {
-                                    lastModified = cacheItem.tagLastModifiedTs.get(autoTag);
-                                }
-                            }
-                            if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                                configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, autoTag);
-                            } else {
-                                file = DiskUtil.targetTagFile(dataId, group, tenant, autoTag);
-                            }
-
-                            response.setHeader("Vipserver-Tag",
-                                URLEncoder.encode(autoTag, StandardCharsets.UTF_8.displayName()));
-                        } else {
-                            md5 = cacheItem.getMd5();
-                            lastModified = cacheItem.getLastModifiedTs();
-                            if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                                configInfoBase = persistService.findConfigInfo(dataId, group, tenant);
-                            } else {
-                                file = DiskUtil.targetFile(dataId, group, tenant);
-                            }
-                            if (configInfoBase == null && fileNotExist(file)) {
-                                // FIXME CacheItem
-                                // 不存在了无法简单的计算推送delayed，这里简单的记做-1
-                                ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
-                                    ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
-
-                                // pullLog.info("[client-get] clientIp={}, {},
-                                // no data",
-                                // new Object[]{clientIp, groupKey});
-
-                                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                                response.getWriter().println("config data not exist");
-                                return HttpServletResponse.SC_NOT_FOUND + "";
-                            }
-                        }
-                    } else {
-                        if (cacheItem != null) {
-                            if (cacheItem.tagMd5 != null) {
-                                md5 = cacheItem.tagMd5.get(tag);
-                            }
-                            if (cacheItem.tagLastModifiedTs != null) {
-                                Long lm = cacheItem.tagLastModifiedTs.get(tag);
-                                if (lm != null) {
-                                    lastModified = lm;
-                                }
-                            }
-                        }
-                        if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                            configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, tag);
-                        } else {
-                            file = DiskUtil.targetTagFile(dataId, group, tenant, tag);
-                        }
-                        if (configInfoBase == null && fileNotExist(file)) {
-                            // FIXME CacheItem
-                            // 不存在了无法简单的计算推送delayed，这里简单的记做-1
-                            ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
-                                ConfigTraceService.PULL_EVENT_NOTFOUND,
-                                -1, requestIp);
-
-                            // pullLog.info("[client-get] clientIp={}, {},
-                            // no data",
-                            // new Object[]{clientIp, groupKey});
-
-                            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                            response.getWriter().println("config data not exist");
-                            return HttpServletResponse.SC_NOT_FOUND + "";
-                        }
-                    }
-                }
-
-                response.setHeader(Constants.CONTENT_MD5, md5);
-                /**
-                 *  禁用缓存
-                 */
-                response.setHeader("Pragma", "no-cache");
-                response.setDateHeader("Expires", 0);
-                response.setHeader("Cache-Control", "no-cache,no-store");
-                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                    response.setDateHeader("Last-Modified", lastModified);
-                } else {
-                    fis = new FileInputStream(file);
-                    response.setDateHeader("Last-Modified", file.lastModified());
-                }
-
-                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                    out = response.getWriter();
-                    out.print(configInfoBase.getContent());
-                    out.flush();
-                    out.close();
-                } else {
-                    fis.getChannel().transferTo(0L, fis.getChannel().size(),
-                        Channels.newChannel(response.getOutputStream()));
-                }
-
-                LogUtil.pullCheckLog.warn("{}|{}|{}|{}", groupKey, requestIp, md5, TimeUtils.getCurrentTimeStr());
-
-                final long delayed = System.currentTimeMillis() - lastModified;
-
-                // TODO distinguish pull-get && push-get
-                // 否则无法直接把delayed作为推送延时的依据，因为主动get请求的delayed值都很大
-                ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, lastModified,
-                    ConfigTraceService.PULL_EVENT_OK, delayed,
-                    requestIp);
-
-            } finally {
-                releaseConfigReadLock(groupKey);
-                if (null != fis) {
-                    fis.close();
-                }
-            }
-        } else if (lockResult == 0) {
 
+        CacheItem cacheItem = ConfigService.getContentCache(groupKey);
+        ConfigReadResult result = (cacheItem == null) ? null
+            : readConfig(cacheItem, dataId, group, tenant, tag, autoTag, clientIp);
+        if (result == null || result.notFound) {
             // FIXME CacheItem 不存在了无法简单的计算推送delayed，这里简单的记做-1
             ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
                 ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
@@ -269,60 +145,304 @@ public class ConfigServletInner {
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
             response.getWriter().println("config data not exist");
             return HttpServletResponse.SC_NOT_FOUND + "";
+        }
 
+        if (result.isBeta) {
+            response.setHeader("isBeta", "true");
+        }
+        if (result.autoTag != null) {
+            response.setHeader("Vipserver-Tag",
+                URLEncoder.encode(result.autoTag, StandardCharsets.UTF_8.displayName()));
+        }
+        response.setHeader(Constants.CONTENT_MD5, result.md5);
+        /**
+         *  禁用缓存
+         */
+        response.setHeader("Pragma", "no-cache");
+        response.setDateHeader("Expires", 0);
+        response.setHeader("Cache-Control", "no-cache,no-store");
+        if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+            response.setDateHeader("Last-Modified", result.lastModified);
+            PrintWriter out = response.getWriter();
+            out.print(result.configInfoBase.getContent());
+            out.flush();
+            out.close();
         } else {
+            response.setDateHeader("Last-Modified", result.fileLastModified);
+            if (result.content != null) {
+                response.getOutputStream().write(result.content);
+            } else {
+                sendFile(request, response, result);
+            }
+        }
 
-            pullLog.info("[client-get] clientIp={}, {}, get data during dump", clientIp, groupKey);
+        LogUtil.pullCheckLog.warn("{}|{}|{}|{}", groupKey, requestIp, result.md5, TimeUtils.getCurrentTimeStr());
 
-            response.setStatus(HttpServletResponse.SC_CONFLICT);
-            response.getWriter().println("requested file is being modified, please try later.");
-            return HttpServletResponse.SC_CONFLICT + "";
+        final long delayed = System.currentTimeMillis() - result.lastModified;
 
-        }
+        // TODO distinguish pull-get && push-get
+        // 否则无法直接把delayed作为推送延时的依据，因为主动get请求的delayed值都很大
+        ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, result.lastModified,
+            ConfigTraceService.PULL_EVENT_OK, delayed,
+            requestIp);
 
         return HttpServletResponse.SC_OK + "";
     }
 
-    private static void releaseConfigReadLock(String groupKey) {
-        ConfigService.releaseReadLock(groupKey);
+    /**
+     * 批量读取配置内容和md5，规则与doGetConfig一致（beta、Vipserver-Tag），读不到的配置不在结果中
+     */
+    public List<ConfigInfo> doGetConfigBatch(HttpServletRequest request, List<ConfigInfo> keys, String clientIp) {
+        String autoTag = request.getHeader("Vipserver-Tag");
+        String requestIpApp = RequestUtil.getAppName(request);
+        final String requestIp = RequestUtil.getRemoteIp(request);
+        List<ConfigInfo> configInfos = new ArrayList<ConfigInfo>(keys.size());
+        for (ConfigInfo key : keys) {
+            String dataId = key.getDataId();
+            String group = key.getGroup();
+            String tenant = key.getTenant();
+            String groupKey = GroupKey2.getKey(dataId, group, tenant);
+            ConfigReadResult result = null;
+            try {
+                CacheItem cacheItem = ConfigService.getContentCache(groupKey);
+                result = (cacheItem == null) ? null
+                    : readConfig(cacheItem, dataId, group, tenant, null, autoTag, clientIp);
+                if (result == null || result.notFound) {
+                    ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
+                        ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
+                    continue;
+                }
+                ConfigInfo configInfo = new ConfigInfo(dataId, group, tenant, null, readContent(result));
+                configInfo.setMd5(result.md5);
+                configInfos.add(configInfo);
+            } catch (IOException e) {
+                LogUtil.defaultLog.warn("[batch-get] read {} error: {}", groupKey, e.toString());
+                continue;
+            } finally {
+                if (result != null) {
+                    result.close();
+                }
+            }
+
+            LogUtil.pullCheckLog.warn("{}|{}|{}|{}", groupKey, requestIp, result.md5, TimeUtils.getCurrentTimeStr());
+            ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, result.lastModified,
+                ConfigTraceService.PULL_EVENT_OK, System.currentTimeMillis() - result.lastModified, requestIp);
+        }
+        return configInfos;
     }
 
-    private static int tryConfigReadLock(HttpServletRequest request, HttpServletResponse response, String groupKey)
-        throws IOException, ServletException {
-        /**
-         *  默认加锁失败
-         */
-        int lockResult = -1;
-        /**
-         *  尝试加锁，最多10次
-         */
-        for (int i = TRY_GET_LOCK_TIMES; i >= 0; --i) {
-            lockResult = ConfigService.tryReadLock(groupKey);
-            /**
-             *  数据不存在
-             */
-            if (0 == lockResult) {
-                break;
-            }
+    private static String readContent(ConfigReadResult result) throws IOException {
+        if (result.content != null) {
+            return new String(result.content, Constants.ENCODE);
+        }
+        if (result.configInfoBase != null) {
+            return result.configInfoBase.getContent();
+        }
+        if (result.channel != null) {
+            return IOUtils.toString(Channels.newInputStream(result.channel), Constants.ENCODE);
+        }
+        return null;
+    }
 
-            /**
-             *  success
-             */
-            if (lockResult > 0) {
-                break;
+    /**
+     * 乐观读取配置的md5和内容，期间发生dump则重试，多次失败后退化为读锁等待dump完成，读请求不再因dump返回409
+     */
+    private ConfigReadResult readConfig(CacheItem cacheItem, String dataId, String group, String tenant, String tag,
+                                        String autoTag, String clientIp) throws IOException {
+        SimpleReadWriteLock lock = cacheItem.getRwLock();
+        for (int i = TRY_GET_LOCK_TIMES; i >= 0; --i) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                ConfigReadResult result = null;
+                ContentEntry cached = null;
+                try {
+                    result = doReadConfig(cacheItem, dataId, group, tenant, tag, autoTag, clientIp);
+                    cached = cacheContent(cacheItem, result);
+                } catch (IOException | RuntimeException e) {
+                    // 读到dump中途的状态导致的异常，重试即可
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                }
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+                // 读取期间发生了dump，撤销可能已过期的缓存内容
+                ConfigContentCache.invalidate(cacheItem, cached);
+                if (result != null) {
+                    result.close();
+                }
             }
-            /**
-             *  retry
-             */
-            if (i > 0) {
+            MetricsMonitor.getConfigReadRetryCounter().increment();
+            if (stamp == 0L && i > 0) {
+                // 正在dump，稍后重试
                 try {
                     Thread.sleep(1);
-                } catch (Exception e) {
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        MetricsMonitor.getConfigReadFallbackCounter().increment();
+        lock.readLock();
+        try {
+            ConfigReadResult result = doReadConfig(cacheItem, dataId, group, tenant, tag, autoTag, clientIp);
+            cacheContent(cacheItem, result);
+            return result;
+        } finally {
+            lock.releaseReadLock();
+        }
+    }
+
+    private ConfigReadResult doReadConfig(CacheItem cacheItem, String dataId, String group, String tenant,
+                                          String tag, String autoTag, String clientIp) throws IOException {
+        ConfigReadResult result = new ConfigReadResult();
+        File file = null;
+        // 单机且未使用mysql时直接读库，否则读dump文件
+        boolean readFromDb = STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql();
+        if (cacheItem.isBeta() && cacheItem.getIps4Beta().contains(clientIp)) {
+            result.isBeta = true;
+            result.md5 = cacheItem.getMd54Beta();
+            result.lastModified = cacheItem.getLastModifiedTs4Beta();
+            if (readFromDb) {
+                result.configInfoBase = persistService.findConfigInfo4Beta(dataId, group, tenant);
+            } else {
+                file = DiskUtil.targetBetaFile(dataId, group, tenant);
+            }
+        } else if (StringUtils.isBlank(tag)) {
+            if (isUseTag(cacheItem, autoTag)) {
+                result.autoTag = autoTag;
+                if (cacheItem.tagMd5 != null) {
+                    result.md5 = cacheItem.tagMd5.get(autoTag);
+                }
+                if (cacheItem.tagLastModifiedTs != null) {
+                    Long lm = cacheItem.tagLastModifiedTs.get(autoTag);
+                    if (lm != null) {
+                        result.lastModified = lm;
+                    }
+                }
+                if (readFromDb) {
+                    result.configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, autoTag);
+                } else {
+                    file = DiskUtil.targetTagFile(dataId, group, tenant, autoTag);
+                }
+            } else {
+                result.md5 = cacheItem.getMd5();
+                result.lastModified = cacheItem.getLastModifiedTs();
+                if (ConfigContentCache.isEnabled() && !readFromDb) {
+                    ContentEntry cached = ConfigContentCache.get(cacheItem, result.md5);
+                    byte[] content = (cached == null) ? null : cached.content;
+                    if (content != null) {
+                        result.content = content;
+                        result.fileLastModified = cached.lastModified;
+                        return result;
+                    }
+                    result.cacheable = true;
+                }
+                if (readFromDb) {
+                    result.configInfoBase = persistService.findConfigInfo(dataId, group, tenant);
+                } else {
+                    file = DiskUtil.targetFile(dataId, group, tenant);
+                }
+                if (result.configInfoBase == null && fileNotExist(file)) {
+                    result.notFound = true;
+                    return result;
+                }
+            }
+        } else {
+            if (cacheItem.tagMd5 != null) {
+                result.md5 = cacheItem.tagMd5.get(tag);
+            }
+            if (cacheItem.tagLastModifiedTs != null) {
+                Long lm = cacheItem.tagLastModifiedTs.get(tag);
+                if (lm != null) {
+                    result.lastModified = lm;
+                }
+            }
+            if (readFromDb) {
+                result.configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, tag);
+            } else {
+                file = DiskUtil.targetTagFile(dataId, group, tenant, tag);
+            }
+            if (result.configInfoBase == null && fileNotExist(file)) {
+                result.notFound = true;
+                return result;
+            }
+        }
+
+        if (file != null) {
+            result.fileLastModified = file.lastModified();
+            if (result.cacheable) {
+                result.content = FileUtils.readFileToByteArray(file);
+            } else {
+                // dump以rename方式原子替换文件，已打开的channel始终对应一个完整版本
+                result.file = file;
+                result.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 零拷贝发送配置文件。容器支持sendfile且文件较大时交给容器用sendfile发送，否则用FileChannel.transferTo写出。
+     * <p>
+     * sendfile由容器按文件名重新打开，期间若恰好发生dump，客户端拿到的是更新的版本，md5头可能是旧值；客户端以内容计算md5，不影响正确性。
+     */
+    private static void sendFile(HttpServletRequest request, HttpServletResponse response, ConfigReadResult result)
+        throws IOException {
+        try {
+            long size = result.channel.size();
+            response.setContentLengthLong(size);
+            if (size >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, result.file.getAbsolutePath());
+                request.setAttribute(SENDFILE_START_ATTR, 0L);
+                request.setAttribute(SENDFILE_END_ATTR, size);
+                return;
+            }
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0L;
+            while (position < size) {
+                long transferred = result.channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    break;
                 }
+                position += transferred;
             }
+        } finally {
+            result.close();
+        }
+    }
+
+    private static ContentEntry cacheContent(CacheItem cacheItem, ConfigReadResult result) {
+        if (result == null || !result.cacheable || result.content == null) {
+            return null;
         }
+        return ConfigContentCache.put(cacheItem, result.content, result.md5, result.fileLastModified);
+    }
 
-        return lockResult;
+    /**
+     * 一次读取得到的配置快照
+     */
+    static class ConfigReadResult {
+        boolean notFound = false;
+        boolean isBeta = false;
+        boolean cacheable = false;
+        String autoTag;
+        String md5 = Constants.NULL;
+        long lastModified = 0L;
+        long fileLastModified = 0L;
+        byte[] content;
+        File file;
+        FileChannel channel;
+        ConfigInfoBase configInfoBase;
+
+        void close() {
+            if (channel != null) {
+                IOUtils.closeQuietly(channel);
+                channel = null;
+            }
+        }
     }
 
     private static boolean isUseTag(CacheItem cacheItem, String tag) {
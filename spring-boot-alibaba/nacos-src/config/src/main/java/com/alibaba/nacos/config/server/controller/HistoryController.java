@@ -55,10 +55,14 @@ public class HistoryController {
                                                      //
                                                      @RequestParam(value = "pageSize", required = false)
                                                          Integer pageSize, //
+                                                     @RequestParam(value = "cursor", required = false) Long cursor,
                                                      ModelMap modelMap) {
         pageNo = null == pageNo ? Integer.valueOf(1) : pageNo;
         pageSize = null == pageSize ? Integer.valueOf(100) : pageSize;
         pageSize = pageSize > 500 ? Integer.valueOf(500) : pageSize;
+        if (cursor != null) {
+            return persistService.findConfigHistoryByCursor(dataId, group, tenant, cursor, pageSize);
+        }
         // configInfoBase没有appName字段
         return persistService.findConfigHistory(dataId, group, tenant, pageNo, pageSize);
     }
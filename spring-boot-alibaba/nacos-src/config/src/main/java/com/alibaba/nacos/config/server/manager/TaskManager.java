@@ -18,20 +18,29 @@ package com.alibaba.nacos.config.server.manager;
 import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
 import com.alibaba.nacos.config.server.utils.LogUtil;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
 import java.util.Date;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * 用于处理一定要执行成功的任务 单线程的方式处理任务，保证任务一定被成功处理
+ * 用于处理一定要执行成功的任务，处理失败的任务按taskInterval重试，保证任务一定被成功处理。
+ * <p>
+ * addTask时唤醒worker，不再轮询；多个worker并行处理不同key的任务，同一个key的任务同时只在一个worker上执行，
+ * 执行期间新到的任务合并后等本次执行结束再调度。
  *
  * @author huali
  */
@@ -39,6 +48,24 @@ public final class TaskManager implements TaskManagerMBean {
 
     private static final Logger log = LogUtil.defaultLog;
 
+    /**
+     * 构造时未指定worker数则读取该系统属性，缺省为CPU核数
+     */
+    static final String WORKER_COUNT_PROPERTY = "nacos.config.taskManager.workers";
+
+    static final int DEFAULT_WORKER_COUNT = Math.max(1, NumberUtils.toInt(System.getProperty(WORKER_COUNT_PROPERTY),
+        Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * shouldProcess返回false又算不出到期时间时的重试间隔
+     */
+    static final long MIN_RETRY_DELAY_MS = 100L;
+
+    /**
+     * 排队时延直方图的桶上界，单位毫秒
+     */
+    static final long[] LATENCY_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000, 5000, 10000};
+
     private final ConcurrentHashMap<String, AbstractTask> tasks = new ConcurrentHashMap<String, AbstractTask>();
 
     private final ConcurrentHashMap<String, TaskProcessor> taskProcessors =
@@ -46,21 +73,43 @@ public final class TaskManager implements TaskManagerMBean {
 
     private TaskProcessor defaultTaskProcessor;
 
-    Thread processingThread;
+    final Thread[] workers;
 
     private final AtomicBoolean closed = new AtomicBoolean(true);
 
     private String name;
 
+    /**
+     * 以下调度状态都由lock保护
+     */
+    private final ArrayDeque<String> readyKeys = new ArrayDeque<String>();
+
+    private final Set<String> readySet = new HashSet<String>();
+
+    private final Set<String> runningKeys = new HashSet<String>();
+
+    private final PriorityQueue<DelayedKey> delayedKeys = new PriorityQueue<DelayedKey>();
+
+    /**
+     * 任务变为待处理的时刻，用于统计排队时延
+     */
+    private final ConcurrentHashMap<String, Long> pendingSince = new ConcurrentHashMap<String, Long>();
+
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+
+    private final Timer latencyTimer;
 
     class ProcessRunnable implements Runnable {
 
+        @Override
         public void run() {
             while (!TaskManager.this.closed.get()) {
                 try {
-                    Thread.sleep(100);
-                    TaskManager.this.process();
+                    TaskManager.this.processNext();
+                } catch (InterruptedException e) {
+                    // closed
                 } catch (Throwable e) {
+                    log.error("task_fail", "处理task失败", e);
                 }
             }
 
@@ -68,10 +117,28 @@ public final class TaskManager implements TaskManagerMBean {
 
     }
 
+    static class DelayedKey implements Comparable<DelayedKey> {
+
+        DelayedKey(String key, long dueTime) {
+            this.key = key;
+            this.dueTime = dueTime;
+        }
+
+        @Override
+        public int compareTo(DelayedKey o) {
+            return dueTime < o.dueTime ? -1 : (dueTime == o.dueTime ? 0 : 1);
+        }
+
+        final String key;
+        final long dueTime;
+    }
+
     ReentrantLock lock = new ReentrantLock();
 
     Condition notEmpty = this.lock.newCondition();
 
+    Condition hasTask = this.lock.newCondition();
+
     public TaskManager() {
         this(null);
     }
@@ -84,17 +151,26 @@ public final class TaskManager implements TaskManagerMBean {
         return this.taskProcessors.get(type);
     }
 
-    @SuppressWarnings("PMD.AvoidManuallyCreateThreadRule")
     public TaskManager(String name) {
+        this(name, DEFAULT_WORKER_COUNT);
+    }
+
+    @SuppressWarnings("PMD.AvoidManuallyCreateThreadRule")
+    public TaskManager(String name, int workerCount) {
         this.name = name;
-        if (null != name && name.length() > 0) {
-            this.processingThread = new Thread(new ProcessRunnable(), name);
-        } else {
-            this.processingThread = new Thread(new ProcessRunnable());
-        }
-        this.processingThread.setDaemon(true);
+        this.latencyTimer = MetricsMonitor.getTaskQueueLatencyTimer(null != name ? name : "default");
+        this.workers = new Thread[Math.max(1, workerCount)];
         this.closed.set(false);
-        this.processingThread.start();
+        for (int i = 0; i < workers.length; i++) {
+            if (null != name && name.length() > 0) {
+                String threadName = workers.length == 1 ? name : name + "-" + i;
+                this.workers[i] = new Thread(new ProcessRunnable(), threadName);
+            } else {
+                this.workers[i] = new Thread(new ProcessRunnable());
+            }
+            this.workers[i].setDaemon(true);
+            this.workers[i].start();
+        }
     }
 
     public int size() {
@@ -103,13 +179,18 @@ public final class TaskManager implements TaskManagerMBean {
 
     public void close() {
         this.closed.set(true);
-        this.processingThread.interrupt();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
     }
 
+    /**
+     * 等待所有任务（包括正在执行的）处理完成
+     */
     public void await() throws InterruptedException {
         this.lock.lock();
         try {
-            while (!this.isEmpty()) {
+            while (!this.isIdle()) {
                 this.notEmpty.await();
             }
         } finally {
@@ -118,13 +199,16 @@ public final class TaskManager implements TaskManagerMBean {
     }
 
     public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
         this.lock.lock();
-        boolean isawait = false;
         try {
-            while (!this.isEmpty()) {
-                isawait = this.notEmpty.await(timeout, unit);
+            while (!this.isIdle()) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = this.notEmpty.awaitNanos(nanos);
             }
-            return isawait;
+            return true;
         } finally {
             this.lock.unlock();
         }
@@ -142,14 +226,18 @@ public final class TaskManager implements TaskManagerMBean {
         this.lock.lock();
         try {
             this.tasks.remove(type);
+            this.pendingSince.remove(type);
             MetricsMonitor.getDumpTaskMonitor().set(tasks.size());
+            if (this.isIdle()) {
+                this.notEmpty.signalAll();
+            }
         } finally {
             this.lock.unlock();
         }
     }
 
     /**
-     * 将任务加入到任务Map中
+     * 将任务加入到任务Map中，同一个key尚未处理的任务会被合并
      *
      * @param type
      * @param task
@@ -161,75 +249,138 @@ public final class TaskManager implements TaskManagerMBean {
             MetricsMonitor.getDumpTaskMonitor().set(tasks.size());
             if (null != oldTask) {
                 task.merge(oldTask);
+            } else {
+                pendingSince.put(type, System.nanoTime());
             }
+            schedule(type);
         } finally {
             this.lock.unlock();
         }
     }
 
     /**
-     *
+     * 调用方持有lock。正在执行的key等执行结束后再调度，保证同一个key不会并发执行
      */
-    protected void process() {
-        for (Map.Entry<String, AbstractTask> entry : this.tasks.entrySet()) {
-            AbstractTask task = null;
-            this.lock.lock();
-            try {
-                // 获取任务
-                task = entry.getValue();
-                if (null != task) {
-                    if (!task.shouldProcess()) {
-                        // 任务当前不需要被执行，直接跳过
-                        continue;
-                    }
-                    // 先将任务从任务Map中删除
-                    this.tasks.remove(entry.getKey());
-                    MetricsMonitor.getDumpTaskMonitor().set(tasks.size());
-                }
-            } finally {
-                this.lock.unlock();
-            }
+    private void schedule(String type) {
+        if (runningKeys.contains(type) || !readySet.add(type)) {
+            return;
+        }
+        readyKeys.add(type);
+        hasTask.signal();
+    }
 
-            if (null != task) {
-                // 获取任务处理器
-                TaskProcessor processor = this.taskProcessors.get(entry.getKey());
-                if (null == processor) {
-                    // 如果没有根据任务类型设置的处理器，使用默认处理器
-                    processor = this.getDefaultTaskProcessor();
+    /**
+     * 取出下一个可执行的任务并处理，没有任务时等待addTask或重试时间到
+     */
+    void processNext() throws InterruptedException {
+        String type = null;
+        AbstractTask task = null;
+        this.lock.lockInterruptibly();
+        try {
+            while (null == task) {
+                if (closed.get()) {
+                    return;
                 }
-                if (null != processor) {
-                    boolean result = false;
-                    try {
-                        // 处理任务
-                        result = processor.process(entry.getKey(), task);
-                    } catch (Throwable t) {
-                        log.error("task_fail", "处理task失败", t);
+                long now = System.currentTimeMillis();
+                while (!delayedKeys.isEmpty() && delayedKeys.peek().dueTime <= now) {
+                    String key = delayedKeys.poll().key;
+                    if (tasks.containsKey(key)) {
+                        schedule(key);
                     }
-                    if (!result) {
-                        // 任务处理失败，设置最后处理时间
-                        task.setLastProcessTime(System.currentTimeMillis());
-
-                        // 将任务重新加入到任务Map中
-                        this.addTask(entry.getKey(), task);
+                }
+                type = readyKeys.poll();
+                if (null == type) {
+                    if (delayedKeys.isEmpty()) {
+                        hasTask.await();
+                    } else {
+                        hasTask.await(delayedKeys.peek().dueTime - now, TimeUnit.MILLISECONDS);
                     }
+                    continue;
                 }
+                readySet.remove(type);
+                AbstractTask candidate = tasks.get(type);
+                if (null == candidate) {
+                    continue;
+                }
+                if (!candidate.shouldProcess()) {
+                    // 任务当前不需要被执行，到期后再调度
+                    long dueTime = candidate.getLastProcessTime() + candidate.getTaskInterval();
+                    delayedKeys.add(new DelayedKey(type, dueTime > now ? dueTime : now + MIN_RETRY_DELAY_MS));
+                    continue;
+                }
+                // 先将任务从任务Map中删除
+                this.tasks.remove(type);
+                MetricsMonitor.getDumpTaskMonitor().set(tasks.size());
+                runningKeys.add(type);
+                task = candidate;
             }
+        } finally {
+            this.lock.unlock();
+        }
+
+        Long since = pendingSince.remove(type);
+        if (null != since) {
+            recordLatency(System.nanoTime() - since);
         }
 
-        if (tasks.isEmpty()) {
+        boolean result = false;
+        try {
+            // 获取任务处理器
+            TaskProcessor processor = this.taskProcessors.get(type);
+            if (null == processor) {
+                // 如果没有根据任务类型设置的处理器，使用默认处理器
+                processor = this.getDefaultTaskProcessor();
+            }
+            if (null != processor) {
+                // 处理任务
+                result = processor.process(type, task);
+            } else {
+                result = true;
+            }
+        } catch (Throwable t) {
+            log.error("task_fail", "处理task失败", t);
+        } finally {
             this.lock.lock();
             try {
-                this.notEmpty.signalAll();
+                runningKeys.remove(type);
+                if (!result) {
+                    // 任务处理失败，设置最后处理时间，重新加入到任务Map中
+                    task.setLastProcessTime(System.currentTimeMillis());
+                    this.addTask(type, task);
+                } else if (tasks.containsKey(type)) {
+                    // 执行期间又来了同一个key的任务
+                    schedule(type);
+                }
+                if (this.isIdle()) {
+                    this.notEmpty.signalAll();
+                }
             } finally {
                 this.lock.unlock();
             }
         }
     }
 
+    private void recordLatency(long nanos) {
+        latencyTimer.record(nanos, TimeUnit.NANOSECONDS);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS_MS.length && millis > LATENCY_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        latencyHistogram.incrementAndGet(bucket);
+    }
+
     public boolean isEmpty() {
         return tasks.isEmpty();
     }
 
+    /**
+     * 调用方持有lock
+     */
+    private boolean isIdle() {
+        return tasks.isEmpty() && runningKeys.isEmpty();
+    }
+
     public TaskProcessor getDefaultTaskProcessor() {
         this.lock.lock();
         try {
@@ -248,6 +399,7 @@ public final class TaskManager implements TaskManagerMBean {
         }
     }
 
+    @Override
     public String getTaskInfos() {
         StringBuilder sb = new StringBuilder();
         for (String taskType : this.taskProcessors.keySet()) {
@@ -264,6 +416,34 @@ public final class TaskManager implements TaskManagerMBean {
         return sb.toString();
     }
 
+    @Override
+    public String getQueueLatencyHistogram() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < latencyHistogram.length(); i++) {
+            if (i < LATENCY_BUCKETS_MS.length) {
+                sb.append("<=").append(LATENCY_BUCKETS_MS[i]).append("ms:");
+            } else {
+                sb.append(">").append(LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1]).append("ms:");
+            }
+            sb.append(latencyHistogram.get(i)).append(Constants.NACOS_LINE_SEPARATOR);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public long getQueueLatencyCount() {
+        long count = 0L;
+        for (int i = 0; i < latencyHistogram.length(); i++) {
+            count += latencyHistogram.get(i);
+        }
+        return count;
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
     public void init() {
         try {
             ObjectName oName = new ObjectName(this.name + ":type=" + TaskManager.class.getSimpleName());
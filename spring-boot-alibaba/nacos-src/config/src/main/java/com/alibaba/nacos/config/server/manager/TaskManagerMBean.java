@@ -30,4 +30,25 @@ public interface TaskManagerMBean {
      */
     String getTaskInfos();
 
+    /**
+     * 任务从加入到开始执行的排队时延直方图
+     *
+     * @return 每个桶一行，形如"<=10ms:count"
+     */
+    String getQueueLatencyHistogram();
+
+    /**
+     * 已统计排队时延的任务数
+     *
+     * @return count
+     */
+    long getQueueLatencyCount();
+
+    /**
+     * get worker count
+     *
+     * @return worker count
+     */
+    int getWorkerCount();
+
 }
@@ -16,11 +16,16 @@
 package com.alibaba.nacos.config.server.model;
 
 import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.utils.MD5;
 import com.alibaba.nacos.config.server.utils.SimpleReadWriteLock;
 import com.alibaba.nacos.config.server.utils.SingletonRepository.DataIdGroupIdCache;
+import org.apache.commons.lang3.StringUtils;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * cache item
@@ -109,6 +114,92 @@ public class CacheItem {
         this.tagLastModifiedTs = tagLastModifiedTs;
     }
 
+    public Md5Snapshot getMd5Snapshot() {
+        return md5Snapshot;
+    }
+
+    /**
+     * 按当前md5相关字段重建快照。md5、beta、tag字段变化后必须调用。
+     */
+    public synchronized void refreshMd5Snapshot() {
+        Map<String, byte[]> tagDigests = null;
+        Map<String, String> tagMd5Tmp = tagMd5;
+        if (tagMd5Tmp != null && !tagMd5Tmp.isEmpty()) {
+            tagDigests = new HashMap<String, byte[]>(tagMd5Tmp.size());
+            for (Map.Entry<String, String> entry : tagMd5Tmp.entrySet()) {
+                tagDigests.put(entry.getKey(), MD5.toDigest(entry.getValue()));
+            }
+        }
+        md5Snapshot = new Md5Snapshot(MD5.toDigest(md5), isBeta, MD5.toDigest(md54Beta), ips4Beta, tagDigests);
+    }
+
+    /**
+     * 探测比较用的不可变md5快照，保存16字节摘要而不是十六进制串，一次volatile读即可完成beta和tag判断
+     */
+    static public class Md5Snapshot {
+
+        static final Md5Snapshot EMPTY = new Md5Snapshot(null, false, null, null, null);
+
+        Md5Snapshot(byte[] md5, boolean isBeta, byte[] md54Beta, List<String> ips4Beta,
+                    Map<String, byte[]> tagMd5) {
+            this.md5 = md5;
+            this.isBeta = isBeta;
+            this.md54Beta = md54Beta;
+            this.ips4Beta = ips4Beta;
+            this.tagMd5 = (tagMd5 == null) ? Collections.<String, byte[]>emptyMap() : tagMd5;
+        }
+
+        /**
+         * 返回对指定客户端生效的摘要，null表示没有数据
+         */
+        public byte[] getMd5(String ip, String tag) {
+            if (isBeta && ips4Beta != null && ips4Beta.contains(ip)) {
+                return md54Beta;
+            }
+            if (!tagMd5.isEmpty() && StringUtils.isNotBlank(tag) && tagMd5.containsKey(tag)) {
+                return tagMd5.get(tag);
+            }
+            return md5;
+        }
+
+        final byte[] md5;
+        final boolean isBeta;
+        final byte[] md54Beta;
+        final List<String> ips4Beta;
+        final Map<String, byte[]> tagMd5;
+    }
+
+    public AtomicReference<ContentEntry> getContentEntry() {
+        return contentEntry;
+    }
+
+    /**
+     * 内存中缓存的配置内容，只缓存正式版本（非beta、非tag）
+     */
+    static public class ContentEntry {
+
+        public ContentEntry(CacheItem cacheItem, byte[] content, String md5, long lastModified) {
+            this.cacheItem = cacheItem;
+            this.content = content;
+            this.size = content.length;
+            this.md5 = md5;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * 淘汰后置空，避免淘汰队列中残留的引用继续占用内存；读取方需先取到本地变量再判空
+         */
+        public volatile byte[] content;
+        public final int size;
+        public final String md5;
+        public final long lastModified;
+        public final CacheItem cacheItem;
+        /**
+         * CLOCK淘汰算法的访问标记
+         */
+        public volatile boolean referenced = false;
+    }
+
     final String groupKey;
     public volatile String md5 = Constants.NULL;
     public volatile long lastModifiedTs;
@@ -123,5 +214,7 @@ public class CacheItem {
     public volatile Map<String, String> tagMd5;
     public volatile Map<String, Long> tagLastModifiedTs;
     public SimpleReadWriteLock rwLock = new SimpleReadWriteLock();
+    volatile Md5Snapshot md5Snapshot = Md5Snapshot.EMPTY;
+    final AtomicReference<ContentEntry> contentEntry = new AtomicReference<ContentEntry>();
 
 }
@@ -44,6 +44,10 @@ public class Page<E> implements Serializable {
      * 该页内容
      */
     private List<E> pageItems = new ArrayList<E>();
+    /**
+     * 游标分页时取下一页的游标，null表示没有下一页
+     */
+    private Long nextCursor;
 
     public void setPageNumber(int pageNumber) {
         this.pageNumber = pageNumber;
@@ -76,4 +80,12 @@ public class Page<E> implements Serializable {
     public List<E> getPageItems() {
         return pageItems;
     }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
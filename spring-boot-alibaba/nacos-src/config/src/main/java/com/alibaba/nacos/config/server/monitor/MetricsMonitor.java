@@ -19,7 +19,11 @@ import io.micrometer.core.instrument.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Metrics Monitor
@@ -27,12 +31,34 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author Nacos
  */
 public class MetricsMonitor {
+    /**
+     * 按配置统计拉取次数的配置个数上限，超出的计入OTHER_CONFIG
+     */
+    static final int MAX_CONFIG_PULL_COUNTERS = 10000;
+    static final String OTHER_CONFIG = "other";
+
     private static AtomicInteger getConfig = new AtomicInteger();
     private static AtomicInteger publish = new AtomicInteger();
     private static AtomicInteger longPolling = new AtomicInteger();
     private static AtomicInteger configCount = new AtomicInteger();
     private static AtomicInteger notifyTask = new AtomicInteger();
     private static AtomicInteger dumpTask = new AtomicInteger();
+    private static AtomicLong contentCacheSize = new AtomicLong();
+    private static AtomicInteger historyJournalQueue = new AtomicInteger();
+    private static AtomicInteger capacityUsageCounter = new AtomicInteger();
+    private static ConcurrentHashMap<Integer, AtomicInteger> longPollingShardQueue
+        = new ConcurrentHashMap<Integer, AtomicInteger>();
+    private static ConcurrentHashMap<String, AtomicInteger> eventQueue = new ConcurrentHashMap<String, AtomicInteger>();
+    private static ConcurrentHashMap<String, Counter> traceEventCounters = new ConcurrentHashMap<String, Counter>();
+    private static ConcurrentHashMap<String, LongAdder> configPullCounters
+        = new ConcurrentHashMap<String, LongAdder>();
+
+    private static final ToDoubleFunction<LongAdder> LONG_ADDER_SUM = new ToDoubleFunction<LongAdder>() {
+        @Override
+        public double applyAsDouble(LongAdder value) {
+            return value.sum();
+        }
+    };
 
     static {
         List<Tag> tags = new ArrayList<Tag>();
@@ -65,6 +91,21 @@ public class MetricsMonitor {
         tags.add(new ImmutableTag("name", "dumpTask"));
 
         Metrics.gauge("nacos_monitor", tags, dumpTask);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "contentCacheSize"));
+        Metrics.gauge("nacos_monitor", tags, contentCacheSize);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "historyJournalQueue"));
+        Metrics.gauge("nacos_monitor", tags, historyJournalQueue);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "capacityUsageCounter"));
+        Metrics.gauge("nacos_monitor", tags, capacityUsageCounter);
     }
 
     public static AtomicInteger getConfigMonitor() {
@@ -91,11 +132,162 @@ public class MetricsMonitor {
         return dumpTask;
     }
 
+    public static AtomicLong getContentCacheSizeMonitor() {
+        return contentCacheSize;
+    }
+
+    public static AtomicInteger getHistoryJournalQueueMonitor() {
+        return historyJournalQueue;
+    }
+
+    public static AtomicInteger getCapacityUsageCounterMonitor() {
+        return capacityUsageCounter;
+    }
+
+    public static AtomicInteger getLongPollingShardQueueMonitor(int shard) {
+        AtomicInteger queueSize = longPollingShardQueue.get(shard);
+        if (queueSize == null) {
+            AtomicInteger newQueueSize = new AtomicInteger();
+            queueSize = longPollingShardQueue.putIfAbsent(shard, newQueueSize);
+            if (queueSize == null) {
+                queueSize = newQueueSize;
+                List<Tag> tags = new ArrayList<Tag>();
+                tags.add(new ImmutableTag("module", "config"));
+                tags.add(new ImmutableTag("name", "longPollingShardQueue"));
+                tags.add(new ImmutableTag("shard", String.valueOf(shard)));
+                Metrics.gauge("nacos_monitor", tags, queueSize);
+            }
+        }
+        return queueSize;
+    }
+
+    public static AtomicInteger getEventQueueMonitor(String listener) {
+        AtomicInteger queueSize = eventQueue.get(listener);
+        if (queueSize == null) {
+            AtomicInteger newQueueSize = new AtomicInteger();
+            queueSize = eventQueue.putIfAbsent(listener, newQueueSize);
+            if (queueSize == null) {
+                queueSize = newQueueSize;
+                List<Tag> tags = new ArrayList<Tag>();
+                tags.add(new ImmutableTag("module", "config"));
+                tags.add(new ImmutableTag("name", "eventQueue"));
+                tags.add(new ImmutableTag("listener", listener));
+                Metrics.gauge("nacos_monitor", tags, queueSize);
+            }
+        }
+        return queueSize;
+    }
+
+    public static Timer getLongPollingFireLagTimer(int shard) {
+        return Metrics.timer("nacos_timer",
+            "module", "config", "name", "longPollingFireLag", "shard", String.valueOf(shard));
+    }
+
+    public static Timer getTaskQueueLatencyTimer(String taskManager) {
+        return Metrics.timer("nacos_timer",
+            "module", "config", "name", "taskQueueLatency", "taskManager", taskManager);
+    }
+
     public static Timer getNotifyRtTimer() {
         return Metrics.timer("nacos_timer",
             "module", "config", "name", "notifyRt");
     }
 
+    public static Timer getDumpAllRtTimer() {
+        return Metrics.timer("nacos_timer",
+            "module", "config", "name", "dumpAllRt");
+    }
+
+    public static Counter getDumpAllCounter() {
+        return Metrics.counter("nacos_dump",
+            "module", "config", "name", "dumpAll");
+    }
+
+    public static Counter getContentCacheHitCounter() {
+        return Metrics.counter("nacos_cache",
+            "module", "config", "name", "contentCacheHit");
+    }
+
+    public static Counter getContentCacheMissCounter() {
+        return Metrics.counter("nacos_cache",
+            "module", "config", "name", "contentCacheMiss");
+    }
+
+    public static Counter getConfigReadRetryCounter() {
+        return Metrics.counter("nacos_lock",
+            "module", "config", "name", "optimisticReadRetry");
+    }
+
+    public static Counter getConfigReadFallbackCounter() {
+        return Metrics.counter("nacos_lock",
+            "module", "config", "name", "readLockFallback");
+    }
+
+    public static Counter getWriteLockFailCounter() {
+        return Metrics.counter("nacos_lock",
+            "module", "config", "name", "writeLockFail");
+    }
+
+    public static Counter getHistoryJournalDroppedCounter() {
+        return Metrics.counter("nacos_history",
+            "module", "config", "name", "historyJournalDropped");
+    }
+
+    public static Counter getCapacityUsageFlushFailCounter() {
+        return Metrics.counter("nacos_capacity",
+            "module", "config", "name", "capacityUsageFlushFail");
+    }
+
+    public static Counter getEventDroppedCounter(String listener) {
+        return Metrics.counter("nacos_event",
+            "module", "config", "name", "eventDropped", "listener", listener);
+    }
+
+    public static Counter getEventBlockedCounter(String listener) {
+        return Metrics.counter("nacos_event",
+            "module", "config", "name", "eventBlocked", "listener", listener);
+    }
+
+    public static Counter getTraceDroppedCounter() {
+        return Metrics.counter("nacos_trace",
+            "module", "config", "name", "traceDropped");
+    }
+
+    /**
+     * trace事件计数，按事件（pull、dump、notify）和结果分类，不论日志是否被采样输出
+     */
+    public static Counter getTraceEventCounter(String event, String type) {
+        String key = event + "|" + type;
+        Counter counter = traceEventCounters.get(key);
+        if (counter == null) {
+            counter = Metrics.counter("nacos_trace",
+                "module", "config", "name", "traceEvent", "event", event, "type", type);
+            traceEventCounters.putIfAbsent(key, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * 按配置统计的拉取次数，导出为nacos_config_pull{groupKey}。groupKey个数超过上限后新的配置计入OTHER_CONFIG
+     */
+    public static LongAdder getConfigPullCounter(String groupKey) {
+        LongAdder counter = configPullCounters.get(groupKey);
+        if (counter == null) {
+            if (configPullCounters.size() >= MAX_CONFIG_PULL_COUNTERS) {
+                groupKey = OTHER_CONFIG;
+            }
+            LongAdder newCounter = new LongAdder();
+            counter = configPullCounters.putIfAbsent(groupKey, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+                FunctionCounter.builder("nacos_config_pull", counter, LONG_ADDER_SUM)
+                    .tags("module", "config", "groupKey", groupKey)
+                    .register(Metrics.globalRegistry);
+            }
+        }
+        return counter;
+    }
+
     public static Counter getIllegalArgumentException() {
         return Metrics.counter("nacos_exception",
             "module", "config", "name", "illegalArgument");
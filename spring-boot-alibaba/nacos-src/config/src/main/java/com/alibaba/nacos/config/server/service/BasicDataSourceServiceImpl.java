@@ -26,7 +26,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
@@ -37,6 +41,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -68,7 +73,7 @@ public class BasicDataSourceServiceImpl implements DataSourceService {
     private static final String DB_LOAD_ERROR_MSG = "[db-load-error]load jdbc.properties error";
 
     private List<BasicDataSource> dataSourceList = new ArrayList<BasicDataSource>();
-    private JdbcTemplate jt;
+    private WriteTrackingJdbcTemplate jt;
     private DataSourceTransactionManager tm;
     private TransactionTemplate tjt;
 
@@ -76,6 +81,11 @@ public class BasicDataSourceServiceImpl implements DataSourceService {
     private JdbcTemplate testMasterWritableJT;
 
     volatile private List<JdbcTemplate> testJTList;
+    /**
+     * 与testJTList一一对应，供只读查询使用
+     */
+    volatile private List<JdbcTemplate> readJTList;
+    private final AtomicInteger readIndex = new AtomicInteger();
     volatile private List<Boolean> isHealthList;
     private volatile int masterIndex;
     private static Pattern ipPattern = Pattern.compile("\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}");
@@ -99,7 +109,7 @@ public class BasicDataSourceServiceImpl implements DataSourceService {
     @PostConstruct
     public void init() {
         queryTimeout = NumberUtils.toInt(System.getProperty("QUERYTIMEOUT"), 3);
-        jt = new JdbcTemplate();
+        jt = new WriteTrackingJdbcTemplate();
         /**
          *  设置最大记录数，防止内存膨胀
          */
@@ -118,6 +128,7 @@ public class BasicDataSourceServiceImpl implements DataSourceService {
          * 数据库健康检测
          */
         testJTList = new ArrayList<JdbcTemplate>();
+        readJTList = new ArrayList<JdbcTemplate>();
         isHealthList = new ArrayList<Boolean>();
 
         tm = new DataSourceTransactionManager();
@@ -202,6 +213,12 @@ public class BasicDataSourceServiceImpl implements DataSourceService {
                 jdbcTemplate.setDataSource(ds);
 
                 testJTList.add(jdbcTemplate);
+
+                JdbcTemplate readJdbcTemplate = new JdbcTemplate();
+                readJdbcTemplate.setMaxRows(50000);
+                readJdbcTemplate.setQueryTimeout(queryTimeout);
+                readJdbcTemplate.setDataSource(ds);
+                readJTList.add(readJdbcTemplate);
                 isHealthList.add(Boolean.TRUE);
             }
 
@@ -248,6 +265,30 @@ public class BasicDataSourceServiceImpl implements DataSourceService {
         return this.jt;
     }
 
+    /**
+     * 开启读写分离时轮询健康（CheckDBHealthTask）的从库；没有可用从库，或本节点在readYourWritesWindow内有过写入时走主库
+     */
+    @Override
+    public JdbcTemplate getReadJdbcTemplate() {
+        if (!PropertyUtil.isReadReplicaEnabled()
+            || System.currentTimeMillis() - jt.lastWriteTime < PropertyUtil.getReadYourWritesWindow()) {
+            return jt;
+        }
+        List<JdbcTemplate> readList = readJTList;
+        int size = readList.size();
+        if (size <= 1) {
+            return jt;
+        }
+        int start = (readIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (index != masterIndex && isHealthList.get(index)) {
+                return readList.get(index);
+            }
+        }
+        return jt;
+    }
+
     @Override
     public TransactionTemplate getTransactionTemplate() {
         return this.tjt;
@@ -334,6 +375,43 @@ public class BasicDataSourceServiceImpl implements DataSourceService {
         }
     }
 
+    /**
+     * 主库JdbcTemplate，记录最近一次写入的时间，用于read-your-writes
+     */
+    static class WriteTrackingJdbcTemplate extends JdbcTemplate {
+        volatile long lastWriteTime;
+
+        @Override
+        protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+            lastWriteTime = System.currentTimeMillis();
+            return super.update(psc, pss);
+        }
+
+        @Override
+        public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) throws DataAccessException {
+            lastWriteTime = System.currentTimeMillis();
+            return super.update(psc, generatedKeyHolder);
+        }
+
+        @Override
+        public int update(String sql) throws DataAccessException {
+            lastWriteTime = System.currentTimeMillis();
+            return super.update(sql);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) throws DataAccessException {
+            lastWriteTime = System.currentTimeMillis();
+            return super.batchUpdate(sql, pss);
+        }
+
+        @Override
+        public int[] batchUpdate(String... sql) throws DataAccessException {
+            lastWriteTime = System.currentTimeMillis();
+            return super.batchUpdate(sql);
+        }
+    }
+
     @SuppressWarnings("PMD.ClassNamingShouldBeCamelRule")
     class CheckDBHealthTask implements Runnable {
 
@@ -0,0 +1,301 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.aspect.CapacityManagementAspect;
+import com.alibaba.nacos.config.server.aspect.CapacityManagementAspect.LimitType;
+import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.exception.NacosException;
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
+import com.alibaba.nacos.config.server.utils.ParamUtils;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import com.alibaba.nacos.config.server.utils.TimeUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
+import static com.alibaba.nacos.core.utils.SystemUtils.LOCAL_IP;
+
+/**
+ * 整个命名空间配置的导出和导入，格式为zip：每个配置一个条目，条目名为group/dataId，内容为配置内容(UTF-8)；
+ * appName不为空时在配置条目之前写一个#meta/group/dataId条目存appName。
+ * <p>
+ * 导出按id游标分页读库、边读边写，导入边解压边按批写库，内存只与批大小有关，与命名空间的配置数无关。
+ * 每批在一个事务内写入并发布一次合并的变更通知；批之间不是原子的，中途失败或冲突中止时之前的批已经生效。
+ *
+ * @author Nacos
+ */
+@Service
+public class ConfigArchiveService {
+
+    /**
+     * 导入时已存在配置的处理策略：整个导入中止(冲突所在批及之后均不写入)
+     */
+    public static final String POLICY_ABORT = "abort";
+    /**
+     * 导入时已存在配置的处理策略：跳过已存在的配置
+     */
+    public static final String POLICY_SKIP = "skip";
+    /**
+     * 导入时已存在配置的处理策略：覆盖已存在的配置
+     */
+    public static final String POLICY_OVERWRITE = "overwrite";
+
+    /**
+     * 导入结果中冲突中止时冲突的配置
+     */
+    public static final String RESULT_CONFLICT = "conflict";
+    /**
+     * 导入结果中超出容量限制中止时的超限类型
+     */
+    public static final String RESULT_LIMIT = "limit";
+
+    /**
+     * appName条目的前缀。#不是合法的group字符(ParamUtils)，不会和配置条目冲突
+     */
+    static final String META_DIR = "#meta/";
+
+    /**
+     * 导出每页读取、导入每批写入的配置数
+     */
+    static final int BATCH_SIZE = 500;
+
+    /**
+     * UTF-8单个字符最多的字节数，用于在解压时按配置内容的最大长度截断
+     */
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final PersistService persistService;
+
+    /**
+     * 启用容量管理时存在，导入和批量发布一样检验配额并修正usage
+     */
+    @Autowired(required = false)
+    private CapacityManagementAspect capacityManagementAspect;
+
+    @Autowired
+    public ConfigArchiveService(PersistService persistService) {
+        this.persistService = persistService;
+    }
+
+    /**
+     * 导出tenant下的所有配置(不含beta和tag)到out，不关闭out
+     *
+     * @return 导出的配置数
+     */
+    public int exportConfigs(String tenant, OutputStream out) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(out);
+        int count = 0;
+        long cursor = 0L;
+        while (true) {
+            Page<ConfigInfoWrapper> page = persistService.findConfigInfoByCursor(cursor, BATCH_SIZE, tenant);
+            for (ConfigInfoWrapper cf : page.getPageItems()) {
+                String name = cf.getGroup() + "/" + cf.getDataId();
+                if (StringUtils.isNotBlank(cf.getAppName())) {
+                    putEntry(zos, META_DIR + name, cf.getAppName());
+                }
+                putEntry(zos, name, cf.getContent());
+                count++;
+            }
+            if (page.getNextCursor() == null) {
+                break;
+            }
+            cursor = page.getNextCursor();
+        }
+        zos.finish();
+        zos.flush();
+        return count;
+    }
+
+    /**
+     * 从in读取exportConfigs导出的zip，导入到tenant下。dataId、group或内容不合法以及聚合数据计为失败，不影响其他配置。
+     *
+     * @param policy 已存在配置的处理策略，POLICY_ABORT、POLICY_SKIP或POLICY_OVERWRITE
+     * @return 成功、跳过、失败的配置数；按POLICY_ABORT中止时conflict为冲突的配置；超出容量限制中止时limit为超限类型
+     * @throws NacosException 策略不合法
+     */
+    public Map<String, Object> importConfigs(InputStream in, String tenant, String policy, String srcIp,
+                                             String srcUser) throws IOException, NacosException {
+        if (!POLICY_ABORT.equals(policy) && !POLICY_SKIP.equals(policy) && !POLICY_OVERWRITE.equals(policy)) {
+            throw new NacosException(NacosException.INVALID_PARAM, "invalid policy: " + policy);
+        }
+        String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+        ImportResult result = new ImportResult();
+        ZipInputStream zis = new ZipInputStream(in);
+        Map<String, ConfigInfo> batch = new LinkedHashMap<String, ConfigInfo>();
+        String appName = null;
+        String appNameFor = null;
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String name = entry.getName();
+            String content = readEntry(zis, PropertyUtil.getMaxContent() * MAX_BYTES_PER_CHAR);
+            if (content == null) {
+                defaultLog.warn("[import] config {} over {}", name, PropertyUtil.getMaxContent());
+                result.fail++;
+                continue;
+            }
+            if (name.startsWith(META_DIR)) {
+                appNameFor = name.substring(META_DIR.length());
+                appName = content;
+                continue;
+            }
+            int idx = name.indexOf('/');
+            String group = idx > 0 ? name.substring(0, idx) : null;
+            String dataId = idx > 0 ? name.substring(idx + 1) : null;
+            try {
+                ParamUtils.checkParam(dataId, group, "datumId", content);
+                if (AggrWhitelist.isAggrDataId(dataId)) {
+                    throw new NacosException(NacosException.NO_RIGHT, "dataId:" + dataId + " is aggr");
+                }
+            } catch (NacosException e) {
+                defaultLog.warn("[import] invalid config {}, {}", name, e.getErrMsg());
+                result.fail++;
+                continue;
+            }
+            ConfigInfo configInfo = new ConfigInfo(dataId, group, tenantTmp, name.equals(appNameFor) ? appName : null,
+                content);
+            batch.put(GroupKey2.getKey(dataId, group, tenantTmp), configInfo);
+            if (batch.size() >= BATCH_SIZE && !importBatch(batch, policy, srcIp, srcUser, result)) {
+                return result.toMap();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, policy, srcIp, srcUser, result);
+        }
+        return result.toMap();
+    }
+
+    /**
+     * 写入一批配置后清空batch
+     *
+     * @return 按POLICY_ABORT遇到已存在的配置或超出容量限制时返回false，此时该批不写入
+     */
+    private boolean importBatch(Map<String, ConfigInfo> batch, String policy, final String srcIp,
+                                final String srcUser, ImportResult result) {
+        if (!POLICY_OVERWRITE.equals(policy)) {
+            List<ConfigInfoWrapper> exists = persistService.findConfigInfoByGroupKeys(
+                new ArrayList<String>(batch.keySet()));
+            if (!exists.isEmpty() && POLICY_ABORT.equals(policy)) {
+                ConfigInfoWrapper cf = exists.get(0);
+                result.conflict = GroupKey2.getKey(cf.getDataId(), cf.getGroup(), cf.getTenant());
+                batch.clear();
+                return false;
+            }
+            for (ConfigInfoWrapper cf : exists) {
+                if (batch.remove(GroupKey2.getKey(cf.getDataId(), cf.getGroup(), cf.getTenant())) != null) {
+                    result.skip++;
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+        final List<ConfigInfo> configInfos = new ArrayList<ConfigInfo>(batch.values());
+        batch.clear();
+        final Timestamp time = TimeUtils.getCurrentTime();
+        Runnable writer = new Runnable() {
+            @Override
+            public void run() {
+                persistService.batchInsertOrUpdate(configInfos, srcIp, srcUser, time, true);
+            }
+        };
+        if (capacityManagementAspect == null) {
+            writer.run();
+        } else {
+            LimitType limitType = capacityManagementAspect.publishBatch(configInfos, writer);
+            if (limitType != null) {
+                defaultLog.warn("[import] {} configs over capacity limit: {}", configInfos.size(), limitType);
+                result.fail += configInfos.size();
+                result.limit = limitType.name();
+                return false;
+            }
+        }
+        for (ConfigInfo configInfo : configInfos) {
+            ConfigTraceService.logPersistenceEvent(configInfo.getDataId(), configInfo.getGroup(),
+                configInfo.getTenant(), null, time.getTime(), LOCAL_IP, ConfigTraceService.PERSISTENCE_EVENT_PUB,
+                configInfo.getContent());
+        }
+        result.succ += configInfos.size();
+        return true;
+    }
+
+    private static void putEntry(ZipOutputStream zos, String name, String content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content.getBytes(Constants.ENCODE));
+        zos.closeEntry();
+    }
+
+    /**
+     * 读取当前条目，超过maxBytes时跳过剩余内容并返回null
+     */
+    private static String readEntry(ZipInputStream zis, int maxBytes) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int len;
+        while ((len = zis.read(buf)) != -1) {
+            if (bos.size() + len > maxBytes) {
+                zis.closeEntry();
+                return null;
+            }
+            bos.write(buf, 0, len);
+        }
+        return new String(bos.toByteArray(), Constants.ENCODE);
+    }
+
+    static class ImportResult {
+        int succ;
+        int skip;
+        int fail;
+        String conflict;
+        String limit;
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<String, Object>(8);
+            map.put("succCount", succ);
+            map.put("skipCount", skip);
+            map.put("failCount", fail);
+            if (conflict != null) {
+                map.put(RESULT_CONFLICT, conflict);
+            }
+            if (limit != null) {
+                map.put(RESULT_LIMIT, limit);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.model.CacheItem;
+import com.alibaba.nacos.config.server.model.CacheItem.ContentEntry;
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 配置内容的内存缓存层，挂在CacheItem上，热点配置的读取不再访问磁盘。
+ * <p>
+ * 总字节数受contentCacheMaxSize限制，超出时按CLOCK算法（近似LRU）淘汰；dump和remove时由ConfigService失效。
+ *
+ * @author Nacos
+ */
+public class ConfigContentCache {
+
+    static public boolean isEnabled() {
+        return PropertyUtil.getContentCacheMaxSize() > 0;
+    }
+
+    /**
+     * 返回与当前md5一致的缓存内容，未命中返回null
+     */
+    static public ContentEntry get(CacheItem cacheItem, String md5) {
+        ContentEntry entry = cacheItem.getContentEntry().get();
+        if (entry == null || entry.content == null || !entry.md5.equals(md5)) {
+            MetricsMonitor.getContentCacheMissCounter().increment();
+            return null;
+        }
+        entry.referenced = true;
+        MetricsMonitor.getContentCacheHitCounter().increment();
+        return entry;
+    }
+
+    /**
+     * 放入缓存，超过单条上限或总上限的内容不缓存
+     *
+     * @return 放入的缓存项，未放入返回null
+     */
+    static public ContentEntry put(CacheItem cacheItem, byte[] content, String md5, long lastModified) {
+        long maxSize = PropertyUtil.getContentCacheMaxSize();
+        if (maxSize <= 0 || content == null || content.length > maxSize / MAX_ENTRY_RATIO) {
+            return null;
+        }
+        ContentEntry entry = new ContentEntry(cacheItem, content, md5, lastModified);
+        ContentEntry old = cacheItem.getContentEntry().getAndSet(entry);
+        release(old);
+        USED_BYTES.addAndGet(entry.size);
+        LIVE.incrementAndGet();
+        offer(entry);
+        evictIfNecessary(maxSize);
+        return entry;
+    }
+
+    /**
+     * 失效CacheItem上的缓存内容
+     */
+    static public void invalidate(CacheItem cacheItem) {
+        release(cacheItem.getContentEntry().getAndSet(null));
+    }
+
+    /**
+     * 只有当前缓存项仍是entry时才失效，用于乐观读校验失败后撤销自己放入的内容
+     */
+    static public void invalidate(CacheItem cacheItem, ContentEntry entry) {
+        if (entry != null && cacheItem.getContentEntry().compareAndSet(entry, null)) {
+            release(entry);
+        }
+    }
+
+    /**
+     * 超出字节上限，或队列中失效的缓存项过多
+     */
+    static boolean needsEviction(long maxSize) {
+        boolean overSize = USED_BYTES.get() > maxSize;
+        boolean tooManyStale = QUEUED.get() > LIVE.get() * MAX_QUEUED_PER_LIVE + PURGE_SLACK;
+        return overSize || tooManyStale;
+    }
+
+    static public long usedBytes() {
+        return USED_BYTES.get();
+    }
+
+    /**
+     * 超出字节上限时按CLOCK淘汰；同时清理队列中已失效的缓存项，防止频繁变更的配置让队列无限增长
+     */
+    static void evictIfNecessary(long maxSize) {
+        // 每个缓存项最多给一次二次机会，避免全部被标记访问时空转
+        int budget = QUEUED.get() * MAX_CLOCK_PASSES;
+        while (budget-- > 0 && needsEviction(maxSize)) {
+            ContentEntry entry = CLOCK.poll();
+            if (entry == null) {
+                return;
+            }
+            QUEUED.decrementAndGet();
+            if (entry.cacheItem.getContentEntry().get() != entry) {
+                // 已被替换或失效
+                continue;
+            }
+            if (USED_BYTES.get() <= maxSize || entry.referenced) {
+                entry.referenced = false;
+                offer(entry);
+                continue;
+            }
+            invalidate(entry.cacheItem, entry);
+        }
+    }
+
+    private static void offer(ContentEntry entry) {
+        QUEUED.incrementAndGet();
+        CLOCK.offer(entry);
+    }
+
+    private static void release(ContentEntry entry) {
+        if (entry != null && entry.content != null) {
+            entry.content = null;
+            USED_BYTES.addAndGet(-entry.size);
+            LIVE.decrementAndGet();
+        }
+    }
+
+    /**
+     * 单条内容最多占用总上限的1/MAX_ENTRY_RATIO
+     */
+    static final int MAX_ENTRY_RATIO = 8;
+
+    static final AtomicLong USED_BYTES = MetricsMonitor.getContentCacheSizeMonitor();
+
+    /**
+     * 队列中允许残留的失效缓存项数
+     */
+    static final int PURGE_SLACK = 1024;
+
+    /**
+     * CLOCK每轮淘汰最多扫描队列的遍数，即每个缓存项一次二次机会
+     */
+    static final int MAX_CLOCK_PASSES = 2;
+
+    /**
+     * 队列长度超过有效缓存项数的倍数时清理失效项
+     */
+    static final int MAX_QUEUED_PER_LIVE = 2;
+
+    static final Queue<ContentEntry> CLOCK = new ConcurrentLinkedQueue<ContentEntry>();
+
+    static final AtomicInteger QUEUED = new AtomicInteger();
+
+    static final AtomicInteger LIVE = new AtomicInteger();
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.utils.event.EventDispatcher.Event;
+
+import java.util.List;
+
+/**
+ * 一次批量发布产生的数据变更事件，通知其他节点时合并发送
+ *
+ * @author Nacos
+ */
+public class ConfigDataChangeBatchEvent implements Event {
+
+    final public List<ConfigDataChangeEvent> changes;
+
+    public ConfigDataChangeBatchEvent(List<ConfigDataChangeEvent> changes) {
+        if (null == changes) {
+            throw new IllegalArgumentException();
+        }
+        this.changes = changes;
+    }
+
+}
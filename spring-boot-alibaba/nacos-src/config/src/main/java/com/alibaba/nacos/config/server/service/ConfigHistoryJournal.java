@@ -0,0 +1,178 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
+import static com.alibaba.nacos.config.server.utils.LogUtil.fatalLog;
+
+/**
+ * 配置历史的异步写入队列。事务提交后把his_config_info记录放入有界队列，由单独的线程按批写入，发布不再等待历史写入。
+ * <p>
+ * 队列中的记录只在内存里，进程异常退出时会丢失，正常关闭时会写完。队列满时按onFull处理：drop丢弃并计数，sync由调用线程直接写入。
+ * <p>
+ * 删除('D')的历史不经过队列，增量dump依赖它发现删除，见PersistService#insertConfigHistoryAtomic。
+ *
+ * @author Nacos
+ */
+class ConfigHistoryJournal implements Runnable {
+
+    static final String ON_FULL_DROP = "drop";
+    static final String ON_FULL_SYNC = "sync";
+
+    /**
+     * 删除的op_type，这类历史不经过队列
+     */
+    static final String OP_DELETE = "D";
+
+    static final String INSERT_HISTORY_SQL
+        = "INSERT INTO his_config_info (id,data_id,group_id,tenant_id,app_name,content,md5,src_ip,src_user,"
+        + "gmt_modified,op_type) VALUES(?,?,?,?,?,?,?,?,?,?,?)";
+
+    /**
+     * 写库失败时整批重试的次数，之后丢弃
+     */
+    static final int MAX_RETRY = 3;
+    static final long RETRY_INTERVAL_MS = 1000L;
+
+    ConfigHistoryJournal(JdbcTemplate jt, int capacity, int batchSize, String onFull) {
+        this.jt = jt;
+        this.queue = new ArrayBlockingQueue<Object[]>(capacity);
+        this.batchSize = batchSize;
+        this.syncOnFull = ON_FULL_SYNC.equalsIgnoreCase(onFull);
+    }
+
+    void start() {
+        // 只提交一个常驻任务
+        writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(1),
+            new ThreadFactoryBuilder().setNameFormat("com.alibaba.nacos.config.HistoryJournal-%d").setDaemon(true)
+                .build());
+        writer.execute(this);
+    }
+
+    /**
+     * 停止写入线程并写完队列中剩余的记录
+     */
+    void shutdown() {
+        running = false;
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Object[]> rest = new ArrayList<Object[]>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += batchSize) {
+            write(rest.subList(i, Math.min(i + batchSize, rest.size())));
+        }
+    }
+
+    /**
+     * @param record INSERT_HISTORY_SQL的参数
+     */
+    void append(Object[] record) {
+        if (queue.offer(record)) {
+            MetricsMonitor.getHistoryJournalQueueMonitor().set(queue.size());
+            return;
+        }
+        if (syncOnFull) {
+            jt.update(INSERT_HISTORY_SQL, record);
+            return;
+        }
+        MetricsMonitor.getHistoryJournalDroppedCounter().increment();
+        fatalLog.error("[history-journal] queue full, drop history of {}, {}, {}",
+            new Object[] {record[1], record[2], record[10]});
+    }
+
+    void appendAll(List<Object[]> records) {
+        for (Object[] record : records) {
+            append(record);
+        }
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void run() {
+        List<Object[]> batch = new ArrayList<Object[]>(batchSize);
+        while (running) {
+            try {
+                Object[] first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 积压越多每批越大，空闲时来一条写一条
+                queue.drainTo(batch, batchSize - 1);
+                MetricsMonitor.getHistoryJournalQueueMonitor().set(queue.size());
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                defaultLog.error("[history-journal] error", t);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Object[]> batch) {
+        for (int i = 0; ; i++) {
+            try {
+                jt.batchUpdate(INSERT_HISTORY_SQL, batch);
+                return;
+            } catch (Exception e) {
+                if (i >= MAX_RETRY || Thread.currentThread().isInterrupted()) {
+                    MetricsMonitor.getHistoryJournalDroppedCounter().increment(batch.size());
+                    fatalLog.error("[history-journal] drop " + batch.size() + " history records after retry", e);
+                    return;
+                }
+                defaultLog.warn("[history-journal] write {} records failed, retry later: {}", batch.size(),
+                    e.toString());
+                try {
+                    Thread.sleep(RETRY_INTERVAL_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private final JdbcTemplate jt;
+    private final BlockingQueue<Object[]> queue;
+    private final int batchSize;
+    private final boolean syncOnFull;
+    private volatile boolean running = true;
+    private ExecutorService writer;
+}
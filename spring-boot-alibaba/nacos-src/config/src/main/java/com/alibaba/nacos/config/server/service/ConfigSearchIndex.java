@@ -0,0 +1,605 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigTagRelation;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
+
+/**
+ * 控制台模糊搜索的内存索引，只存元数据（dataId、group、tenant、appName、标签和主键），不存内容。
+ * <p>
+ * dataId和group按3-gram建倒排表，前缀、中缀查询先求倒排表交集再逐条校验；tenant不带通配符时直接取该tenant的分区。
+ * 匹配语义与findConfigInfoLike4Page的LIKE一致（*和%匹配任意串，_匹配单个字符，区分大小写，同utf8_bin）。
+ * 命中后只按主键查当前页的内容。
+ * <p>
+ * 启动时从库里全量构建，之后跟随dump更新；构建期间的变更先记下，建好后按顺序重放再切换，早于扫描所读行修改时间的变更不再重放。
+ * 内容条件或索引未就绪时调用方查库。
+ *
+ * @author Nacos
+ */
+public class ConfigSearchIndex {
+
+    static public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * 索引已就绪或正在构建，此时变更才需要带标签更新到索引
+     */
+    static public boolean isTracking() {
+        return index != null || pendingOps != null;
+    }
+
+    /**
+     * 从库里重建索引，已有构建在进行时直接返回
+     */
+    static public void rebuild(PersistService persistService) {
+        synchronized (ConfigSearchIndex.class) {
+            if (pendingOps != null) {
+                return;
+            }
+            pendingOps = new ArrayList<Op>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Index newIndex = new Index();
+            Map<Long, Entry> byId = new HashMap<Long, Entry>(INIT_CAPACITY);
+            long lastMaxId = 0L;
+            List<ConfigInfoWrapper> configs;
+            do {
+                configs = persistService.findAllConfigMetaFragment(lastMaxId, PAGE_SIZE);
+                for (ConfigInfoWrapper cf : configs) {
+                    byId.put(cf.getId(), newIndex.put(cf.getId(), cf.getDataId(), cf.getGroup(), cf.getTenant(),
+                        cf.getAppName(), NO_TAGS, cf.getLastModified()));
+                    lastMaxId = cf.getId();
+                }
+            } while (configs.size() == PAGE_SIZE);
+
+            long lastMaxNid = 0L;
+            List<ConfigTagRelation> relations;
+            do {
+                relations = persistService.findConfigTagRelationFragment(lastMaxNid, PAGE_SIZE);
+                for (ConfigTagRelation relation : relations) {
+                    Entry entry = byId.get(relation.getId());
+                    if (entry != null) {
+                        entry.addTag(relation.getTagName());
+                    }
+                    lastMaxNid = relation.getNid();
+                }
+            } while (relations.size() == PAGE_SIZE);
+
+            synchronized (ConfigSearchIndex.class) {
+                for (Op op : pendingOps) {
+                    // 扫描已读到更新的行，跳过之前记下的旧变更
+                    if (!op.isOlderThan(newIndex)) {
+                        op.apply(newIndex);
+                    }
+                }
+                index = newIndex;
+            }
+            defaultLog.info("[search-index] rebuilt, count={}, cost={}ms", newIndex.live,
+                System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            defaultLog.error("[search-index] rebuild failed, fuzzy search keeps the previous state", e);
+        } finally {
+            synchronized (ConfigSearchIndex.class) {
+                pendingOps = null;
+            }
+        }
+    }
+
+    /**
+     * dump之后调用，cf为null表示配置已删除；会查一次库取标签
+     *
+     * @param lastModified 变更的修改时间
+     */
+    static public void update(PersistService persistService, String dataId, String group, String tenant,
+                              ConfigInfo cf, long lastModified) {
+        if (!isTracking()) {
+            return;
+        }
+        if (cf == null) {
+            remove(dataId, group, tenant, lastModified);
+            return;
+        }
+        List<String> tags = persistService.selectTagByConfig(dataId, group,
+            StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant);
+        update(cf.getId(), dataId, group, tenant, cf.getAppName(),
+            tags == null ? NO_TAGS : tags.toArray(new String[tags.size()]), lastModified);
+    }
+
+    static public void update(long id, String dataId, String group, String tenant, String appName, String[] tags,
+                              long lastModified) {
+        apply(new Op(false, id, dataId, group, tenant, appName, tags, lastModified));
+    }
+
+    static public void remove(String dataId, String group, String tenant, long lastModified) {
+        apply(new Op(true, 0L, dataId, group, tenant, null, null, lastModified));
+    }
+
+    static private synchronized void apply(Op op) {
+        if (pendingOps != null) {
+            pendingOps.add(op);
+        }
+        Index current = index;
+        if (current != null) {
+            op.apply(current);
+        }
+    }
+
+    /**
+     * 与PersistService.findConfigInfoLike4Page语义相同，必须在isReady之后调用
+     */
+    static public Page<ConfigInfo> search(PersistService persistService, int pageNo, int pageSize, String dataId,
+                                          String group, String tenant, String appName, String configTags) {
+        if (pageNo <= 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("pageNo and pageSize must be greater than zero");
+        }
+        Set<String> tags = null;
+        if (StringUtils.isNotBlank(configTags)) {
+            tags = new HashSet<String>(Arrays.asList(configTags.split(",")));
+        }
+        List<Entry> matched = index.query(StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant,
+            StringUtils.isBlank(dataId) ? null : dataId, StringUtils.isBlank(group) ? null : group,
+            StringUtils.isBlank(appName) ? null : appName, tags);
+
+        final int rowCount = matched.size();
+        int pageCount = rowCount / pageSize;
+        if (rowCount > pageSize * pageCount) {
+            pageCount++;
+        }
+        Page<ConfigInfo> page = new Page<ConfigInfo>();
+        page.setPageNumber(pageNo);
+        page.setPagesAvailable(pageCount);
+        page.setTotalCount(rowCount);
+        if (pageNo > pageCount) {
+            return null;
+        }
+
+        List<Entry> slice = matched.subList((pageNo - 1) * pageSize, Math.min(pageNo * pageSize, rowCount));
+        List<Long> ids = new ArrayList<Long>(slice.size());
+        for (Entry entry : slice) {
+            ids.add(entry.id);
+        }
+        Map<Long, ConfigInfo> rows = new HashMap<Long, ConfigInfo>(ids.size());
+        for (ConfigInfo cf : persistService.findConfigInfosByIds(ids)) {
+            rows.put(cf.getId(), cf);
+        }
+        for (Long id : ids) {
+            // 查询之后被删除的配置不再返回
+            ConfigInfo cf = rows.get(id);
+            if (cf != null) {
+                page.getPageItems().add(cf);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * tenant下的配置数，索引未就绪返回-1
+     */
+    static public int configCount(String tenant) {
+        Index current = index;
+        if (current == null) {
+            return -1;
+        }
+        return current.count(StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant);
+    }
+
+    /**
+     * LIKE匹配，*和%匹配任意串，_匹配单个字符
+     */
+    static boolean like(String value, String pattern) {
+        int v = 0;
+        int p = 0;
+        int starP = -1;
+        int starV = 0;
+        while (v < value.length()) {
+            boolean hasPattern = p < pattern.length();
+            boolean anyString = hasPattern && isAnyString(pattern.charAt(p));
+            boolean matchOne = hasPattern && !anyString
+                && (pattern.charAt(p) == '_' || pattern.charAt(p) == value.charAt(v));
+            if (matchOne) {
+                v++;
+                p++;
+            } else if (anyString) {
+                starP = p++;
+                starV = v;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                v = ++starV;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && isAnyString(pattern.charAt(p))) {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    static boolean hasWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '_' || isAnyString(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAnyString(char c) {
+        return c == '*' || c == '%';
+    }
+
+    /**
+     * 模式中不含通配符的片段的全部3-gram，任何匹配的值都包含这些gram
+     */
+    static Set<String> literalGrams(String pattern) {
+        Set<String> grams = new HashSet<String>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i <= pattern.length(); i++) {
+            char c = i < pattern.length() ? pattern.charAt(i) : '*';
+            if (c == '_' || isAnyString(c)) {
+                addGrams(literal, grams);
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        return grams;
+    }
+
+    static void addGrams(CharSequence s, Set<String> grams) {
+        for (int i = 0; i + GRAM <= s.length(); i++) {
+            grams.add(s.subSequence(i, i + GRAM).toString());
+        }
+    }
+
+    // =================
+
+    static class Entry {
+
+        Entry(int doc, String dataId, String group, String tenant) {
+            this.doc = doc;
+            this.dataId = dataId;
+            this.group = group;
+            this.tenant = tenant;
+        }
+
+        void addTag(String tag) {
+            String[] newTags = Arrays.copyOf(tags, tags.length + 1);
+            newTags[tags.length] = tag;
+            tags = newTags;
+        }
+
+        boolean hasAnyTag(Set<String> wanted) {
+            for (String tag : tags) {
+                if (wanted.contains(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        final int doc;
+        final String dataId;
+        final String group;
+        final String tenant;
+        volatile long id;
+        volatile long lastModified;
+        volatile String appName;
+        volatile String[] tags = NO_TAGS;
+        volatile boolean live;
+    }
+
+    /**
+     * 只增不减的有序doc列表。doc按插入顺序分配，同一个配置删除后再创建沿用原来的doc，所以倒排表天然有序
+     */
+    static class IntList {
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] values = new int[4];
+        int size;
+    }
+
+    static class Index {
+
+        Entry put(long id, String dataId, String group, String tenant, String appName, String[] tags,
+                  long lastModified) {
+            String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+            String key = GroupKey2.getKey(dataId, group, tenantTmp);
+            lock.writeLock().lock();
+            try {
+                Entry entry = byKey.get(key);
+                if (entry == null) {
+                    entry = new Entry(docs.size(), dataId, group, tenantTmp);
+                    docs.add(entry);
+                    byKey.put(key, entry);
+                    posting(tenantDocs, tenantTmp).add(entry.doc);
+                    addPostings(DATA_ID_FIELD, dataId, entry.doc);
+                    addPostings(GROUP_FIELD, group, entry.doc);
+                }
+                entry.id = id;
+                entry.lastModified = lastModified;
+                entry.appName = appName;
+                entry.tags = tags;
+                if (!entry.live) {
+                    entry.live = true;
+                    live++;
+                    tenantCount(tenantTmp)[0]++;
+                }
+                return entry;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String dataId, String group, String tenant, long lastModified) {
+            String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+            lock.writeLock().lock();
+            try {
+                Entry entry = byKey.get(GroupKey2.getKey(dataId, group, tenantTmp));
+                if (entry == null) {
+                    return;
+                }
+                entry.lastModified = lastModified;
+                if (entry.live) {
+                    entry.live = false;
+                    live--;
+                    tenantCount(tenantTmp)[0]--;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @return 配置在索引中的修改时间，没有记录返回-1
+         */
+        long lastModified(String dataId, String group, String tenant) {
+            String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+            lock.readLock().lock();
+            try {
+                Entry entry = byKey.get(GroupKey2.getKey(dataId, group, tenantTmp));
+                return entry == null ? -1L : entry.lastModified;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int count(String tenant) {
+            lock.readLock().lock();
+            try {
+                int[] count = tenantCounts.get(tenant);
+                return count == null ? 0 : count[0];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return 按主键排序的匹配项
+         */
+        List<Entry> query(String tenant, String dataId, String group, String appName, Set<String> tags) {
+            lock.readLock().lock();
+            try {
+                int[] candidates = null;
+                int candidateSize = docs.size();
+                boolean exactTenant = !hasWildcard(tenant);
+                if (exactTenant) {
+                    IntList list = tenantDocs.get(tenant);
+                    if (list == null) {
+                        return Collections.emptyList();
+                    }
+                    candidates = list.values;
+                    candidateSize = list.size;
+                }
+                List<IntList> postings = new ArrayList<IntList>();
+                boolean hasPostings = collectPostings(DATA_ID_FIELD, dataId, postings)
+                    && collectPostings(GROUP_FIELD, group, postings);
+                if (!hasPostings) {
+                    return Collections.emptyList();
+                }
+                // 从最短的倒排表开始求交集
+                Collections.sort(postings, new Comparator<IntList>() {
+                    @Override
+                    public int compare(IntList o1, IntList o2) {
+                        return o1.size < o2.size ? -1 : (o1.size == o2.size ? 0 : 1);
+                    }
+                });
+                for (IntList posting : postings) {
+                    if (candidates == null) {
+                        candidates = Arrays.copyOf(posting.values, posting.size);
+                        candidateSize = posting.size;
+                    } else {
+                        int[] merged = new int[Math.min(candidateSize, posting.size)];
+                        candidateSize = intersect(candidates, candidateSize, posting.values, posting.size, merged);
+                        candidates = merged;
+                    }
+                }
+
+                List<Entry> result = new ArrayList<Entry>();
+                for (int i = 0; i < candidateSize; i++) {
+                    Entry entry = docs.get(candidates == null ? i : candidates[i]);
+                    if (!entry.live) {
+                        continue;
+                    }
+                    boolean keyMatched = (exactTenant || like(entry.tenant, tenant))
+                        && (dataId == null || like(entry.dataId, dataId))
+                        && (group == null || like(entry.group, group));
+                    boolean metaMatched = (appName == null || appName.equals(entry.appName))
+                        && (tags == null || entry.hasAnyTag(tags));
+                    if (keyMatched && metaMatched) {
+                        result.add(entry);
+                    }
+                }
+                Collections.sort(result, ID_ORDER);
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return false表示某个gram没有倒排表，结果必为空
+         */
+        private boolean collectPostings(String field, String pattern, List<IntList> postings) {
+            if (pattern == null) {
+                return true;
+            }
+            for (String gram : literalGrams(pattern)) {
+                IntList posting = grams.get(field + gram);
+                if (posting == null) {
+                    return false;
+                }
+                postings.add(posting);
+            }
+            return true;
+        }
+
+        private void addPostings(String field, String value, int doc) {
+            Set<String> valueGrams = new HashSet<String>();
+            addGrams(value, valueGrams);
+            for (String gram : valueGrams) {
+                posting(grams, field + gram).add(doc);
+            }
+        }
+
+        private static IntList posting(Map<String, IntList> postings, String key) {
+            IntList list = postings.get(key);
+            if (list == null) {
+                list = new IntList();
+                postings.put(key, list);
+            }
+            return list;
+        }
+
+        private int[] tenantCount(String tenant) {
+            int[] count = tenantCounts.get(tenant);
+            if (count == null) {
+                count = new int[1];
+                tenantCounts.put(tenant, count);
+            }
+            return count;
+        }
+
+        private static int intersect(int[] a, int aSize, int[] b, int bSize, int[] out) {
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < aSize && j < bSize) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    out[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return n;
+        }
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<String, Entry> byKey = new HashMap<String, Entry>();
+        final List<Entry> docs = new ArrayList<Entry>();
+        final Map<String, IntList> tenantDocs = new HashMap<String, IntList>();
+        final Map<String, int[]> tenantCounts = new HashMap<String, int[]>();
+        final Map<String, IntList> grams = new HashMap<String, IntList>();
+        int live;
+    }
+
+    static class Op {
+
+        Op(boolean remove, long id, String dataId, String group, String tenant, String appName, String[] tags,
+           long lastModified) {
+            this.remove = remove;
+            this.id = id;
+            this.dataId = dataId;
+            this.group = group;
+            this.tenant = tenant;
+            this.appName = appName;
+            this.tags = tags;
+            this.lastModified = lastModified;
+        }
+
+        void apply(Index target) {
+            if (remove) {
+                target.remove(dataId, group, tenant, lastModified);
+            } else {
+                target.put(id, dataId, group, tenant, appName, tags, lastModified);
+            }
+        }
+
+        boolean isOlderThan(Index target) {
+            return lastModified < target.lastModified(dataId, group, tenant);
+        }
+
+        final boolean remove;
+        final long id;
+        final String dataId;
+        final String group;
+        final String tenant;
+        final String appName;
+        final String[] tags;
+        final long lastModified;
+    }
+
+    static final Comparator<Entry> ID_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            return o1.id < o2.id ? -1 : (o1.id == o2.id ? 0 : 1);
+        }
+    };
+
+    static final int GRAM = 3;
+    static final int PAGE_SIZE = 1000;
+    static final int INIT_CAPACITY = 1024;
+    /**
+     * 倒排表的key为字段前缀加gram
+     */
+    static final String DATA_ID_FIELD = "d";
+    static final String GROUP_FIELD = "g";
+    static final String[] NO_TAGS = new String[0];
+
+    static private volatile Index index;
+    static private volatile List<Op> pendingOps;
+}
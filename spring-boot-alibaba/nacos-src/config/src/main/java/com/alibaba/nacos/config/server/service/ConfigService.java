@@ -18,6 +18,7 @@ package com.alibaba.nacos.config.server.service;
 import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.model.CacheItem;
 import com.alibaba.nacos.config.server.model.ConfigInfoBase;
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
 import com.alibaba.nacos.config.server.utils.GroupKey;
 import com.alibaba.nacos.config.server.utils.GroupKey2;
 import com.alibaba.nacos.config.server.utils.MD5;
@@ -58,6 +59,14 @@ public class ConfigService {
      * 保存配置文件，并缓存md5.
      */
     static public boolean dump(String dataId, String group, String tenant, String content, long lastModifiedTs) {
+        return dump(dataId, group, tenant, content, MD5.getInstance().getMD5String(content), lastModifiedTs);
+    }
+
+    /**
+     * 保存配置文件，并缓存md5。md5由调用方预先算好，全量dump的并行worker借此避开MD5单例的全局锁。
+     */
+    static public boolean dump(String dataId, String group, String tenant, String content, String md5,
+                               long lastModifiedTs) {
         String groupKey = GroupKey2.getKey(dataId, group, tenant);
         makeSure(groupKey);
         final int lockResult = tryWriteLock(groupKey);
@@ -69,7 +78,6 @@ public class ConfigService {
         }
 
         try {
-            final String md5 = MD5.getInstance().getMD5String(content);
             if (md5.equals(ConfigService.getContentMd5(groupKey))) {
                 dumpLog.warn(
                     "[dump-ignore] ignore to save cache file. groupKey={}, md5={}, lastModifiedOld={}, "
@@ -326,6 +334,7 @@ public class ConfigService {
             if (!STANDALONE_MODE || PropertyUtil.isStandaloneUseMysql()) {
                 DiskUtil.removeConfigInfo(dataId, group, tenant);
             }
+            ConfigContentCache.invalidate(CACHE.get(groupKey));
             CACHE.remove(groupKey);
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey));
 
@@ -364,6 +373,7 @@ public class ConfigService {
             CACHE.get(groupKey).setBeta(false);
             CACHE.get(groupKey).setIps4Beta(null);
             CACHE.get(groupKey).setMd54Beta(Constants.NULL);
+            CACHE.get(groupKey).refreshMd5Snapshot();
             return true;
         } finally {
             releaseWriteLock(groupKey);
@@ -399,6 +409,7 @@ public class ConfigService {
             CacheItem ci = CACHE.get(groupKey);
             ci.tagMd5.remove(tag);
             ci.tagLastModifiedTs.remove(tag);
+            ci.refreshMd5Snapshot();
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, false, null, tag));
             return true;
         } finally {
@@ -409,8 +420,10 @@ public class ConfigService {
     public static void updateMd5(String groupKey, String md5, long lastModifiedTs) {
         CacheItem cache = makeSure(groupKey);
         if (cache.md5 == null || !cache.md5.equals(md5)) {
+            ConfigContentCache.invalidate(cache);
             cache.md5 = md5;
             cache.lastModifiedTs = lastModifiedTs;
+            cache.refreshMd5Snapshot();
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey));
         }
     }
@@ -422,6 +435,7 @@ public class ConfigService {
             cache.md54Beta = md5;
             cache.lastModifiedTs4Beta = lastModifiedTs;
             cache.ips4Beta = ips4Beta;
+            cache.refreshMd5Snapshot();
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, true, ips4Beta));
         }
     }
@@ -439,12 +453,14 @@ public class ConfigService {
             } else {
                 cache.tagLastModifiedTs.put(tag, lastModifiedTs);
             }
+            cache.refreshMd5Snapshot();
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, false, null, tag));
             return;
         }
         if (cache.tagMd5.get(tag) == null || !cache.tagMd5.get(tag).equals(md5)) {
             cache.tagMd5.put(tag, md5);
             cache.tagLastModifiedTs.put(tag, lastModifiedTs);
+            cache.refreshMd5Snapshot();
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, false, null, tag));
         }
     }
@@ -519,9 +535,15 @@ public class ConfigService {
         return StringUtils.equals(md5, serverMd5);
     }
 
+    /**
+     * 基于CacheItem的md5快照比较，不产生临时对象，供长轮询探测使用
+     */
     static public boolean isUptodate(String groupKey, String md5, String ip, String tag) {
-        String serverMd5 = ConfigService.getContentMd5(groupKey, ip, tag);
-        return StringUtils.equals(md5, serverMd5);
+        CacheItem item = CACHE.get(groupKey);
+        if (null == item) {
+            return StringUtils.equals(md5, Constants.NULL);
+        }
+        return MD5.isEqual(md5, item.getMd5Snapshot().getMd5(ip, tag));
     }
 
     /**
@@ -556,6 +578,7 @@ public class ConfigService {
         CacheItem groupItem = CACHE.get(groupKey);
         int result = (null == groupItem) ? 0 : (groupItem.rwLock.tryWriteLock() ? 1 : -1);
         if (result < 0) {
+            MetricsMonitor.getWriteLockFailCounter().increment();
             defaultLog.warn("[write-lock] failed, {}, {}", result, groupKey);
         }
         return result;
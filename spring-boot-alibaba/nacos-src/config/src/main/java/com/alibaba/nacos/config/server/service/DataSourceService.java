@@ -47,6 +47,13 @@ public interface DataSourceService {
      */
     JdbcTemplate getJdbcTemplate();
 
+    /**
+     * get jdbc template for read-only queries, may be a replica
+     *
+     * @return JdbcTemplate
+     */
+    JdbcTemplate getReadJdbcTemplate();
+
     /**
      * get transaction template
      *
@@ -28,6 +28,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.NACOS_HOME;
 
@@ -47,6 +49,8 @@ public class DiskUtil {
     static final String TENANT_BETA_DIR = File.separator + "data" + File.separator + "tenant-beta-data";
     static final String TAG_DIR = File.separator + "data" + File.separator + "tag-data";
     static final String TENANT_TAG_DIR = File.separator + "data" + File.separator + "tag-beta-data";
+    static final String TMP_FILE_PREFIX = ".nacos-dump-";
+    static final String TMP_FILE_SUFFIX = ".tmp";
 
     static public void saveHeartBeatToDisk(String heartBeatTime)
         throws IOException {
@@ -54,12 +58,19 @@ public class DiskUtil {
             Constants.ENCODE);
     }
 
+    /**
+     * 保存增量dump水位
+     */
+    static public void saveDumpCheckpoint(String checkpoint) throws IOException {
+        writeAtomically(dumpCheckpointFile(), checkpoint);
+    }
+
     /**
      * 保存配置信息到磁盘
      */
     static public void saveToDisk(String dataId, String group, String tenant, String content) throws IOException {
         File targetFile = targetFile(dataId, group, tenant);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        writeAtomically(targetFile, content);
     }
 
     /**
@@ -67,7 +78,7 @@ public class DiskUtil {
      */
     static public void saveBetaToDisk(String dataId, String group, String tenant, String content) throws IOException {
         File targetFile = targetBetaFile(dataId, group, tenant);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        writeAtomically(targetFile, content);
     }
 
     /**
@@ -76,7 +87,23 @@ public class DiskUtil {
     static public void saveTagToDisk(String dataId, String group, String tenant, String tag, String content)
         throws IOException {
         File targetFile = targetTagFile(dataId, group, tenant, tag);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        writeAtomically(targetFile, content);
+    }
+
+    /**
+     * 先写同目录下的临时文件再原子rename，读者（包括零拷贝读取）不会看到写了一半的文件
+     */
+    static void writeAtomically(File targetFile, String content) throws IOException {
+        File dir = targetFile.getParentFile();
+        FileUtils.forceMkdir(dir);
+        File tmpFile = File.createTempFile(TMP_FILE_PREFIX, TMP_FILE_SUFFIX, dir);
+        try {
+            FileUtils.writeStringToFile(tmpFile, content, Constants.ENCODE);
+            Files.move(tmpFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            FileUtils.deleteQuietly(tmpFile);
+        }
     }
 
     /**
@@ -182,11 +209,17 @@ public class DiskUtil {
         return new File(NACOS_HOME, "status/heartBeat.txt");
     }
 
+    static public File dumpCheckpointFile() {
+        return new File(NACOS_HOME, "status/dumpCheckpoint.txt");
+    }
+
     static public String relativePath(String dataId, String group) {
         return BASE_DIR + "/" + dataId + "/" + group;
     }
 
     static public void clearAll() {
+        // 先删水位，清盘后中途退出时下次启动不会基于残缺的文件做增量
+        FileUtils.deleteQuietly(dumpCheckpointFile());
         File file = new File(NACOS_HOME, BASE_DIR);
         if (FileUtils.deleteQuietly(file)) {
             LogUtil.defaultLog.info("clear all config-info success.");
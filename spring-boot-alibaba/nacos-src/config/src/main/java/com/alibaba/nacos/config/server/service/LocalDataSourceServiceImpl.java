@@ -121,6 +121,11 @@ public class LocalDataSourceServiceImpl implements DataSourceService {
         return jt;
     }
 
+    @Override
+    public JdbcTemplate getReadJdbcTemplate() {
+        return jt;
+    }
+
     @Override
     public TransactionTemplate getTransactionTemplate() {
         return tjt;
@@ -21,9 +21,11 @@ import com.alibaba.nacos.config.server.utils.GroupKey;
 import com.alibaba.nacos.config.server.utils.LogUtil;
 import com.alibaba.nacos.config.server.utils.MD5Util;
 import com.alibaba.nacos.config.server.utils.RequestUtil;
+import com.alibaba.nacos.config.server.utils.TimingWheel;
 import com.alibaba.nacos.config.server.utils.event.EventDispatcher.AbstractEventListener;
 import com.alibaba.nacos.config.server.utils.event.EventDispatcher.Event;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.AsyncContext;
@@ -51,6 +53,13 @@ public class LongPollingService extends AbstractEventListener {
 
     private static final String TRUE_STR = "true";
 
+    /**
+     * 挂起超时时间轮的刻度与槽数，一圈覆盖约51秒，常规30秒挂起不需要跨圈
+     */
+    private static final long WHEEL_TICK_MS = 100L;
+
+    private static final int WHEEL_TICKS = 512;
+
     private Map<String, Long> retainIps = new ConcurrentHashMap<String, Long>();
 
     private static boolean isFixedPolling() {
@@ -80,8 +89,9 @@ public class LongPollingService extends AbstractEventListener {
         SampleResult sampleResult = new SampleResult();
         Map<String, String> lisentersGroupkeyStatus = new HashMap<String, String>(50);
 
-        for (ClientLongPolling clientLongPolling : allSubs) {
-            if (clientLongPolling.clientMd5Map.containsKey(groupKey)) {
+        Set<ClientLongPolling> subs = groupKeySubs.get(groupKey);
+        if (subs != null) {
+            for (ClientLongPolling clientLongPolling : subs) {
                 lisentersGroupkeyStatus.put(clientLongPolling.ip, clientLongPolling.clientMd5Map.get(groupKey));
             }
         }
@@ -241,8 +251,9 @@ public class LongPollingService extends AbstractEventListener {
         // AsyncContext.setTimeout()的超时时间不准，所以只能自己控制
         asyncContext.setTimeout(0L);
 
-        scheduler.execute(
-            new ClientLongPolling(asyncContext, clientMd5Map, ip, probeRequestSize, timeout, appName, tag));
+        LongPollingShard shard = shardOf(ip);
+        shard.executor.execute(
+            new ClientLongPolling(shard, asyncContext, clientMd5Map, ip, probeRequestSize, timeout, appName, tag));
     }
 
     @Override
@@ -259,7 +270,7 @@ public class LongPollingService extends AbstractEventListener {
         } else {
             if (event instanceof LocalDataChangeEvent) {
                 LocalDataChangeEvent evt = (LocalDataChangeEvent)event;
-                scheduler.execute(new DataChangeTask(evt.groupKey, evt.isBeta, evt.betaIps));
+                shardOf(evt.groupKey).executor.execute(new DataChangeTask(evt.groupKey, evt.isBeta, evt.betaIps));
             }
         }
     }
@@ -268,20 +279,83 @@ public class LongPollingService extends AbstractEventListener {
         return null != req.getHeader(LONG_POLLING_HEADER);
     }
 
-    @SuppressWarnings("PMD.ThreadPoolCreationRule")
-    public LongPollingService() {
-        allSubs = new ConcurrentLinkedQueue<ClientLongPolling>();
-
-        scheduler = Executors.newScheduledThreadPool(1, new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r);
-                t.setDaemon(true);
-                t.setName("com.alibaba.nacos.LongPolling");
-                return t;
+    /**
+     * 挂起长轮询，同时登记到groupKey倒排索引。登记和解除都持有该长轮询的锁，避免登记过程中被超时或变更解除后残留索引
+     */
+    void addSubscriber(ClientLongPolling clientSub) {
+        synchronized (clientSub) {
+            allSubs.add(clientSub);
+            indexSubscriber(clientSub);
+        }
+    }
+
+    private void indexSubscriber(ClientLongPolling clientSub) {
+        for (String groupKey : clientSub.clientMd5Map.keySet()) {
+            for (; ; ) {
+                Set<ClientLongPolling> subs = groupKeySubs.get(groupKey);
+                if (subs == null) {
+                    Set<ClientLongPolling> newSubs = newSubscriberSet();
+                    subs = groupKeySubs.putIfAbsent(groupKey, newSubs);
+                    if (subs == null) {
+                        subs = newSubs;
+                    }
+                }
+                subs.add(clientSub);
+                // 集合可能刚因为变空被并发摘除，此时需要重新登记
+                if (groupKeySubs.get(groupKey) == subs) {
+                    break;
+                }
+                subs.remove(clientSub);
             }
-        });
-        scheduler.scheduleWithFixedDelay(new StatTask(), 0L, 10L, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 解除长轮询挂起，同时清理groupKey倒排索引
+     *
+     * @return 是否由本次调用解除，false表示已经被其他路径响应
+     */
+    boolean removeSubscriber(ClientLongPolling clientSub) {
+        synchronized (clientSub) {
+            if (!allSubs.remove(clientSub)) {
+                return false;
+            }
+            for (String groupKey : clientSub.clientMd5Map.keySet()) {
+                Set<ClientLongPolling> subs = groupKeySubs.get(groupKey);
+                if (subs != null) {
+                    subs.remove(clientSub);
+                    if (subs.isEmpty()) {
+                        groupKeySubs.remove(groupKey, subs);
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    static Set<ClientLongPolling> newSubscriberSet() {
+        return newSubscriberSet(SUBSCRIBER_SET_INIT_CAPACITY);
+    }
+
+    static Set<ClientLongPolling> newSubscriberSet(int initialCapacity) {
+        return Collections.newSetFromMap(new ConcurrentHashMap<ClientLongPolling, Boolean>(initialCapacity));
+    }
+
+    LongPollingShard shardOf(String key) {
+        return shards[(key.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    public LongPollingService() {
+        allSubs = newSubscriberSet(ALL_SUBS_INIT_CAPACITY);
+        groupKeySubs = new ConcurrentHashMap<String, Set<ClientLongPolling>>(ALL_SUBS_INIT_CAPACITY);
+
+        int shardCount = Math.max(1, NumberUtils.toInt(System.getProperty(SHARD_COUNT_PROPERTY),
+            Runtime.getRuntime().availableProcessors()));
+        shards = new LongPollingShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LongPollingShard(i);
+        }
+        shards[0].executor.scheduleWithFixedDelay(new StatTask(), 0L, 10L, TimeUnit.SECONDS);
     }
 
     // =================
@@ -289,12 +363,29 @@ public class LongPollingService extends AbstractEventListener {
     static public final String LONG_POLLING_HEADER = "Long-Pulling-Timeout";
     static public final String LONG_POLLING_NO_HANG_UP_HEADER = "Long-Pulling-Timeout-No-Hangup";
 
-    final ScheduledExecutorService scheduler;
+    /**
+     * 长轮询调度分片数，默认为CPU核数
+     */
+    static public final String SHARD_COUNT_PROPERTY = "nacos.config.longPolling.shards";
+
+    static private final int SUBSCRIBER_SET_INIT_CAPACITY = 16;
+
+    static private final int ALL_SUBS_INIT_CAPACITY = 1024;
+
+    /**
+     * 按客户端ip分片的调度线程，每个分片独立持有挂起超时的时间轮
+     */
+    final LongPollingShard[] shards;
 
     /**
      * 长轮询订阅关系
      */
-    final Queue<ClientLongPolling> allSubs;
+    final Set<ClientLongPolling> allSubs;
+
+    /**
+     * groupKey到挂起长轮询的倒排索引，配置变更时只遍历真正的订阅者
+     */
+    final ConcurrentHashMap<String, Set<ClientLongPolling>> groupKeySubs;
 
     // =================
 
@@ -303,29 +394,33 @@ public class LongPollingService extends AbstractEventListener {
         public void run() {
             try {
                 ConfigService.getContentBetaMd5(groupKey);
-                for (Iterator<ClientLongPolling> iter = allSubs.iterator(); iter.hasNext(); ) {
-                    ClientLongPolling clientSub = iter.next();
-                    if (clientSub.clientMd5Map.containsKey(groupKey)) {
-                        // 如果beta发布且不在beta列表直接跳过
-                        if (isBeta && !betaIps.contains(clientSub.ip)) {
-                            continue;
-                        }
+                Set<ClientLongPolling> subs = groupKeySubs.get(groupKey);
+                if (subs == null) {
+                    return;
+                }
+                for (ClientLongPolling clientSub : subs) {
+                    // 如果beta发布且不在beta列表直接跳过
+                    if (isBeta && !betaIps.contains(clientSub.ip)) {
+                        continue;
+                    }
 
-                        // 如果tag发布且不在tag列表直接跳过
-                        if (StringUtils.isNotBlank(tag) && !tag.equals(clientSub.tag)) {
-                            continue;
-                        }
+                    // 如果tag发布且不在tag列表直接跳过
+                    if (StringUtils.isNotBlank(tag) && !tag.equals(clientSub.tag)) {
+                        continue;
+                    }
 
-                        getRetainIps().put(clientSub.ip, System.currentTimeMillis());
-                        iter.remove(); // 删除订阅关系
-                        LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}|{}",
-                            (System.currentTimeMillis() - changeTime),
-                            "in-advance",
-                            RequestUtil.getRemoteIp((HttpServletRequest)clientSub.asyncContext.getRequest()),
-                            "polling",
-                            clientSub.clientMd5Map.size(), clientSub.probeRequestSize, groupKey);
-                        clientSub.sendResponse(Arrays.asList(groupKey));
+                    // 删除订阅关系
+                    if (!removeSubscriber(clientSub)) {
+                        continue;
                     }
+                    getRetainIps().put(clientSub.ip, System.currentTimeMillis());
+                    LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}|{}",
+                        (System.currentTimeMillis() - changeTime),
+                        "in-advance",
+                        RequestUtil.getRemoteIp((HttpServletRequest)clientSub.asyncContext.getRequest()),
+                        "polling",
+                        clientSub.clientMd5Map.size(), clientSub.probeRequestSize, groupKey);
+                    clientSub.shard.executor.execute(new SendResponseTask(clientSub, Arrays.asList(groupKey)));
                 }
             } catch (Throwable t) {
                 LogUtil.defaultLog.error("data change error:" + t.getMessage(), t.getCause());
@@ -361,23 +456,88 @@ public class LongPollingService extends AbstractEventListener {
         public void run() {
             memoryLog.info("[long-pulling] client count " + allSubs.size());
             MetricsMonitor.getLongPollingMonitor().set(allSubs.size());
+            for (LongPollingShard shard : shards) {
+                int queueSize = shard.executor.getQueue().size();
+                memoryLog.info("[long-pulling] shard {} hold count {}, queue size {}", shard.index,
+                    shard.wheel.pending(), queueSize);
+                MetricsMonitor.getLongPollingShardQueueMonitor(shard.index).set(queueSize);
+            }
         }
     }
 
     // =================
 
+    class LongPollingShard {
+
+        @SuppressWarnings("PMD.ThreadPoolCreationRule")
+        LongPollingShard(final int index) {
+            this.index = index;
+            this.wheel = new TimingWheel(WHEEL_TICK_MS, WHEEL_TICKS);
+            this.fireLagTimer = MetricsMonitor.getLongPollingFireLagTimer(index);
+            this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setDaemon(true);
+                    t.setName("com.alibaba.nacos.LongPolling-" + index);
+                    return t;
+                }
+            });
+            this.executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    long lag = wheel.advance(System.currentTimeMillis());
+                    if (lag > 0) {
+                        fireLagTimer.record(lag, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }, WHEEL_TICK_MS, WHEEL_TICK_MS, TimeUnit.MILLISECONDS);
+        }
+
+        final int index;
+        final ScheduledThreadPoolExecutor executor;
+        final TimingWheel wheel;
+        final io.micrometer.core.instrument.Timer fireLagTimer;
+    }
+
+    // =================
+
+    class SendResponseTask implements Runnable {
+
+        SendResponseTask(ClientLongPolling clientSub, List<String> changedGroups) {
+            this.clientSub = clientSub;
+            this.changedGroups = changedGroups;
+        }
+
+        @Override
+        public void run() {
+            try {
+                clientSub.sendResponse(changedGroups);
+            } catch (Throwable t) {
+                LogUtil.defaultLog.error("send response error:" + t.getMessage(), t.getCause());
+            }
+        }
+
+        final ClientLongPolling clientSub;
+        final List<String> changedGroups;
+    }
+
+    // =================
+
     class ClientLongPolling implements Runnable {
 
         @Override
         public void run() {
-            asyncTimeoutFuture = scheduler.schedule(new Runnable() {
+            asyncTimeout = shard.wheel.newTimeout(new Runnable() {
                 public void run() {
                     try {
-                        getRetainIps().put(ClientLongPolling.this.ip, System.currentTimeMillis());
                         /**
                          * 删除订阅关系
                          */
-                        allSubs.remove(ClientLongPolling.this);
+                        if (!removeSubscriber(ClientLongPolling.this)) {
+                            return;
+                        }
+                        getRetainIps().put(ClientLongPolling.this.ip, System.currentTimeMillis());
 
                         if (isFixedPolling()) {
                             LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}",
@@ -406,17 +566,17 @@ public class LongPollingService extends AbstractEventListener {
                     }
 
                 }
-            }, timeoutTime, TimeUnit.MILLISECONDS);
+            }, timeoutTime);
 
-            allSubs.add(this);
+            addSubscriber(this);
         }
 
         void sendResponse(List<String> changedGroups) {
             /**
              *  取消超时任务
              */
-            if (null != asyncTimeoutFuture) {
-                asyncTimeoutFuture.cancel(false);
+            if (null != asyncTimeout) {
+                asyncTimeout.cancel();
             }
             generateResponse(changedGroups);
         }
@@ -448,8 +608,9 @@ public class LongPollingService extends AbstractEventListener {
             }
         }
 
-        ClientLongPolling(AsyncContext ac, Map<String, String> clientMd5Map, String ip, int probeRequestSize,
-                          long timeoutTime, String appName, String tag) {
+        ClientLongPolling(LongPollingShard shard, AsyncContext ac, Map<String, String> clientMd5Map, String ip,
+                          int probeRequestSize, long timeoutTime, String appName, String tag) {
+            this.shard = shard;
             this.asyncContext = ac;
             this.clientMd5Map = clientMd5Map;
             this.probeRequestSize = probeRequestSize;
@@ -462,6 +623,7 @@ public class LongPollingService extends AbstractEventListener {
 
         // =================
 
+        final LongPollingShard shard;
         final AsyncContext asyncContext;
         final Map<String, String> clientMd5Map;
         final long createTime;
@@ -471,7 +633,7 @@ public class LongPollingService extends AbstractEventListener {
         final int probeRequestSize;
         final long timeoutTime;
 
-        Future<?> asyncTimeoutFuture;
+        volatile TimingWheel.Timeout asyncTimeout;
     }
 
     void generateResponse(HttpServletRequest request, HttpServletResponse response, List<String> changedGroups) {
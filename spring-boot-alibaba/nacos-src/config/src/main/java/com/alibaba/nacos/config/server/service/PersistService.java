@@ -27,11 +27,14 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import com.alibaba.nacos.config.server.model.*;
 import org.apache.commons.lang.StringUtils;
@@ -52,11 +55,15 @@ import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
 import com.alibaba.nacos.config.server.utils.LogUtil;
 import com.alibaba.nacos.config.server.utils.MD5;
 import com.alibaba.nacos.config.server.utils.PaginationHelper;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
 import com.alibaba.nacos.config.server.utils.event.EventDispatcher;
 import com.google.common.collect.Lists;
 
@@ -82,6 +89,21 @@ public class PersistService {
 
         jt = getJdbcTemplate();
         tjt = getTransactionTemplate();
+        if (PropertyUtil.isHistoryJournalEnabled()) {
+            historyJournal = new ConfigHistoryJournal(jt, PropertyUtil.getHistoryJournalCapacity(),
+                PropertyUtil.getHistoryJournalBatchSize(), PropertyUtil.getHistoryJournalOnFull());
+            historyJournal.start();
+            defaultLog.info("[history-journal] enabled, capacity:{}, batchSize:{}, onFull:{}",
+                new Object[] {PropertyUtil.getHistoryJournalCapacity(), PropertyUtil.getHistoryJournalBatchSize(),
+                    PropertyUtil.getHistoryJournalOnFull()});
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (historyJournal != null) {
+            historyJournal.shutdown();
+        }
     }
 
     public boolean checkMasterWritable() {
@@ -126,6 +148,18 @@ public class PersistService {
         }
     }
 
+    static final class ConfigTagRelationRowMapper implements
+        RowMapper<ConfigTagRelation> {
+        public ConfigTagRelation mapRow(ResultSet rs, int rowNum)
+            throws SQLException {
+            ConfigTagRelation relation = new ConfigTagRelation();
+            relation.setNid(rs.getLong("nid"));
+            relation.setId(rs.getLong("id"));
+            relation.setTagName(rs.getString("tag_name"));
+            return relation;
+        }
+    }
+
     static final class ConfigInfoBetaWrapperRowMapper implements
         RowMapper<ConfigInfoBetaWrapper> {
         public ConfigInfoBetaWrapper mapRow(ResultSet rs, int rowNum)
@@ -465,6 +499,18 @@ public class PersistService {
         return this.dataSourceService.getTransactionTemplate();
     }
 
+    /**
+     * 只读查询使用，开启读写分离时可能是从库；事务中始终走主库。dump（全量和增量）的查询不使用，从库的延迟没有度量，
+     * dump之后水位前进，落后的内容不会再被重新dump
+     */
+    JdbcTemplate readJt() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return jt;
+        }
+        JdbcTemplate readJt = dataSourceService.getReadJdbcTemplate();
+        return readJt == null ? jt : readJt;
+    }
+
     public String getCurrentDBUrl() {
         return this.dataSourceService.getCurrentDBUrl();
     }
@@ -690,6 +736,93 @@ public class PersistService {
         }
     }
 
+    /**
+     * 批量写入主表，插入或更新。整批在一个事务内完成，config_info的插入、更新和his_config_info各走一次JDBC批量；
+     * 同一配置出现多次时以最后一次为准。notify为true时提交后发布一个合并的数据变更事件。
+     * <p>
+     * 不处理beta、tag和配置的附加信息(config_tags、desc等)，更新时这些附加字段与单条不带附加信息的发布一致。
+     */
+    public void batchInsertOrUpdate(final List<ConfigInfo> configInfos, final String srcIp, final String srcUser,
+                                    final Timestamp time, boolean notify) {
+        final Map<String, ConfigInfo> configs = new LinkedHashMap<String, ConfigInfo>();
+        for (ConfigInfo configInfo : configInfos) {
+            configs.put(GroupKey2.getKey(configInfo.getDataId(), configInfo.getGroup(),
+                StringUtils.isBlank(configInfo.getTenant()) ? StringUtils.EMPTY : configInfo.getTenant()), configInfo);
+        }
+        TransactionCallback<Boolean> callback = new TransactionCallback<Boolean>() {
+            @Override
+            public Boolean doInTransaction(TransactionStatus status) {
+                try {
+                    batchInsertOrUpdateAtomic(configs, srcIp, srcUser, time);
+                } catch (CannotGetJdbcConnectionException e) {
+                    fatalLog.error("[db-error] " + e.toString(), e);
+                    throw e;
+                }
+                return Boolean.TRUE;
+            }
+        };
+        try {
+            tjt.execute(callback);
+        } catch (DataIntegrityViolationException ive) { // 并发插入了同一配置，整批回滚后按最新数据重做一次
+            tjt.execute(callback);
+        }
+        if (notify) {
+            List<ConfigDataChangeEvent> changes = new ArrayList<ConfigDataChangeEvent>(configs.size());
+            for (ConfigInfo configInfo : configs.values()) {
+                changes.add(new ConfigDataChangeEvent(false, configInfo.getDataId(), configInfo.getGroup(),
+                    configInfo.getTenant(), time.getTime()));
+            }
+            EventDispatcher.fireEvent(new ConfigDataChangeBatchEvent(changes));
+        }
+    }
+
+    private void batchInsertOrUpdateAtomic(Map<String, ConfigInfo> configs, String srcIp, String srcUser,
+                                           Timestamp time) {
+        Map<String, ConfigInfoWrapper> olds = new HashMap<String, ConfigInfoWrapper>(configs.size());
+        for (ConfigInfoWrapper old : findConfigInfoByGroupKeys(new ArrayList<String>(configs.keySet()))) {
+            olds.put(GroupKey2.getKey(old.getDataId(), old.getGroup(), old.getTenant()), old);
+        }
+        List<Object[]> insertArgs = new ArrayList<Object[]>();
+        List<Object[]> updateArgs = new ArrayList<Object[]>();
+        List<Object[]> historyArgs = new ArrayList<Object[]>(configs.size());
+        for (Entry<String, ConfigInfo> entry : configs.entrySet()) {
+            ConfigInfo configInfo = entry.getValue();
+            ConfigInfoWrapper old = olds.get(entry.getKey());
+            String tenantTmp = StringUtils.isBlank(configInfo.getTenant()) ? StringUtils.EMPTY
+                : configInfo.getTenant();
+            String md5Tmp = MD5.getInstance().getMD5String(configInfo.getContent());
+            if (old == null) {
+                String appNameTmp = StringUtils.isBlank(configInfo.getAppName()) ? StringUtils.EMPTY
+                    : configInfo.getAppName();
+                insertArgs.add(new Object[] {configInfo.getDataId(), configInfo.getGroup(), tenantTmp, appNameTmp,
+                    configInfo.getContent(), md5Tmp, srcIp, srcUser, time, time});
+                historyArgs.add(new Object[] {0L, configInfo.getDataId(), configInfo.getGroup(), tenantTmp,
+                    appNameTmp, configInfo.getContent(), md5Tmp, srcIp, srcUser, time, "I"});
+            } else {
+                // 用户传过来的appName不为空，则用持久化用户的appName，否则用db的;清空appName的时候需要传空串
+                String appNameTmp = configInfo.getAppName() == null ? old.getAppName() : configInfo.getAppName();
+                appNameTmp = StringUtils.isBlank(appNameTmp) ? StringUtils.EMPTY : appNameTmp;
+                updateArgs.add(new Object[] {configInfo.getContent(), md5Tmp, srcIp, srcUser, time, appNameTmp,
+                    configInfo.getDataId(), configInfo.getGroup(), tenantTmp});
+                String oldAppName = StringUtils.isBlank(old.getAppName()) ? StringUtils.EMPTY : old.getAppName();
+                historyArgs.add(new Object[] {old.getId(), old.getDataId(), old.getGroup(), tenantTmp, oldAppName,
+                    old.getContent(), old.getMd5(), srcIp, srcUser, time, "U"});
+            }
+        }
+        if (!insertArgs.isEmpty()) {
+            jt.batchUpdate(
+                "INSERT INTO config_info(data_id,group_id,tenant_id,app_name,content,md5,src_ip,src_user,gmt_create,"
+                    + "gmt_modified) VALUES(?,?,?,?,?,?,?,?,?,?)", insertArgs);
+        }
+        if (!updateArgs.isEmpty()) {
+            jt.batchUpdate(
+                "UPDATE config_info SET content=?, md5 = ?, src_ip=?,src_user=?,gmt_modified=?,app_name=?,c_desc=null,"
+                    + "c_use=null,effect=null,type=null,c_schema=null WHERE data_id=? AND group_id=? AND tenant_id=?",
+                updateArgs);
+        }
+        insertConfigHistoryAtomic(historyArgs);
+    }
+
     /**
      * 写入主表，插入或更新
      */
@@ -876,6 +1009,35 @@ public class PersistService {
         }
     }
 
+    /**
+     * 删除[fromTime, toTime)之间的历史，最多limitSize条
+     *
+     * @return 删除的条数
+     */
+    public int removeConfigHistory(final Timestamp fromTime, final Timestamp toTime, final int limitSize) {
+        String sql = "delete from his_config_info where gmt_modified >= ? and gmt_modified < ? limit ?";
+        PaginationHelper<ConfigInfo> helper = new PaginationHelper<ConfigInfo>();
+        try {
+            return helper.updateLimit(jt, sql, new Object[] {fromTime, toTime, limitSize});
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 最早一条历史的修改时间，没有历史时返回null
+     */
+    public Timestamp findConfigHistoryMinTime() {
+        String sql = "SELECT min(gmt_modified) FROM his_config_info";
+        try {
+            return jt.queryForObject(sql, Timestamp.class);
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
     /**
      * 获取指定时间前配置条数
      */
@@ -1163,7 +1325,7 @@ public class PersistService {
         String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
         PaginationHelper<ConfigInfo> helper = new PaginationHelper<ConfigInfo>();
         try {
-            return helper.fetchPage(this.jt, "select count(*) from config_info where data_id=? and tenant_id=?",
+            return helper.fetchPage(readJt(), "select count(*) from config_info where data_id=? and tenant_id=?",
                 "select ID,data_id,group_id,tenant_id,app_name,content from config_info where data_id=? and "
                     + "tenant_id=?",
                 new Object[] {dataId, tenantTmp}, pageNo, pageSize, CONFIG_INFO_ROW_MAPPER);
@@ -1186,7 +1348,7 @@ public class PersistService {
         String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
         PaginationHelper<ConfigInfo> helper = new PaginationHelper<ConfigInfo>();
         try {
-            return helper.fetchPage(this.jt,
+            return helper.fetchPage(readJt(),
                 "select count(*) from config_info where data_id=? and tenant_id=? and app_name=?",
                 "select ID,data_id,group_id,tenant_id,app_name,content from config_info where data_id=? and "
                     + "tenant_id=? and app_name=?",
@@ -1247,8 +1409,8 @@ public class PersistService {
             }
         }
         try {
-            return helper.fetchPage(this.jt, sqlCount.toString(), sql.toString(), paramList.toArray(), pageNo, pageSize,
-                CONFIG_INFO_ROW_MAPPER);
+            return helper.fetchPage(readJt(), sqlCount.toString(), sql.toString(), paramList.toArray(), pageNo,
+                pageSize, CONFIG_INFO_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
             fatalLog.error("[db-error] " + e.toString(), e);
             throw e;
@@ -1258,6 +1420,15 @@ public class PersistService {
     public Page<ConfigInfo> findConfigInfo4Page(final int pageNo, final int pageSize, final String dataId,
                                                 final String group,
                                                 final String tenant, final Map<String, Object> configAdvanceInfo) {
+        return findConfigInfo4Page(pageNo, pageSize, dataId, group, tenant, configAdvanceInfo, null);
+    }
+
+    /**
+     * @param cursor 不为null时按id游标分页，返回id大于cursor的一页，pageNo只用于回显；总数为缓存的估算值
+     */
+    public Page<ConfigInfo> findConfigInfo4Page(final int pageNo, final int pageSize, final String dataId,
+                                                final String group, final String tenant,
+                                                final Map<String, Object> configAdvanceInfo, final Long cursor) {
         String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
         PaginationHelper<ConfigInfo> helper = new PaginationHelper<ConfigInfo>();
         final String appName = configAdvanceInfo == null ? null : (String)configAdvanceInfo.get("appName");
@@ -1314,7 +1485,15 @@ public class PersistService {
             }
         }
         try {
-            return helper.fetchPage(this.jt, sqlCount + where, sql + where, paramList.toArray(), pageNo, pageSize,
+            if (cursor != null) {
+                String idColumn = StringUtils.isNotBlank(configTags) ? "a.id" : "id";
+                List<Object> fetchParams = new ArrayList<Object>(paramList);
+                fetchParams.add(cursor);
+                return helper.fetchPageByCursor(readJt(), sqlCount + where, paramList.toArray(),
+                    sql + where + " and " + idColumn + " > ? order by " + idColumn, fetchParams.toArray(), pageNo,
+                    pageSize, "ID", CONFIG_INFO_ROW_MAPPER);
+            }
+            return helper.fetchPage(readJt(), sqlCount + where, sql + where, paramList.toArray(), pageNo, pageSize,
                 CONFIG_INFO_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
             fatalLog.error("[db-error] " + e.toString(), e);
@@ -1336,7 +1515,7 @@ public class PersistService {
         try {
             return helper
                 .fetchPage(
-                    this.jt,
+                    readJt(),
                     "select count(*) from config_info where data_id=? and tenant_id=?",
                     "select ID,data_id,group_id,content from config_info where data_id=? and tenant_id=?",
                     new Object[] {dataId, StringUtils.EMPTY}, pageNo, pageSize,
@@ -1360,7 +1539,7 @@ public class PersistService {
         String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
         PaginationHelper<ConfigInfo> helper = new PaginationHelper<ConfigInfo>();
         try {
-            return helper.fetchPage(this.jt, "select count(*) from config_info where group_id=? and tenant_id=?",
+            return helper.fetchPage(readJt(), "select count(*) from config_info where group_id=? and tenant_id=?",
                 "select ID,data_id,group_id,tenant_id,app_name,content from config_info where group_id=? and "
                     + "tenant_id=?",
                 new Object[] {group, tenantTmp}, pageNo, pageSize, CONFIG_INFO_ROW_MAPPER);
@@ -1384,7 +1563,7 @@ public class PersistService {
         String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
         PaginationHelper<ConfigInfo> helper = new PaginationHelper<ConfigInfo>();
         try {
-            return helper.fetchPage(this.jt,
+            return helper.fetchPage(readJt(),
                 "select count(*) from config_info where group_id=? and tenant_id=? and app_name =?",
                 "select ID,data_id,group_id,tenant_id,app_name,content from config_info where group_id=? and "
                     + "tenant_id=? and app_name =?",
@@ -1447,8 +1626,8 @@ public class PersistService {
         }
 
         try {
-            return helper.fetchPage(this.jt, sqlCount.toString(), sql.toString(), paramList.toArray(), pageNo, pageSize,
-                CONFIG_INFO_ROW_MAPPER);
+            return helper.fetchPage(readJt(), sqlCount.toString(), sql.toString(), paramList.toArray(), pageNo,
+                pageSize, CONFIG_INFO_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
             fatalLog.error("[db-error] " + e.toString(), e);
             throw e;
@@ -1468,7 +1647,7 @@ public class PersistService {
         String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
         PaginationHelper<ConfigInfo> helper = new PaginationHelper<ConfigInfo>();
         try {
-            return helper.fetchPage(this.jt, "select count(*) from config_info where tenant_id like ? and app_name=?",
+            return helper.fetchPage(readJt(), "select count(*) from config_info where tenant_id like ? and app_name=?",
                 "select ID,data_id,group_id,tenant_id,app_name,content from config_info where tenant_id like ? and "
                     + "app_name=?",
                 new Object[] {generateLikeArgument(tenantTmp), appName}, pageNo, pageSize,
@@ -1529,8 +1708,8 @@ public class PersistService {
         }
 
         try {
-            return helper.fetchPage(this.jt, sqlCount.toString(), sql.toString(), paramList.toArray(), pageNo, pageSize,
-                CONFIG_INFO_ROW_MAPPER);
+            return helper.fetchPage(readJt(), sqlCount.toString(), sql.toString(), paramList.toArray(), pageNo,
+                pageSize, CONFIG_INFO_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
             fatalLog.error("[db-error] " + e.toString(), e);
             throw e;
@@ -1551,7 +1730,7 @@ public class PersistService {
         try {
             return helper
                 .fetchPage(
-                    this.jt,
+                    readJt(),
                     "select count(*) from config_info where group_id=? and tenant_id=?",
                     "select ID,data_id,group_id,content from config_info where group_id=? and tenant_id=?",
                     new Object[] {group, StringUtils.EMPTY}, pageNo, pageSize,
@@ -1567,7 +1746,7 @@ public class PersistService {
      */
     public int configInfoCount() {
         String sql = " SELECT COUNT(ID) FROM config_info ";
-        Integer result = jt.queryForObject(sql, Integer.class);
+        Integer result = readJt().queryForObject(sql, Integer.class);
         if (result == null) {
             throw new IllegalArgumentException("configInfoCount error");
         }
@@ -1579,7 +1758,7 @@ public class PersistService {
      */
     public int configInfoCount(String tenant) {
         String sql = " SELECT COUNT(ID) FROM config_info where tenant_id like '" + tenant + "'";
-        Integer result = jt.queryForObject(sql, Integer.class);
+        Integer result = readJt().queryForObject(sql, Integer.class);
         if (result == null) {
             throw new IllegalArgumentException("configInfoCount error");
         }
@@ -1591,7 +1770,7 @@ public class PersistService {
      */
     public int configInfoBetaCount() {
         String sql = " SELECT COUNT(ID) FROM config_info_beta ";
-        Integer result = jt.queryForObject(sql, Integer.class);
+        Integer result = readJt().queryForObject(sql, Integer.class);
         if (result == null) {
             throw new IllegalArgumentException("configInfoBetaCount error");
         }
@@ -1603,7 +1782,7 @@ public class PersistService {
      */
     public int configInfoTagCount() {
         String sql = " SELECT COUNT(ID) FROM config_info_tag ";
-        Integer result = jt.queryForObject(sql, Integer.class);
+        Integer result = readJt().queryForObject(sql, Integer.class);
         if (result == null) {
             throw new IllegalArgumentException("configInfoBetaCount error");
         }
@@ -1691,7 +1870,7 @@ public class PersistService {
 
         PaginationHelper<ConfigInfo> helper = new PaginationHelper<ConfigInfo>();
         try {
-            return helper.fetchPageLimit(jt, sqlCountRows, sqlFetchRows,
+            return helper.fetchPageLimit(readJt(), sqlCountRows, sqlFetchRows,
                 new Object[] {generateLikeArgument(tenantTmp), (pageNo - 1) * pageSize, pageSize},
                 pageNo, pageSize, CONFIG_INFO_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
@@ -1733,7 +1912,7 @@ public class PersistService {
         page.setTotalCount(totalCount);
 
         try {
-            List<ConfigKey> result = jt.query(select,
+            List<ConfigKey> result = readJt().query(select,
                 new Object[] {generateLikeArgument(tenantTmp), (pageNo - 1) * pageSize, pageSize},
                 // new Object[0],
                 CONFIG_KEY_ROW_MAPPER);
@@ -1750,6 +1929,48 @@ public class PersistService {
         }
     }
 
+    /**
+     * 按id游标分页查询tenant下所有配置的key，用于遍历整个命名空间，总数为缓存的估算值
+     *
+     * @param cursor   上一页返回的nextCursor，第一页传0
+     * @param pageSize 每页大小(必须大于0)
+     */
+    public Page<ConfigKey> findAllConfigKeyByCursor(final long cursor, final int pageSize, final String tenant) {
+        String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+        String sqlCountRows = "SELECT COUNT(*) FROM config_info WHERE tenant_id LIKE ?";
+        String sqlFetchRows = "SELECT id,data_id,group_id,app_name FROM config_info WHERE tenant_id LIKE ? AND id > ? "
+            + "ORDER BY id";
+        PaginationHelper<ConfigKey> helper = new PaginationHelper<ConfigKey>();
+        try {
+            return helper.fetchPageByCursor(readJt(), sqlCountRows, new Object[] {generateLikeArgument(tenantTmp)},
+                sqlFetchRows, new Object[] {generateLikeArgument(tenantTmp), cursor}, 1, pageSize, "id",
+                CONFIG_KEY_ROW_MAPPER);
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按id游标分页查询tenant下配置的内容，用于导出整个命名空间，不查总数
+     *
+     * @param cursor   上一页返回的nextCursor，第一页传0
+     * @param pageSize 每页大小(必须大于0)
+     */
+    public Page<ConfigInfoWrapper> findConfigInfoByCursor(final long cursor, final int pageSize, final String tenant) {
+        String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+        String sqlFetchRows = "SELECT id,data_id,group_id,tenant_id,app_name,content,md5,gmt_modified FROM config_info "
+            + "WHERE tenant_id = ? AND id > ? ORDER BY id";
+        PaginationHelper<ConfigInfoWrapper> helper = new PaginationHelper<ConfigInfoWrapper>();
+        try {
+            return helper.fetchPageByCursor(readJt(), null, null, sqlFetchRows, new Object[] {tenantTmp, cursor}, 1,
+                pageSize, "id", CONFIG_INFO_WRAPPER_ROW_MAPPER);
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
     /**
      * 分页查询所有的配置信息
      *
@@ -1770,7 +1991,7 @@ public class PersistService {
 
         PaginationHelper<ConfigInfoBase> helper = new PaginationHelper<ConfigInfoBase>();
         try {
-            return helper.fetchPageLimit(jt, sqlCountRows, sqlFetchRows, new Object[] {
+            return helper.fetchPageLimit(readJt(), sqlCountRows, sqlFetchRows, new Object[] {
                 (pageNo - 1) * pageSize, pageSize}, pageNo, pageSize, CONFIG_INFO_BASE_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
             fatalLog.error("[db-error] " + e.toString(), e);
@@ -1778,6 +1999,37 @@ public class PersistService {
         }
     }
 
+    public static class ConfigTagRelation {
+
+        private long nid;
+        private long id;
+        private String tagName;
+
+        public long getNid() {
+            return nid;
+        }
+
+        public void setNid(long nid) {
+            this.nid = nid;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getTagName() {
+            return tagName;
+        }
+
+        public void setTagName(String tagName) {
+            this.tagName = tagName;
+        }
+    }
+
     public static class ConfigInfoWrapper extends ConfigInfo {
         private static final long serialVersionUID = 4511997359365712505L;
 
@@ -1989,6 +2241,106 @@ public class PersistService {
         return result;
     }
 
+    /**
+     * 按groupKey批量查询配置，每条sql最多QUERY_LIMIT_SIZE个key，都走唯一索引；不存在的key不在结果中
+     *
+     * @param groupKeys GroupKey2格式的key
+     * @return 查到的配置，带id、md5和修改时间
+     */
+    public List<ConfigInfoWrapper> findConfigInfoByGroupKeys(final List<String> groupKeys) {
+        if (CollectionUtils.isEmpty(groupKeys)) {
+            return Collections.emptyList();
+        }
+        String sqlStart = "SELECT id,data_id,group_id,tenant_id,app_name,content,md5,gmt_modified FROM config_info "
+            + "WHERE ";
+        String condition = "(data_id=? AND group_id=? AND tenant_id=?)";
+        List<ConfigInfoWrapper> result = new ArrayList<ConfigInfoWrapper>(groupKeys.size());
+        try {
+            for (int i = 0; i < groupKeys.size(); i += QUERY_LIMIT_SIZE) {
+                List<String> keys = groupKeys.subList(i, Math.min(i + QUERY_LIMIT_SIZE, groupKeys.size()));
+                StringBuilder sql = new StringBuilder(sqlStart);
+                List<Object> params = new ArrayList<Object>(keys.size() * 3);
+                for (int j = 0; j < keys.size(); j++) {
+                    String[] pair = GroupKey2.parseKey(keys.get(j));
+                    if (j > 0) {
+                        sql.append(" OR ");
+                    }
+                    sql.append(condition);
+                    params.add(pair[0]);
+                    params.add(pair[1]);
+                    params.add(StringUtils.isBlank(pair[2]) ? StringUtils.EMPTY : pair[2]);
+                }
+                result.addAll(jt.query(sql.toString(), params.toArray(), CONFIG_INFO_WRAPPER_ROW_MAPPER));
+            }
+            return result;
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按主键批量查询配置，不保证返回顺序；ids按QUERY_LIMIT_SIZE分批查询
+     */
+    public List<ConfigInfo> findConfigInfosByIds(final List<Long> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return Collections.emptyList();
+        }
+        List<ConfigInfo> result = new ArrayList<ConfigInfo>(ids.size());
+        try {
+            for (int i = 0; i < ids.size(); i += QUERY_LIMIT_SIZE) {
+                List<Long> subIds = ids.subList(i, Math.min(i + QUERY_LIMIT_SIZE, ids.size()));
+                StringBuilder sql = new StringBuilder(
+                    "SELECT ID,data_id,group_id,tenant_id,app_name,content,md5 FROM config_info WHERE id IN (");
+                for (int j = 0; j < subIds.size(); j++) {
+                    if (j > 0) {
+                        sql.append(", ");
+                    }
+                    sql.append("?");
+                }
+                sql.append(")");
+                result.addAll(jt.query(sql.toString(), subIds.toArray(), CONFIG_INFO_ROW_MAPPER));
+            }
+            return result;
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按id分片查询配置的元数据，不含content，用于构建搜索索引
+     */
+    public List<ConfigInfoWrapper> findAllConfigMetaFragment(final long lastMaxId, final int pageSize) {
+        String select = "SELECT id,data_id,group_id,tenant_id,app_name,gmt_modified from config_info where id > ? "
+            + "order by id asc";
+        PaginationHelper<ConfigInfoWrapper> helper = new PaginationHelper<ConfigInfoWrapper>();
+        try {
+            Page<ConfigInfoWrapper> page = helper.fetchPageLimit(jt, select + " limit ?,?",
+                new Object[] {lastMaxId, 0, pageSize}, 1, pageSize, CONFIG_INFO_WRAPPER_ROW_MAPPER);
+            return page.getPageItems();
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按nid分片查询配置与标签的关联，用于构建搜索索引
+     */
+    public List<ConfigTagRelation> findConfigTagRelationFragment(final long lastMaxNid, final int pageSize) {
+        String select = "SELECT nid,id,tag_name from config_tags_relation where nid > ? order by nid asc";
+        PaginationHelper<ConfigTagRelation> helper = new PaginationHelper<ConfigTagRelation>();
+        try {
+            Page<ConfigTagRelation> page = helper.fetchPageLimit(jt, select + " limit ?,?",
+                new Object[] {lastMaxNid, 0, pageSize}, 1, pageSize, CONFIG_TAG_RELATION_ROW_MAPPER);
+            return page.getPageItems();
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
     /**
      * 根据dataId和group模糊查询配置信息
      *
@@ -2040,7 +2392,7 @@ public class PersistService {
         }
 
         try {
-            return helper.fetchPage(jt, sqlCountRows + where, sqlFetchRows
+            return helper.fetchPage(readJt(), sqlCountRows + where, sqlFetchRows
                     + where, params.toArray(), pageNo, pageSize,
                 CONFIG_INFO_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
@@ -2117,7 +2469,7 @@ public class PersistService {
         }
 
         try {
-            return helper.fetchPage(jt, sqlCountRows + where, sqlFetchRows
+            return helper.fetchPage(readJt(), sqlCountRows + where, sqlFetchRows
                     + where, params.toArray(), pageNo, pageSize,
                 CONFIG_INFO_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
@@ -2228,7 +2580,7 @@ public class PersistService {
         }
 
         try {
-            return helper.fetchPage(jt, sqlCountRows + where, sqlFetchRows
+            return helper.fetchPage(readJt(), sqlCountRows + where, sqlFetchRows
                     + where, params.toArray(), pageNo, pageSize,
                 CONFIG_INFO_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
@@ -2275,7 +2627,7 @@ public class PersistService {
         }
 
         try {
-            return helper.fetchPage(jt, sqlCountRows + where, sqlFetchRows
+            return helper.fetchPage(readJt(), sqlCountRows + where, sqlFetchRows
                     + where, params.toArray(), pageNo, pageSize,
                 CONFIG_INFO_BASE_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
@@ -2346,7 +2698,7 @@ public class PersistService {
             + "group_id=? and tenant_id=? order by datum_id limit ?,?";
         PaginationHelper<ConfigInfoAggr> helper = new PaginationHelper<ConfigInfoAggr>();
         try {
-            return helper.fetchPageLimit(jt, sqlCountRows, new Object[] {dataId, group, tenantTmp}, sqlFetchRows,
+            return helper.fetchPageLimit(readJt(), sqlCountRows, new Object[] {dataId, group, tenantTmp}, sqlFetchRows,
                 new Object[] {dataId, group, tenantTmp, (pageNo - 1) * pageSize, pageSize},
                 pageNo, pageSize, CONFIG_INFO_AGGR_ROW_MAPPER);
 
@@ -2356,6 +2708,27 @@ public class PersistService {
         }
     }
 
+    /**
+     * 按id游标分页查询聚合前数据，不计数、不跳过行；返回顺序是id顺序，聚合时再按datumId排序
+     *
+     * @param cursor 上一页返回的nextCursor，第一页传0
+     */
+    public Page<ConfigInfoAggr> findConfigInfoAggrByCursor(String dataId, String group, String tenant,
+                                                           final long cursor, final int pageSize) {
+        String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+        String sqlFetchRows
+            = "select id,data_id,group_id,tenant_id,datum_id,app_name,content from config_info_aggr where data_id=? "
+            + "and group_id=? and tenant_id=? and id > ? order by id";
+        PaginationHelper<ConfigInfoAggr> helper = new PaginationHelper<ConfigInfoAggr>();
+        try {
+            return helper.fetchPageByCursor(jt, null, null, sqlFetchRows,
+                new Object[] {dataId, group, tenantTmp, cursor}, 1, pageSize, "id", CONFIG_INFO_AGGR_ROW_MAPPER);
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
     /**
      * 查询符合条件的聚合数据
      *
@@ -2458,7 +2831,7 @@ public class PersistService {
         }
 
         try {
-            Page<ConfigInfoAggr> result = helper.fetchPage(jt, sqlCountRows
+            Page<ConfigInfoAggr> result = helper.fetchPage(readJt(), sqlCountRows
                     + where, sqlFetchRows + where, params.toArray(), pageNo,
                 pageSize, CONFIG_INFO_AGGR_ROW_MAPPER);
             return result;
@@ -2513,6 +2886,29 @@ public class PersistService {
         }
     }
 
+    /**
+     * 按(gmt_modified, id)游标增量查询变更的配置，结果按游标升序，供增量dump分页推进水位
+     *
+     * @param startTime 上次水位的修改时间
+     * @param lastMaxId 上次水位的id，同一修改时间内只返回id更大的记录
+     * @param pageSize  pageSize
+     * @return 变更的配置，带id和修改时间
+     */
+    public List<ConfigInfoWrapper> findChangeConfig(final Timestamp startTime, final long lastMaxId,
+                                                    final int pageSize) {
+        String sql = "SELECT id,data_id,group_id,tenant_id,app_name,content,md5,gmt_modified FROM config_info WHERE "
+            + "gmt_modified > ? OR (gmt_modified = ? AND id > ?) ORDER BY gmt_modified,id";
+        PaginationHelper<ConfigInfoWrapper> helper = new PaginationHelper<ConfigInfoWrapper>();
+        try {
+            // 由分页工具按数据库方言追加取pageSize条的限制，derby不支持LIMIT
+            return helper.fetchPageByCursor(jt, null, null, sql, new Object[] {startTime, startTime, lastMaxId}, 1,
+                pageSize, "id", CONFIG_INFO_WRAPPER_ROW_MAPPER).getPageItems();
+        } catch (DataAccessException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
     public List<ConfigInfoWrapper> findChangeConfig(final Timestamp startTime,
                                                     final Timestamp endTime) {
         try {
@@ -2929,11 +3325,47 @@ public class PersistService {
         String appNameTmp = StringUtils.isBlank(configInfo.getAppName()) ? StringUtils.EMPTY : configInfo.getAppName();
         String tenantTmp = StringUtils.isBlank(configInfo.getTenant()) ? StringUtils.EMPTY : configInfo.getTenant();
         final String md5Tmp = MD5.getInstance().getMD5String(configInfo.getContent());
+        List<Object[]> records = new ArrayList<Object[]>(1);
+        records.add(new Object[] {id, configInfo.getDataId(), configInfo.getGroup(), tenantTmp, appNameTmp,
+            configInfo.getContent(), md5Tmp, srcIp, srcUser, time, ops});
+        if (ConfigHistoryJournal.OP_DELETE.equals(ops)) {
+            // 增量dump只能从'D'历史发现删除，删除的历史不经过异步队列，和删除在同一事务内写入
+            insertConfigHistoryInTransaction(records);
+            return;
+        }
+        insertConfigHistoryAtomic(records);
+    }
+
+    /**
+     * 写入历史记录。开启异步写入时在当前事务提交后放入队列，事务回滚则丢弃；否则在当前事务内批量写入
+     *
+     * @param records ConfigHistoryJournal.INSERT_HISTORY_SQL的参数
+     */
+    private void insertConfigHistoryAtomic(final List<Object[]> records) {
+        final ConfigHistoryJournal journal = historyJournal;
+        if (journal != null) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        journal.appendAll(records);
+                    }
+                });
+            } else {
+                journal.appendAll(records);
+            }
+            return;
+        }
+        insertConfigHistoryInTransaction(records);
+    }
+
+    private void insertConfigHistoryInTransaction(List<Object[]> records) {
         try {
-            jt.update(
-                "INSERT INTO his_config_info (id,data_id,group_id,tenant_id,app_name,content,md5,src_ip,src_user,gmt_modified,op_type) VALUES(?,?,?,?,?,?,?,?,?,?,?)",
-                id, configInfo.getDataId(), configInfo.getGroup(), tenantTmp, appNameTmp, configInfo.getContent(),
-                md5Tmp, srcIp, srcUser, time, ops);
+            if (records.size() == 1) {
+                jt.update(ConfigHistoryJournal.INSERT_HISTORY_SQL, records.get(0));
+            } else {
+                jt.batchUpdate(ConfigHistoryJournal.INSERT_HISTORY_SQL, records);
+            }
         } catch (DataAccessException e) {
             fatalLog.error("[db-error] " + e.toString(), e);
             throw e;
@@ -2961,7 +3393,7 @@ public class PersistService {
 
         Page<ConfigHistoryInfo> page = null;
         try {
-            page = helper.fetchPage(this.jt, sqlCountRows, sqlFetchRows, new Object[] {dataId, group, tenantTmp},
+            page = helper.fetchPage(readJt(), sqlCountRows, sqlFetchRows, new Object[] {dataId, group, tenantTmp},
                 pageNo,
                 pageSize, HISTORY_LIST_ROW_MAPPER);
         } catch (DataAccessException e) {
@@ -2971,6 +3403,29 @@ public class PersistService {
         return page;
     }
 
+    /**
+     * 按nid游标倒序分页list配置的历史变更记录，总数为缓存的估算值
+     *
+     * @param cursor 上一页返回的nextCursor，返回nid小于cursor的一页；第一页传0
+     */
+    public Page<ConfigHistoryInfo> findConfigHistoryByCursor(String dataId, String group, String tenant, long cursor,
+                                                     int pageSize) {
+        PaginationHelper<ConfigHistoryInfo> helper = new PaginationHelper<ConfigHistoryInfo>();
+        String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+        String sqlCountRows
+            = "select count(*) from his_config_info where data_id = ? and group_id = ? and tenant_id = ?";
+        String sqlFetchRows
+            = "select nid,data_id,group_id,tenant_id,app_name,src_ip,op_type,gmt_create,gmt_modified from his_config_info where data_id = ? and group_id = ? and tenant_id = ? and nid < ? order by nid desc";
+        try {
+            return helper.fetchPageByCursor(readJt(), sqlCountRows, new Object[] {dataId, group, tenantTmp},
+                sqlFetchRows, new Object[] {dataId, group, tenantTmp, cursor <= 0 ? Long.MAX_VALUE : cursor}, 1,
+                pageSize, "nid", HISTORY_LIST_ROW_MAPPER);
+        } catch (DataAccessException e) {
+            fatalLog.error("[list-config-history] error, dataId:{}, group:{}", new Object[] {dataId, group}, e);
+            throw e;
+        }
+    }
+
     /**
      * 增加配置；数据库原子操作，最小sql动作，无业务封装
      *
@@ -3017,7 +3472,7 @@ public class PersistService {
         String sqlFetchRows
             = "SELECT nid,data_id,group_id,tenant_id,app_name,content,md5,src_user,src_ip,op_type,gmt_create,gmt_modified FROM his_config_info WHERE nid = ?";
         try {
-            ConfigHistoryInfo historyInfo = jt.queryForObject(sqlFetchRows, new Object[] {nid},
+            ConfigHistoryInfo historyInfo = readJt().queryForObject(sqlFetchRows, new Object[] {nid},
                 HISTORY_DETAIL_ROW_MAPPER);
             return historyInfo;
         } catch (DataAccessException e) {
@@ -3279,6 +3734,8 @@ public class PersistService {
 
     static final ConfigKeyRowMapper CONFIG_KEY_ROW_MAPPER = new ConfigKeyRowMapper();
 
+    static final ConfigTagRelationRowMapper CONFIG_TAG_RELATION_ROW_MAPPER = new ConfigTagRelationRowMapper();
+
     static final ConfigInfoBetaWrapperRowMapper CONFIG_INFO_BETA_WRAPPER_ROW_MAPPER
         = new ConfigInfoBetaWrapperRowMapper();
 
@@ -3308,5 +3765,9 @@ public class PersistService {
     private final static int QUERY_LIMIT_SIZE = 50;
     private JdbcTemplate jt;
     private TransactionTemplate tjt;
+    /**
+     * 开启historyJournalEnabled时异步写入历史，否则为null
+     */
+    private ConfigHistoryJournal historyJournal;
 
 }
@@ -62,6 +62,10 @@ public class CapacityService {
     private PersistService persistService;
 
     private ScheduledExecutorService scheduledExecutorService;
+    /**
+     * 开启capacityUsageCacheEnabled时不为null
+     */
+    private CapacityUsageCounter usageCounter;
 
     @PostConstruct
     @SuppressWarnings("PMD.ThreadPoolCreationRule")
@@ -80,24 +84,63 @@ public class CapacityService {
 
             }
         }, PropertyUtil.getCorrectUsageDelay(), PropertyUtil.getCorrectUsageDelay(), TimeUnit.SECONDS);
+        if (PropertyUtil.isCapacityUsageCacheEnabled()) {
+            usageCounter = new CapacityUsageCounter(this, groupCapacityPersistService, tenantCapacityPersistService);
+            scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    usageCounter.flushAll();
+                }
+            }, PropertyUtil.getCapacityUsageFlushInterval(), PropertyUtil.getCapacityUsageFlushInterval(),
+                TimeUnit.MILLISECONDS);
+        }
     }
 
     @PreDestroy
     public void destroy() {
         scheduledExecutorService.shutdown();
+        if (usageCounter != null) {
+            try {
+                scheduledExecutorService.awaitTermination(3, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            usageCounter.flushAll();
+        }
     }
 
+    /**
+     * 按config_info修正所有usage；开启内存计数时先回写增量，修正后按db重新加载
+     */
     public void correctUsage() {
+        if (usageCounter != null) {
+            usageCounter.flushAll();
+        }
         correctGroupUsage();
         correctTenantUsage();
+        if (usageCounter != null) {
+            usageCounter.reloadAll();
+        }
     }
 
     public void correctGroupUsage(String group) {
+        if (usageCounter != null) {
+            usageCounter.flush(group, false);
+        }
         groupCapacityPersistService.correctUsage(group, TimeUtils.getCurrentTime());
+        if (usageCounter != null) {
+            usageCounter.reload(group, false);
+        }
     }
 
     public void correctTenantUsage(String tenant) {
+        if (usageCounter != null) {
+            usageCounter.flush(tenant, true);
+        }
         tenantCapacityPersistService.correctUsage(tenant, TimeUtils.getCurrentTime());
+        if (usageCounter != null) {
+            usageCounter.reload(tenant, true);
+        }
     }
 
     public void initAllCapacity() {
@@ -193,6 +236,10 @@ public class CapacityService {
      * @return 是否操作成功
      */
     public boolean insertAndUpdateClusterUsage(CounterMode counterMode, boolean ignoreQuotaLimit) {
+        if (usageCounter != null) {
+            return usageCounter.updateUsage(counterMode, GroupCapacityPersistService.CLUSTER, false,
+                ignoreQuotaLimit);
+        }
         Capacity capacity = groupCapacityPersistService.getClusterCapacity();
         if (capacity == null) {
             insertGroupCapacity(GroupCapacityPersistService.CLUSTER);
@@ -202,6 +249,9 @@ public class CapacityService {
     }
 
     public boolean updateClusterUsage(CounterMode counterMode) {
+        if (usageCounter != null) {
+            return usageCounter.updateUsage(counterMode, GroupCapacityPersistService.CLUSTER, false, false);
+        }
         return updateGroupUsage(counterMode, GroupCapacityPersistService.CLUSTER,
             PropertyUtil.getDefaultClusterQuota(), false);
     }
@@ -215,6 +265,9 @@ public class CapacityService {
      * @return 是否操作成功
      */
     public boolean insertAndUpdateGroupUsage(CounterMode counterMode, String group, boolean ignoreQuotaLimit) {
+        if (usageCounter != null) {
+            return usageCounter.updateUsage(counterMode, group, false, ignoreQuotaLimit);
+        }
         GroupCapacity groupCapacity = getGroupCapacity(group);
         if (groupCapacity == null) {
             initGroupCapacity(group, null, null, null, null);
@@ -227,6 +280,9 @@ public class CapacityService {
     }
 
     public boolean updateGroupUsage(CounterMode counterMode, String group) {
+        if (usageCounter != null) {
+            return usageCounter.updateUsage(counterMode, group, false, false);
+        }
         return updateGroupUsage(counterMode, group, PropertyUtil.getDefaultGroupQuota(), false);
     }
 
@@ -290,6 +346,19 @@ public class CapacityService {
         return getGroupCapacity(group);
     }
 
+    /**
+     * 写入路径使用：开启内存计数时读内存中的容量信息，不查db
+     */
+    public Capacity getCachedCapacity(String group, String tenant) {
+        if (usageCounter == null) {
+            return getCapacity(group, tenant);
+        }
+        if (tenant != null) {
+            return usageCounter.getCapacity(tenant, true);
+        }
+        return usageCounter.getCapacity(group, false);
+    }
+
     public Capacity getCapacityWithDefault(String group, String tenant) {
         Capacity capacity;
         boolean isTenant = StringUtils.isNotBlank(tenant);
@@ -392,6 +461,9 @@ public class CapacityService {
      * @return 是否操作成功
      */
     public boolean insertAndUpdateTenantUsage(CounterMode counterMode, String tenant, boolean ignoreQuotaLimit) {
+        if (usageCounter != null) {
+            return usageCounter.updateUsage(counterMode, tenant, true, ignoreQuotaLimit);
+        }
         TenantCapacity tenantCapacity = getTenantCapacity(tenant);
         if (tenantCapacity == null) {
             // 初始化容量信息
@@ -418,6 +490,9 @@ public class CapacityService {
     }
 
     public boolean updateTenantUsage(CounterMode counterMode, String tenant) {
+        if (usageCounter != null) {
+            return usageCounter.updateUsage(counterMode, tenant, true, false);
+        }
         return updateTenantUsage(counterMode, tenant, false);
     }
 
@@ -482,18 +557,29 @@ public class CapacityService {
      */
     public boolean insertOrUpdateCapacity(String group, String tenant, Integer quota, Integer maxSize, Integer
         maxAggrCount, Integer maxAggrSize) {
-        if (StringUtils.isNotBlank(tenant)) {
+        boolean isTenant = StringUtils.isNotBlank(tenant);
+        boolean result;
+        if (isTenant) {
             Capacity capacity = tenantCapacityPersistService.getTenantCapacity(tenant);
             if (capacity == null) {
-                return initTenantCapacity(tenant, quota, maxSize, maxAggrCount, maxAggrSize);
+                result = initTenantCapacity(tenant, quota, maxSize, maxAggrCount, maxAggrSize);
+            } else {
+                result = tenantCapacityPersistService.updateTenantCapacity(tenant, quota, maxSize, maxAggrCount,
+                    maxAggrSize);
+            }
+        } else {
+            Capacity capacity = groupCapacityPersistService.getGroupCapacity(group);
+            if (capacity == null) {
+                result = initGroupCapacity(group, quota, maxSize, maxAggrCount, maxAggrSize);
+            } else {
+                result = groupCapacityPersistService.updateGroupCapacity(group, quota, maxSize, maxAggrCount,
+                    maxAggrSize);
             }
-            return tenantCapacityPersistService.updateTenantCapacity(tenant, quota, maxSize, maxAggrCount,
-                maxAggrSize);
         }
-        Capacity capacity = groupCapacityPersistService.getGroupCapacity(group);
-        if (capacity == null) {
-            return initGroupCapacity(group, quota, maxSize, maxAggrCount, maxAggrSize);
+        if (usageCounter != null) {
+            // 限额修改立即生效
+            usageCounter.reload(isTenant ? tenant : group, isTenant);
         }
-        return groupCapacityPersistService.updateGroupCapacity(group, quota, maxSize, maxAggrCount, maxAggrSize);
+        return result;
     }
 }
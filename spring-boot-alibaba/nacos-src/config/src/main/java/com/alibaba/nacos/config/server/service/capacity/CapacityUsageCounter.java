@@ -0,0 +1,331 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.capacity;
+
+import com.alibaba.nacos.config.server.constant.CounterMode;
+import com.alibaba.nacos.config.server.model.capacity.Capacity;
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import com.alibaba.nacos.config.server.utils.TimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存中的容量usage计数。写入路径只在内存中检验配额并加减计数，增量由定时任务合并后回写db（usage = usage + delta），
+ * 每隔一段时间按db重新加载容量信息，以感知其他节点的写入和限额修改。
+ * <p>
+ * 检验和计数不是原子的，并发写入时usage最多超出配额并发数个；多节点间的配额同样是近似的，由定时修正usage的Job兜底。
+ *
+ * @author Nacos
+ */
+class CapacityUsageCounter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CapacityUsageCounter.class);
+
+    /**
+     * 按db重新加载容量信息的间隔
+     */
+    static final long RELOAD_INTERVAL_MS = 60 * 1000L;
+    /**
+     * 超过该时间未访问且没有未回写增量的计数器被移除
+     */
+    static final long EXPIRE_MS = 10 * 60 * 1000L;
+
+    private final CapacityService capacityService;
+    private final GroupCapacityPersistService groupCapacityPersistService;
+    private final TenantCapacityPersistService tenantCapacityPersistService;
+
+    private final ConcurrentMap<String, Counter> groupCounters = new ConcurrentHashMap<String, Counter>();
+    private final ConcurrentMap<String, Counter> tenantCounters = new ConcurrentHashMap<String, Counter>();
+
+    CapacityUsageCounter(CapacityService capacityService,
+                         GroupCapacityPersistService groupCapacityPersistService,
+                         TenantCapacityPersistService tenantCapacityPersistService) {
+        this.capacityService = capacityService;
+        this.groupCapacityPersistService = groupCapacityPersistService;
+        this.tenantCapacityPersistService = tenantCapacityPersistService;
+    }
+
+    /**
+     * 加减usage，容量信息不存在时先初始化
+     *
+     * @param ignoreQuotaLimit 为true时只计数，不检验配额
+     * @return 是否操作成功，超过配额或usage已为0时返回false
+     */
+    boolean updateUsage(CounterMode counterMode, String id, boolean isTenant, boolean ignoreQuotaLimit) {
+        Counter counter = getCounter(id, isTenant, true);
+        if (CounterMode.INCREMENT == counterMode) {
+            if (!ignoreQuotaLimit && counter.usage.sum() >= getQuota(counter)) {
+                return false;
+            }
+            counter.usage.increment();
+            counter.unflushed.increment();
+            flushIfRemoved(counter);
+            return true;
+        }
+        if (counter.usage.sum() <= 0) {
+            return false;
+        }
+        counter.usage.decrement();
+        counter.unflushed.decrement();
+        flushIfRemoved(counter);
+        return true;
+    }
+
+    /**
+     * 计数时计数器可能刚被flushAll移除，移除后的增量不会再被定时回写，由写入线程自己回写
+     */
+    private void flushIfRemoved(Counter counter) {
+        if (!counter.removed) {
+            return;
+        }
+        try {
+            flush(counter);
+        } catch (RuntimeException e) {
+            LOGGER.error("[capacityManagement] flush usage of removed counter error, id: {}", counter.id, e);
+        }
+    }
+
+    /**
+     * 内存中的容量信息，usage为包含未回写增量的当前值；不存在时返回null
+     */
+    Capacity getCapacity(String id, boolean isTenant) {
+        Counter counter = getCounter(id, isTenant, false);
+        Capacity capacity = counter.capacity;
+        if (capacity == null) {
+            return null;
+        }
+        Capacity result = new Capacity();
+        result.setId(capacity.getId());
+        result.setQuota(capacity.getQuota());
+        result.setUsage((int)counter.usage.sum());
+        result.setMaxSize(capacity.getMaxSize());
+        result.setMaxAggrCount(capacity.getMaxAggrCount());
+        result.setMaxAggrSize(capacity.getMaxAggrSize());
+        result.setGmtCreate(capacity.getGmtCreate());
+        result.setGmtModified(capacity.getGmtModified());
+        return result;
+    }
+
+    /**
+     * 回写单个group/tenant的增量，在按db修正usage之前调用
+     */
+    void flush(String id, boolean isTenant) {
+        Counter counter = counters(isTenant).get(id);
+        if (counter != null) {
+            flush(counter);
+        }
+    }
+
+    /**
+     * 按db重新加载单个group/tenant，在修正usage或修改限额之后调用
+     */
+    void reload(String id, boolean isTenant) {
+        Counter counter = counters(isTenant).get(id);
+        if (counter != null) {
+            load(counter);
+        }
+    }
+
+    /**
+     * 回写所有增量；到期的计数器按db重新加载，长时间未访问的移除
+     */
+    void flushAll() {
+        flushAll(groupCounters);
+        flushAll(tenantCounters);
+        MetricsMonitor.getCapacityUsageCounterMonitor().set(groupCounters.size() + tenantCounters.size());
+    }
+
+    /**
+     * 按db重新加载所有计数器，在定时修正usage之后调用
+     */
+    void reloadAll() {
+        for (Counter counter : groupCounters.values()) {
+            load(counter);
+        }
+        for (Counter counter : tenantCounters.values()) {
+            load(counter);
+        }
+    }
+
+    private void flushAll(ConcurrentMap<String, Counter> counters) {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, Counter>> it = counters.entrySet().iterator(); it.hasNext(); ) {
+            Counter counter = it.next().getValue();
+            try {
+                flush(counter);
+                // 容量信息已被删除时增量无处回写，等重新初始化时按配置数统计
+                boolean flushed = counter.unflushed.sum() == 0 || counter.capacity == null;
+                if (now - counter.accessTime > EXPIRE_MS && flushed) {
+                    counter.removed = true;
+                    it.remove();
+                    // removed对并发计数的线程可见之前的增量在这里回写，之后的由计数线程回写
+                    flush(counter);
+                } else if (now - counter.loadTime > RELOAD_INTERVAL_MS) {
+                    load(counter);
+                }
+            } catch (Exception e) {
+                LOGGER.error("[capacityManagement] flush usage error, id: {}", counter.id, e);
+            }
+        }
+    }
+
+    /**
+     * 同一计数器的回写串行执行，取出增量和扣减之间的并发计数留到下次回写
+     */
+    private void flush(Counter counter) {
+        synchronized (counter) {
+            if (counter.capacity == null) {
+                return;
+            }
+            long delta = counter.unflushed.sum();
+            if (delta == 0) {
+                return;
+            }
+            counter.unflushed.add(-delta);
+            boolean success;
+            try {
+                if (counter.isTenant) {
+                    success = tenantCapacityPersistService.addUsage(counter.id, delta, TimeUtils.getCurrentTime());
+                } else {
+                    success = groupCapacityPersistService.addUsage(counter.id, delta, TimeUtils.getCurrentTime());
+                }
+            } catch (RuntimeException e) {
+                // 增量放回，下次重试
+                counter.unflushed.add(delta);
+                MetricsMonitor.getCapacityUsageFlushFailCounter().increment();
+                throw e;
+            }
+            if (!success) {
+                // 容量信息已被删除，增量放回，下次写入时重新初始化
+                LOGGER.warn("[capacityManagement] capacity not found when flush usage, id: {}, delta: {}",
+                    counter.id, delta);
+                counter.unflushed.add(delta);
+                counter.capacity = null;
+            }
+        }
+    }
+
+    private Counter getCounter(String id, boolean isTenant, boolean initIfAbsent) {
+        ConcurrentMap<String, Counter> counters = counters(isTenant);
+        Counter counter = counters.get(id);
+        if (counter == null) {
+            Counter newCounter = new Counter(id, isTenant);
+            counter = counters.putIfAbsent(id, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+                load(counter);
+            }
+        }
+        counter.accessTime = System.currentTimeMillis();
+        if (counter.capacity == null && initIfAbsent) {
+            synchronized (counter) {
+                // 可能已由其他节点或切面初始化，先查db，避免重复初始化和自动扩容
+                load(counter);
+                if (counter.capacity == null) {
+                    // 初始化时按配置数统计usage，已包含尚未回写的增量
+                    counter.unflushed.add(-counter.unflushed.sum());
+                    initCapacity(counter);
+                    load(counter);
+                }
+            }
+        }
+        return counter;
+    }
+
+    private void initCapacity(Counter counter) {
+        if (counter.isTenant) {
+            capacityService.initTenantCapacity(counter.id);
+        } else if (GroupCapacityPersistService.CLUSTER.equals(counter.id)) {
+            capacityService.initCapacity(counter.id, null);
+        } else {
+            capacityService.initGroupCapacity(counter.id);
+        }
+    }
+
+    /**
+     * 按db加载容量信息，内存usage调整为db中的usage加上尚未回写的增量，加载期间的并发计数不会丢失
+     */
+    private void load(Counter counter) {
+        Capacity capacity;
+        if (counter.isTenant) {
+            capacity = tenantCapacityPersistService.getTenantCapacity(counter.id);
+        } else {
+            capacity = groupCapacityPersistService.getGroupCapacity(counter.id);
+        }
+        counter.loadTime = System.currentTimeMillis();
+        counter.capacity = capacity;
+        if (capacity != null) {
+            long target = capacity.getUsage() + counter.unflushed.sum();
+            counter.usage.add(target - counter.usage.sum());
+        }
+    }
+
+    private int getQuota(Counter counter) {
+        Capacity capacity = counter.capacity;
+        Integer quota = capacity == null ? null : capacity.getQuota();
+        if (quota != null && quota != 0) {
+            return quota;
+        }
+        // quota=0表示限额为默认值
+        if (counter.isTenant) {
+            return PropertyUtil.getDefaultTenantQuota();
+        }
+        if (GroupCapacityPersistService.CLUSTER.equals(counter.id)) {
+            return PropertyUtil.getDefaultClusterQuota();
+        }
+        return PropertyUtil.getDefaultGroupQuota();
+    }
+
+    private ConcurrentMap<String, Counter> counters(boolean isTenant) {
+        return isTenant ? tenantCounters : groupCounters;
+    }
+
+    // =================
+
+    static class Counter {
+        Counter(String id, boolean isTenant) {
+            this.id = id;
+            this.isTenant = isTenant;
+        }
+
+        final String id;
+        final boolean isTenant;
+        /**
+         * db中的容量信息，null表示不存在
+         */
+        volatile Capacity capacity;
+        /**
+         * 当前usage：db中的usage加上本节点的增量
+         */
+        final LongAdder usage = new LongAdder();
+        /**
+         * 尚未回写db的增量
+         */
+        final LongAdder unflushed = new LongAdder();
+        volatile long loadTime;
+        volatile long accessTime;
+        /**
+         * 已从计数器表中移除
+         */
+        volatile boolean removed;
+    }
+}
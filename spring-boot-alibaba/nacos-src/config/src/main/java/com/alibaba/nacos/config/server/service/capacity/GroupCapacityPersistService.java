@@ -191,6 +191,20 @@ public class GroupCapacityPersistService {
         }
     }
 
+    /**
+     * 把内存中累计的usage增量一次写入，delta可为负数；usage不会被减到0以下
+     */
+    public boolean addUsage(String group, long delta, Timestamp gmtModified) {
+        String sql = "UPDATE group_capacity SET `usage` = CASE WHEN `usage` + ? < 0 THEN 0 ELSE `usage` + ? END, "
+            + "gmt_modified = ? WHERE group_id = ?";
+        try {
+            return jdbcTemplate.update(sql, delta, delta, gmtModified, group) == 1;
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error]", e);
+            throw e;
+        }
+    }
+
     public boolean decrementUsage(GroupCapacity groupCapacity) {
         String sql =
             "UPDATE group_capacity SET `usage` = `usage` - 1, gmt_modified = ? WHERE group_id = ? AND `usage` > 0";
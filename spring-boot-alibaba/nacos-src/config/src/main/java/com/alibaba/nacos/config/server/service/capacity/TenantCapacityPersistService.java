@@ -158,6 +158,20 @@ public class TenantCapacityPersistService {
         }
     }
 
+    /**
+     * 把内存中累计的usage增量一次写入，delta可为负数；usage不会被减到0以下
+     */
+    public boolean addUsage(String tenant, long delta, Timestamp gmtModified) {
+        String sql = "UPDATE tenant_capacity SET `usage` = CASE WHEN `usage` + ? < 0 THEN 0 ELSE `usage` + ? END, "
+            + "gmt_modified = ? WHERE tenant_id = ?";
+        try {
+            return jdbcTemplate.update(sql, delta, delta, gmtModified, tenant) == 1;
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error]", e);
+            throw e;
+        }
+    }
+
     public boolean decrementUsage(TenantCapacity tenantCapacity) {
         String sql =
             "UPDATE tenant_capacity SET `usage` = `usage` - 1, gmt_modified = ? WHERE tenant_id = ? AND `usage` > 0";
@@ -0,0 +1,88 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.dump;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.service.DiskUtil;
+import com.alibaba.nacos.config.server.utils.LogUtil;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 增量dump的水位：按(gmt_modified, id)排序在水位之前的变更都已经落盘。
+ * <p>
+ * 持久化在本地状态目录，重启后只需回放水位之后的变更；水位丢失或过旧时退回全量dump。
+ *
+ * @author Nacos
+ */
+class DumpCheckpoint {
+
+    DumpCheckpoint(long lastModified, long id) {
+        this.lastModified = lastModified;
+        this.id = id;
+    }
+
+    /**
+     * 水位不存在或格式不对时返回null
+     */
+    static DumpCheckpoint load() {
+        File file = DiskUtil.dumpCheckpointFile();
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            String[] pair = FileUtils.readFileToString(file, Constants.ENCODE).trim().split(SEPARATOR);
+            if (pair.length != FIELD_COUNT) {
+                return null;
+            }
+            return new DumpCheckpoint(Long.parseLong(pair[0]), Long.parseLong(pair[1]));
+        } catch (IOException e) {
+            LogUtil.defaultLog.warn("[dump-checkpoint] read failed, " + e.toString());
+            return null;
+        } catch (NumberFormatException e) {
+            LogUtil.defaultLog.warn("[dump-checkpoint] illegal checkpoint, " + e.toString());
+            return null;
+        }
+    }
+
+    void save() throws IOException {
+        DiskUtil.saveDumpCheckpoint(lastModified + SEPARATOR + id);
+    }
+
+    boolean isBefore(DumpCheckpoint other) {
+        return lastModified < other.lastModified || (lastModified == other.lastModified && id < other.id);
+    }
+
+    static DumpCheckpoint min(DumpCheckpoint a, DumpCheckpoint b) {
+        return b.isBefore(a) ? b : a;
+    }
+
+    @Override
+    public String toString() {
+        return "DumpCheckpoint{lastModified=" + lastModified + ", id=" + id + "}";
+    }
+
+    static final String SEPARATOR = ",";
+    /**
+     * 水位文件的字段数：修改时间和id
+     */
+    static final int FIELD_COUNT = 2;
+
+    final long lastModified;
+    final long id;
+}
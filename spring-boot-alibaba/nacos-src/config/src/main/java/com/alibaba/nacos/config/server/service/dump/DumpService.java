@@ -15,27 +15,21 @@
  */
 package com.alibaba.nacos.config.server.service.dump;
 
-import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.manager.TaskManager;
 import com.alibaba.nacos.config.server.model.ConfigInfo;
 import com.alibaba.nacos.config.server.model.ConfigInfoAggr;
 import com.alibaba.nacos.config.server.model.ConfigInfoChanged;
-import com.alibaba.nacos.config.server.model.Page;
 import com.alibaba.nacos.config.server.service.*;
 import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
 import com.alibaba.nacos.config.server.service.merge.MergeTaskProcessor;
 import com.alibaba.nacos.config.server.utils.*;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
@@ -45,10 +39,10 @@ import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.LOCAL_IP;
 import static com.alibaba.nacos.core.utils.SystemUtils.STANDALONE_MODE;
-import static com.alibaba.nacos.config.server.utils.LogUtil.fatalLog;
 
 /**
  * Dump data service
@@ -58,9 +52,6 @@ import static com.alibaba.nacos.config.server.utils.LogUtil.fatalLog;
 @Service
 public class DumpService {
 
-    @Autowired
-    private Environment env;
-
     @Autowired
     PersistService persistService;
 
@@ -76,10 +67,13 @@ public class DumpService {
             "com.alibaba.nacos.server.DumpTaskManager");
         dumpTaskMgr.setDefaultTaskProcessor(processor);
 
+        // 全量、增量dump都会推进水位，串行执行
         dumpAllTaskMgr = new TaskManager(
-            "com.alibaba.nacos.server.DumpAllTaskManager");
+            "com.alibaba.nacos.server.DumpAllTaskManager", 1);
         dumpAllTaskMgr.setDefaultTaskProcessor(dumpAllProcessor);
 
+        dumpAllTaskMgr.addProcessor(DumpChangeTask.TASK_ID, new DumpChangeProcessor(this, false));
+
         Runnable dumpAll = new Runnable() {
             @Override
             public void run() {
@@ -87,6 +81,13 @@ public class DumpService {
             }
         };
 
+        Runnable dumpChange = new Runnable() {
+            @Override
+            public void run() {
+                dumpAllTaskMgr.addTask(DumpChangeTask.TASK_ID, new DumpChangeTask());
+            }
+        };
+
         Runnable dumpAllBeta = new Runnable() {
             @Override
             public void run() {
@@ -100,19 +101,7 @@ public class DumpService {
                 log.warn("clearConfigHistory start");
                 if (ServerListService.isFirstIp()) {
                     try {
-                        Timestamp startTime = getBeforeStamp(TimeUtils.getCurrentTime(), 24 * 30);
-                        int totalCount = persistService.findConfigHistoryCountByTime(startTime);
-                        if (totalCount > 0) {
-                            int pageSize = 1000;
-                            int removeTime = (totalCount + pageSize - 1) / pageSize;
-                            log.warn("clearConfigHistory, getBeforeStamp:{}, totalCount:{}, pageSize:{}, removeTime:{}",
-                                new Object[] {startTime, totalCount, pageSize, removeTime});
-                            while (removeTime > 0) {
-                                // 分页删除，以免批量太大报错
-                                persistService.removeConfigHistory(startTime, pageSize);
-                                removeTime--;
-                            }
-                        }
+                        clearConfigHistory(getBeforeStamp(TimeUtils.getCurrentTime(), HISTORY_RETENTION_IN_HOUR));
                     } catch (Throwable e) {
                         log.error("clearConfigHistory error", e);
                     }
@@ -173,81 +162,112 @@ public class DumpService {
             long initialDelay = new Random().nextInt(INITIAL_DELAY_IN_MINUTE) + 10;
             LogUtil.defaultLog.warn("initialDelay:{}", initialDelay);
 
-            TimerTaskService.scheduleWithFixedDelay(dumpAll, initialDelay, DUMP_ALL_INTERVAL_IN_MINUTE,
+            TimerTaskService.scheduleWithFixedDelay(dumpChange, DUMP_CHANGE_INTERVAL_IN_MINUTE,
+                DUMP_CHANGE_INTERVAL_IN_MINUTE, TimeUnit.MINUTES);
+
+            // 增量dump兜住了漏掉的通知，全量dump只作为低频的一致性校验
+            TimerTaskService.scheduleWithFixedDelay(dumpAll, initialDelay, DUMP_ALL_SWEEP_INTERVAL_IN_MINUTE,
                 TimeUnit.MINUTES);
 
             TimerTaskService.scheduleWithFixedDelay(dumpAllBeta, initialDelay, DUMP_ALL_INTERVAL_IN_MINUTE,
                 TimeUnit.MINUTES);
         }
 
-        TimerTaskService.scheduleWithFixedDelay(clearConfigHistory, 10, 10, TimeUnit.MINUTES);
+        TimerTaskService.scheduleWithFixedDelay(clearConfigHistory, HISTORY_CLEAR_INTERVAL_IN_MINUTE,
+            HISTORY_CLEAR_INTERVAL_IN_MINUTE, TimeUnit.MINUTES);
+
+        if (PropertyUtil.isSearchIndexEnabled()) {
+            // 异步构建，构建完成前模糊搜索查库；定期重建回收已删除配置占的位置
+            Runnable rebuildSearchIndex = new Runnable() {
+                @Override
+                public void run() {
+                    ConfigSearchIndex.rebuild(persistService);
+                }
+            };
+            TimerTaskService.scheduleWithFixedDelay(rebuildSearchIndex, 0, DUMP_ALL_SWEEP_INTERVAL_IN_MINUTE,
+                TimeUnit.MINUTES);
+        }
 
     }
 
-    private void dumpConfigInfo(DumpAllProcessor dumpAllProcessor)
-        throws IOException {
-        int timeStep = 6;
-        Boolean isAllDump = true;
-        // initial dump all
-        FileInputStream fis = null;
-        Timestamp heartheatLastStamp = null;
-        try {
-            if (isQuickStart()) {
-                File heartbeatFile = DiskUtil.heartBeatFile();
-                if (heartbeatFile.exists()) {
-                    fis = new FileInputStream(heartbeatFile);
-                    String heartheatTempLast = IOUtils.toString(fis,
-                        Constants.ENCODE);
-                    heartheatLastStamp = Timestamp.valueOf(heartheatTempLast);
-                    if (TimeUtils.getCurrentTime().getTime()
-                        - heartheatLastStamp.getTime() < timeStep * 60 * 60 * 1000) {
-                        isAllDump = false;
+    private void dumpConfigInfo(DumpAllProcessor dumpAllProcessor) {
+        DumpCheckpoint lastCheckpoint = DumpCheckpoint.load();
+        // 超过历史表保留时长的水位查不全删除记录，只能全量dump
+        long maxCheckpointAge = TimeUnit.HOURS.toMillis(HISTORY_RETENTION_IN_HOUR) - TimeUnit.DAYS.toMillis(1);
+        if (null == lastCheckpoint || System.currentTimeMillis() - lastCheckpoint.lastModified > maxCheckpointAge) {
+            LogUtil.defaultLog.info("start clear all config-info, checkpoint:{}", lastCheckpoint);
+            DiskUtil.clearAll();
+            dumpAllProcessor.process(DumpAllTask.TASK_ID, new DumpAllTask());
+        } else {
+            advanceCheckpoint(lastCheckpoint);
+            DumpChangeProcessor dumpChangeProcessor = new DumpChangeProcessor(this, true);
+            dumpChangeProcessor.process(DumpChangeTask.TASK_ID, new DumpChangeTask());
+            Runnable checkMd5Task = new Runnable() {
+                @Override
+                public void run() {
+                    LogUtil.defaultLog.error("start checkMd5Task");
+                    List<String> diffList = ConfigService.checkMd5();
+                    for (String groupKey : diffList) {
+                        String[] dg = GroupKey.parseKey(groupKey);
+                        String dataId = dg[0];
+                        String group = dg[1];
+                        String tenant = dg[2];
+                        ConfigInfoWrapper configInfo = persistService.queryConfigInfo(dataId, group, tenant);
+                        ConfigService.dumpChange(dataId, group, tenant, configInfo.getContent(),
+                            configInfo.getLastModified());
                     }
+                    LogUtil.defaultLog.error("end checkMd5Task");
                 }
-            }
-            if (isAllDump) {
-                LogUtil.defaultLog.info("start clear all config-info.");
-                DiskUtil.clearAll();
-                dumpAllProcessor.process(DumpAllTask.TASK_ID, new DumpAllTask());
-            } else {
-                Timestamp beforeTimeStamp = getBeforeStamp(heartheatLastStamp,
-                    timeStep);
-                DumpChangeProcessor dumpChangeProcessor = new DumpChangeProcessor(
-                    this, beforeTimeStamp, TimeUtils.getCurrentTime());
-                dumpChangeProcessor.process(DumpChangeTask.TASK_ID,
-                    new DumpChangeTask());
-                Runnable checkMd5Task = new Runnable() {
-                    @Override
-                    public void run() {
-                        LogUtil.defaultLog.error("start checkMd5Task");
-                        List<String> diffList = ConfigService.checkMd5();
-                        for (String groupKey : diffList) {
-                            String[] dg = GroupKey.parseKey(groupKey);
-                            String dataId = dg[0];
-                            String group = dg[1];
-                            String tenant = dg[2];
-                            ConfigInfoWrapper configInfo = persistService.queryConfigInfo(dataId, group, tenant);
-                            ConfigService.dumpChange(dataId, group, tenant, configInfo.getContent(),
-                                configInfo.getLastModified());
-                        }
-                        LogUtil.defaultLog.error("end checkMd5Task");
-                    }
-                };
-                TimerTaskService.scheduleWithFixedDelay(checkMd5Task, 0, 12,
-                    TimeUnit.HOURS);
-            }
+            };
+            TimerTaskService.scheduleWithFixedDelay(checkMd5Task, 0, 12,
+                TimeUnit.HOURS);
+        }
+    }
+
+    DumpCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * 水位只前进不后退，推进后落盘
+     */
+    synchronized void advanceCheckpoint(DumpCheckpoint newCheckpoint) {
+        if (null != checkpoint && !checkpoint.isBefore(newCheckpoint)) {
+            return;
+        }
+        checkpoint = newCheckpoint;
+        try {
+            newCheckpoint.save();
         } catch (IOException e) {
-            LogUtil.fatalLog.error("dump config fail" + e.getMessage());
-            throw e;
-        } finally {
-            if (null != fis) {
-                try {
-                    fis.close();
-                } catch (IOException e) {
-                    LogUtil.defaultLog.warn("close file failed");
-                }
+            LogUtil.fatalLog.error("[dump-checkpoint] save failed, " + newCheckpoint, e);
+        }
+    }
+
+    /**
+     * 按时间片删除过期历史：从最早的历史开始，每次只删一个HISTORY_CLEAR_SLICE_IN_HOUR时间片内的数据，
+     * 每条delete都落在gmt_modified索引的一小段区间上，不再先count全部过期数据
+     */
+    void clearConfigHistory(Timestamp expireTime) {
+        long sliceMs = TimeUnit.HOURS.toMillis(HISTORY_CLEAR_SLICE_IN_HOUR);
+        int removedTotal = 0;
+        Timestamp minTime = persistService.findConfigHistoryMinTime();
+        while (minTime != null && minTime.before(expireTime)) {
+            Timestamp toTime = new Timestamp(Math.min(minTime.getTime() + sliceMs, expireTime.getTime()));
+            int removed;
+            do {
+                // 分批删除，以免批量太大报错
+                removed = persistService.removeConfigHistory(minTime, toTime, HISTORY_CLEAR_BATCH_SIZE);
+                removedTotal += removed;
+            } while (removed >= HISTORY_CLEAR_BATCH_SIZE);
+
+            Timestamp nextMinTime = persistService.findConfigHistoryMinTime();
+            if (nextMinTime != null && nextMinTime.before(toTime)) {
+                log.warn("clearConfigHistory, history before {} not removed, stop", toTime);
+                break;
             }
+            minTime = nextMinTime;
         }
+        log.warn("clearConfigHistory, expireTime:{}, removed:{}", expireTime, removedTotal);
     }
 
     private Timestamp getBeforeStamp(Timestamp date, int step) {
@@ -264,20 +284,6 @@ public class DumpService {
         return Timestamp.valueOf(format.format(cal.getTime()));
     }
 
-    private Boolean isQuickStart() {
-        try {
-            String val = null;
-            val = env.getProperty("isQuickStart");
-            if (val != null && TRUE_STR.equals(val)) {
-                isQuickStart = true;
-            }
-            fatalLog.warn("isQuickStart:{}", isQuickStart);
-        } catch (Exception e) {
-            fatalLog.error("read application.properties wrong", e);
-        }
-        return isQuickStart;
-    }
-
     public void dump(String dataId, String group, String tenant, String tag, long lastModified, String handleIp) {
         dump(dataId, group, tenant, tag, lastModified, handleIp, false);
     }
@@ -297,6 +303,18 @@ public class DumpService {
         dumpTaskMgr.addTask(groupKey, new DumpTask(groupKey, tag, lastModified, handleIp, isBeta));
     }
 
+    /**
+     * 批量dump。一次批量查库后按key拆分，groupKeys与lastModifieds一一对应
+     */
+    public void dumpBatch(List<String> groupKeys, List<Long> lastModifieds, String handleIp) {
+        String taskId = DumpBatchTask.TASK_ID_PREFIX + BATCH_SEQUENCE.incrementAndGet();
+        dumpTaskMgr.addTask(taskId, new DumpBatchTask(groupKeys, lastModifieds, handleIp));
+    }
+
+    void dumpPrefetched(String groupKey, long lastModified, String handleIp, ConfigInfo prefetched) {
+        dumpTaskMgr.addTask(groupKey, new DumpTask(groupKey, lastModified, handleIp, prefetched));
+    }
+
     public void dumpAll() {
         dumpAllTaskMgr.addTask(DumpAllTask.TASK_ID, new DumpAllTask());
     }
@@ -314,7 +332,6 @@ public class DumpService {
     }
 
     class MergeAllDataWorker extends Thread {
-        static final int PAGE_SIZE = 10000;
 
         private List<ConfigInfoChanged> configInfoList;
 
@@ -330,18 +347,8 @@ public class DumpService {
                 String group = configInfo.getGroup();
                 String tenant = configInfo.getTenant();
                 try {
-                    List<ConfigInfoAggr> datumList = new ArrayList<ConfigInfoAggr>();
-                    int rowCount = persistService.aggrConfigInfoCount(dataId, group, tenant);
-                    int pageCount = (int)Math.ceil(rowCount * 1.0 / PAGE_SIZE);
-                    for (int pageNo = 1; pageNo <= pageCount; pageNo++) {
-                        Page<ConfigInfoAggr> page = persistService.findConfigInfoAggrByPage(dataId, group, tenant,
-                            pageNo, PAGE_SIZE);
-                        if (page != null) {
-                            datumList.addAll(page.getPageItems());
-                            log.info("[merge-query] {}, {}, size/total={}/{}", dataId, group, datumList.size(),
-                                rowCount);
-                        }
-                    }
+                    List<ConfigInfoAggr> datumList = MergeTaskProcessor.loadDatums(persistService, dataId, group,
+                        tenant);
 
                     final Timestamp time = TimeUtils.getCurrentTime();
                     // 聚合
@@ -377,9 +384,37 @@ public class DumpService {
     }
 
     /**
-     * 全量dump间隔
+     * 全量dump间隔，目前只用于beta
      */
     static final int DUMP_ALL_INTERVAL_IN_MINUTE = 6 * 60;
+    /**
+     * 全量一致性校验间隔
+     */
+    static final int DUMP_ALL_SWEEP_INTERVAL_IN_MINUTE = 7 * 24 * 60;
+    /**
+     * 增量dump间隔
+     */
+    static final int DUMP_CHANGE_INTERVAL_IN_MINUTE = 5;
+    /**
+     * 水位相对本轮开始时间的滞后，容忍节点间时钟偏差和晚提交的事务
+     */
+    static final long CHECKPOINT_SAFE_LAG_MS = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * 历史表保留时长
+     */
+    static final int HISTORY_RETENTION_IN_HOUR = 24 * 30;
+    /**
+     * 清理历史的间隔，每轮只删到保留时长之前，多数轮次没有可删的时间片
+     */
+    static final int HISTORY_CLEAR_INTERVAL_IN_MINUTE = 10;
+    /**
+     * 清理历史时每个时间片的跨度
+     */
+    static final int HISTORY_CLEAR_SLICE_IN_HOUR = 1;
+    /**
+     * 清理历史时每条delete最多删除的条数
+     */
+    static final int HISTORY_CLEAR_BATCH_SIZE = 1000;
     /**
      * 全量dump间隔
      */
@@ -387,17 +422,18 @@ public class DumpService {
 
     private TaskManager dumpTaskMgr;
     private TaskManager dumpAllTaskMgr;
+    private volatile DumpCheckpoint checkpoint;
 
     private static final Logger log = LoggerFactory.getLogger(DumpService.class);
 
     static final AtomicInteger FINISHED = new AtomicInteger();
 
+    static final AtomicLong BATCH_SEQUENCE = new AtomicLong();
+
     static final int INIT_THREAD_COUNT = 10;
     int total = 0;
-    private final static String TRUE_STR = "true";
     private final static String BETA_TABLE_NAME = "config_info_beta";
     private final static String TAG_TABLE_NAME = "config_info_tag";
 
-    Boolean isQuickStart = false;
 
 }
@@ -15,12 +15,14 @@
  */
 package com.alibaba.nacos.config.server.service.dump;
 
+import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.manager.AbstractTask;
 import com.alibaba.nacos.config.server.manager.TaskProcessor;
 import com.alibaba.nacos.config.server.model.ConfigInfo;
 import com.alibaba.nacos.config.server.model.ConfigInfo4Beta;
 import com.alibaba.nacos.config.server.model.ConfigInfo4Tag;
 import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
 import com.alibaba.nacos.config.server.service.*;
 import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoBetaWrapper;
 import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoTagWrapper;
@@ -29,10 +31,19 @@ import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.GroupKey2;
 import com.alibaba.nacos.config.server.utils.LogUtil;
 import com.alibaba.nacos.config.server.utils.MD5;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
 import com.alibaba.nacos.config.server.utils.StringUtils;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
 
@@ -79,15 +90,45 @@ public class DumpTask extends AbstractTask {
         setTaskInterval(1000L);
     }
 
+    /**
+     * 批量通知时已经批量查过库的任务，处理时直接使用查到的配置，prefetched为null表示配置已删除
+     */
+    DumpTask(String groupKey, long lastModified, String handleIp, ConfigInfo prefetched) {
+        this.groupKey = groupKey;
+        this.lastModified = lastModified;
+        this.handleIp = handleIp;
+        this.isBeta = false;
+        this.tag = null;
+        this.isPrefetched = true;
+        this.prefetched = prefetched;
+        setTaskInterval(1000L);
+    }
+
+    /**
+     * 同一个groupKey的新任务替换了未执行的旧任务，保留修改时间更新的那个；旧任务更新时沿用它预取的配置，避免较早批量查到的配置覆盖较新的变更
+     */
     @Override
     public void merge(AbstractTask task) {
+        if (!(task instanceof DumpTask)) {
+            return;
+        }
+        DumpTask oldTask = (DumpTask)task;
+        boolean sameKind = isBeta == oldTask.isBeta && StringUtils.equals(tag, oldTask.tag);
+        if (sameKind && oldTask.lastModified > lastModified) {
+            lastModified = oldTask.lastModified;
+            handleIp = oldTask.handleIp;
+            isPrefetched = oldTask.isPrefetched;
+            prefetched = oldTask.prefetched;
+        }
     }
 
     final String groupKey;
-    final long lastModified;
-    final String handleIp;
+    long lastModified;
+    String handleIp;
     final boolean isBeta;
     final String tag;
+    boolean isPrefetched = false;
+    ConfigInfo prefetched;
 }
 
 class DumpAllTask extends AbstractTask {
@@ -122,14 +163,38 @@ class DumpChangeTask extends AbstractTask {
     static final String TASK_ID = "dumpChangeConfigTask";
 }
 
+class DumpBatchTask extends AbstractTask {
+
+    DumpBatchTask(List<String> groupKeys, List<Long> lastModifieds, String handleIp) {
+        this.groupKeys = groupKeys;
+        this.lastModifieds = lastModifieds;
+        this.handleIp = handleIp;
+        setTaskInterval(1000L);
+    }
+
+    @Override
+    public void merge(AbstractTask task) {
+    }
+
+    static final String TASK_ID_PREFIX = "dumpBatchTask-";
+
+    final List<String> groupKeys;
+    final List<Long> lastModifieds;
+    final String handleIp;
+}
+
 class DumpProcessor implements TaskProcessor {
 
     DumpProcessor(DumpService dumpService) {
         this.dumpService = dumpService;
+        this.batchProcessor = new DumpBatchProcessor(dumpService);
     }
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
+        if (task instanceof DumpBatchTask) {
+            return batchProcessor.process(taskType, task);
+        }
         DumpTask dumpTask = (DumpTask)task;
         String[] pair = GroupKey2.parseKey(dumpTask.groupKey);
         String dataId = pair[0];
@@ -160,7 +225,18 @@ class DumpProcessor implements TaskProcessor {
             return result;
         } else {
             if (StringUtils.isBlank(tag)) {
-                ConfigInfo cf = dumpService.persistService.findConfigInfo(dataId, group, tenant);
+                ConfigInfo cf;
+                if (dumpTask.isPrefetched) {
+                    // 批量查库之后、任务入队之前，同一个key可能已经按更新的通知dump过了
+                    if (ConfigService.getLastModifiedTs(dumpTask.groupKey) > lastModified) {
+                        LogUtil.dumpLog.warn("[dump-ignore] stale prefetched config. groupKey={}, lastModified={}",
+                            dumpTask.groupKey, lastModified);
+                        return true;
+                    }
+                    cf = dumpTask.prefetched;
+                } else {
+                    cf = dumpService.persistService.findConfigInfo(dataId, group, tenant);
+                }
                 if (dataId.equals(AggrWhitelist.AGGRIDS_METADATA)) {
                     if (null != cf) {
                         AggrWhitelist.load(cf.getContent());
@@ -185,6 +261,8 @@ class DumpProcessor implements TaskProcessor {
                     }
                 }
 
+                ConfigSearchIndex.update(dumpService.persistService, dataId, group, tenant, cf, lastModified);
+
                 boolean result;
                 if (null != cf) {
                     result = ConfigService.dump(dataId, group, tenant, cf.getContent(), lastModified);
@@ -227,6 +305,46 @@ class DumpProcessor implements TaskProcessor {
 
     }
 
+    final DumpService dumpService;
+    final DumpBatchProcessor batchProcessor;
+}
+
+class DumpBatchProcessor implements TaskProcessor {
+
+    DumpBatchProcessor(DumpService dumpService) {
+        this.dumpService = dumpService;
+    }
+
+    /**
+     * 一次批量查库，再按key拆成带配置内容的DumpTask，仍由dumpTaskMgr按key串行落盘
+     */
+    @Override
+    public boolean process(String taskType, AbstractTask task) {
+        DumpBatchTask batchTask = (DumpBatchTask)task;
+        List<ConfigInfoWrapper> configs;
+        try {
+            configs = dumpService.persistService.findConfigInfoByGroupKeys(batchTask.groupKeys);
+        } catch (Exception e) {
+            // 批量查询失败时退化为逐条dump，由各自的DumpTask重试
+            LogUtil.dumpLog.error("[dump-batch-error] size=" + batchTask.groupKeys.size() + ", " + e.toString(), e);
+            for (int i = 0; i < batchTask.groupKeys.size(); i++) {
+                String[] pair = GroupKey2.parseKey(batchTask.groupKeys.get(i));
+                dumpService.dump(pair[0], pair[1], pair[2], batchTask.lastModifieds.get(i), batchTask.handleIp);
+            }
+            return true;
+        }
+        Map<String, ConfigInfo> found = new HashMap<String, ConfigInfo>(configs.size());
+        for (ConfigInfoWrapper cf : configs) {
+            found.put(GroupKey2.getKey(cf.getDataId(), cf.getGroup(), cf.getTenant()), cf);
+        }
+        for (int i = 0; i < batchTask.groupKeys.size(); i++) {
+            String groupKey = batchTask.groupKeys.get(i);
+            dumpService.dumpPrefetched(groupKey, batchTask.lastModifieds.get(i), batchTask.handleIp,
+                found.get(groupKey));
+        }
+        return true;
+    }
+
     final DumpService dumpService;
 }
 
@@ -239,8 +357,26 @@ class DumpAllProcessor implements TaskProcessor {
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
+        int workerCount = PropertyUtil.getDumpAllWorkers();
+        if (workerCount <= 0) {
+            workerCount = Runtime.getRuntime().availableProcessors();
+        }
+        long startTime = System.currentTimeMillis();
+        long count = workerCount > 1 ? parallelDump(workerCount) : serialDump();
+        long cost = System.currentTimeMillis() - startTime;
+        MetricsMonitor.getDumpAllRtTimer().record(cost, TimeUnit.MILLISECONDS);
+        // 全量dump期间的写入不一定都被扫到，水位只推进到开始前SAFE_LAG_MS，之后的变更交给增量dump
+        dumpService.advanceCheckpoint(
+            new DumpCheckpoint((startTime - DumpService.CHECKPOINT_SAFE_LAG_MS) / 1000 * 1000, 0L));
+        defaultLog.info("[all-dump] finished, workers={}, count={}, cost={}ms, tps={}", workerCount, count, cost,
+            count * 1000 / Math.max(cost, 1L));
+        return true;
+    }
+
+    private long serialDump() {
         long currentMaxId = persistService.findConfigMaxId();
         long lastMaxId = 0;
+        long count = 0;
         while (lastMaxId < currentMaxId) {
             Page<PersistService.ConfigInfoWrapper> page = persistService.findAllConfigInfoFragment(lastMaxId,
                 PAGE_SIZE);
@@ -248,36 +384,172 @@ class DumpAllProcessor implements TaskProcessor {
                 for (PersistService.ConfigInfoWrapper cf : page.getPageItems()) {
                     long id = cf.getId();
                     lastMaxId = id > lastMaxId ? id : lastMaxId;
-                    if (cf.getDataId().equals(AggrWhitelist.AGGRIDS_METADATA)) {
-                        AggrWhitelist.load(cf.getContent());
-                    }
+                    loadMetadata(cf);
+                    dumpOne(cf, MD5.getInstance().getMD5String(cf.getContent()));
+                    count++;
+                }
+                defaultLog.info("[all-dump] {} / {}", lastMaxId, currentMaxId);
+            } else {
+                lastMaxId += PAGE_SIZE;
+            }
+        }
+        return count;
+    }
 
-                    if (cf.getDataId().equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
-                        ClientIpWhiteList.load(cf.getContent());
-                    }
+    /**
+     * 流水线dump：当前线程按id游标分页读库，按groupKey哈希分发到各worker的有界队列；worker各自算md5、写盘。
+     * 同一个groupKey总落在同一个worker上，队列满时读库线程阻塞，内存占用与配置总量无关。
+     */
+    private long parallelDump(int workerCount) {
+        int queueCapacity = Math.max(2 * PAGE_SIZE / workerCount, MIN_QUEUE_CAPACITY);
+        DumpAllWorker[] workers = new DumpAllWorker[workerCount];
+        CountDownLatch finished = new CountDownLatch(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new DumpAllWorker(i, new ArrayBlockingQueue<ConfigInfoWrapper>(queueCapacity), finished);
+            workers[i].start();
+        }
 
-                    if (cf.getDataId().equals(SwitchService.SWITCH_META_DATAID)) {
-                        SwitchService.load(cf.getContent());
+        long currentMaxId = persistService.findConfigMaxId();
+        long lastMaxId = 0;
+        long count = 0;
+        long lastReportTime = System.currentTimeMillis();
+        long lastReportCount = 0;
+        try {
+            while (lastMaxId < currentMaxId) {
+                Page<PersistService.ConfigInfoWrapper> page = persistService.findAllConfigInfoFragment(lastMaxId,
+                    PAGE_SIZE);
+                if (page != null && page.getPageItems() != null) {
+                    for (PersistService.ConfigInfoWrapper cf : page.getPageItems()) {
+                        long id = cf.getId();
+                        lastMaxId = id > lastMaxId ? id : lastMaxId;
+                        String groupKey = GroupKey2.getKey(cf.getDataId(), cf.getGroup(), cf.getTenant());
+                        if (workers[(groupKey.hashCode() & Integer.MAX_VALUE) % workerCount].submit(cf)) {
+                            count++;
+                        }
                     }
+                    long now = System.currentTimeMillis();
+                    defaultLog.info("[all-dump] {} / {}, queued={}, tps={}", lastMaxId, currentMaxId, count,
+                        (count - lastReportCount) * 1000 / Math.max(now - lastReportTime, 1L));
+                    lastReportTime = now;
+                    lastReportCount = count;
+                } else {
+                    lastMaxId += PAGE_SIZE;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            defaultLog.error("[all-dump] interrupted at id {}", lastMaxId);
+        } finally {
+            for (DumpAllWorker worker : workers) {
+                worker.finish();
+            }
+        }
 
-                    boolean result = ConfigService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getContent(),
-                        cf.getLastModified());
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            defaultLog.error("[all-dump] interrupted while waiting for workers");
+        }
+        return count;
+    }
+
+    static void loadMetadata(ConfigInfoWrapper cf) {
+        if (cf.getDataId().equals(AggrWhitelist.AGGRIDS_METADATA)) {
+            AggrWhitelist.load(cf.getContent());
+        }
+
+        if (cf.getDataId().equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
+            ClientIpWhiteList.load(cf.getContent());
+        }
+
+        if (cf.getDataId().equals(SwitchService.SWITCH_META_DATAID)) {
+            SwitchService.load(cf.getContent());
+        }
+    }
+
+    static void dumpOne(ConfigInfoWrapper cf, String md5) {
+        ConfigService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getContent(), md5,
+            cf.getLastModified());
+        MetricsMonitor.getDumpAllCounter().increment();
+        LogUtil.dumpLog.info("[dump-all-ok] {}, {}, length={}, md5={}",
+            GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent().length(), md5);
+    }
+
+    /**
+     * 全量dump的worker，独占一个MessageDigest，不与其他线程争用MD5单例的锁
+     */
+    static class DumpAllWorker extends Thread {
+
+        DumpAllWorker(int index, BlockingQueue<ConfigInfoWrapper> queue, CountDownLatch finished) {
+            super("com.alibaba.nacos.DumpAllWorker-" + index);
+            setDaemon(true);
+            this.queue = queue;
+            this.finished = finished;
+            try {
+                this.digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
 
-                    final String content = cf.getContent();
-                    final String md5 = MD5.getInstance().getMD5String(content);
-                    LogUtil.dumpLog.info("[dump-all-ok] {}, {}, length={}, md5={}",
-                        GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), content.length(), md5);
+        /**
+         * 队列满时阻塞；worker已退出时丢弃并返回false，避免读库线程永久阻塞
+         */
+        boolean submit(ConfigInfoWrapper cf) throws InterruptedException {
+            while (isAlive()) {
+                if (queue.offer(cf, 100L, TimeUnit.MILLISECONDS)) {
+                    return true;
                 }
-                defaultLog.info("[all-dump] {} / {}", lastMaxId, currentMaxId);
-            } else {
-                lastMaxId += PAGE_SIZE;
             }
+            return false;
         }
-        return true;
+
+        void finish() {
+            try {
+                submit(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    ConfigInfoWrapper cf = queue.take();
+                    if (cf == END) {
+                        return;
+                    }
+                    try {
+                        loadMetadata(cf);
+                        String md5 = MD5.getInstance().bytes2string(
+                            digest.digest(cf.getContent().getBytes(Constants.ENCODE)));
+                        dumpOne(cf, md5);
+                    } catch (Throwable t) {
+                        LogUtil.dumpLog.error("[dump-all-error] " + GroupKey2.getKey(cf.getDataId(), cf.getGroup())
+                            + ", " + t.toString(), t);
+                    }
+                }
+            } catch (InterruptedException e) {
+                defaultLog.error("[all-dump] {} interrupted", getName());
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        final BlockingQueue<ConfigInfoWrapper> queue;
+        final CountDownLatch finished;
+        final MessageDigest digest;
     }
 
     static final int PAGE_SIZE = 1000;
 
+    static final int MIN_QUEUE_CAPACITY = 64;
+
+    static final ConfigInfoWrapper END = new ConfigInfoWrapper();
+
     final DumpService dumpService;
     final PersistService persistService;
 }
@@ -358,75 +630,96 @@ class DumpAllTagProcessor implements TaskProcessor {
 
 class DumpChangeProcessor implements TaskProcessor {
 
-    DumpChangeProcessor(DumpService dumpService, Timestamp startTime,
-                        Timestamp endTime) {
+    /**
+     * @param reloadMd5 重启时md5缓存为空，先从库里批量加载md5，再回放水位之后的变更
+     */
+    DumpChangeProcessor(DumpService dumpService, boolean reloadMd5) {
         this.dumpService = dumpService;
         this.persistService = dumpService.persistService;
-        this.startTime = startTime;
-        this.endTime = endTime;
+        this.reloadMd5 = reloadMd5;
     }
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
-        LogUtil.defaultLog.warn("quick start; startTime:{},endTime:{}",
-            startTime, endTime);
-        LogUtil.defaultLog.warn("updateMd5 start");
-        long startUpdateMd5 = System.currentTimeMillis();
-        List<ConfigInfoWrapper> updateMd5List = persistService
-            .listAllGroupKeyMd5();
-        LogUtil.defaultLog.warn("updateMd5 count:{}", updateMd5List.size());
-        for (ConfigInfoWrapper config : updateMd5List) {
-            final String groupKey = GroupKey2.getKey(config.getDataId(),
-                config.getGroup());
-            ConfigService.updateMd5(groupKey, config.getMd5(),
-                config.getLastModified());
+        DumpCheckpoint from = dumpService.getCheckpoint();
+        if (null == from) {
+            LogUtil.defaultLog.warn("[dump-change] no checkpoint, skip");
+            return true;
+        }
+        final long passStart = System.currentTimeMillis();
+        LogUtil.defaultLog.warn("[dump-change] start from {}", from);
+
+        if (reloadMd5) {
+            LogUtil.defaultLog.warn("updateMd5 start");
+            long startUpdateMd5 = System.currentTimeMillis();
+            List<ConfigInfoWrapper> updateMd5List = persistService
+                .listAllGroupKeyMd5();
+            LogUtil.defaultLog.warn("updateMd5 count:{}", updateMd5List.size());
+            for (ConfigInfoWrapper config : updateMd5List) {
+                final String groupKey = GroupKey2.getKey(config.getDataId(),
+                    config.getGroup());
+                ConfigService.updateMd5(groupKey, config.getMd5(),
+                    config.getLastModified());
+            }
+            long endUpdateMd5 = System.currentTimeMillis();
+            LogUtil.defaultLog.warn("updateMd5 done,cost:{}", endUpdateMd5
+                - startUpdateMd5);
         }
-        long endUpdateMd5 = System.currentTimeMillis();
-        LogUtil.defaultLog.warn("updateMd5 done,cost:{}", endUpdateMd5
-            - startUpdateMd5);
 
-        LogUtil.defaultLog.warn("deletedConfig start");
         long startDeletedConfigTime = System.currentTimeMillis();
         List<ConfigInfo> configDeleted = persistService.findDeletedConfig(
-            startTime, endTime);
-        LogUtil.defaultLog.warn("deletedConfig count:{}", configDeleted.size());
+            new Timestamp(from.lastModified), new Timestamp(passStart));
         for (ConfigInfo configInfo : configDeleted) {
             if (persistService.findConfigInfo(configInfo.getDataId(), configInfo.getGroup(),
                 configInfo.getTenant()) == null) {
                 ConfigService.remove(configInfo.getDataId(), configInfo.getGroup(), configInfo.getTenant());
+                ConfigSearchIndex.remove(configInfo.getDataId(), configInfo.getGroup(), configInfo.getTenant(),
+                    System.currentTimeMillis());
             }
         }
         long endDeletedConfigTime = System.currentTimeMillis();
-        LogUtil.defaultLog.warn("deletedConfig done,cost:{}",
+        LogUtil.defaultLog.warn("[dump-change] deletedConfig count:{}, cost:{}", configDeleted.size(),
             endDeletedConfigTime - startDeletedConfigTime);
 
-        LogUtil.defaultLog.warn("changeConfig start");
-        long startChangeConfigTime = System.currentTimeMillis();
-        List<PersistService.ConfigInfoWrapper> changeConfigs = persistService
-            .findChangeConfig(startTime, endTime);
-        LogUtil.defaultLog.warn("changeConfig count:{}", changeConfigs.size());
-        for (PersistService.ConfigInfoWrapper cf : changeConfigs) {
-            boolean result = ConfigService.dumpChange(cf.getDataId(), cf.getGroup(), cf.getTenant(),
-                cf.getContent(), cf.getLastModified());
-            final String content = cf.getContent();
-            final String md5 = MD5.getInstance().getMD5String(content);
-            LogUtil.defaultLog.info(
-                "[dump-change-ok] {}, {}, length={}, md5={}",
-                new Object[] {
-                    GroupKey2.getKey(cf.getDataId(), cf.getGroup()),
-                    cf.getLastModified(), content.length(), md5});
+        // 写入时间取自各节点时钟，事务提交也不按gmt_modified顺序；水位停在本轮开始前SAFE_LAG_MS，晚到的变更下一轮还能扫到
+        DumpCheckpoint safeMark = new DumpCheckpoint(
+            (passStart - DumpService.CHECKPOINT_SAFE_LAG_MS) / 1000 * 1000, 0L);
+        DumpCheckpoint cursor = from;
+        boolean exhausted = false;
+        int changeCount = 0;
+        try {
+            while (!exhausted) {
+                List<ConfigInfoWrapper> changeConfigs = persistService.findChangeConfig(
+                    new Timestamp(cursor.lastModified), cursor.id, PAGE_SIZE);
+                for (ConfigInfoWrapper cf : changeConfigs) {
+                    DumpAllProcessor.loadMetadata(cf);
+                    ConfigSearchIndex.update(persistService, cf.getDataId(), cf.getGroup(), cf.getTenant(), cf,
+                        cf.getLastModified());
+                    ConfigService.dumpChange(cf.getDataId(), cf.getGroup(), cf.getTenant(),
+                        cf.getContent(), cf.getLastModified());
+                    LogUtil.dumpLog.info("[dump-change-ok] {}, {}, length={}",
+                        GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(),
+                        cf.getContent().length());
+                    cursor = new DumpCheckpoint(cf.getLastModified(), cf.getId());
+                    changeCount++;
+                }
+                exhausted = changeConfigs.size() < PAGE_SIZE;
+            }
+        } finally {
+            // 中途失败时保留已回放的进度
+            dumpService.advanceCheckpoint(exhausted ? safeMark : DumpCheckpoint.min(cursor, safeMark));
+        }
+        if (reloadMd5) {
+            ConfigService.reloadConfig();
         }
-        ConfigService.reloadConfig();
-        long endChangeConfigTime = System.currentTimeMillis();
-        LogUtil.defaultLog.warn("changeConfig done,cost:{}",
-            endChangeConfigTime - startChangeConfigTime);
+        LogUtil.defaultLog.warn("[dump-change] changeConfig count:{}, cost:{}", changeCount,
+            System.currentTimeMillis() - endDeletedConfigTime);
         return true;
     }
 
-    // =====================
+    static final int PAGE_SIZE = 1000;
 
     final DumpService dumpService;
     final PersistService persistService;
-    final Timestamp startTime;
-    final Timestamp endTime;
+    final boolean reloadMd5;
 }
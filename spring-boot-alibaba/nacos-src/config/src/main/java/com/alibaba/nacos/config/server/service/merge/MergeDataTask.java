@@ -44,8 +44,11 @@ class MergeDataTask extends AbstractTask {
     public void merge(AbstractTask task) {
     }
 
+    /**
+     * 任务key不含clientIp，同一个聚合配置的任务会合并，也不会被多个worker并发聚合
+     */
     public String getId() {
-        return toString();
+        return "MergeTask[" + dataId + ", " + groupId + ", " + tenant + ", " + tag + "]";
     }
 
     @Override
@@ -19,7 +19,6 @@ import com.alibaba.nacos.config.server.manager.TaskManager;
 import com.alibaba.nacos.config.server.model.ConfigInfo;
 import com.alibaba.nacos.config.server.model.ConfigInfoAggr;
 import com.alibaba.nacos.config.server.model.ConfigInfoChanged;
-import com.alibaba.nacos.config.server.model.Page;
 import com.alibaba.nacos.config.server.service.PersistService;
 import com.alibaba.nacos.config.server.utils.ContentUtils;
 import com.alibaba.nacos.config.server.utils.TimeUtils;
@@ -93,8 +92,6 @@ public class MergeDatumService {
     }
 
     class MergeAllDataWorker extends Thread {
-        static final int PAGE_SIZE = 10000;
-
         private List<ConfigInfoChanged> configInfoList;
 
         public MergeAllDataWorker(List<ConfigInfoChanged> configInfoList) {
@@ -109,18 +106,8 @@ public class MergeDatumService {
                 String group = configInfo.getGroup();
                 String tenant = configInfo.getTenant();
                 try {
-                    List<ConfigInfoAggr> datumList = new ArrayList<ConfigInfoAggr>();
-                    int rowCount = persistService.aggrConfigInfoCount(dataId, group, tenant);
-                    int pageCount = (int)Math.ceil(rowCount * 1.0 / PAGE_SIZE);
-                    for (int pageNo = 1; pageNo <= pageCount; pageNo++) {
-                        Page<ConfigInfoAggr> page = persistService.findConfigInfoAggrByPage(dataId, group, tenant,
-                            pageNo, PAGE_SIZE);
-                        if (page != null) {
-                            datumList.addAll(page.getPageItems());
-                            log.info("[merge-query] {}, {}, size/total={}/{}", dataId, group, datumList.size(),
-                                rowCount);
-                        }
-                    }
+                    List<ConfigInfoAggr> datumList = MergeTaskProcessor.loadDatums(persistService, dataId, group,
+                        tenant);
 
                     final Timestamp time = TimeUtils.getCurrentTime();
                     // 聚合
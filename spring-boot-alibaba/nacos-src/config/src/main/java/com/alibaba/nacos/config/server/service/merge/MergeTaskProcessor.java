@@ -33,6 +33,8 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.LOCAL_IP;
@@ -43,7 +45,7 @@ import static com.alibaba.nacos.core.utils.SystemUtils.LOCAL_IP;
  * @author Nacos
  */
 public class MergeTaskProcessor implements TaskProcessor {
-    final int PAGE_SIZE = 10000;
+    static final int PAGE_SIZE = 10000;
 
     MergeTaskProcessor(PersistService persistService, MergeDatumService mergeService) {
         this.persistService = persistService;
@@ -59,17 +61,7 @@ public class MergeTaskProcessor implements TaskProcessor {
         final String tag = mergeTask.tag;
         final String clientIp = mergeTask.getClientIp();
         try {
-            List<ConfigInfoAggr> datumList = new ArrayList<ConfigInfoAggr>();
-            int rowCount = persistService.aggrConfigInfoCount(dataId, group, tenant);
-            int pageCount = (int)Math.ceil(rowCount * 1.0 / PAGE_SIZE);
-            for (int pageNo = 1; pageNo <= pageCount; pageNo++) {
-                Page<ConfigInfoAggr> page = persistService.findConfigInfoAggrByPage(dataId, group, tenant, pageNo,
-                    PAGE_SIZE);
-                if (page != null) {
-                    datumList.addAll(page.getPageItems());
-                    log.info("[merge-query] {}, {}, size/total={}/{}", dataId, group, datumList.size(), rowCount);
-                }
-            }
+            List<ConfigInfoAggr> datumList = loadDatums(persistService, dataId, group, tenant);
 
             final Timestamp time = TimeUtils.getCurrentTime();
             // 聚合
@@ -109,7 +101,34 @@ public class MergeTaskProcessor implements TaskProcessor {
         return true;
     }
 
+    /**
+     * 分页读出一个聚合配置的全部聚合前数据
+     */
+    public static List<ConfigInfoAggr> loadDatums(PersistService persistService, String dataId, String group,
+                                                  String tenant) {
+        List<ConfigInfoAggr> datumList = new ArrayList<ConfigInfoAggr>();
+        Long cursor = 0L;
+        while (cursor != null) {
+            Page<ConfigInfoAggr> page = persistService.findConfigInfoAggrByCursor(dataId, group, tenant, cursor,
+                PAGE_SIZE);
+            if (page == null) {
+                break;
+            }
+            datumList.addAll(page.getPageItems());
+            cursor = page.getNextCursor();
+            log.info("[merge-query] {}, {}, size={}", dataId, group, datumList.size());
+        }
+        return datumList;
+    }
+
+    /**
+     * 按datumId顺序拼接聚合前数据。聚合前数据按id游标读出，这里统一按String排序，结果和读取顺序及数据库的排序规则无关
+     */
     public static ConfigInfo merge(String dataId, String group, String tenant, List<ConfigInfoAggr> datumList) {
+        if (!isSorted(datumList)) {
+            datumList = new ArrayList<ConfigInfoAggr>(datumList);
+            Collections.sort(datumList, DATUM_ID_ORDER);
+        }
         StringBuilder sb = new StringBuilder();
         String appName = null;
         for (ConfigInfoAggr aggrInfo : datumList) {
@@ -123,6 +142,22 @@ public class MergeTaskProcessor implements TaskProcessor {
         return new ConfigInfo(dataId, group, tenant, appName, content);
     }
 
+    private static boolean isSorted(List<ConfigInfoAggr> datumList) {
+        for (int i = 1; i < datumList.size(); i++) {
+            if (DATUM_ID_ORDER.compare(datumList.get(i - 1), datumList.get(i)) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static final Comparator<ConfigInfoAggr> DATUM_ID_ORDER = new Comparator<ConfigInfoAggr>() {
+        @Override
+        public int compare(ConfigInfoAggr o1, ConfigInfoAggr o2) {
+            return o1.getDatumId().compareTo(o2.getDatumId());
+        }
+    };
+
     // =====================
 
     private static final Logger log = LoggerFactory.getLogger(MergeTaskProcessor.class);
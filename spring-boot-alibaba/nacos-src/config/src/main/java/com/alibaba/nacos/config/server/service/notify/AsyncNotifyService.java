@@ -16,6 +16,7 @@
 package com.alibaba.nacos.config.server.service.notify;
 
 import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.service.ConfigDataChangeBatchEvent;
 import com.alibaba.nacos.config.server.service.ConfigDataChangeEvent;
 import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
 import com.alibaba.nacos.config.server.service.ServerListService;
@@ -25,12 +26,16 @@ import com.alibaba.nacos.config.server.utils.event.EventDispatcher.AbstractEvent
 import com.alibaba.nacos.config.server.utils.event.EventDispatcher.Event;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.message.BasicNameValuePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,8 +45,12 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.*;
 
@@ -60,29 +69,55 @@ public class AsyncNotifyService extends AbstractEventListener {
         List<Class<? extends Event>> types = new ArrayList<Class<? extends Event>>();
         // 触发配置变更同步通知
         types.add(ConfigDataChangeEvent.class);
+        types.add(ConfigDataChangeBatchEvent.class);
         return types;
     }
 
+    /**
+     * 在自己的线程上构建通知任务，发布和转储线程只负责入队；队列满时阻塞等待，不丢变更
+     */
+    @Override
+    protected int queueSize() {
+        return EVENT_QUEUE_SIZE;
+    }
+
     @Override
     public void onEvent(Event event) {
 
         // 并发产生 ConfigDataChangeEvent
         if (event instanceof ConfigDataChangeEvent) {
-            ConfigDataChangeEvent evt = (ConfigDataChangeEvent)event;
-            long dumpTs = evt.lastModifiedTs;
-            String dataId = evt.dataId;
-            String group = evt.group;
-            String tenant = evt.tenant;
-            String tag = evt.tag;
-            List<?> ipList = serverListService.getServerList();
-
-            // 其实这里任何类型队列都可以
-            Queue<NotifySingleTask> queue = new LinkedList<NotifySingleTask>();
-            for (int i = 0; i < ipList.size(); i++) {
-                queue.add(new NotifySingleTask(dataId, group, tenant, tag, dumpTs, (String)ipList.get(i), evt.isBeta));
+            notifyPeers(Collections.singletonList((ConfigDataChangeEvent)event));
+        } else if (event instanceof ConfigDataChangeBatchEvent) {
+            notifyPeers(((ConfigDataChangeBatchEvent)event).changes);
+        }
+    }
+
+    /**
+     * 按目标节点合并，短时间窗口内的变更由一次批量请求通知
+     */
+    private void notifyPeers(List<ConfigDataChangeEvent> changes) {
+        List<?> ipList = serverListService.getServerList();
+        for (int i = 0; i < ipList.size(); i++) {
+            String ip = (String)ipList.get(i);
+            List<NotifySingleTask> tasks = new ArrayList<NotifySingleTask>(changes.size());
+            for (ConfigDataChangeEvent evt : changes) {
+                tasks.add(new NotifySingleTask(evt.dataId, evt.group, evt.tenant, evt.tag, evt.lastModifiedTs, ip,
+                    evt.isBeta));
+            }
+            getPeerNotifier(ip).addAll(tasks);
+        }
+    }
+
+    private PeerNotifier getPeerNotifier(String ip) {
+        PeerNotifier notifier = peerNotifiers.get(ip);
+        if (notifier == null) {
+            PeerNotifier newNotifier = new PeerNotifier(ip);
+            notifier = peerNotifiers.putIfAbsent(ip, newNotifier);
+            if (notifier == null) {
+                notifier = newNotifier;
             }
-            EXCUTOR.execute(new AsyncTask(httpclient, queue));
         }
+        return notifier;
     }
 
     @Autowired
@@ -109,6 +144,220 @@ public class AsyncNotifyService extends AbstractEventListener {
 
     private ServerListService serverListService;
 
+    private final ConcurrentHashMap<String, PeerNotifier> peerNotifiers
+        = new ConcurrentHashMap<String, PeerNotifier>();
+
+    /**
+     * 批量通知的合并窗口（毫秒）
+     */
+    static final long BATCH_WINDOW_MS = Long.getLong("nacos.config.notify.batchWindowMs", 10L);
+
+    /**
+     * 单次批量通知最多携带的变更数
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * 变更事件队列长度
+     */
+    static final int EVENT_QUEUE_SIZE = 16384;
+
+    static final String BATCH_URL_PATTERN = "http://{0}{1}" + Constants.COMMUNICATION_CONTROLLER_PATH
+        + "/dataChangeBatch";
+
+    /**
+     * 单个目标节点的通知合并器。同一配置在窗口内的多次变更只保留最后一次；同一时刻每个节点最多一个在途的批量请求，
+     * 失败后整批重新入队并按节点退避，而不是逐条配置重试。对端不支持批量接口时退化为逐条通知。
+     */
+    class PeerNotifier implements Runnable {
+
+        PeerNotifier(String target) {
+            this.target = target;
+        }
+
+        synchronized void addAll(List<NotifySingleTask> tasks) {
+            if (batchUnsupported) {
+                Queue<NotifySingleTask> queue = new LinkedList<NotifySingleTask>(tasks);
+                EXCUTOR.execute(new AsyncTask(httpclient, queue));
+                return;
+            }
+            for (NotifySingleTask task : tasks) {
+                pending.put(task.getBatchKey(), task);
+            }
+            if (!scheduled) {
+                scheduled = true;
+                schedule(BATCH_WINDOW_MS);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<NotifySingleTask> batch;
+            synchronized (this) {
+                if (!serverListService.getServerList().contains(target)) {
+                    // 节点已下线，丢弃积压的通知
+                    pending.clear();
+                    scheduled = false;
+                    peerNotifiers.remove(target, this);
+                    return;
+                }
+                if (pending.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+                batch = new ArrayList<NotifySingleTask>(Math.min(pending.size(), MAX_BATCH_SIZE));
+                Iterator<NotifySingleTask> it = pending.values().iterator();
+                while (it.hasNext() && batch.size() < MAX_BATCH_SIZE) {
+                    batch.add(it.next());
+                    it.remove();
+                }
+            }
+
+            if (serverListService.isHealthCheck() && ServerListService.getServerListUnhealth().contains(target)) {
+                for (NotifySingleTask task : batch) {
+                    ConfigTraceService.logNotifyEvent(task.getDataId(), task.getGroup(), task.getTenant(), null,
+                        task.getLastModified(), LOCAL_IP, ConfigTraceService.NOTIFY_EVENT_UNHEALTH, 0, target);
+                }
+                retry(batch);
+                return;
+            }
+
+            List<DataChangeBatch.Item> items = new ArrayList<DataChangeBatch.Item>(batch.size());
+            for (NotifySingleTask task : batch) {
+                items.add(new DataChangeBatch.Item(task.getDataId(), task.getGroup(), task.getTenant(),
+                    task.getTag(), task.getLastModified(), task.isBeta));
+            }
+            List<NameValuePair> params = new ArrayList<NameValuePair>(1);
+            params.add(new BasicNameValuePair("changes", DataChangeBatch.encode(items)));
+            try {
+                HttpPost request = new HttpPost(
+                    MessageFormat.format(BATCH_URL_PATTERN, target, RunningConfigUtils.getContextPath()));
+                request.setEntity(new UrlEncodedFormEntity(params, Constants.ENCODE));
+                request.setHeader(NotifyService.NOTIFY_HEADER_OP_HANDLE_IP, LOCAL_IP);
+                httpclient.execute(request, new BatchNotifyCallBack(this, batch));
+            } catch (Exception e) {
+                log.error("[notify-exception] batch of " + batch.size() + " to " + target + ", " + e.toString(), e);
+                retry(batch);
+            }
+        }
+
+        synchronized void success(List<NotifySingleTask> batch) {
+            failCount = 0;
+            long now = System.currentTimeMillis();
+            for (NotifySingleTask task : batch) {
+                ConfigTraceService.logNotifyEvent(task.getDataId(), task.getGroup(), task.getTenant(), null,
+                    task.getLastModified(), LOCAL_IP, ConfigTraceService.NOTIFY_EVENT_OK,
+                    now - task.getLastModified(), target);
+            }
+            next(BATCH_WINDOW_MS);
+        }
+
+        /**
+         * 整批重新入队，窗口内新到的同一配置的变更更新，保留新的
+         */
+        synchronized void retry(List<NotifySingleTask> batch) {
+            Map<String, NotifySingleTask> requeued = new LinkedHashMap<String, NotifySingleTask>();
+            for (NotifySingleTask task : batch) {
+                requeued.put(task.getBatchKey(), task);
+            }
+            requeued.putAll(pending);
+            pending = requeued;
+
+            int delay = MINRETRYINTERVAL + failCount * failCount * INCREASESTEPS;
+            if (failCount <= MAXCOUNT) {
+                failCount++;
+            }
+            LogUtil.notifyLog.error("[notify-retry] target:{} batch:{} delay:{}",
+                new Object[] {target, batch.size(), delay});
+            MetricsMonitor.getConfigNotifyException().increment();
+            next(delay);
+        }
+
+        /**
+         * 对端不支持批量接口，本批及之后的通知都逐条发送
+         */
+        synchronized void fallback(List<NotifySingleTask> batch) {
+            log.warn("[notify-batch] {} does not support batch notify, fallback to single notify", target);
+            batchUnsupported = true;
+            Queue<NotifySingleTask> queue = new LinkedList<NotifySingleTask>(batch);
+            queue.addAll(pending.values());
+            pending.clear();
+            scheduled = false;
+            EXCUTOR.execute(new AsyncTask(httpclient, queue));
+        }
+
+        private void next(long delay) {
+            if (pending.isEmpty()) {
+                scheduled = false;
+            } else {
+                schedule(delay);
+            }
+        }
+
+        private void schedule(long delay) {
+            ((ScheduledThreadPoolExecutor)EXCUTOR).schedule(this, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private final String target;
+        private Map<String, NotifySingleTask> pending = new LinkedHashMap<String, NotifySingleTask>();
+        /**
+         * 已调度或有在途请求
+         */
+        private boolean scheduled = false;
+        private boolean batchUnsupported = false;
+        private int failCount = 0;
+    }
+
+    class BatchNotifyCallBack implements FutureCallback<HttpResponse> {
+
+        BatchNotifyCallBack(PeerNotifier notifier, List<NotifySingleTask> batch) {
+            this.notifier = notifier;
+            this.batch = batch;
+        }
+
+        @Override
+        public void completed(HttpResponse response) {
+            int status = response.getStatusLine().getStatusCode();
+            HttpClientUtils.closeQuietly(response);
+            if (status == HttpStatus.SC_OK) {
+                notifier.success(batch);
+            } else if (status == HttpStatus.SC_NOT_FOUND) {
+                notifier.fallback(batch);
+            } else {
+                log.error("[notify-error] batch of {} to {}, result {}",
+                    new Object[] {batch.size(), notifier.target, status});
+                logError(ConfigTraceService.NOTIFY_EVENT_ERROR);
+                notifier.retry(batch);
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            log.error("[notify-exception] batch of " + batch.size() + " to " + notifier.target + ", "
+                + ex.toString());
+            logError(ConfigTraceService.NOTIFY_EVENT_EXCEPTION);
+            notifier.retry(batch);
+        }
+
+        @Override
+        public void cancelled() {
+            LogUtil.notifyLog.error("[notify-exception] target:{} batch:{} {}",
+                new Object[] {notifier.target, batch.size(), "CANCELED"});
+            notifier.retry(batch);
+        }
+
+        private void logError(String type) {
+            long now = System.currentTimeMillis();
+            for (NotifySingleTask task : batch) {
+                ConfigTraceService.logNotifyEvent(task.getDataId(), task.getGroup(), task.getTenant(), null,
+                    task.getLastModified(), LOCAL_IP, type, now - task.getLastModified(), notifier.target);
+            }
+        }
+
+        private final PeerNotifier notifier;
+        private final List<NotifySingleTask> batch;
+    }
+
     class AsyncTask implements Runnable {
 
         public AsyncTask(CloseableHttpAsyncClient httpclient, Queue<NotifySingleTask> queue) {
@@ -278,6 +527,7 @@ public class AsyncNotifyService extends AbstractEventListener {
         private String target;
         public String url;
         private boolean isBeta;
+        private String tag;
         private static final String URL_PATTERN = "http://{0}{1}" + Constants.COMMUNICATION_CONTROLLER_PATH
             + "/dataChange"
             + "?dataId={2}&group={3}";
@@ -299,6 +549,7 @@ public class AsyncNotifyService extends AbstractEventListener {
             super(dataId, group, tenant, lastModified);
             this.target = target;
             this.isBeta = isBeta;
+            this.tag = tag;
             try {
                 dataId = URLEncoder.encode(dataId, Constants.ENCODE);
                 group = URLEncoder.encode(group, Constants.ENCODE);
@@ -331,6 +582,18 @@ public class AsyncNotifyService extends AbstractEventListener {
             return target;
         }
 
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * 合并通知时的去重键，同一配置的正式、beta、tag变更互不覆盖
+         */
+        String getBatchKey() {
+            return GroupKey2.getKey(getDataId(), getGroup(), getTenant()) + "+" + (tag == null ? "" : tag)
+                + "+" + isBeta;
+        }
+
     }
 
     static class NotifyThreadFactory implements ThreadFactory {
@@ -0,0 +1,114 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.notify;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 节点间批量变更通知的报文。每条变更一行，行内字段依次为dataId、group、tenant、tag、lastModified、isBeta，
+ * 行分隔和字段分隔沿用监听协议的LINE_SEPARATOR和WORD_SEPARATOR。
+ *
+ * @author Nacos
+ */
+public final class DataChangeBatch {
+
+    private static final int FIELD_COUNT = 6;
+
+    private DataChangeBatch() {
+    }
+
+    public static String encode(List<Item> items) {
+        StringBuilder sb = new StringBuilder();
+        for (Item item : items) {
+            sb.append(item.dataId).append(Constants.WORD_SEPARATOR);
+            sb.append(item.group).append(Constants.WORD_SEPARATOR);
+            sb.append(StringUtils.defaultString(item.tenant)).append(Constants.WORD_SEPARATOR);
+            sb.append(StringUtils.defaultString(item.tag)).append(Constants.WORD_SEPARATOR);
+            sb.append(item.lastModified).append(Constants.WORD_SEPARATOR);
+            sb.append(item.isBeta).append(Constants.LINE_SEPARATOR);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException 报文格式不对
+     */
+    public static List<Item> decode(String content) {
+        List<Item> items = new ArrayList<Item>();
+        if (StringUtils.isEmpty(content)) {
+            return items;
+        }
+        for (String line : content.split(Constants.LINE_SEPARATOR)) {
+            if (line.length() == 0) {
+                continue;
+            }
+            String[] words = line.split(Constants.WORD_SEPARATOR, -1);
+            if (words.length != FIELD_COUNT) {
+                throw new IllegalArgumentException("invalid data change: " + line);
+            }
+            items.add(new Item(words[0], words[1], words[2], StringUtils.trimToNull(words[3]),
+                Long.parseLong(words[4]), Boolean.parseBoolean(words[5])));
+        }
+        return items;
+    }
+
+    public static class Item {
+
+        public Item(String dataId, String group, String tenant, String tag, long lastModified, boolean isBeta) {
+            this.dataId = dataId;
+            this.group = group;
+            this.tenant = tenant;
+            this.tag = tag;
+            this.lastModified = lastModified;
+            this.isBeta = isBeta;
+        }
+
+        public String getDataId() {
+            return dataId;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public String getTenant() {
+            return tenant;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public boolean isBeta() {
+            return isBeta;
+        }
+
+        private final String dataId;
+        private final String group;
+        private final String tenant;
+        private final String tag;
+        private final long lastModified;
+        private final boolean isBeta;
+    }
+}
@@ -16,17 +16,24 @@
 package com.alibaba.nacos.config.server.service.trace;
 
 import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
 import com.alibaba.nacos.config.server.utils.LogUtil;
 import com.alibaba.nacos.config.server.utils.MD5;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.LOCAL_IP;
 
 /**
  * Config trace
+ * <p>
+ * 开启traceAsyncEnabled时日志由ConfigTraceWriter在后台线程批量写入；拉取事件按tracePullSampleRate采样输出，
+ * 计数（MetricsMonitor）不受采样影响
  *
  * @author Nacos
  */
@@ -50,6 +57,16 @@ public class ConfigTraceService {
     public static final String PULL_EVENT_CONFLICT = "conflict";
     public static final String PULL_EVENT_ERROR = "error";
 
+    private static volatile ConfigTraceWriter writer;
+
+    @PreDestroy
+    public void destroy() {
+        ConfigTraceWriter current = writer;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
     public static void logPersistenceEvent(String dataId, String group, String tenant, String requestIpAppName, long ts,
                                            String handleIp, String type, String content) {
         if (!LogUtil.traceLog.isInfoEnabled()) {
@@ -62,7 +79,7 @@ public class ConfigTraceService {
         //localIp | dataid | group | tenant | requestIpAppName | ts | handleIp | event | type | [delayed = -1] | ext
         // (md5)
         String md5 = content == null ? null : MD5.getInstance().getMD5String(content);
-        LogUtil.traceLog.info("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
+        log("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
             requestIpAppName, ts, handleIp, "persist", type, -1, md5);
     }
 
@@ -72,13 +89,14 @@ public class ConfigTraceService {
             return;
         }
         MetricsMonitor.getNotifyRtTimer().record(delayed, TimeUnit.MILLISECONDS);
+        MetricsMonitor.getTraceEventCounter("notify", type).increment();
         // 方便tlog切分
         if (StringUtils.isBlank(tenant)) {
             tenant = null;
         }
         //localIp | dataid | group | tenant | requestIpAppName | ts | handleIp | event | type | [delayed] | ext
         // (targetIp)
-        LogUtil.traceLog.info("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
+        log("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
             requestIpAppName, ts, handleIp, "notify", type, delayed, targetIp);
     }
 
@@ -87,12 +105,13 @@ public class ConfigTraceService {
         if (!LogUtil.traceLog.isInfoEnabled()) {
             return;
         }
+        MetricsMonitor.getTraceEventCounter("dump", type).increment();
         // 方便tlog切分
         if (StringUtils.isBlank(tenant)) {
             tenant = null;
         }
         //localIp | dataid | group | tenant | requestIpAppName | ts | handleIp | event | type | [delayed] | length
-        LogUtil.traceLog.info("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
+        log("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
             requestIpAppName, ts, handleIp, "dump", type, delayed, length);
     }
 
@@ -106,13 +125,16 @@ public class ConfigTraceService {
             tenant = null;
         }
         //localIp | dataid | group | tenant | requestIpAppName | ts | handleIp | event | type | [delayed = -1]
-        LogUtil.traceLog.info("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
+        log("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
             requestIpAppName, ts, handleIp, "dump-all", type, -1);
     }
 
     public static void logPullEvent(String dataId, String group, String tenant, String requestIpAppName, long ts,
                                     String type, long delayed, String clientIp) {
-        if (!LogUtil.traceLog.isInfoEnabled()) {
+        // 计数不受traceLog级别和采样影响
+        MetricsMonitor.getTraceEventCounter("pull", type).increment();
+        MetricsMonitor.getConfigPullCounter(GroupKey2.getKey(dataId, group, tenant)).increment();
+        if (!LogUtil.traceLog.isInfoEnabled() || !isSampled()) {
             return;
         }
         // 方便tlog切分
@@ -120,7 +142,41 @@ public class ConfigTraceService {
             tenant = null;
         }
         //localIp | dataid | group | tenant| requestIpAppName| ts | event | type | [delayed] | ext(clientIp)
-        LogUtil.traceLog.info("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
+        log("{}|{}|{}|{}|{}|{}|{}|{}|{}|{}", LOCAL_IP, dataId, group, tenant,
             requestIpAppName, ts, "pull", type, delayed, clientIp);
     }
+
+    /**
+     * traceLog开启debug时全部输出，否则按比例采样
+     */
+    static boolean isSampled() {
+        double rate = PropertyUtil.getTracePullSampleRate();
+        if (rate >= 1.0 || LogUtil.traceLog.isDebugEnabled()) {
+            return true;
+        }
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private static void log(String format, Object... args) {
+        if (!PropertyUtil.isTraceAsyncEnabled()) {
+            LogUtil.traceLog.info(format, args);
+            return;
+        }
+        getWriter().append(format, args);
+    }
+
+    private static ConfigTraceWriter getWriter() {
+        ConfigTraceWriter current = writer;
+        if (current == null) {
+            synchronized (ConfigTraceService.class) {
+                current = writer;
+                if (current == null) {
+                    current = new ConfigTraceWriter(LogUtil.traceLog, ConfigTraceWriter.BUFFER_SIZE);
+                    current.start();
+                    writer = current;
+                }
+            }
+        }
+        return current;
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.trace;
+
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
+
+/**
+ * trace日志的异步写入。每个业务线程写自己的环形缓冲（单生产者单消费者，无锁），由单独的线程批量取出后格式化并写日志，
+ * 请求线程不再竞争appender的锁，也不做字符串格式化。
+ * <p>
+ * 缓冲满时丢弃并计数，trace不阻塞业务；线程退出后其缓冲写完即移除。
+ *
+ * @author Nacos
+ */
+class ConfigTraceWriter implements Runnable {
+
+    /**
+     * 每个线程缓冲的条数，2的幂
+     */
+    static final int BUFFER_SIZE = 1024;
+    /**
+     * 没有待写日志时的等待时间
+     */
+    static final long IDLE_WAIT_MS = 10L;
+
+    ConfigTraceWriter(Logger logger, int bufferSize) {
+        this.logger = logger;
+        int size = 1;
+        while (size < bufferSize) {
+            size <<= 1;
+        }
+        this.bufferSize = size;
+    }
+
+    void start() {
+        // 只提交一个常驻任务
+        writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(1),
+            new ThreadFactoryBuilder().setNameFormat("com.alibaba.nacos.config.TraceWriter-%d").setDaemon(true)
+                .build());
+        writer.execute(this);
+    }
+
+    /**
+     * 停止写入线程并写完缓冲中剩余的日志
+     */
+    void shutdown() {
+        running = false;
+        if (writer != null) {
+            // 空闲时最多park IDLE_WAIT_MS，不需要唤醒
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * 放入当前线程的缓冲，由写入线程按format和args输出
+     *
+     * @return 缓冲满被丢弃时返回false
+     */
+    boolean append(String format, Object... args) {
+        RingBuffer buffer = localBuffer.get();
+        if (buffer.offer(new TraceEvent(format, args))) {
+            return true;
+        }
+        MetricsMonitor.getTraceDroppedCounter().increment();
+        return false;
+    }
+
+    /**
+     * 写完所有缓冲中的日志
+     *
+     * @return 写出的条数
+     */
+    synchronized int flush() {
+        int count = 0;
+        for (RingBuffer buffer : buffers) {
+            count += buffer.drainTo(logger);
+            if (buffer.isOwnerDead() && buffer.isEmpty()) {
+                buffers.remove(buffer);
+            }
+        }
+        return count;
+    }
+
+    int bufferCount() {
+        return buffers.size();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (flush() == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(IDLE_WAIT_MS));
+                }
+            } catch (Throwable t) {
+                defaultLog.error("[trace-writer] error", t);
+            }
+        }
+    }
+
+    // =================
+
+    static class TraceEvent {
+        TraceEvent(String format, Object[] args) {
+            this.format = format;
+            this.args = args;
+        }
+
+        final String format;
+        final Object[] args;
+    }
+
+    /**
+     * 单生产者单消费者的环形缓冲：只有所属线程offer，只有写入线程drain
+     */
+    static class RingBuffer {
+        RingBuffer(Thread owner, int size) {
+            this.owner = new WeakReference<Thread>(owner);
+            this.events = new TraceEvent[size];
+            this.mask = size - 1;
+        }
+
+        boolean offer(TraceEvent event) {
+            long t = tail.get();
+            if (t - head.get() >= events.length) {
+                return false;
+            }
+            events[(int)(t & mask)] = event;
+            tail.lazySet(t + 1);
+            return true;
+        }
+
+        int drainTo(Logger logger) {
+            long h = head.get();
+            long t = tail.get();
+            for (long i = h; i < t; i++) {
+                int idx = (int)(i & mask);
+                TraceEvent event = events[idx];
+                events[idx] = null;
+                try {
+                    logger.info(event.format, event.args);
+                } finally {
+                    head.lazySet(i + 1);
+                }
+            }
+            return (int)(t - h);
+        }
+
+        boolean isEmpty() {
+            return head.get() == tail.get();
+        }
+
+        boolean isOwnerDead() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        final WeakReference<Thread> owner;
+        final TraceEvent[] events;
+        final int mask;
+        /**
+         * 下一个读取位置，只由写入线程修改
+         */
+        final AtomicLong head = new AtomicLong();
+        /**
+         * 下一个写入位置，只由所属线程修改
+         */
+        final AtomicLong tail = new AtomicLong();
+    }
+
+    // =================
+
+    private final Logger logger;
+    private final int bufferSize;
+    private final List<RingBuffer> buffers = new CopyOnWriteArrayList<RingBuffer>();
+    private final ThreadLocal<RingBuffer> localBuffer = new ThreadLocal<RingBuffer>() {
+        @Override
+        protected RingBuffer initialValue() {
+            RingBuffer buffer = new RingBuffer(Thread.currentThread(), bufferSize);
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+    private volatile boolean running = true;
+    private ExecutorService writer;
+}
@@ -19,6 +19,7 @@ import com.alibaba.nacos.config.server.constant.Constants;
 
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
@@ -36,9 +37,19 @@ public class MD5 {
 
     private static Map<Character, Integer> rDigits = new HashMap<Character, Integer>(16);
 
+    private final static int ASCII_SIZE = 128;
+
+    /**
+     * 按字符查十六进制数值，大小写均可，非十六进制字符为-1
+     */
+    private static int[] hexValues = new int[ASCII_SIZE];
+
     static {
+        Arrays.fill(hexValues, -1);
         for (int i = 0; i < digits.length; ++i) {
             rDigits.put(digits[i], i);
+            hexValues[digits[i]] = i;
+            hexValues[Character.toUpperCase(digits[i])] = i;
         }
     }
 
@@ -130,6 +141,63 @@ public class MD5 {
         return new String(out);
     }
 
+    /**
+     * 把md5串压缩成16字节摘要。空串表示没有数据，返回null；非十六进制格式的md5按原文再做一次md5，保证只与自身相等。
+     *
+     * @param md5 md5 hex string
+     * @return md5 byte[16] or null
+     */
+    public static byte[] toDigest(String md5) {
+        if (null == md5 || md5.length() == 0) {
+            return null;
+        }
+        if (md5.length() == DIGITS_CHAR_SIZE) {
+            byte[] data = new byte[DIGITS_COUNT];
+            boolean isHex = true;
+            for (int i = 0; i < DIGITS_COUNT && isHex; ++i) {
+                int h = hexValue(md5.charAt(i * 2));
+                int l = hexValue(md5.charAt(i * 2 + 1));
+                isHex = h >= 0 && l >= 0;
+                data[i] = (byte)(h << 4 | l);
+            }
+            if (isHex) {
+                return data;
+            }
+        }
+        return me.hash(md5);
+    }
+
+    /**
+     * 不分配内存地比较md5串与摘要是否一致，摘要为null时只与空串相等
+     *
+     * @param md5    md5 hex string
+     * @param digest md5 byte[16]
+     * @return 是否一致
+     */
+    public static boolean isEqual(String md5, byte[] digest) {
+        if (null == md5) {
+            return false;
+        }
+        if (null == digest) {
+            return md5.length() == 0;
+        }
+        if (md5.length() != DIGITS_CHAR_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < DIGITS_COUNT; ++i) {
+            int h = hexValue(md5.charAt(i * 2));
+            int l = hexValue(md5.charAt(i * 2 + 1));
+            if (h < 0 || l < 0 || (byte)(h << 4 | l) != digest[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        return c < ASCII_SIZE ? hexValues[c] : -1;
+    }
+
     /**
      * 将字符串转换为bytes
      *
@@ -41,14 +41,19 @@ public class MD5Util {
 
     static public List<String> compareMd5(HttpServletRequest request,
                                           HttpServletResponse response, Map<String, String> clientMd5Map) {
-        List<String> changedGroupKeys = new ArrayList<String>();
         String tag = request.getHeader("Vipserver-Tag");
+        String ip = RequestUtil.getRemoteIp(request);
+        return compareMd5(ip, tag, clientMd5Map);
+    }
+
+    /**
+     * 比较客户端md5与服务端md5快照，ip和tag对整个探测请求只解析一次
+     */
+    static public List<String> compareMd5(String ip, String tag, Map<String, String> clientMd5Map) {
+        List<String> changedGroupKeys = new ArrayList<String>();
         for (Map.Entry<String, String> entry : clientMd5Map.entrySet()) {
             String groupKey = entry.getKey();
-            String clientMd5 = entry.getValue();
-            String ip = RequestUtil.getRemoteIp(request);
-            boolean isUptodate = ConfigService.isUptodate(groupKey, clientMd5, ip, tag);
-            if (!isUptodate) {
+            if (!ConfigService.isUptodate(groupKey, entry.getValue(), ip, tag)) {
                 changedGroupKeys.add(groupKey);
             }
         }
@@ -96,6 +101,8 @@ public class MD5Util {
 
     /**
      * 解析传输协议 传输协议有两种格式(w为字段分隔符，l为每条数据分隔符)： 老报文：D w G w MD5 l 新报文：D w G w MD5 w T l
+     * <p>
+     * 单遍扫描，dataId、group、tenant直接按GroupKey2的编码规则写入groupKey，不产生中间子串。
      *
      * @param configKeysString 协议字符串
      * @return 协议报文
@@ -107,40 +114,55 @@ public class MD5Util {
         if (null == configKeysString || "".equals(configKeysString)) {
             return md5Map;
         }
-        int start = 0;
-        List<String> tmpList = new ArrayList<String>(3);
-        for (int i = start; i < configKeysString.length(); i++) {
+        StringBuilder groupKey = new StringBuilder(64);
+        // 当前字段序号：0 dataId, 1 group, 2 md5, 3 tenant
+        int field = 0;
+        int md5Start = 0;
+        int md5End = 0;
+        for (int i = 0; i < configKeysString.length(); i++) {
             char c = configKeysString.charAt(i);
             if (c == WORD_SEPARATOR_CHAR) {
-                tmpList.add(configKeysString.substring(start, i));
-                start = i + 1;
-                if (tmpList.size() > 3) {
+                field++;
+                if (field > 3) {
                     // 畸形报文。返回参数错误
                     throw new IllegalArgumentException("invalid protocol,too much key");
                 }
+                if (field == 1) {
+                    groupKey.append('+');
+                } else if (field == 2) {
+                    md5Start = i + 1;
+                } else {
+                    md5End = i;
+                }
             } else if (c == LINE_SEPARATOR_CHAR) {
-                String endValue = "";
-                if (start + 1 <= i) {
-                    endValue = configKeysString.substring(start, i);
+                if (field < 2) {
+                    throw new IllegalArgumentException("invalid protocol,too few key");
                 }
-                start = i + 1;
-
                 // 如果老的报文，最后一位是md5。多租户后报文为tenant。
-                if (tmpList.size() == 2) {
-                    String groupKey = GroupKey2.getKey(tmpList.get(0), tmpList.get(1));
-                    groupKey = SingletonRepository.DataIdGroupIdCache.getSingleton(groupKey);
-                    md5Map.put(groupKey, endValue);
-                } else {
-                    String groupKey = GroupKey2.getKey(tmpList.get(0), tmpList.get(1), endValue);
-                    groupKey = SingletonRepository.DataIdGroupIdCache.getSingleton(groupKey);
-                    md5Map.put(groupKey, tmpList.get(2));
+                if (field == 2) {
+                    md5End = i;
                 }
-                tmpList.clear();
+                String key = SingletonRepository.DataIdGroupIdCache.getSingleton(groupKey.toString());
+                md5Map.put(key, configKeysString.substring(md5Start, md5End));
+                groupKey.setLength(0);
+                field = 0;
 
                 // 对畸形报文进行保护
                 if (md5Map.size() > 10000) {
                     throw new IllegalArgumentException("invalid protocol, too much listener");
                 }
+            } else if (field != 2) {
+                if (field == 3 && i > 0 && configKeysString.charAt(i - 1) == WORD_SEPARATOR_CHAR) {
+                    // tenant非空时才拼接，与GroupKey2.getKey保持一致
+                    groupKey.append('+');
+                }
+                if ('+' == c) {
+                    groupKey.append("%2B");
+                } else if ('%' == c) {
+                    groupKey.append("%25");
+                } else {
+                    groupKey.append(c);
+                }
             }
         }
         return md5Map;
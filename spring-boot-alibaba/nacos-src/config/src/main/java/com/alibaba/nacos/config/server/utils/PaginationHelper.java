@@ -19,7 +19,11 @@ import com.alibaba.nacos.config.server.model.Page;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.STANDALONE_MODE;
 
@@ -201,13 +205,87 @@ public class PaginationHelper<E> {
         return page;
     }
 
-    public void updateLimit(final JdbcTemplate jt, final String sql, final Object args[]) {
+    /**
+     * 按游标取一页，不跳过行，深翻页和第一页一样快。
+     * <p>
+     * sqlFetchRows须带上游标条件（如id > ?）并按游标列排序，这里只追加取pageSize条的限制；下一页的游标取本页最后一行的cursorColumn，
+     * 不满一页时为null。总数取自estimateCount的缓存估算，sqlCountRows为null时不计数。
+     */
+    public Page<E> fetchPageByCursor(final JdbcTemplate jt, final String sqlCountRows, final Object countArgs[],
+                                     final String sqlFetchRows, final Object fetchArgs[], final int pageNo,
+                                     final int pageSize, final String cursorColumn, final RowMapper<E> rowMapper) {
+        if (pageNo <= 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("pageNo and pageSize must be greater than zero");
+        }
+        final Page<E> page = new Page<E>();
+        page.setPageNumber(pageNo);
+        if (sqlCountRows != null) {
+            int rowCount = estimateCount(jt, sqlCountRows, countArgs);
+            int pageCount = rowCount / pageSize;
+            if (rowCount > pageSize * pageCount) {
+                pageCount++;
+            }
+            page.setPagesAvailable(pageCount);
+            page.setTotalCount(rowCount);
+        }
+
+        String selectSQL;
+        if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+            selectSQL = sqlFetchRows + " OFFSET 0 ROWS FETCH NEXT " + pageSize + " ROWS ONLY";
+        } else {
+            selectSQL = sqlFetchRows + " limit " + pageSize;
+        }
+
+        final long[] lastCursor = new long[1];
+        List<E> result = jt.query(selectSQL, fetchArgs, new RowMapper<E>() {
+            @Override
+            public E mapRow(ResultSet rs, int rowNum) throws SQLException {
+                lastCursor[0] = rs.getLong(cursorColumn);
+                return rowMapper.mapRow(rs, rowNum);
+            }
+        });
+        page.getPageItems().addAll(result);
+        if (result.size() == pageSize) {
+            page.setNextCursor(lastCursor[0]);
+        }
+        return page;
+    }
+
+    /**
+     * 缓存COUNT_CACHE_TTL_MS的总数，游标翻页时不必每页都count(*)
+     */
+    public static int estimateCount(final JdbcTemplate jt, final String sqlCountRows, final Object args[]) {
+        String key = sqlCountRows + Arrays.toString(args);
+        long now = System.currentTimeMillis();
+        long[] cached = COUNT_CACHE.get(key);
+        if (cached != null && now - cached[1] < COUNT_CACHE_TTL_MS) {
+            return (int)cached[0];
+        }
+        Integer rowCountInt = jt.queryForObject(sqlCountRows, Integer.class, args);
+        if (rowCountInt == null) {
+            throw new IllegalArgumentException("estimateCount error");
+        }
+        if (COUNT_CACHE.size() >= COUNT_CACHE_MAX_SIZE) {
+            COUNT_CACHE.clear();
+        }
+        COUNT_CACHE.put(key, new long[] {rowCountInt.longValue(), now});
+        return rowCountInt.intValue();
+    }
+
+    static final long COUNT_CACHE_TTL_MS = 60 * 1000L;
+    static final int COUNT_CACHE_MAX_SIZE = 1024;
+    /**
+     * key为count语句加参数，value为{总数, 查询时间}
+     */
+    private static final ConcurrentHashMap<String, long[]> COUNT_CACHE = new ConcurrentHashMap<String, long[]>();
+
+    public int updateLimit(final JdbcTemplate jt, final String sql, final Object args[]) {
         String sqlUpdate = sql;
 
         if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
             sqlUpdate = sqlUpdate.replaceAll("limit \\?", "OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY");
         }
 
-        jt.update(sqlUpdate, args);
+        return jt.update(sqlUpdate, args);
     }
 }
@@ -80,6 +80,58 @@ public class PropertyUtil {
      * 修正容量信息表使用量（usage）的时间间隔，单位为秒
      */
     private static int correctUsageDelay = 10 * 60;
+    /**
+     * 配置内容内存缓存的字节上限，0表示关闭，冷配置仍从磁盘读取
+     */
+    private static long contentCacheMaxSize = 0L;
+    /**
+     * 全量dump的并行worker数，0表示取CPU核数，1表示串行dump
+     */
+    private static int dumpAllWorkers = 0;
+    /**
+     * 控制台模糊搜索是否走内存索引，关闭时始终查库
+     */
+    private static boolean searchIndexEnabled = true;
+    /**
+     * 配置历史是否异步批量写入，关闭时在发布事务内同步写入
+     */
+    private static boolean historyJournalEnabled = false;
+    /**
+     * 异步写入历史的队列长度上限
+     */
+    private static int historyJournalCapacity = 10000;
+    /**
+     * 异步写入历史时每批最多的记录数
+     */
+    private static int historyJournalBatchSize = 500;
+    /**
+     * 队列满时的处理方式：drop丢弃并计数，发布不等待；sync由发布线程同步写入，不丢历史
+     */
+    private static String historyJournalOnFull = "drop";
+    /**
+     * 容量usage是否在内存中计数并异步回写，关闭时每次写入都在db上加减usage
+     */
+    private static boolean capacityUsageCacheEnabled = false;
+    /**
+     * 内存中usage增量回写db的间隔，单位为毫秒
+     */
+    private static int capacityUsageFlushInterval = 1000;
+    /**
+     * trace日志是否由后台线程批量写入，关闭时在请求线程同步写入
+     */
+    private static boolean traceAsyncEnabled = true;
+    /**
+     * 拉取配置的trace日志采样比例，0~1；traceLog开启debug时全部输出
+     */
+    private static double tracePullSampleRate = 1.0;
+    /**
+     * 是否把只读查询（控制台列表、历史、全量dump扫描）路由到健康的从库
+     */
+    private static boolean readReplicaEnabled = false;
+    /**
+     * 本节点写入后多长时间内只读查询仍走主库，单位为毫秒
+     */
+    private static int readYourWritesWindow = 3000;
     /**
      * 单机模式使用db
      */
@@ -115,6 +167,21 @@ public class PropertyUtil {
             setCorrectUsageDelay(getInt("correctUsageDelay", correctUsageDelay));
             setInitialExpansionPercent(getInt("initialExpansionPercent", initialExpansionPercent));
             setStandaloneUseMysql(getString("spring.datasource.platform", "").equals("mysql"));
+            setContentCacheMaxSize(
+                Long.parseLong(getString("contentCacheMaxSize", String.valueOf(contentCacheMaxSize))));
+            setDumpAllWorkers(getInt("dumpAllWorkers", dumpAllWorkers));
+            setSearchIndexEnabled(getBoolean("searchIndexEnabled", searchIndexEnabled));
+            setHistoryJournalEnabled(getBoolean("historyJournalEnabled", historyJournalEnabled));
+            setHistoryJournalCapacity(getInt("historyJournalCapacity", historyJournalCapacity));
+            setHistoryJournalBatchSize(getInt("historyJournalBatchSize", historyJournalBatchSize));
+            setHistoryJournalOnFull(getString("historyJournalOnFull", historyJournalOnFull));
+            setCapacityUsageCacheEnabled(getBoolean("capacityUsageCacheEnabled", capacityUsageCacheEnabled));
+            setCapacityUsageFlushInterval(getInt("capacityUsageFlushInterval", capacityUsageFlushInterval));
+            setTraceAsyncEnabled(getBoolean("traceAsyncEnabled", traceAsyncEnabled));
+            setTracePullSampleRate(
+                Double.parseDouble(getString("tracePullSampleRate", String.valueOf(tracePullSampleRate))));
+            setReadReplicaEnabled(getBoolean("readReplicaEnabled", readReplicaEnabled));
+            setReadYourWritesWindow(getInt("readYourWritesWindow", readYourWritesWindow));
 
         } catch (Exception e) {
             logger.error("read application.properties failed", e);
@@ -206,6 +273,58 @@ public class PropertyUtil {
         return correctUsageDelay;
     }
 
+    public static long getContentCacheMaxSize() {
+        return contentCacheMaxSize;
+    }
+
+    public static int getDumpAllWorkers() {
+        return dumpAllWorkers;
+    }
+
+    public static boolean isSearchIndexEnabled() {
+        return searchIndexEnabled;
+    }
+
+    public static boolean isHistoryJournalEnabled() {
+        return historyJournalEnabled;
+    }
+
+    public static int getHistoryJournalCapacity() {
+        return historyJournalCapacity;
+    }
+
+    public static int getHistoryJournalBatchSize() {
+        return historyJournalBatchSize;
+    }
+
+    public static String getHistoryJournalOnFull() {
+        return historyJournalOnFull;
+    }
+
+    public static boolean isCapacityUsageCacheEnabled() {
+        return capacityUsageCacheEnabled;
+    }
+
+    public static int getCapacityUsageFlushInterval() {
+        return capacityUsageFlushInterval;
+    }
+
+    public static boolean isTraceAsyncEnabled() {
+        return traceAsyncEnabled;
+    }
+
+    public static double getTracePullSampleRate() {
+        return tracePullSampleRate;
+    }
+
+    public static boolean isReadReplicaEnabled() {
+        return readReplicaEnabled;
+    }
+
+    public static int getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
     public static boolean isStandaloneMode() {
         return STANDALONE_MODE;
     }
@@ -276,4 +395,56 @@ public class PropertyUtil {
     public static void setStandaloneUseMysql(boolean standaloneUseMysql) {
         PropertyUtil.standaloneUseMysql = standaloneUseMysql;
     }
+
+    public static void setContentCacheMaxSize(long contentCacheMaxSize) {
+        PropertyUtil.contentCacheMaxSize = contentCacheMaxSize;
+    }
+
+    public static void setDumpAllWorkers(int dumpAllWorkers) {
+        PropertyUtil.dumpAllWorkers = dumpAllWorkers;
+    }
+
+    public static void setSearchIndexEnabled(boolean searchIndexEnabled) {
+        PropertyUtil.searchIndexEnabled = searchIndexEnabled;
+    }
+
+    public static void setHistoryJournalEnabled(boolean historyJournalEnabled) {
+        PropertyUtil.historyJournalEnabled = historyJournalEnabled;
+    }
+
+    public static void setHistoryJournalCapacity(int historyJournalCapacity) {
+        PropertyUtil.historyJournalCapacity = historyJournalCapacity;
+    }
+
+    public static void setHistoryJournalBatchSize(int historyJournalBatchSize) {
+        PropertyUtil.historyJournalBatchSize = historyJournalBatchSize;
+    }
+
+    public static void setHistoryJournalOnFull(String historyJournalOnFull) {
+        PropertyUtil.historyJournalOnFull = historyJournalOnFull;
+    }
+
+    public static void setCapacityUsageCacheEnabled(boolean capacityUsageCacheEnabled) {
+        PropertyUtil.capacityUsageCacheEnabled = capacityUsageCacheEnabled;
+    }
+
+    public static void setCapacityUsageFlushInterval(int capacityUsageFlushInterval) {
+        PropertyUtil.capacityUsageFlushInterval = capacityUsageFlushInterval;
+    }
+
+    public static void setTraceAsyncEnabled(boolean traceAsyncEnabled) {
+        PropertyUtil.traceAsyncEnabled = traceAsyncEnabled;
+    }
+
+    public static void setTracePullSampleRate(double tracePullSampleRate) {
+        PropertyUtil.tracePullSampleRate = tracePullSampleRate;
+    }
+
+    public static void setReadReplicaEnabled(boolean readReplicaEnabled) {
+        PropertyUtil.readReplicaEnabled = readReplicaEnabled;
+    }
+
+    public static void setReadYourWritesWindow(int readYourWritesWindow) {
+        PropertyUtil.readYourWritesWindow = readYourWritesWindow;
+    }
 }
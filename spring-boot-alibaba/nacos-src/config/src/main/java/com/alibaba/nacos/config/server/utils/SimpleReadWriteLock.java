@@ -15,49 +15,55 @@
  */
 package com.alibaba.nacos.config.server.utils;
 
+import java.util.concurrent.locks.StampedLock;
+
 /**
- * 最简单的读写锁实现。要求加锁和解锁必须成对调用。
+ * 基于StampedLock的读写锁。要求加锁和解锁必须成对调用。
+ * <p>
+ * 读多写少的场景应优先使用乐观读：{@link #tryOptimisticRead()}读取后用{@link #validate(long)}校验，读者不持有锁，不会阻塞写者。
  *
  * @author Nacos
  */
 public class SimpleReadWriteLock {
 
-    public synchronized boolean tryReadLock() {
-        if (isWriteLocked()) {
-            return false;
-        } else {
-            status++;
-            return true;
-        }
+    public boolean tryReadLock() {
+        return lock.tryReadLock() != 0L;
     }
 
-    public synchronized void releaseReadLock() {
-        status--;
+    /**
+     * 阻塞直到获得读锁，只用于乐观读多次失败后的兜底
+     */
+    public void readLock() {
+        lock.readLock();
     }
 
-    public synchronized boolean tryWriteLock() {
-        if (!isFree()) {
-            return false;
-        } else {
-            status = -1;
-            return true;
-        }
+    public void releaseReadLock() {
+        lock.tryUnlockRead();
     }
 
-    public synchronized void releaseWriteLock() {
-        status = 0;
+    public boolean tryWriteLock() {
+        return lock.tryWriteLock() != 0L;
     }
 
-    private boolean isWriteLocked() {
-        return status < 0;
+    public void releaseWriteLock() {
+        lock.tryUnlockWrite();
     }
 
-    private boolean isFree() {
-        return status == 0;
+    /**
+     * 开始乐观读
+     *
+     * @return 零表示当前有写锁，乐观读必然失败
+     */
+    public long tryOptimisticRead() {
+        return lock.tryOptimisticRead();
     }
 
     /**
-     * 零表示没有锁；负数表示加写锁；正数表示加读锁，数值表示读锁的个数。
+     * 校验乐观读期间是否发生过写
      */
-    private int status = 0;
+    public boolean validate(long stamp) {
+        return stamp != 0L && lock.validate(stamp);
+    }
+
+    private final StampedLock lock = new StampedLock();
 }
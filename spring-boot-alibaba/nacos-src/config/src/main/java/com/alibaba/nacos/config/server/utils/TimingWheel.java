@@ -0,0 +1,174 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮。用于大量、时长相近的超时任务，插入和取消都是O(1)。
+ * <p>
+ * 非线程安全：newTimeout和advance必须由同一个驱动线程调用；Timeout.cancel可以在任意线程调用，被取消的任务在所在槽位到期时丢弃。
+ *
+ * @author Nacos
+ */
+public class TimingWheel {
+
+    public TimingWheel(long tickMs, int ticksPerWheel) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be positive: " + tickMs);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickMs = tickMs;
+        this.mask = size - 1;
+        this.buckets = newBuckets(size);
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 登记超时任务，delayMs之后由advance在驱动线程上执行
+     */
+    public Timeout newTimeout(Runnable task, long delayMs) {
+        long deadline = System.currentTimeMillis() + Math.max(0L, delayMs);
+        long deadlineTick = Math.max((deadline - startTime + tickMs - 1) / tickMs, currentTick);
+        Timeout timeout = new Timeout(this, task, deadline, (deadlineTick - currentTick) / buckets.length);
+        buckets[(int)(deadlineTick & mask)].add(timeout);
+        pending.incrementAndGet();
+        return timeout;
+    }
+
+    /**
+     * 推进时间轮到now，执行所有已到期的任务
+     *
+     * @return 本次执行的任务中最大的触发延迟（毫秒）
+     */
+    public long advance(long now) {
+        long targetTick = (now - startTime) / tickMs;
+        long maxLag = 0L;
+        while (currentTick <= targetTick) {
+            // 先推进指针，任务执行中新登记的超时不会落到正在处理的槽位
+            int idx = (int)(currentTick++ & mask);
+            List<Timeout> bucket = buckets[idx];
+            buckets[idx] = new ArrayList<Timeout>();
+            for (Timeout timeout : bucket) {
+                if (timeout.isCancelled()) {
+                    continue;
+                }
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                    buckets[idx].add(timeout);
+                    continue;
+                }
+                if (!timeout.expire()) {
+                    continue;
+                }
+                maxLag = Math.max(maxLag, now - timeout.deadline);
+                try {
+                    timeout.task.run();
+                } catch (Throwable t) {
+                    LogUtil.defaultLog.error("timing wheel task error:" + t.getMessage(), t);
+                }
+            }
+        }
+        return maxLag;
+    }
+
+    /**
+     * 尚未到期且未被取消的任务数
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Timeout>[] newBuckets(int size) {
+        List<Timeout>[] buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<Timeout>();
+        }
+        return buckets;
+    }
+
+    // =================
+
+    public static class Timeout {
+
+        static final int ST_INIT = 0;
+        static final int ST_CANCELLED = 1;
+        static final int ST_EXPIRED = 2;
+
+        Timeout(TimingWheel wheel, Runnable task, long deadline, long remainingRounds) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+            this.remainingRounds = remainingRounds;
+        }
+
+        /**
+         * 取消任务，任务已执行或已取消时返回false
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                wheel.pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        boolean expire() {
+            if (state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                wheel.pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        final TimingWheel wheel;
+        final Runnable task;
+        final long deadline;
+        long remainingRounds;
+        final AtomicInteger state = new AtomicInteger(ST_INIT);
+    }
+
+    // =================
+
+    private final long tickMs;
+    private final int mask;
+    private final List<Timeout>[] buckets;
+    private final long startTime;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 下一个待处理的tick
+     */
+    private long currentTick = 0L;
+}
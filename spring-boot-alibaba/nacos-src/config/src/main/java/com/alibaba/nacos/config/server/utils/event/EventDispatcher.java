@@ -15,14 +15,27 @@
  */
 package com.alibaba.nacos.config.server.utils.event;
 
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Event dispatcher
+ * <p>
+ * 按事件类型O(1)查找监听者。监听者默认在触发线程上同步处理，保持触发顺序；queueSize大于0的监听者有自己的有界队列和处理线程，
+ * 触发线程只负责入队，队列满时按dropOnFull丢弃计数或阻塞等待（背压）。
  *
  * @author Nacos
  */
@@ -32,8 +45,9 @@ public class EventDispatcher {
      * add event listener
      */
     static public void addEventListener(AbstractEventListener listener) {
+        Subscriber subscriber = getSubscriber(listener);
         for (Class<? extends Event> type : listener.interest()) {
-            getEntry(type).listeners.addIfAbsent(listener);
+            getEntry(type).subscribers.addIfAbsent(subscriber);
         }
     }
 
@@ -45,12 +59,12 @@ public class EventDispatcher {
             throw new IllegalArgumentException();
         }
 
-        for (AbstractEventListener listener : getEntry(event.getClass()).listeners) {
-            try {
-                listener.onEvent(event);
-            } catch (Exception e) {
-                log.error(e.toString(), e);
-            }
+        Entry entry = LISTENER_HUB.get(event.getClass());
+        if (null == entry) {
+            return;
+        }
+        for (Subscriber subscriber : entry.subscribers) {
+            subscriber.dispatch(event);
         }
     }
 
@@ -59,59 +73,168 @@ public class EventDispatcher {
      */
     static public void clear() {
         LISTENER_HUB.clear();
+        for (Subscriber subscriber : SUBSCRIBERS.values()) {
+            subscriber.shutdown();
+        }
+        SUBSCRIBERS.clear();
     }
 
     /**
      * get event listener for eventType. Add Entry if not exist.
      */
     static Entry getEntry(Class<? extends Event> eventType) {
-        for (; ; ) {
-            for (Entry entry : LISTENER_HUB) {
-                if (entry.eventType == eventType) {
-                    return entry;
-                }
+        Entry entry = LISTENER_HUB.get(eventType);
+        if (null == entry) {
+            Entry tmp = new Entry(eventType);
+            entry = LISTENER_HUB.putIfAbsent(eventType, tmp);
+            if (null == entry) {
+                entry = tmp;
             }
+        }
+        return entry;
+    }
 
-            Entry tmp = new Entry(eventType);
-            /**
-             *  false means already exists
-             */
-            if (LISTENER_HUB.addIfAbsent(tmp)) {
-                return tmp;
+    /**
+     * 同一个监听者关注多种事件时共用一个队列，不同类型的事件之间也保持触发顺序
+     */
+    static Subscriber getSubscriber(AbstractEventListener listener) {
+        Subscriber subscriber = SUBSCRIBERS.get(listener);
+        if (null == subscriber) {
+            Subscriber tmp = listener.queueSize() > 0 ? new AsyncSubscriber(listener) : new Subscriber(listener);
+            subscriber = SUBSCRIBERS.putIfAbsent(listener, tmp);
+            if (null == subscriber) {
+                subscriber = tmp;
             }
         }
+        return subscriber;
     }
 
     static private class Entry {
         final Class<? extends Event> eventType;
-        final CopyOnWriteArrayList<AbstractEventListener> listeners;
+        final CopyOnWriteArrayList<Subscriber> subscribers;
 
         Entry(Class<? extends Event> type) {
             eventType = type;
-            listeners = new CopyOnWriteArrayList<AbstractEventListener>();
+            subscribers = new CopyOnWriteArrayList<Subscriber>();
         }
+    }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (null == obj || obj.getClass() != getClass()) {
-                return false;
+    /**
+     * 在触发线程上同步处理
+     */
+    static class Subscriber {
+        final AbstractEventListener listener;
+
+        Subscriber(AbstractEventListener listener) {
+            this.listener = listener;
+        }
+
+        void shutdown() {
+        }
+
+        void dispatch(Event event) {
+            invoke(event);
+        }
+
+        void invoke(Event event) {
+            try {
+                listener.onEvent(event);
+            } catch (Exception e) {
+                log.error(e.toString(), e);
+            }
+        }
+    }
+
+    /**
+     * 由监听者自己的线程按入队顺序处理。注册发生在监听者的构造函数中，处理线程到第一次派发事件时才启动，
+     * 避免在子类构造完成前回调onEvent
+     */
+    static class AsyncSubscriber extends Subscriber implements Runnable {
+        final BlockingQueue<Event> queue;
+        final String name;
+        volatile boolean running = true;
+        volatile ExecutorService worker;
+
+        AsyncSubscriber(AbstractEventListener listener) {
+            super(listener);
+            this.queue = new ArrayBlockingQueue<Event>(listener.queueSize());
+            this.name = listener.getClass().getSimpleName();
+        }
+
+        void startIfNecessary() {
+            if (worker != null) {
+                return;
             }
-            if (this == obj) {
-                return true;
+            synchronized (this) {
+                if (worker == null && running) {
+                    // 只提交一个常驻任务
+                    ExecutorService executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<Runnable>(1), new ThreadFactoryBuilder()
+                        .setNameFormat("com.alibaba.nacos.config.EventDispatcher." + name + "-%d").setDaemon(true)
+                        .build());
+                    executor.execute(this);
+                    worker = executor;
+                }
+            }
+        }
+
+        @Override
+        synchronized void shutdown() {
+            running = false;
+            if (worker != null) {
+                worker.shutdownNow();
             }
-            return eventType == ((Entry)obj).eventType;
         }
 
         @Override
-        public int hashCode() {
-            return super.hashCode();
+        void dispatch(Event event) {
+            startIfNecessary();
+            if (queue.offer(event)) {
+                MetricsMonitor.getEventQueueMonitor(name).set(queue.size());
+                return;
+            }
+            if (listener.dropOnFull()) {
+                MetricsMonitor.getEventDroppedCounter(name).increment();
+                log.warn("[event-dispatcher] queue of {} is full, drop {}", name, event.getClass().getSimpleName());
+                return;
+            }
+            // 背压：触发线程等待队列腾出空间
+            MetricsMonitor.getEventBlockedCounter(name).increment();
+            try {
+                queue.put(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                MetricsMonitor.getEventDroppedCounter(name).increment();
+                log.error("[event-dispatcher] interrupted, drop {} of {}", event.getClass().getSimpleName(), name);
+            }
         }
 
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    Event event = queue.poll(1, TimeUnit.SECONDS);
+                    if (event == null) {
+                        continue;
+                    }
+                    MetricsMonitor.getEventQueueMonitor(name).set(queue.size());
+                    invoke(event);
+                } catch (InterruptedException e) {
+                    break;
+                } catch (Throwable t) {
+                    log.error("[event-dispatcher] error", t);
+                }
+            }
+        }
     }
 
     static private final Logger log = LoggerFactory.getLogger(EventDispatcher.class);
 
-    static final CopyOnWriteArrayList<Entry> LISTENER_HUB = new CopyOnWriteArrayList<Entry>();
+    static final ConcurrentMap<Class<? extends Event>, Entry> LISTENER_HUB
+        = new ConcurrentHashMap<Class<? extends Event>, Entry>();
+
+    static final ConcurrentMap<AbstractEventListener, Subscriber> SUBSCRIBERS
+        = new ConcurrentHashMap<AbstractEventListener, Subscriber>();
 
     static public interface Event {
     }
@@ -138,6 +261,24 @@ public class EventDispatcher {
          * @param event event
          */
         abstract public void onEvent(Event event);
+
+        /**
+         * 异步处理的队列长度，0表示在触发线程上同步处理。注册发生在构造函数中，实现不能依赖子类的字段
+         *
+         * @return queue size
+         */
+        protected int queueSize() {
+            return 0;
+        }
+
+        /**
+         * 队列满时是否丢弃事件，false时触发线程阻塞等待
+         *
+         * @return drop on full
+         */
+        protected boolean dropOnFull() {
+            return false;
+        }
     }
 
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.aspect;
+
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import com.alibaba.nacos.config.server.model.capacity.Capacity;
+import com.alibaba.nacos.config.server.service.PersistService;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.service.capacity.CapacityService;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CapacityManagementAspectTest {
+
+    private static final String BATCH = "[{\"dataId\":\"d1\",\"group\":\"g\",\"content\":\"c1\"},"
+        + "{\"dataId\":\"d2\",\"group\":\"g\",\"content\":\"c2\"}]";
+
+    private boolean manageCapacity;
+    private boolean capacityLimitCheck;
+    private CapacityService capacityService;
+    private PersistService persistService;
+    private ProceedingJoinPoint pjp;
+    private CapacityManagementAspect aspect;
+
+    @Before
+    public void setUp() throws Throwable {
+        manageCapacity = PropertyUtil.isManageCapacity();
+        capacityLimitCheck = PropertyUtil.isCapacityLimitCheck();
+        PropertyUtil.setManageCapacity(true);
+        PropertyUtil.setCapacityLimitCheck(true);
+
+        capacityService = mock(CapacityService.class);
+        persistService = mock(PersistService.class);
+        pjp = mock(ProceedingJoinPoint.class);
+        when(pjp.proceed()).thenReturn(true);
+        aspect = new CapacityManagementAspect();
+        ReflectionTestUtils.setField(aspect, "capacityService", capacityService);
+        ReflectionTestUtils.setField(aspect, "persistService", persistService);
+    }
+
+    @After
+    public void tearDown() {
+        PropertyUtil.setManageCapacity(manageCapacity);
+        PropertyUtil.setCapacityLimitCheck(capacityLimitCheck);
+    }
+
+    @Test
+    public void testRejectBatchOverQuota() throws Throwable {
+        when(capacityService.getCachedCapacity("g", null)).thenReturn(capacity(10, 9));
+        when(persistService.findConfigInfoByGroupKeys(anyList())).thenReturn(
+            Collections.<ConfigInfoWrapper>emptyList());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        aspect.aroundPublishConfigBatch(pjp, new MockHttpServletRequest(), response, BATCH);
+        assertEquals(429, response.getStatus());
+        verify(pjp, never()).proceed();
+    }
+
+    @Test
+    public void testUpdatesDoNotCountAgainstQuota() throws Throwable {
+        when(capacityService.getCachedCapacity("g", null)).thenReturn(capacity(10, 9));
+        ConfigInfoWrapper old = new ConfigInfoWrapper();
+        old.setDataId("d1");
+        old.setGroup("g");
+        old.setTenant("");
+        when(persistService.findConfigInfoByGroupKeys(anyList())).thenReturn(Collections.singletonList(old));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        aspect.aroundPublishConfigBatch(pjp, new MockHttpServletRequest(), response, BATCH);
+        assertEquals(200, response.getStatus());
+        verify(pjp, times(1)).proceed();
+        verify(capacityService, times(1)).correctGroupUsage("g");
+    }
+
+    @Test
+    public void testPublishBatchOverQuota() throws Exception {
+        when(capacityService.getCachedCapacity("g", null)).thenReturn(capacity(10, 9));
+        when(persistService.findConfigInfoByGroupKeys(anyList())).thenReturn(
+            Collections.<ConfigInfoWrapper>emptyList());
+        Runnable writer = mock(Runnable.class);
+
+        List<ConfigInfo> configInfos = Arrays.asList(new ConfigInfo("d1", "g", "c1"), new ConfigInfo("d2", "g", "c2"));
+        assertEquals(CapacityManagementAspect.LimitType.OVER_GROUP_QUOTA, aspect.publishBatch(configInfos, writer));
+        verify(writer, never()).run();
+
+        assertNull(aspect.publishBatch(configInfos.subList(0, 1), writer));
+        verify(writer, times(1)).run();
+        verify(capacityService, times(1)).correctGroupUsage("g");
+    }
+
+    private static Capacity capacity(int quota, int usage) {
+        Capacity capacity = new Capacity();
+        capacity.setQuota(quota);
+        capacity.setUsage(usage);
+        capacity.setMaxSize(0);
+        capacity.setMaxAggrSize(0);
+        return capacity;
+    }
+}
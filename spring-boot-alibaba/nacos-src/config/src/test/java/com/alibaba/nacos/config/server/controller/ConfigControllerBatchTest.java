@@ -0,0 +1,99 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.controller;
+
+import com.alibaba.nacos.config.server.exception.NacosException;
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import com.alibaba.nacos.config.server.service.ConfigArchiveService;
+import com.alibaba.nacos.config.server.service.ConfigSubService;
+import com.alibaba.nacos.config.server.service.PersistService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ConfigControllerBatchTest {
+
+    private PersistService persistService;
+    private ConfigController controller;
+
+    @Before
+    public void setUp() {
+        persistService = mock(PersistService.class);
+        controller = new ConfigController(mock(ConfigServletInner.class), persistService,
+            mock(ConfigSubService.class), mock(ConfigArchiveService.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testPublishBatchInOneCall() throws Exception {
+        String configs = "[{\"dataId\":\"d1\",\"group\":\"g\",\"content\":\"c1\"},"
+            + "{\"dataId\":\"d2\",\"group\":\"g\",\"tenant\":\"t\",\"appName\":\"app\",\"content\":\"c2\"}]";
+        controller.publishConfigBatch(new MockHttpServletRequest(), new MockHttpServletResponse(), configs, "user");
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(persistService, times(1)).batchInsertOrUpdate(captor.capture(), eq("127.0.0.1"), eq("user"),
+            any(Timestamp.class), eq(true));
+        List<ConfigInfo> configInfos = captor.getValue();
+        assertEquals(2, configInfos.size());
+        assertEquals("", configInfos.get(0).getTenant());
+        assertEquals("t", configInfos.get(1).getTenant());
+        assertEquals("app", configInfos.get(1).getAppName());
+        assertEquals("c2", configInfos.get(1).getContent());
+    }
+
+    @Test
+    public void testRejectInvalidBatch() throws Exception {
+        assertRejected("not json");
+        assertRejected("[]");
+        // 缺少content
+        assertRejected("[{\"dataId\":\"d1\",\"group\":\"g\"}]");
+
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i <= ConfigController.MAX_BATCH_SIZE; i++) {
+            sb.append(i == 0 ? "" : ",");
+            sb.append("{\"dataId\":\"d").append(i).append("\",\"group\":\"g\",\"content\":\"c\"}");
+        }
+        assertRejected(sb.append("]").toString());
+        verify(persistService, never()).batchInsertOrUpdate(anyList(), anyString(), anyString(),
+            any(Timestamp.class), anyBoolean());
+    }
+
+    private void assertRejected(String configs) {
+        try {
+            controller.publishConfigBatch(new MockHttpServletRequest(), new MockHttpServletResponse(), configs, null);
+            fail("should reject " + configs);
+        } catch (NacosException e) {
+            // expected
+        }
+    }
+}
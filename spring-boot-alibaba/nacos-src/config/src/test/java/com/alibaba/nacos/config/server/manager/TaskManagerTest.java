@@ -0,0 +1,121 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.manager;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskManagerTest {
+
+    private TaskManager taskManager;
+
+    @After
+    public void tearDown() {
+        if (taskManager != null) {
+            taskManager.close();
+        }
+    }
+
+    @Test
+    public void testProcessWithoutPolling() throws Exception {
+        taskManager = new TaskManager("TaskManagerTest.prompt", 2);
+        final AtomicInteger processed = new AtomicInteger();
+        taskManager.setDefaultTaskProcessor(new TaskProcessor() {
+            @Override
+            public boolean process(String taskType, AbstractTask task) {
+                processed.incrementAndGet();
+                return true;
+            }
+        });
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            taskManager.addTask("key-" + i, new TestTask());
+            assertTrue(taskManager.await(1, TimeUnit.SECONDS));
+        }
+        // 旧实现每个任务至少等待一次100ms的轮询
+        assertTrue(System.currentTimeMillis() - start < 500L);
+        assertEquals(10, processed.get());
+        assertEquals(10L, taskManager.getQueueLatencyCount());
+    }
+
+    @Test
+    public void testSameKeyNeverConcurrent() throws Exception {
+        taskManager = new TaskManager("TaskManagerTest.ordering", 4);
+        final ConcurrentHashMap<String, AtomicInteger> running = new ConcurrentHashMap<String, AtomicInteger>();
+        final AtomicInteger maxSameKey = new AtomicInteger();
+        final AtomicInteger maxTotal = new AtomicInteger();
+        final AtomicInteger total = new AtomicInteger();
+        taskManager.setDefaultTaskProcessor(new TaskProcessor() {
+            @Override
+            public boolean process(String taskType, AbstractTask task) {
+                running.putIfAbsent(taskType, new AtomicInteger());
+                int sameKey = running.get(taskType).incrementAndGet();
+                int all = total.incrementAndGet();
+                maxSameKey.set(Math.max(maxSameKey.get(), sameKey));
+                maxTotal.set(Math.max(maxTotal.get(), all));
+                try {
+                    Thread.sleep(5L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                total.decrementAndGet();
+                running.get(taskType).decrementAndGet();
+                return true;
+            }
+        });
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 4; i++) {
+                taskManager.addTask("key-" + i, new TestTask());
+            }
+            Thread.sleep(2L);
+        }
+        assertTrue(taskManager.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxSameKey.get());
+        assertTrue(maxTotal.get() > 1);
+    }
+
+    @Test
+    public void testRetryAfterInterval() throws Exception {
+        taskManager = new TaskManager("TaskManagerTest.retry", 1);
+        final AtomicInteger attempts = new AtomicInteger();
+        taskManager.setDefaultTaskProcessor(new TaskProcessor() {
+            @Override
+            public boolean process(String taskType, AbstractTask task) {
+                return attempts.incrementAndGet() >= 3;
+            }
+        });
+        TestTask task = new TestTask();
+        task.setTaskInterval(50L);
+        long start = System.currentTimeMillis();
+        taskManager.addTask("retry", task);
+        assertTrue(taskManager.await(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+        assertTrue(System.currentTimeMillis() - start >= 100L);
+    }
+
+    static class TestTask extends AbstractTask {
+        @Override
+        public void merge(AbstractTask task) {
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.monitor;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class MetricsMonitorTest {
+
+    private static SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeClass
+    public static void setUp() {
+        Metrics.addRegistry(registry);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        Metrics.removeRegistry(registry);
+    }
+
+    @Test
+    public void testExportConfigPullCounter() {
+        MetricsMonitor.getConfigPullCounter("dataId+group").increment();
+        MetricsMonitor.getConfigPullCounter("dataId+group").increment();
+
+        FunctionCounter counter = registry.find("nacos_config_pull").tag("groupKey", "dataId+group")
+            .functionCounter();
+        assertNotNull(counter);
+        assertEquals(2.0, counter.count(), 0);
+    }
+}
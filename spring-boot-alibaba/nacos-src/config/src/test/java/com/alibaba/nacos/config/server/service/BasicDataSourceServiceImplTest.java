@@ -0,0 +1,87 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.service.BasicDataSourceServiceImpl.WriteTrackingJdbcTemplate;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class BasicDataSourceServiceImplTest {
+
+    private BasicDataSourceServiceImpl dataSourceService;
+    private WriteTrackingJdbcTemplate master;
+    private JdbcTemplate replica1;
+    private JdbcTemplate replica2;
+    private List<Boolean> isHealthList;
+
+    @Before
+    public void setUp() {
+        dataSourceService = new BasicDataSourceServiceImpl();
+        master = new WriteTrackingJdbcTemplate();
+        replica1 = mock(JdbcTemplate.class);
+        replica2 = mock(JdbcTemplate.class);
+        isHealthList = new ArrayList<Boolean>(Arrays.asList(Boolean.TRUE, Boolean.TRUE, Boolean.TRUE));
+        ReflectionTestUtils.setField(dataSourceService, "jt", master);
+        ReflectionTestUtils.setField(dataSourceService, "readJTList",
+            Arrays.asList(mock(JdbcTemplate.class), replica1, replica2));
+        ReflectionTestUtils.setField(dataSourceService, "isHealthList", isHealthList);
+        ReflectionTestUtils.setField(dataSourceService, "masterIndex", 0);
+        PropertyUtil.setReadReplicaEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        PropertyUtil.setReadReplicaEnabled(false);
+    }
+
+    @Test
+    public void testReadFromHealthyReplica() {
+        isHealthList.set(2, Boolean.FALSE);
+        for (int i = 0; i < 4; i++) {
+            assertSame(replica1, dataSourceService.getReadJdbcTemplate());
+        }
+        isHealthList.set(1, Boolean.FALSE);
+        assertSame(master, dataSourceService.getReadJdbcTemplate());
+    }
+
+    @Test
+    public void testReadYourWrites() {
+        master.lastWriteTime = System.currentTimeMillis();
+        assertSame(master, dataSourceService.getReadJdbcTemplate());
+
+        master.lastWriteTime = System.currentTimeMillis() - PropertyUtil.getReadYourWritesWindow() - 1;
+        JdbcTemplate read = dataSourceService.getReadJdbcTemplate();
+        assertTrue(read == replica1 || read == replica2);
+    }
+
+    @Test
+    public void testDisabled() {
+        PropertyUtil.setReadReplicaEnabled(false);
+        assertSame(master, dataSourceService.getReadJdbcTemplate());
+    }
+}
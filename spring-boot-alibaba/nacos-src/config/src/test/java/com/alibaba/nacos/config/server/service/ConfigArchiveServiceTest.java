@@ -0,0 +1,221 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.aspect.CapacityManagementAspect;
+import com.alibaba.nacos.config.server.aspect.CapacityManagementAspect.LimitType;
+import com.alibaba.nacos.config.server.exception.NacosException;
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConfigArchiveServiceTest {
+
+    private PersistService persistService;
+    private ConfigArchiveService archiveService;
+
+    @Before
+    public void setUp() {
+        persistService = mock(PersistService.class);
+        archiveService = new ConfigArchiveService(persistService);
+        when(persistService.findConfigInfoByGroupKeys(anyList()))
+            .thenReturn(Collections.<ConfigInfoWrapper>emptyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testExportAndImport() throws Exception {
+        when(persistService.findConfigInfoByCursor(0L, ConfigArchiveService.BATCH_SIZE, "t1"))
+            .thenReturn(page(1L, config("d1", "g1", "app", "c1")));
+        when(persistService.findConfigInfoByCursor(1L, ConfigArchiveService.BATCH_SIZE, "t1"))
+            .thenReturn(page(null, config("d2", "g2", null, "内容")));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertEquals(2, archiveService.exportConfigs("t1", bos));
+
+        Map<String, Object> result = archiveService.importConfigs(new ByteArrayInputStream(bos.toByteArray()), "t2",
+            ConfigArchiveService.POLICY_ABORT, "127.0.0.1", "user");
+        assertEquals(2, result.get("succCount"));
+        assertEquals(0, result.get("skipCount"));
+        assertEquals(0, result.get("failCount"));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(persistService, times(1)).batchInsertOrUpdate(captor.capture(), eq("127.0.0.1"), eq("user"),
+            any(Timestamp.class), eq(true));
+        List<ConfigInfo> configInfos = captor.getValue();
+        assertEquals(2, configInfos.size());
+        assertEquals("d1", configInfos.get(0).getDataId());
+        assertEquals("g1", configInfos.get(0).getGroup());
+        assertEquals("t2", configInfos.get(0).getTenant());
+        assertEquals("app", configInfos.get(0).getAppName());
+        assertEquals("c1", configInfos.get(0).getContent());
+        assertNull(configInfos.get(1).getAppName());
+        assertEquals("内容", configInfos.get(1).getContent());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testExportAndImportMetaGroup() throws Exception {
+        when(persistService.findConfigInfoByCursor(0L, ConfigArchiveService.BATCH_SIZE, "t1"))
+            .thenReturn(page(null, config("d1", ".meta", "app", "c1"), config("d2", ".meta", null, "c2")));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertEquals(2, archiveService.exportConfigs("t1", bos));
+
+        Map<String, Object> result = archiveService.importConfigs(new ByteArrayInputStream(bos.toByteArray()), "t2",
+            ConfigArchiveService.POLICY_ABORT, "127.0.0.1", "user");
+        assertEquals(2, result.get("succCount"));
+        assertEquals(0, result.get("failCount"));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(persistService).batchInsertOrUpdate(captor.capture(), anyString(), any(), any(Timestamp.class),
+            anyBoolean());
+        List<ConfigInfo> configInfos = captor.getValue();
+        assertEquals(2, configInfos.size());
+        assertEquals(".meta", configInfos.get(0).getGroup());
+        assertEquals("app", configInfos.get(0).getAppName());
+        assertEquals("c1", configInfos.get(0).getContent());
+        assertEquals(".meta", configInfos.get(1).getGroup());
+        assertNull(configInfos.get(1).getAppName());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testImportSkipExisting() throws Exception {
+        when(persistService.findConfigInfoByGroupKeys(anyList()))
+            .thenReturn(Arrays.asList(config("d1", "g", null, "old")));
+
+        Map<String, Object> result = archiveService.importConfigs(zip("g/d1", "c1", "g/d2", "c2", "invalid", "c3"),
+            "", ConfigArchiveService.POLICY_SKIP, "127.0.0.1", null);
+        assertEquals(1, result.get("succCount"));
+        assertEquals(1, result.get("skipCount"));
+        assertEquals(1, result.get("failCount"));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(persistService).batchInsertOrUpdate(captor.capture(), anyString(), any(), any(Timestamp.class),
+            anyBoolean());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("d2", ((ConfigInfo)captor.getValue().get(0)).getDataId());
+    }
+
+    @Test
+    public void testImportAbortOnConflict() throws Exception {
+        when(persistService.findConfigInfoByGroupKeys(anyList()))
+            .thenReturn(Arrays.asList(config("d1", "g", null, "old")));
+
+        Map<String, Object> result = archiveService.importConfigs(zip("g/d1", "c1", "g/d2", "c2"), "",
+            ConfigArchiveService.POLICY_ABORT, "127.0.0.1", null);
+        assertEquals(0, result.get("succCount"));
+        assertEquals("d1+g", result.get("conflict"));
+        verify(persistService, never()).batchInsertOrUpdate(anyList(), anyString(), any(), any(Timestamp.class),
+            anyBoolean());
+    }
+
+    @Test
+    public void testImportOverwriteWithoutLookup() throws Exception {
+        Map<String, Object> result = archiveService.importConfigs(zip("g/d1", "c1"), "",
+            ConfigArchiveService.POLICY_OVERWRITE, "127.0.0.1", null);
+        assertEquals(1, result.get("succCount"));
+        verify(persistService, never()).findConfigInfoByGroupKeys(anyList());
+    }
+
+    @Test
+    public void testImportAbortOverCapacityLimit() throws Exception {
+        CapacityManagementAspect capacityManagementAspect = mock(CapacityManagementAspect.class);
+        when(capacityManagementAspect.publishBatch(anyList(), any(Runnable.class)))
+            .thenReturn(LimitType.OVER_GROUP_QUOTA);
+        ReflectionTestUtils.setField(archiveService, "capacityManagementAspect", capacityManagementAspect);
+
+        Map<String, Object> result = archiveService.importConfigs(zip("g/d1", "c1", "g/d2", "c2"), "",
+            ConfigArchiveService.POLICY_ABORT, "127.0.0.1", null);
+        assertEquals(0, result.get("succCount"));
+        assertEquals(2, result.get("failCount"));
+        assertEquals(LimitType.OVER_GROUP_QUOTA.name(), result.get(ConfigArchiveService.RESULT_LIMIT));
+        verify(persistService, never()).batchInsertOrUpdate(anyList(), anyString(), any(), any(Timestamp.class),
+            anyBoolean());
+    }
+
+    @Test
+    public void testRejectInvalidPolicy() throws Exception {
+        try {
+            archiveService.importConfigs(zip("g/d1", "c1"), "", "merge", "127.0.0.1", null);
+            fail();
+        } catch (NacosException e) {
+            assertEquals(NacosException.INVALID_PARAM, e.getErrCode());
+        }
+        verify(persistService, never()).findConfigInfoByCursor(anyLong(), anyInt(), anyString());
+    }
+
+    private static ConfigInfoWrapper config(String dataId, String group, String appName, String content) {
+        ConfigInfoWrapper cf = new ConfigInfoWrapper();
+        cf.setDataId(dataId);
+        cf.setGroup(group);
+        cf.setTenant("");
+        cf.setAppName(appName);
+        cf.setContent(content);
+        return cf;
+    }
+
+    private static Page<ConfigInfoWrapper> page(Long nextCursor, ConfigInfoWrapper... configs) {
+        Page<ConfigInfoWrapper> page = new Page<ConfigInfoWrapper>();
+        page.setPageItems(new ArrayList<ConfigInfoWrapper>(Arrays.asList(configs)));
+        page.setNextCursor(nextCursor);
+        return page;
+    }
+
+    private static ByteArrayInputStream zip(String... nameAndContents) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ZipOutputStream zos = new ZipOutputStream(bos);
+        for (int i = 0; i < nameAndContents.length; i += 2) {
+            zos.putNextEntry(new ZipEntry(nameAndContents[i]));
+            zos.write(nameAndContents[i + 1].getBytes("UTF-8"));
+            zos.closeEntry();
+        }
+        zos.close();
+        return new ByteArrayInputStream(bos.toByteArray());
+    }
+}
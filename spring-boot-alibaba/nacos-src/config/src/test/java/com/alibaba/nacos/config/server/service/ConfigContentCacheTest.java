@@ -0,0 +1,73 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.model.CacheItem;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ConfigContentCacheTest {
+
+    @Before
+    public void setUp() {
+        PropertyUtil.setContentCacheMaxSize(1024L);
+    }
+
+    @After
+    public void tearDown() {
+        PropertyUtil.setContentCacheMaxSize(0L);
+    }
+
+    @Test
+    public void testGetAndInvalidate() {
+        CacheItem item = new CacheItem("cache-test+group");
+        long used = ConfigContentCache.usedBytes();
+        ConfigContentCache.put(item, new byte[100], "md5", 1L);
+        assertEquals(used + 100, ConfigContentCache.usedBytes());
+
+        assertNotNull(ConfigContentCache.get(item, "md5"));
+        assertNull(ConfigContentCache.get(item, "other-md5"));
+
+        ConfigContentCache.invalidate(item);
+        assertNull(ConfigContentCache.get(item, "md5"));
+        assertEquals(used, ConfigContentCache.usedBytes());
+    }
+
+    @Test
+    public void testEvictUnreferenced() {
+        CacheItem hot = new CacheItem("cache-hot+group");
+        ConfigContentCache.put(hot, new byte[100], "md5", 1L);
+        for (int i = 0; i < 20; i++) {
+            ConfigContentCache.get(hot, "md5");
+            ConfigContentCache.put(new CacheItem("cache-cold-" + i + "+group"), new byte[100], "md5", 1L);
+        }
+        assertNotNull(ConfigContentCache.get(hot, "md5"));
+        assertEquals(true, ConfigContentCache.usedBytes() <= 1024L);
+    }
+
+    @Test
+    public void testTooLargeNotCached() {
+        CacheItem item = new CacheItem("cache-large+group");
+        assertNull(ConfigContentCache.put(item, new byte[1000], "md5", 1L));
+        assertNull(ConfigContentCache.get(item, "md5"));
+    }
+}
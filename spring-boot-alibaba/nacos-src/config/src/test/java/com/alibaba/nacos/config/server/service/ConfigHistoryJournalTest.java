@@ -0,0 +1,115 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConfigHistoryJournalTest {
+
+    private JdbcTemplate jt;
+
+    @Before
+    public void setUp() {
+        jt = mock(JdbcTemplate.class);
+    }
+
+    @Test
+    public void testWriteInBackground() {
+        ConfigHistoryJournal journal = new ConfigHistoryJournal(jt, 100, 10, ConfigHistoryJournal.ON_FULL_DROP);
+        journal.start();
+        journal.append(record("d1"));
+        verify(jt, timeout(3000)).batchUpdate(eq(ConfigHistoryJournal.INSERT_HISTORY_SQL), anyList());
+        journal.shutdown();
+    }
+
+    @Test
+    public void testShutdownFlushesInBatches() {
+        ConfigHistoryJournal journal = new ConfigHistoryJournal(jt, 100, 2, ConfigHistoryJournal.ON_FULL_DROP);
+        for (int i = 0; i < 5; i++) {
+            journal.append(record("d" + i));
+        }
+        journal.shutdown();
+        verify(jt, times(3)).batchUpdate(eq(ConfigHistoryJournal.INSERT_HISTORY_SQL), anyList());
+        assertEquals(0, journal.size());
+    }
+
+    @Test
+    public void testDropWhenFull() {
+        ConfigHistoryJournal journal = new ConfigHistoryJournal(jt, 1, 10, ConfigHistoryJournal.ON_FULL_DROP);
+        journal.append(record("d1"));
+        journal.append(record("d2"));
+        assertEquals(1, journal.size());
+        verify(jt, never()).update(anyString(), (Object[])any());
+    }
+
+    @Test
+    public void testSyncWhenFull() {
+        ConfigHistoryJournal journal = new ConfigHistoryJournal(jt, 1, 10, ConfigHistoryJournal.ON_FULL_SYNC);
+        journal.append(record("d1"));
+        Object[] overflow = record("d2");
+        journal.append(overflow);
+        assertEquals(1, journal.size());
+        verify(jt).update(ConfigHistoryJournal.INSERT_HISTORY_SQL, overflow);
+    }
+
+    @Test
+    public void testDeleteHistoryBypassesJournal() {
+        ConfigHistoryJournal journal = mock(ConfigHistoryJournal.class);
+        TransactionTemplate tjt = mock(TransactionTemplate.class);
+        when(tjt.execute(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return ((TransactionCallback<?>)invocation.getArgument(0)).doInTransaction(null);
+            }
+        });
+        ConfigInfo configInfo = new ConfigInfo("d1", "group", "content");
+        configInfo.setId(1L);
+        when(jt.queryForObject(anyString(), any(Object[].class), any(RowMapper.class))).thenReturn(configInfo);
+        PersistService persistService = new PersistService();
+        ReflectionTestUtils.setField(persistService, "jt", jt);
+        ReflectionTestUtils.setField(persistService, "tjt", tjt);
+        ReflectionTestUtils.setField(persistService, "historyJournal", journal);
+
+        persistService.removeConfigInfo("d1", "group", "", "127.0.0.1", null);
+        verify(jt).update(eq(ConfigHistoryJournal.INSERT_HISTORY_SQL), (Object[])any());
+        verify(journal, never()).appendAll(anyList());
+    }
+
+    private static Object[] record(String dataId) {
+        return new Object[] {0L, dataId, "group", "", "", "content", "md5", "127.0.0.1", null, null, "I"};
+    }
+}
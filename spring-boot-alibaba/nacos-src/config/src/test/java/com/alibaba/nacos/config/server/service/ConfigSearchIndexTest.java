@@ -0,0 +1,186 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigTagRelation;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConfigSearchIndexTest {
+
+    private PersistService persistService;
+
+    @Before
+    public void setUp() {
+        persistService = mock(PersistService.class);
+        final List<ConfigInfoWrapper> configs = new ArrayList<ConfigInfoWrapper>();
+        configs.add(meta(1, "order-service.yaml", "DEFAULT_GROUP", "", "order"));
+        configs.add(meta(2, "user-service.yaml", "DEFAULT_GROUP", "", "user"));
+        configs.add(meta(3, "order-service.properties", "PAY_GROUP", "", "order"));
+        configs.add(meta(4, "order-service.yaml", "DEFAULT_GROUP", "tenant-a", "order"));
+        when(persistService.findAllConfigMetaFragment(anyLong(), anyInt())).thenAnswer(
+            new Answer<List<ConfigInfoWrapper>>() {
+                @Override
+                public List<ConfigInfoWrapper> answer(InvocationOnMock invocation) {
+                    long lastMaxId = invocation.getArgument(0);
+                    List<ConfigInfoWrapper> page = new ArrayList<ConfigInfoWrapper>();
+                    for (ConfigInfoWrapper cf : configs) {
+                        if (cf.getId() > lastMaxId) {
+                            page.add(cf);
+                        }
+                    }
+                    return page;
+                }
+            });
+        ConfigTagRelation relation = new ConfigTagRelation();
+        relation.setNid(1);
+        relation.setId(3);
+        relation.setTagName("pay");
+        when(persistService.findConfigTagRelationFragment(anyLong(), anyInt()))
+            .thenReturn(Collections.singletonList(relation));
+        when(persistService.findConfigInfosByIds(anyList())).thenAnswer(new Answer<List<ConfigInfo>>() {
+            @Override
+            public List<ConfigInfo> answer(InvocationOnMock invocation) {
+                List<Long> ids = invocation.getArgument(0);
+                List<ConfigInfo> rows = new ArrayList<ConfigInfo>();
+                // 乱序返回，由索引按主键排序
+                for (int i = ids.size() - 1; i >= 0; i--) {
+                    ConfigInfo cf = new ConfigInfo();
+                    cf.setId(ids.get(i));
+                    rows.add(cf);
+                }
+                return rows;
+            }
+        });
+        ConfigSearchIndex.rebuild(persistService);
+    }
+
+    @Test
+    public void testLike() {
+        assertTrue(ConfigSearchIndex.like("order-service.yaml", "order*"));
+        assertTrue(ConfigSearchIndex.like("order-service.yaml", "*service*"));
+        assertTrue(ConfigSearchIndex.like("order-service.yaml", "order-service.yam_"));
+        assertTrue(ConfigSearchIndex.like("order-service.yaml", "%yaml"));
+        assertTrue(ConfigSearchIndex.like("order-service.yaml", "order-service.yaml"));
+        assertFalse(ConfigSearchIndex.like("order-service.yaml", "order"));
+        assertFalse(ConfigSearchIndex.like("order-service.yaml", "Order*"));
+        assertFalse(ConfigSearchIndex.like("order-service.yaml", "*user*"));
+    }
+
+    @Test
+    public void testSearch() {
+        assertTrue(ConfigSearchIndex.isReady());
+        assertEquals(2, search("order*", null, "", null, null).getTotalCount());
+        assertEquals(3, search("*service*", null, "", null, null).getTotalCount());
+        assertEquals(1, search("*service*", "PAY*", "", null, null).getTotalCount());
+        assertEquals(2, search(null, null, "", "order", null).getTotalCount());
+        assertEquals(1, search(null, null, "", null, "pay,other").getTotalCount());
+        assertEquals(1, search("*yaml", null, "tenant-a", null, null).getTotalCount());
+        assertEquals(4, search("*", null, "*", null, null).getTotalCount());
+        assertEquals(0, search("*nothing*", null, "", null, null).getTotalCount());
+        assertEquals(3, ConfigSearchIndex.configCount(""));
+        assertEquals(1, ConfigSearchIndex.configCount("tenant-a"));
+    }
+
+    @Test
+    public void testPaging() {
+        Page<ConfigInfo> page = ConfigSearchIndex.search(persistService, 1, 2, "*service*", null, "", null, null);
+        assertEquals(2, page.getPagesAvailable());
+        assertEquals(1L, page.getPageItems().get(0).getId());
+        assertEquals(2L, page.getPageItems().get(1).getId());
+        page = ConfigSearchIndex.search(persistService, 2, 2, "*service*", null, "", null, null);
+        assertEquals(1, page.getPageItems().size());
+        assertEquals(3L, page.getPageItems().get(0).getId());
+        assertNull(ConfigSearchIndex.search(persistService, 3, 2, "*service*", null, "", null, null));
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        ConfigSearchIndex.update(5, "user-service.properties", "DEFAULT_GROUP", "", "user", new String[0], 2000L);
+        assertEquals(2, search("user*", null, "", null, null).getTotalCount());
+        ConfigSearchIndex.remove("user-service.yaml", "DEFAULT_GROUP", "", 2000L);
+        assertEquals(1, search("user*", null, "", null, null).getTotalCount());
+        assertEquals(3, ConfigSearchIndex.configCount(""));
+        // 删除后重新创建沿用原来的位置
+        ConfigSearchIndex.update(6, "user-service.yaml", "DEFAULT_GROUP", "", "user", new String[0], 3000L);
+        assertEquals(2, search("user*", null, "", null, null).getTotalCount());
+    }
+
+    @Test
+    public void testSkipOlderOpsOnReplay() {
+        final List<ConfigInfoWrapper> configs = new ArrayList<ConfigInfoWrapper>();
+        configs.add(meta(1, "order-service.yaml", "DEFAULT_GROUP", "", "order-v2"));
+        when(persistService.findAllConfigMetaFragment(anyLong(), anyInt())).thenAnswer(
+            new Answer<List<ConfigInfoWrapper>>() {
+                @Override
+                public List<ConfigInfoWrapper> answer(InvocationOnMock invocation) {
+                    if ((Long)invocation.getArgument(0) > 0) {
+                        return new ArrayList<ConfigInfoWrapper>();
+                    }
+                    // 扫描期间才dump到的旧变更，以及扫描之后的新变更
+                    ConfigSearchIndex.update(1, "order-service.yaml", "DEFAULT_GROUP", "", "order-v1",
+                        new String[0], 500L);
+                    ConfigSearchIndex.remove("order-service.yaml", "DEFAULT_GROUP", "", 800L);
+                    ConfigSearchIndex.update(7, "pay-service.yaml", "DEFAULT_GROUP", "", "pay", new String[0],
+                        1500L);
+                    return configs;
+                }
+            });
+        ConfigSearchIndex.rebuild(persistService);
+        assertEquals(1, search(null, null, "", "order-v2", null).getTotalCount());
+        assertEquals(0, search(null, null, "", "order-v1", null).getTotalCount());
+        assertEquals(1, search(null, null, "", "pay", null).getTotalCount());
+    }
+
+    private Page<ConfigInfo> search(String dataId, String group, String tenant, String appName, String tags) {
+        Page<ConfigInfo> page = ConfigSearchIndex.search(persistService, 1, 100, dataId, group, tenant, appName,
+            tags);
+        if (page == null) {
+            page = new Page<ConfigInfo>();
+        }
+        return page;
+    }
+
+    private static ConfigInfoWrapper meta(long id, String dataId, String group, String tenant, String appName) {
+        ConfigInfoWrapper cf = new ConfigInfoWrapper();
+        cf.setId(id);
+        cf.setDataId(dataId);
+        cf.setGroup(group);
+        cf.setTenant(tenant);
+        cf.setAppName(appName);
+        cf.setLastModified(1000L);
+        return cf;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import com.alibaba.nacos.core.utils.SystemUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 单机derby下增量dump的水位查询
+ */
+public class PersistServiceDerbyTest {
+
+    private static final String CREATE_TABLE = "CREATE TABLE config_info ("
+        + "id bigint NOT NULL generated by default as identity, data_id varchar(255) NOT NULL, "
+        + "group_id varchar(128) NOT NULL, tenant_id varchar(128) default '', app_name varchar(128), content CLOB, "
+        + "md5 varchar(32) DEFAULT NULL, gmt_modified timestamp NOT NULL DEFAULT '2010-05-05 00:00:00', "
+        + "constraint configinfo_id_key PRIMARY KEY (id))";
+
+    private boolean standaloneMode;
+
+    private boolean standaloneUseMysql;
+
+    private JdbcTemplate jt;
+
+    private PersistService persistService;
+
+    @Before
+    public void setUp() {
+        standaloneMode = SystemUtils.STANDALONE_MODE;
+        standaloneUseMysql = PropertyUtil.isStandaloneUseMysql();
+        SystemUtils.STANDALONE_MODE = true;
+        PropertyUtil.setStandaloneUseMysql(false);
+
+        DriverManagerDataSource ds = new DriverManagerDataSource();
+        ds.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+        ds.setUrl("jdbc:derby:memory:dumpCheckpoint;create=true");
+        jt = new JdbcTemplate(ds);
+        jt.execute(CREATE_TABLE);
+
+        persistService = new PersistService();
+        ReflectionTestUtils.setField(persistService, "jt", jt);
+    }
+
+    @After
+    public void tearDown() {
+        jt.execute("DROP TABLE config_info");
+        SystemUtils.STANDALONE_MODE = standaloneMode;
+        PropertyUtil.setStandaloneUseMysql(standaloneUseMysql);
+    }
+
+    @Test
+    public void testFindChangeConfigByCheckpoint() {
+        Timestamp t1 = new Timestamp(1000000L);
+        Timestamp t2 = new Timestamp(2000000L);
+        insert(1, t1);
+        insert(2, t2);
+        insert(3, t1);
+        insert(4, t2);
+        insert(5, t2);
+
+        // 按(gmt_modified, id)升序：1,3 | 2,4 | 5
+        List<ConfigInfoWrapper> page = persistService.findChangeConfig(new Timestamp(0L), 0L, 2);
+        assertEquals(2, page.size());
+        assertEquals(1L, page.get(0).getId());
+        assertEquals(3L, page.get(1).getId());
+
+        ConfigInfoWrapper last = page.get(1);
+        page = persistService.findChangeConfig(new Timestamp(last.getLastModified()), last.getId(), 2);
+        assertEquals(2, page.size());
+        assertEquals(2L, page.get(0).getId());
+        assertEquals(4L, page.get(1).getId());
+        assertEquals(t2.getTime(), page.get(0).getLastModified());
+
+        last = page.get(1);
+        page = persistService.findChangeConfig(new Timestamp(last.getLastModified()), last.getId(), 2);
+        assertEquals(1, page.size());
+        assertEquals(5L, page.get(0).getId());
+
+        page = persistService.findChangeConfig(t2, 5L, 2);
+        assertEquals(0, page.size());
+    }
+
+    private void insert(long id, Timestamp modified) {
+        jt.update("INSERT INTO config_info(id,data_id,group_id,tenant_id,content,md5,gmt_modified) "
+            + "VALUES(?,?,?,?,?,?,?)", id, "d" + id, "g", "", "c" + id, "md5", modified);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.capacity;
+
+import com.alibaba.nacos.config.server.constant.CounterMode;
+import com.alibaba.nacos.config.server.model.capacity.GroupCapacity;
+import com.alibaba.nacos.config.server.model.capacity.TenantCapacity;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CapacityUsageCounterTest {
+
+    private CapacityService capacityService;
+    private GroupCapacityPersistService groupCapacityPersistService;
+    private TenantCapacityPersistService tenantCapacityPersistService;
+    private CapacityUsageCounter counter;
+
+    @Before
+    public void setUp() {
+        capacityService = mock(CapacityService.class);
+        groupCapacityPersistService = mock(GroupCapacityPersistService.class);
+        tenantCapacityPersistService = mock(TenantCapacityPersistService.class);
+        counter = new CapacityUsageCounter(capacityService, groupCapacityPersistService,
+            tenantCapacityPersistService);
+    }
+
+    @Test
+    public void testQuotaCheckedInMemory() {
+        when(groupCapacityPersistService.getGroupCapacity("g1")).thenReturn(groupCapacity("g1", 2, 1));
+
+        assertTrue(counter.updateUsage(CounterMode.INCREMENT, "g1", false, false));
+        assertFalse(counter.updateUsage(CounterMode.INCREMENT, "g1", false, false));
+        assertTrue(counter.updateUsage(CounterMode.INCREMENT, "g1", false, true));
+        assertEquals(3, counter.getCapacity("g1", false).getUsage().intValue());
+        verify(groupCapacityPersistService, never()).addUsage(anyString(), anyLong(), any(Timestamp.class));
+    }
+
+    @Test
+    public void testDefaultQuota() {
+        int defaultQuota = PropertyUtil.getDefaultTenantQuota();
+        when(tenantCapacityPersistService.getTenantCapacity("t1")).thenReturn(tenantCapacity("t1", 0,
+            defaultQuota));
+
+        assertFalse(counter.updateUsage(CounterMode.INCREMENT, "t1", true, false));
+        assertTrue(counter.updateUsage(CounterMode.DECREMENT, "t1", true, false));
+        assertTrue(counter.updateUsage(CounterMode.INCREMENT, "t1", true, false));
+    }
+
+    @Test
+    public void testFlushMergesDelta() {
+        when(groupCapacityPersistService.getGroupCapacity("g1")).thenReturn(groupCapacity("g1", 100, 10));
+        when(groupCapacityPersistService.addUsage(eq("g1"), anyLong(), any(Timestamp.class))).thenReturn(true);
+        for (int i = 0; i < 3; i++) {
+            counter.updateUsage(CounterMode.INCREMENT, "g1", false, false);
+        }
+        counter.updateUsage(CounterMode.DECREMENT, "g1", false, false);
+
+        counter.flushAll();
+        counter.flushAll();
+        verify(groupCapacityPersistService).addUsage(eq("g1"), eq(2L), any(Timestamp.class));
+    }
+
+    @Test
+    public void testFlushFailKeepsDelta() {
+        when(groupCapacityPersistService.getGroupCapacity("g1")).thenReturn(groupCapacity("g1", 100, 10));
+        when(groupCapacityPersistService.addUsage(eq("g1"), anyLong(), any(Timestamp.class)))
+            .thenThrow(new RuntimeException("db down")).thenReturn(true);
+        counter.updateUsage(CounterMode.INCREMENT, "g1", false, false);
+
+        counter.flushAll();
+        counter.flushAll();
+        verify(groupCapacityPersistService, times(2)).addUsage(eq("g1"), eq(1L),
+            any(Timestamp.class));
+    }
+
+    @Test
+    public void testFlushNotFoundKeepsDelta() {
+        when(groupCapacityPersistService.getGroupCapacity("g1")).thenReturn(groupCapacity("g1", 100, 10), null,
+            groupCapacity("g1", 0, 5));
+        when(groupCapacityPersistService.addUsage(eq("g1"), anyLong(), any(Timestamp.class))).thenReturn(false);
+        counter.updateUsage(CounterMode.INCREMENT, "g1", false, false);
+
+        counter.flushAll();
+        assertNull(counter.getCapacity("g1", false));
+        // 容量信息不存在时不再回写
+        counter.flushAll();
+        verify(groupCapacityPersistService, times(1)).addUsage(eq("g1"), eq(1L), any(Timestamp.class));
+
+        // 重新初始化按配置数统计，放回的增量不再计入
+        assertTrue(counter.updateUsage(CounterMode.INCREMENT, "g1", false, false));
+        verify(capacityService).initGroupCapacity("g1");
+        assertEquals(6, counter.getCapacity("g1", false).getUsage().intValue());
+    }
+
+    @Test
+    public void testReloadKeepsUnflushedDelta() {
+        when(groupCapacityPersistService.getGroupCapacity("g1")).thenReturn(groupCapacity("g1", 100, 10),
+            groupCapacity("g1", 100, 20));
+        counter.updateUsage(CounterMode.INCREMENT, "g1", false, false);
+
+        counter.reload("g1", false);
+        assertEquals(21, counter.getCapacity("g1", false).getUsage().intValue());
+    }
+
+    @Test
+    public void testInitWhenAbsent() {
+        when(groupCapacityPersistService.getGroupCapacity("g1")).thenReturn(null, null,
+            groupCapacity("g1", 0, 0));
+
+        assertTrue(counter.updateUsage(CounterMode.INCREMENT, "g1", false, true));
+        verify(capacityService).initGroupCapacity("g1");
+        assertEquals(1, counter.getCapacity("g1", false).getUsage().intValue());
+    }
+
+    private GroupCapacity groupCapacity(String group, int quota, int usage) {
+        GroupCapacity capacity = new GroupCapacity();
+        capacity.setGroup(group);
+        capacity.setQuota(quota);
+        capacity.setUsage(usage);
+        capacity.setMaxSize(0);
+        return capacity;
+    }
+
+    private TenantCapacity tenantCapacity(String tenant, int quota, int usage) {
+        TenantCapacity capacity = new TenantCapacity();
+        capacity.setTenant(tenant);
+        capacity.setQuota(quota);
+        capacity.setUsage(usage);
+        capacity.setMaxSize(0);
+        return capacity;
+    }
+}
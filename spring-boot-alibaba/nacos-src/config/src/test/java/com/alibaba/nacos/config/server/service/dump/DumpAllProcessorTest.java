@@ -0,0 +1,93 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.dump;
+
+import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.service.ConfigService;
+import com.alibaba.nacos.config.server.service.PersistService;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
+import com.alibaba.nacos.config.server.utils.MD5;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DumpAllProcessorTest {
+
+    private static final int CONFIG_COUNT = 2500;
+
+    @After
+    public void tearDown() {
+        PropertyUtil.setDumpAllWorkers(0);
+    }
+
+    @Test
+    public void testParallelDump() {
+        assertDumpAll(4, "parallel");
+    }
+
+    @Test
+    public void testSerialDump() {
+        assertDumpAll(1, "serial");
+    }
+
+    private void assertDumpAll(int workers, final String prefix) {
+        PropertyUtil.setDumpAllWorkers(workers);
+        PersistService persistService = mock(PersistService.class);
+        when(persistService.findConfigMaxId()).thenReturn((long)CONFIG_COUNT);
+        when(persistService.findAllConfigInfoFragment(anyLong(), anyInt())).thenAnswer(
+            new Answer<Page<ConfigInfoWrapper>>() {
+                @Override
+                public Page<ConfigInfoWrapper> answer(InvocationOnMock invocation) {
+                    long lastMaxId = invocation.getArgument(0);
+                    int pageSize = invocation.getArgument(1);
+                    List<ConfigInfoWrapper> items = new ArrayList<ConfigInfoWrapper>();
+                    for (long id = lastMaxId + 1; id <= Math.min(lastMaxId + pageSize, CONFIG_COUNT); id++) {
+                        ConfigInfoWrapper cf = new ConfigInfoWrapper();
+                        cf.setId(id);
+                        cf.setDataId(prefix + "-" + id);
+                        cf.setGroup("DEFAULT_GROUP");
+                        cf.setContent("content-" + id);
+                        cf.setLastModified(id);
+                        items.add(cf);
+                    }
+                    Page<ConfigInfoWrapper> page = new Page<ConfigInfoWrapper>();
+                    page.setPageItems(items);
+                    return page;
+                }
+            });
+        DumpService dumpService = new DumpService();
+        dumpService.persistService = persistService;
+
+        new DumpAllProcessor(dumpService).process(DumpAllTask.TASK_ID, new DumpAllTask());
+
+        for (int id = 1; id <= CONFIG_COUNT; id++) {
+            String groupKey = GroupKey2.getKey(prefix + "-" + id, "DEFAULT_GROUP");
+            assertEquals(MD5.getInstance().getMD5String("content-" + id), ConfigService.getContentMd5(groupKey));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.dump;
+
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import com.alibaba.nacos.config.server.service.ConfigService;
+import com.alibaba.nacos.config.server.service.PersistService;
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
+import com.alibaba.nacos.config.server.utils.MD5;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DumpChangeProcessorTest {
+
+    private static final int CHANGE_COUNT = 2500;
+
+    @Test
+    public void testReplayFromCheckpoint() {
+        final long base = System.currentTimeMillis() / 1000 * 1000 - 3600 * 1000L;
+        PersistService persistService = mock(PersistService.class);
+        when(persistService.findDeletedConfig(any(Timestamp.class), any(Timestamp.class))).thenReturn(
+            new ArrayList<ConfigInfo>());
+        // 每两条记录共用一个修改时间，校验同一时间内按id推进游标
+        when(persistService.findChangeConfig(any(Timestamp.class), anyLong(), anyInt())).thenAnswer(
+            new Answer<List<ConfigInfoWrapper>>() {
+                @Override
+                public List<ConfigInfoWrapper> answer(InvocationOnMock invocation) {
+                    long startTime = ((Timestamp)invocation.getArgument(0)).getTime();
+                    long lastMaxId = invocation.getArgument(1);
+                    int pageSize = invocation.getArgument(2);
+                    List<ConfigInfoWrapper> items = new ArrayList<ConfigInfoWrapper>();
+                    for (long id = 1; id <= CHANGE_COUNT && items.size() < pageSize; id++) {
+                        long lastModified = base + id / 2 * 1000;
+                        if (lastModified > startTime || (lastModified == startTime && id > lastMaxId)) {
+                            ConfigInfoWrapper cf = new ConfigInfoWrapper();
+                            cf.setId(id);
+                            cf.setDataId("change-" + id);
+                            cf.setGroup("DEFAULT_GROUP");
+                            cf.setContent("content-" + id);
+                            cf.setLastModified(lastModified);
+                            items.add(cf);
+                        }
+                    }
+                    return items;
+                }
+            });
+        DumpService dumpService = new DumpService();
+        dumpService.persistService = persistService;
+        dumpService.advanceCheckpoint(new DumpCheckpoint(base, 0L));
+
+        long start = System.currentTimeMillis();
+        new DumpChangeProcessor(dumpService, false).process(DumpChangeTask.TASK_ID, new DumpChangeTask());
+
+        for (int id = 1; id <= CHANGE_COUNT; id++) {
+            String groupKey = GroupKey2.getKey("change-" + id, "DEFAULT_GROUP");
+            assertEquals(MD5.getInstance().getMD5String("content-" + id), ConfigService.getContentMd5(groupKey));
+        }
+        DumpCheckpoint checkpoint = dumpService.getCheckpoint();
+        assertEquals(0L, checkpoint.id);
+        assertTrue(checkpoint.lastModified <= start - DumpService.CHECKPOINT_SAFE_LAG_MS);
+        assertTrue(checkpoint.lastModified > start - DumpService.CHECKPOINT_SAFE_LAG_MS - 2000L);
+        assertEquals(checkpoint.lastModified, DumpCheckpoint.load().lastModified);
+    }
+
+    @Test
+    public void testCheckpointOrder() {
+        assertTrue(new DumpCheckpoint(1000L, 5L).isBefore(new DumpCheckpoint(1000L, 6L)));
+        assertTrue(new DumpCheckpoint(1000L, 9L).isBefore(new DumpCheckpoint(2000L, 0L)));
+        assertEquals(3L, DumpCheckpoint.min(new DumpCheckpoint(1000L, 3L), new DumpCheckpoint(1000L, 4L)).id);
+    }
+}
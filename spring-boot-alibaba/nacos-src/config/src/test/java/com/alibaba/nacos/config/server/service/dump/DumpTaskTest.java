@@ -0,0 +1,48 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.dump;
+
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DumpTaskTest {
+
+    @Test
+    public void testOlderPrefetchedTaskKeepsNewerPending() {
+        DumpTask pending = new DumpTask("d+g", 2000L, "1.1.1.1");
+        DumpTask prefetched = new DumpTask("d+g", 1000L, "2.2.2.2", new ConfigInfo("d", "g", "old"));
+        prefetched.merge(pending);
+        assertEquals(2000L, prefetched.lastModified);
+        assertEquals("1.1.1.1", prefetched.handleIp);
+        // 回查库拿较新的配置
+        assertFalse(prefetched.isPrefetched);
+    }
+
+    @Test
+    public void testNewerTaskWins() {
+        ConfigInfo content = new ConfigInfo("d", "g", "new");
+        DumpTask prefetched = new DumpTask("d+g", 2000L, "2.2.2.2", content);
+        prefetched.merge(new DumpTask("d+g", 1000L, "1.1.1.1"));
+        assertEquals(2000L, prefetched.lastModified);
+        assertTrue(prefetched.isPrefetched);
+        assertSame(content, prefetched.prefetched);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.merge;
+
+import com.alibaba.nacos.config.server.model.ConfigInfo;
+import com.alibaba.nacos.config.server.model.ConfigInfoAggr;
+import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.service.PersistService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MergeTaskProcessorTest {
+
+    private PersistService persistService;
+    private MergeTaskProcessor processor;
+    private List<ConfigInfoAggr> datums;
+
+    @Before
+    public void setUp() {
+        persistService = mock(PersistService.class);
+        processor = new MergeTaskProcessor(persistService, new MergeDatumService(persistService));
+        datums = new ArrayList<ConfigInfoAggr>();
+        datums.add(new ConfigInfoAggr("dataId", "group", "b", "B"));
+        datums.add(new ConfigInfoAggr("dataId", "group", "a", "A"));
+        Page<ConfigInfoAggr> page = new Page<ConfigInfoAggr>();
+        page.setPageItems(datums);
+        when(persistService.findConfigInfoAggrByCursor(eq("dataId"), eq("group"), eq(""), anyLong(), anyInt()))
+            .thenReturn(page);
+    }
+
+    @Test
+    public void testMergeInDatumIdOrder() {
+        processor.process("merge", new MergeDataTask("dataId", "group", "", "127.0.0.1"));
+        assertEquals("A\r\nB", lastWritten(1).getContent());
+        verify(persistService, times(1)).findConfigInfoAggrByCursor(anyString(), anyString(), anyString(), anyLong(),
+            anyInt());
+    }
+
+    @Test
+    public void testRemoveWithoutDatum() {
+        datums.clear();
+        processor.process("merge", new MergeDataTask("dataId", "group", "", "127.0.0.1"));
+        verify(persistService, times(1)).removeConfigInfo("dataId", "group", "", "127.0.0.1", null);
+    }
+
+    private ConfigInfo lastWritten(int times) {
+        ArgumentCaptor<ConfigInfo> captor = ArgumentCaptor.forClass(ConfigInfo.class);
+        verify(persistService, times(times)).insertOrUpdate(isNull(), isNull(), captor.capture(),
+            any(Timestamp.class), ArgumentMatchers.<Map<String, Object>>isNull());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.notify;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DataChangeBatchTest {
+
+    @Test
+    public void testRoundTrip() {
+        List<DataChangeBatch.Item> items = new ArrayList<DataChangeBatch.Item>();
+        items.add(new DataChangeBatch.Item("dataId1", "group1", "", null, 1000L, false));
+        items.add(new DataChangeBatch.Item("dataId2", "group2", "tenant2", "tag2", 2000L, false));
+        items.add(new DataChangeBatch.Item("dataId3", "group3", "tenant3", null, 3000L, true));
+
+        List<DataChangeBatch.Item> decoded = DataChangeBatch.decode(DataChangeBatch.encode(items));
+
+        assertEquals(3, decoded.size());
+        assertEquals("dataId1", decoded.get(0).getDataId());
+        assertEquals("group1", decoded.get(0).getGroup());
+        assertEquals("", decoded.get(0).getTenant());
+        assertNull(decoded.get(0).getTag());
+        assertEquals(1000L, decoded.get(0).getLastModified());
+        assertFalse(decoded.get(0).isBeta());
+        assertEquals("tenant2", decoded.get(1).getTenant());
+        assertEquals("tag2", decoded.get(1).getTag());
+        assertEquals(2000L, decoded.get(1).getLastModified());
+        assertTrue(decoded.get(2).isBeta());
+    }
+
+    @Test
+    public void testDecodeEmpty() {
+        assertTrue(DataChangeBatch.decode("").isEmpty());
+        assertTrue(DataChangeBatch.decode(null).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeMalformed() {
+        DataChangeBatch.decode("dataId\u0002group\u0001");
+    }
+}
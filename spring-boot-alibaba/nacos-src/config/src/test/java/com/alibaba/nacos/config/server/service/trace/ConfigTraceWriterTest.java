@@ -0,0 +1,94 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.trace;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ConfigTraceWriterTest {
+
+    private Logger logger;
+
+    @Before
+    public void setUp() {
+        logger = mock(Logger.class);
+    }
+
+    @Test
+    public void testWriteInBackground() {
+        ConfigTraceWriter writer = new ConfigTraceWriter(logger, 16);
+        writer.start();
+        writer.append("{}|{}", "d1", "g1");
+        verify(logger, timeout(3000)).info("{}|{}", new Object[] {"d1", "g1"});
+        writer.shutdown();
+    }
+
+    @Test
+    public void testDropWhenBufferFull() {
+        ConfigTraceWriter writer = new ConfigTraceWriter(logger, 3);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(writer.append("{}", i));
+        }
+        assertFalse(writer.append("{}", 4));
+        verify(logger, never()).info(anyString(), (Object[])any());
+
+        assertEquals(4, writer.flush());
+        verify(logger, times(4)).info(eq("{}"), (Object[])any());
+        assertTrue(writer.append("{}", 5));
+    }
+
+    @Test
+    public void testBufferPerThread() throws InterruptedException {
+        final ConfigTraceWriter writer = new ConfigTraceWriter(logger, 16);
+        writer.append("{}", "main");
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writer.append("{}", "other");
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(2, writer.bufferCount());
+
+        assertEquals(2, writer.flush());
+        verify(logger).info("{}", new Object[] {"main"});
+        verify(logger).info("{}", new Object[] {"other"});
+        // 线程退出后缓冲写完即移除
+        assertEquals(1, writer.bufferCount());
+    }
+
+    @Test
+    public void testShutdownFlushes() {
+        ConfigTraceWriter writer = new ConfigTraceWriter(logger, 16);
+        writer.append("{}", "d1");
+        writer.shutdown();
+        verify(logger).info("{}", new Object[] {"d1"});
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import com.alibaba.nacos.config.server.service.ConfigService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 长轮询探测路径的基准测试：解析Listening-Configs报文并与服务端md5快照比较。
+ * <p>
+ * 运行方式：直接执行main方法，或 java -cp test-classes:classes:deps org.openjdk.jmh.Main MD5UtilBenchmark
+ *
+ * @author Nacos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MD5UtilBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int keyCount;
+
+    String probe;
+
+    Map<String, String> clientMd5Map;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keyCount; i++) {
+            String dataId = "com.alibaba.nacos.benchmark.dataId." + i;
+            String content = "content-" + i;
+            String md5 = MD5.getInstance().getMD5String(content);
+            ConfigService.updateMd5(GroupKey2.getKey(dataId, "DEFAULT_GROUP", "tenant"), md5, 0L);
+            // 十分之一的配置客户端持有旧md5
+            String clientMd5 = (i % 10 == 0) ? MD5.getInstance().getMD5String("old") : md5;
+            sb.append(dataId).append(MD5Util.WORD_SEPARATOR_CHAR).append("DEFAULT_GROUP")
+                .append(MD5Util.WORD_SEPARATOR_CHAR).append(clientMd5)
+                .append(MD5Util.WORD_SEPARATOR_CHAR).append("tenant").append(MD5Util.LINE_SEPARATOR_CHAR);
+        }
+        probe = sb.toString();
+        clientMd5Map = MD5Util.getClientMd5Map(probe);
+    }
+
+    @Benchmark
+    public Map<String, String> parseProbe() {
+        return MD5Util.getClientMd5Map(probe);
+    }
+
+    @Benchmark
+    public List<String> compareProbe() {
+        return MD5Util.compareMd5("127.0.0.1", null, clientMd5Map);
+    }
+
+    @Benchmark
+    public List<String> parseAndCompareProbe() {
+        return MD5Util.compareMd5("127.0.0.1", null, MD5Util.getClientMd5Map(probe));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MD5UtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}
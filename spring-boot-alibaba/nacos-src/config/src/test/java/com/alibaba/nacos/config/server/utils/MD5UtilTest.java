@@ -0,0 +1,77 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MD5UtilTest {
+
+    static final char W = MD5Util.WORD_SEPARATOR_CHAR;
+    static final char L = MD5Util.LINE_SEPARATOR_CHAR;
+
+    @Test
+    public void test_解析老报文() {
+        Map<String, String> md5Map = MD5Util.getClientMd5Map("d1" + W + "g1" + W + "md5a" + L);
+        assertEquals(1, md5Map.size());
+        assertEquals("md5a", md5Map.get(GroupKey2.getKey("d1", "g1")));
+    }
+
+    @Test
+    public void test_解析租户报文() {
+        String probe = "d+1" + W + "g%1" + W + "md5a" + W + "t1" + L
+            + "d2" + W + "g2" + W + W + L
+            + "d3" + W + "g3" + W + "md5c" + W + L;
+        Map<String, String> md5Map = MD5Util.getClientMd5Map(probe);
+        assertEquals(3, md5Map.size());
+        assertEquals("md5a", md5Map.get(GroupKey2.getKey("d+1", "g%1", "t1")));
+        assertEquals("", md5Map.get(GroupKey2.getKey("d2", "g2")));
+        assertEquals("md5c", md5Map.get(GroupKey2.getKey("d3", "g3", "")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_字段过多() {
+        MD5Util.getClientMd5Map("d1" + W + "g1" + W + "md5a" + W + "t1" + W + "x" + L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_字段过少() {
+        MD5Util.getClientMd5Map("d1" + W + "g1" + L);
+    }
+
+    @Test
+    public void test_摘要比较() {
+        String md5 = MD5.getInstance().getMD5String("content");
+        byte[] digest = MD5.toDigest(md5);
+        assertEquals(16, digest.length);
+        assertTrue(MD5.isEqual(md5, digest));
+        assertFalse(MD5.isEqual(MD5.getInstance().getMD5String("other"), digest));
+        assertTrue(MD5.isEqual(md5.toUpperCase(), digest));
+        assertArrayEquals(digest, MD5.toDigest(md5.toUpperCase()));
+        assertFalse(MD5.isEqual("", digest));
+
+        assertNull(MD5.toDigest(""));
+        assertTrue(MD5.isEqual("", null));
+        assertFalse(MD5.isEqual(md5, null));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import com.alibaba.nacos.config.server.model.Page;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PaginationHelperTest {
+
+    private static final RowMapper<Long> ID_MAPPER = new RowMapper<Long>() {
+        @Override
+        public Long mapRow(ResultSet rs, int rowNum) {
+            return (long)rowNum;
+        }
+    };
+
+    private JdbcTemplate jt;
+
+    @Before
+    public void setUp() {
+        jt = mock(JdbcTemplate.class);
+    }
+
+    @Test
+    public void testNextCursorWhenPageIsFull() throws Exception {
+        mockRows(10L, 20L);
+        Page<Long> page = new PaginationHelper<Long>().fetchPageByCursor(jt, null, null,
+            "select id from t where id > ? order by id", new Object[] {0L}, 1, 2, "id", ID_MAPPER);
+        assertEquals(2, page.getPageItems().size());
+        assertEquals(Long.valueOf(20L), page.getNextCursor());
+    }
+
+    @Test
+    public void testNoNextCursorOnLastPage() throws Exception {
+        mockRows(30L);
+        Page<Long> page = new PaginationHelper<Long>().fetchPageByCursor(jt, null, null,
+            "select id from t where id > ? order by id", new Object[] {20L}, 1, 2, "id", ID_MAPPER);
+        assertEquals(1, page.getPageItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testEstimateCountIsCached() {
+        String sql = "select count(*) from t where tenant_id=? /* testEstimateCountIsCached */";
+        when(jt.queryForObject(sql, Integer.class, "a")).thenReturn(7);
+        when(jt.queryForObject(sql, Integer.class, "b")).thenReturn(3);
+        assertEquals(7, PaginationHelper.estimateCount(jt, sql, new Object[] {"a"}));
+        assertEquals(7, PaginationHelper.estimateCount(jt, sql, new Object[] {"a"}));
+        verify(jt, times(1)).queryForObject(sql, Integer.class, "a");
+
+        // 参数不同的count分别缓存
+        assertEquals(3, PaginationHelper.estimateCount(jt, sql, new Object[] {"b"}));
+    }
+
+    /**
+     * 让jt.query按给定的id逐行回调RowMapper
+     */
+    @SuppressWarnings("unchecked")
+    private void mockRows(final Long... ids) throws Exception {
+        final ResultSet rs = mock(ResultSet.class);
+        when(jt.query(anyString(), any(Object[].class), any(RowMapper.class))).thenAnswer(new Answer<List<Long>>() {
+            @Override
+            public List<Long> answer(InvocationOnMock invocation) throws Throwable {
+                RowMapper<Long> mapper = (RowMapper<Long>)invocation.getArguments()[2];
+                List<Long> result = new ArrayList<Long>();
+                for (int i = 0; i < ids.length; i++) {
+                    when(rs.getLong("id")).thenReturn(ids[i]);
+                    result.add(mapper.mapRow(rs, i));
+                }
+                return result;
+            }
+        });
+    }
+}
@@ -73,4 +73,18 @@ public class SimpleReadWriteLockTest {
 
         assertEquals(false, lock.tryWriteLock());
     }
+
+    @Test
+    public void test_乐观读_写锁后校验失败() {
+        SimpleReadWriteLock lock = new SimpleReadWriteLock();
+        long stamp = lock.tryOptimisticRead();
+        assertEquals(true, lock.validate(stamp));
+
+        assertEquals(true, lock.tryWriteLock());
+        assertEquals(0L, lock.tryOptimisticRead());
+        lock.releaseWriteLock();
+
+        assertEquals(false, lock.validate(stamp));
+        assertEquals(true, lock.validate(lock.tryOptimisticRead()));
+    }
 }
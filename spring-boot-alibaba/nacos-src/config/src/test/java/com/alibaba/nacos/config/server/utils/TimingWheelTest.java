@@ -0,0 +1,90 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    @Test
+    public void test_到期执行() {
+        TimingWheel wheel = new TimingWheel(10L, 8);
+        final List<String> fired = new ArrayList<String>();
+        long now = System.currentTimeMillis();
+        wheel.newTimeout(new RecordTask(fired, "a"), 30L);
+        wheel.newTimeout(new RecordTask(fired, "b"), 500L);
+        assertEquals(2, wheel.pending());
+
+        wheel.advance(now + 100L);
+        assertEquals(1, fired.size());
+        assertEquals("a", fired.get(0));
+
+        wheel.advance(now + 1000L);
+        assertEquals(2, fired.size());
+        assertEquals("b", fired.get(1));
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    public void test_跨圈不提前执行() {
+        TimingWheel wheel = new TimingWheel(10L, 4);
+        final List<String> fired = new ArrayList<String>();
+        long now = System.currentTimeMillis();
+        wheel.newTimeout(new RecordTask(fired, "a"), 200L);
+
+        wheel.advance(now + 100L);
+        assertEquals(0, fired.size());
+
+        wheel.advance(now + 250L);
+        assertEquals(1, fired.size());
+    }
+
+    @Test
+    public void test_取消() {
+        TimingWheel wheel = new TimingWheel(10L, 8);
+        final List<String> fired = new ArrayList<String>();
+        TimingWheel.Timeout timeout = wheel.newTimeout(new RecordTask(fired, "a"), 30L);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.pending());
+
+        wheel.advance(System.currentTimeMillis() + 100L);
+        assertEquals(0, fired.size());
+    }
+
+    static class RecordTask implements Runnable {
+        final List<String> fired;
+        final String name;
+
+        RecordTask(List<String> fired, String name) {
+            this.fired = fired;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            fired.add(name);
+        }
+    }
+}
@@ -29,8 +29,14 @@ import com.alibaba.nacos.config.server.utils.event.EventDispatcher.AbstractEvent
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @WebAppConfiguration
@@ -75,6 +81,44 @@ public class EventDispatcherTest {
         EventDispatcher.fireEvent(new MockEvent());
         assertEquals(2, MockListener.count);
     }
+
+    @Test
+    public void testFireEventAsync() throws Exception {
+        MockAsyncListener listener = new MockAsyncListener();
+        for (int i = 0; i < 3; i++) {
+            EventDispatcher.fireEvent(new MockEvent());
+        }
+        // 处理线程阻塞时触发线程不受影响
+        assertEquals(3, listener.handled.getCount());
+        listener.gate.countDown();
+        assertTrue(listener.handled.await(3, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), listener.thread);
+    }
+
+    @Test
+    public void testStartWorkerOnFirstEvent() throws Exception {
+        MockAsyncListener listener = new MockAsyncListener();
+        EventDispatcher.AsyncSubscriber subscriber = (EventDispatcher.AsyncSubscriber)EventDispatcher.SUBSCRIBERS
+            .get(listener);
+        assertNull(subscriber.worker);
+        EventDispatcher.fireEvent(new MockEvent());
+        assertNotNull(subscriber.worker);
+        assertTrue(listener.started.await(3, TimeUnit.SECONDS));
+        listener.gate.countDown();
+    }
+
+    @Test
+    public void testDropOnFull() throws Exception {
+        MockDropListener listener = new MockDropListener();
+        // 第一个事件被处理线程取走并阻塞，第二个占满队列，第三个被丢弃
+        EventDispatcher.fireEvent(new MockEvent());
+        assertTrue(listener.started.await(3, TimeUnit.SECONDS));
+        EventDispatcher.fireEvent(new MockEvent());
+        EventDispatcher.fireEvent(new MockEvent());
+        listener.gate.countDown();
+        assertFalse(listener.handled.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(1, listener.handled.getCount());
+    }
 }
 
 class MockEvent implements Event {
@@ -95,3 +139,47 @@ class MockListener extends AbstractEventListener {
         ++count;
     }
 }
+
+class MockAsyncListener extends AbstractEventListener {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch gate = new CountDownLatch(1);
+    final CountDownLatch handled = new CountDownLatch(3);
+    volatile Thread thread;
+
+    @Override
+    public List<Class<? extends Event>> interest() {
+        List<Class<? extends Event>> types = new ArrayList<Class<? extends Event>>();
+        types.add(MockEvent.class);
+        return types;
+    }
+
+    @Override
+    public void onEvent(Event event) {
+        thread = Thread.currentThread();
+        started.countDown();
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        handled.countDown();
+    }
+
+    @Override
+    protected int queueSize() {
+        return 16;
+    }
+}
+
+class MockDropListener extends MockAsyncListener {
+
+    @Override
+    protected int queueSize() {
+        return 1;
+    }
+
+    @Override
+    protected boolean dropOnFull() {
+        return true;
+    }
+}
@@ -18,6 +18,7 @@ package com.alibaba.nacos.console.controller;
 import com.alibaba.nacos.config.server.exception.NacosException;
 import com.alibaba.nacos.config.server.model.RestResult;
 import com.alibaba.nacos.config.server.model.TenantInfo;
+import com.alibaba.nacos.config.server.service.ConfigSearchIndex;
 import com.alibaba.nacos.config.server.service.PersistService;
 import com.alibaba.nacos.config.server.utils.StringUtils;
 import com.alibaba.nacos.console.model.Namespace;
@@ -47,6 +48,14 @@ public class NamespaceController {
     @Autowired
     private transient PersistService persistService;
 
+    /**
+     * 配置数优先从搜索索引取，索引未就绪时查库
+     */
+    private int configCount(String tenant) {
+        int count = ConfigSearchIndex.configCount(tenant);
+        return count >= 0 ? count : persistService.configInfoCount(tenant);
+    }
+
     /**
      * Get namespace list
      *
@@ -61,11 +70,11 @@ public class NamespaceController {
         rr.setCode(200);
         // TODO 获取用kp
         List<TenantInfo> tenantInfos = persistService.findTenantByKp("1");
-        Namespace namespace0 = new Namespace("", "public", 200, persistService.configInfoCount(""), 0);
+        Namespace namespace0 = new Namespace("", "public", 200, configCount(""), 0);
         List<Namespace> namespaces = new ArrayList<Namespace>();
         namespaces.add(namespace0);
         for (TenantInfo tenantInfo : tenantInfos) {
-            int configCount = persistService.configInfoCount(tenantInfo.getTenantId());
+            int configCount = configCount(tenantInfo.getTenantId());
             Namespace namespaceTmp = new Namespace(tenantInfo.getTenantId(), tenantInfo.getTenantName(), 200,
                 configCount, 2);
             namespaces.add(namespaceTmp);
@@ -88,12 +97,12 @@ public class NamespaceController {
                                          @RequestParam("namespaceId") String namespaceId) {
         // TODO 获取用kp
         if (StringUtils.isBlank(namespaceId)) {
-            NamespaceAllInfo namespaceTmp = new NamespaceAllInfo(namespaceId, "Public", 200, persistService.configInfoCount(""), 0,
+            NamespaceAllInfo namespaceTmp = new NamespaceAllInfo(namespaceId, "Public", 200, configCount(""), 0,
                 "Public Namespace");
             return namespaceTmp;
         } else {
             TenantInfo tenantInfo = persistService.findTenantByKp("1", namespaceId);
-            int configCount = persistService.configInfoCount(namespaceId);
+            int configCount = configCount(namespaceId);
             NamespaceAllInfo namespaceTmp = new NamespaceAllInfo(namespaceId, tenantInfo.getTenantName(), 200,
                 configCount, 2, tenantInfo.getTenantDesc());
             return namespaceTmp;
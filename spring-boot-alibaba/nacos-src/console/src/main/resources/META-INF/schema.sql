@@ -23,6 +23,7 @@ CREATE TABLE config_info (
 CREATE INDEX configinfo_dataid_key_idx ON config_info(data_id);
 CREATE INDEX configinfo_groupid_key_idx ON config_info(group_id);
 CREATE INDEX configinfo_dataid_group_key_idx ON config_info(data_id, group_id);
+CREATE INDEX configinfo_gmt_modified_idx ON config_info(gmt_modified, id);
 
 CREATE TABLE his_config_info (
   id bigint NOT NULL,
@@ -0,0 +1,425 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.pojo.Record;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialize maps of {@link Datum} of {@link Instances}, the bulk of Distro traffic, into a compact binary format:
+ * <pre>
+ * MAGIC VERSION size (key datumKey timestamp hasValue [revision count instance*])*
+ * </pre>
+ * Integers are varints, weights are 8-byte doubles, the boolean fields of an instance (including mockValid) are bits
+ * of one flags byte, strings are UTF-8 with a varint length, and the keys, cluster names, service names and
+ * metadata keys that repeat across instances are written once and referred to by index afterwards. Data is read
+ * straight from the bytes without building a String of the whole payload.
+ * <p>
+ * Every payload starts with {@link #MAGIC} and the format {@link #VERSION}, so {@link #deserializeMap(byte[], Class)}
+ * also accepts JSON from servers that do not support this format, and everything else is delegated to
+ * {@link FastJsonSerializer}. Servers tell the version they can read in {@link #HEADER}, and binary data is only
+ * sent to servers which can read it.
+ *
+ * @author nkorange
+ * @since 1.0.0
+ */
+@Component
+public class BinarySerializer implements Serializer {
+
+    /**
+     * Header of Distro requests and responses, telling the binary format version the sender can read
+     */
+    public static final String HEADER = "Distro-Serializer";
+
+    public static final int VERSION = 1;
+
+    /**
+     * Never the first byte of JSON, or of any UTF-8 text
+     */
+    public static final byte MAGIC = (byte) 0xFE;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int FLAG_HEALTHY = 1;
+    private static final int FLAG_ENABLED = 1 << 1;
+    private static final int FLAG_EPHEMERAL = 1 << 2;
+    private static final int FLAG_MARKED = 1 << 3;
+    private static final int FLAG_MOCK_VALID = 1 << 4;
+
+    /**
+     * A varint byte carries 7 bits of the value, with the high bit set if more bytes follow
+     */
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = 0x7F;
+    private static final int VARINT_MORE = 0x80;
+    private static final int MAX_VARLONG_BYTES = 10;
+
+    private static final int INTERNED_NULL = 0;
+    private static final int INTERNED_NEW = 1;
+    /**
+     * Tag of an interned string written before is its index plus this offset
+     */
+    private static final int INTERNED_INDEX_OFFSET = 2;
+
+    private final Serializer json = new FastJsonSerializer();
+
+    /**
+     * Whether a server telling this value in {@link #HEADER} can read data of this version
+     */
+    public static boolean accepts(String headerValue) {
+        return NumberUtils.toInt(headerValue, 0) >= VERSION;
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == MAGIC;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> byte[] serialize(T data) {
+        if (!(data instanceof Map) || !isInstancesMap((Map<String, ?>) data)) {
+            return json.serialize(data);
+        }
+
+        Map<String, Datum> datumMap = (Map<String, Datum>) data;
+        int size = 0;
+        for (Datum datum : datumMap.values()) {
+            if (datum != null) {
+                size++;
+            }
+        }
+
+        Output out = new Output(256 + size * 256);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeVarInt(size);
+        for (Map.Entry<String, Datum> entry : datumMap.entrySet()) {
+            Datum datum = entry.getValue();
+            if (datum == null) {
+                // keys unknown to this server
+                continue;
+            }
+            out.writeInterned(entry.getKey());
+            out.writeInterned(datum.key);
+            out.writeVarLong(datum.timestamp.get());
+            if (datum.value == null) {
+                out.writeByte(0);
+                continue;
+            }
+            out.writeByte(1);
+            writeInstances(out, (Instances) datum.value);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> clazz) {
+        return json.deserialize(data, clazz);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, TypeReference<T> clazz) {
+        return json.deserialize(data, clazz);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Record> Map<String, Datum<T>> deserializeMap(byte[] data, Class<T> clazz) {
+        if (!isBinary(data)) {
+            return json.deserializeMap(data, clazz);
+        }
+        if (clazz != Instances.class) {
+            throw new IllegalArgumentException("binary data of " + clazz.getName() + " is not supported");
+        }
+
+        try {
+            Input in = new Input(data);
+            in.readByte();
+            int version = in.readByte();
+            if (version > VERSION) {
+                throw new IllegalStateException("unknown binary data version: " + version);
+            }
+
+            int size = in.readVarInt();
+            Map<String, Datum<T>> resultMap = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                String mapKey = in.readInterned();
+                Datum<T> datum = new Datum<>();
+                datum.key = in.readInterned();
+                datum.timestamp.set(in.readVarLong());
+                if (in.readByte() != 0) {
+                    datum.value = (T) readInstances(in);
+                }
+                resultMap.put(mapKey, datum);
+            }
+            return resultMap;
+        } catch (RuntimeException e) {
+            Loggers.SRV_LOG.error("deserialize binary data failed.", e);
+        }
+        return null;
+    }
+
+    private static boolean isInstancesMap(Map<String, ?> map) {
+        for (Object value : map.values()) {
+            if (value == null) {
+                continue;
+            }
+            if (!(value instanceof Datum)) {
+                return false;
+            }
+            Record record = ((Datum) value).value;
+            if (record != null && !(record instanceof Instances)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeInstances(Output out, Instances instances) {
+        out.writeVarLong(instances.getRevision());
+        List<Instance> instanceList = instances.getInstanceList();
+        out.writeVarInt(instanceList.size());
+        for (Instance instance : instanceList) {
+            out.writeString(instance.getInstanceId());
+            out.writeString(instance.getIp());
+            out.writeVarInt(instance.getPort());
+            out.writeLong(Double.doubleToLongBits(instance.getWeight()));
+            out.writeByte((instance.isHealthy() ? FLAG_HEALTHY : 0) | (instance.isEnabled() ? FLAG_ENABLED : 0)
+                | (instance.isEphemeral() ? FLAG_EPHEMERAL : 0) | (instance.isMarked() ? FLAG_MARKED : 0)
+                | (instance.isMockValid() ? FLAG_MOCK_VALID : 0));
+            out.writeInterned(instance.getClusterName());
+            out.writeInterned(instance.getServiceName());
+            out.writeInterned(instance.getTenant());
+            out.writeInterned(instance.getApp());
+            out.writeVarLong(instance.getLastBeat());
+
+            Map<String, String> metadata = instance.getMetadata();
+            if (metadata == null) {
+                out.writeVarInt(0);
+                continue;
+            }
+            out.writeVarInt(metadata.size());
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                out.writeInterned(entry.getKey());
+                out.writeString(entry.getValue());
+            }
+        }
+    }
+
+    private static Instances readInstances(Input in) {
+        Instances instances = new Instances();
+        instances.setRevision(in.readVarLong());
+        int count = in.readVarInt();
+        List<Instance> instanceList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Instance instance = new Instance();
+            instance.setInstanceId(in.readString());
+            instance.setIp(in.readString());
+            instance.setPort(in.readVarInt());
+            instance.setWeight(Double.longBitsToDouble(in.readLong()));
+            int flags = in.readByte();
+            instance.setHealthy((flags & FLAG_HEALTHY) != 0);
+            instance.setEnabled((flags & FLAG_ENABLED) != 0);
+            instance.setEphemeral((flags & FLAG_EPHEMERAL) != 0);
+            instance.setMarked((flags & FLAG_MARKED) != 0);
+            instance.setMockValid((flags & FLAG_MOCK_VALID) != 0);
+            instance.setClusterName(in.readInterned());
+            instance.setServiceName(in.readInterned());
+            instance.setTenant(in.readInterned());
+            instance.setApp(in.readInterned());
+            instance.setLastBeat(in.readVarLong());
+
+            int metadataSize = in.readVarInt();
+            Map<String, String> metadata = new HashMap<>(metadataSize * 4 / 3 + 1);
+            for (int j = 0; j < metadataSize; j++) {
+                metadata.put(in.readInterned(), in.readString());
+            }
+            instance.setMetadata(metadata);
+            instanceList.add(instance);
+        }
+        instances.setInstanceList(instanceList);
+        return instances;
+    }
+
+    /**
+     * Strings are written as varint (length + 1) and UTF-8 bytes, 0 for null. Interned strings are written as
+     * varint 0 for null, 1 followed by a string seen for the first time, or (index + 2) of a string written before.
+     */
+    static class Output {
+
+        private byte[] buf;
+
+        private int count;
+
+        private final Map<String, Integer> interned = new HashMap<>(64);
+
+        Output(int size) {
+            buf = new byte[size];
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buf[count++] = (byte) b;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(MAX_VARLONG_BYTES);
+            while ((value & ~(long) VARINT_MASK) != 0) {
+                buf[count++] = (byte) ((value & VARINT_MASK) | VARINT_MORE);
+                value >>>= VARINT_BITS;
+            }
+            buf[count++] = (byte) value;
+        }
+
+        /**
+         * Big-endian, 8 bytes
+         */
+        void writeLong(long value) {
+            ensureCapacity(Long.BYTES);
+            for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                buf[count++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarInt(bytes.length + 1);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buf, count, bytes.length);
+            count += bytes.length;
+        }
+
+        void writeInterned(String value) {
+            if (value == null) {
+                writeVarInt(INTERNED_NULL);
+                return;
+            }
+            Integer index = interned.get(value);
+            if (index != null) {
+                writeVarInt(index + INTERNED_INDEX_OFFSET);
+                return;
+            }
+            interned.put(value, interned.size());
+            writeVarInt(INTERNED_NEW);
+            writeString(value);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        private void ensureCapacity(int length) {
+            if (count + length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + length));
+            }
+        }
+    }
+
+    static class Input {
+
+        private final byte[] buf;
+
+        private int pos;
+
+        private final List<String> interned = new ArrayList<>(64);
+
+        Input(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int readByte() {
+            if (pos >= buf.length) {
+                throw new IllegalStateException("unexpected end of binary data");
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readVarLong() {
+            long value = 0L;
+            for (int shift = 0; shift < Long.SIZE; shift += VARINT_BITS) {
+                int b = readByte();
+                value |= (long) (b & VARINT_MASK) << shift;
+                if ((b & VARINT_MORE) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("malformed varint at " + pos);
+        }
+
+        long readLong() {
+            long value = 0L;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << Byte.SIZE) | readByte();
+            }
+            return value;
+        }
+
+        String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buf.length - pos) {
+                throw new IllegalStateException("unexpected end of binary data");
+            }
+            String value = new String(buf, pos, length, UTF_8);
+            pos += length;
+            return value;
+        }
+
+        String readInterned() {
+            int tag = readVarInt();
+            if (tag == INTERNED_NULL) {
+                return null;
+            }
+            if (tag == INTERNED_NEW) {
+                String value = readString();
+                interned.add(value);
+                return value;
+            }
+            int index = tag - INTERNED_INDEX_OFFSET;
+            if (index >= interned.size()) {
+                throw new IllegalStateException("unknown interned string " + index);
+            }
+            return interned.get(index);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.pojo.Record;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import java.io.UnsupportedEncodingException;
@@ -33,6 +34,7 @@ import java.util.Map;
  * @author nkorange
  * @since 1.0.0
  */
+@Primary
 @Component
 public class FastJsonSerializer implements Serializer {
 
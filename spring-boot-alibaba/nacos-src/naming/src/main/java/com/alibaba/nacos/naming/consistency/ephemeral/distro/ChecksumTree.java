@@ -0,0 +1,138 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.nacos.naming.core.Checksum;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash tree of the checksums of the keys one server is responsible for.
+ * <p>
+ * Keys are put into {@link #BUCKET_COUNT} buckets by their hash code. Each bucket has the checksum of its keys,
+ * and the root the checksum of all buckets. Two servers first compare bucket checksums and then only the keys
+ * of the buckets that differ, instead of the checksums of all keys. Putting or removing a key updates its
+ * bucket in O(1).
+ *
+ * @author nkorange
+ * @since 1.0.0
+ */
+public class ChecksumTree {
+
+    public static final int BUCKET_COUNT = 256;
+
+    private final Checksum[] buckets = new Checksum[BUCKET_COUNT];
+
+    /**
+     * Checksum of each key
+     */
+    private final Map<String, String> checksums = new ConcurrentHashMap<>(1024);
+
+    public ChecksumTree() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new Checksum();
+        }
+    }
+
+    public static int bucketOf(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % BUCKET_COUNT;
+    }
+
+    public void put(String key, String checksum) {
+        String old = checksums.put(key, checksum);
+        if (checksum.equals(old)) {
+            return;
+        }
+        Checksum bucket = buckets[bucketOf(key)];
+        if (old != null) {
+            bucket.subtract(leaf(key, old));
+        }
+        bucket.add(leaf(key, checksum));
+    }
+
+    public void remove(String key) {
+        String old = checksums.remove(key);
+        if (old != null) {
+            buckets[bucketOf(key)].subtract(leaf(key, old));
+        }
+    }
+
+    public Set<String> keys() {
+        return checksums.keySet();
+    }
+
+    public boolean isEmpty() {
+        return checksums.isEmpty();
+    }
+
+    public String getRootChecksum() {
+        Checksum root = new Checksum();
+        for (Checksum bucket : buckets) {
+            root.add(bucket);
+        }
+        return root.toString();
+    }
+
+    public List<String> getBucketChecksums() {
+        List<String> result = new ArrayList<>(BUCKET_COUNT);
+        for (Checksum bucket : buckets) {
+            result.add(bucket.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Get the buckets whose checksums differ from the given ones
+     */
+    public List<Integer> diff(List<String> bucketChecksums) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (i >= bucketChecksums.size() || !buckets[i].toString().equals(bucketChecksums.get(i))) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the checksums of the keys in the given buckets
+     */
+    public Map<String, String> getChecksums(Collection<Integer> bucketIndexes) {
+        boolean[] selected = new boolean[BUCKET_COUNT];
+        for (Integer index : bucketIndexes) {
+            if (index >= 0 && index < BUCKET_COUNT) {
+                selected[index] = true;
+            }
+        }
+        Map<String, String> result = new HashMap<>(64);
+        for (Map.Entry<String, String> entry : checksums.entrySet()) {
+            if (selected[bucketOf(entry.getKey())]) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static long[] leaf(String key, String checksum) {
+        return Checksum.md5(key + ":" + checksum);
+    }
+}
@@ -16,14 +16,20 @@
 package com.alibaba.nacos.naming.consistency.ephemeral.distro;
 
 import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instances;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Store of data
@@ -36,12 +42,118 @@ public class DataStore {
 
     private Map<String, Datum> dataMap = new ConcurrentHashMap<>(1024);
 
+    /**
+     * Keys of {@link #dataMap} by bucket of {@link ChecksumTree}, so that a chunk of buckets is read without
+     * scanning all keys. Only changed together with the key in dataMap.
+     */
+    private final Set<String>[] bucketKeys = newBucketKeys();
+
+    @Autowired
+    private DistroMapper distroMapper;
+
+    /**
+     * Checksum trees of the keys each server is responsible for, by server. They are rebuilt when the
+     * server list changes.
+     */
+    private volatile Map<String, ChecksumTree> checksumTrees = new ConcurrentHashMap<>(16);
+
+    private volatile List<String> checksumTreeServers = Collections.emptyList();
+
+    /**
+     * Puts and removes share the read lock, rebuilding the trees needs the write lock
+     */
+    private final ReadWriteLock checksumTreeLock = new ReentrantReadWriteLock();
+
     public void put(String key, Datum value) {
-        dataMap.put(key, value);
+        checkChecksumTrees();
+        checksumTreeLock.readLock().lock();
+        try {
+            dataMap.compute(key, (k, old) -> {
+                bucketKeys[ChecksumTree.bucketOf(k)].add(k);
+                return value;
+            });
+            updateChecksumTree(key, value);
+        } finally {
+            checksumTreeLock.readLock().unlock();
+        }
     }
 
     public Datum remove(String key) {
-        return dataMap.remove(key);
+        checkChecksumTrees();
+        checksumTreeLock.readLock().lock();
+        try {
+            Datum[] removed = new Datum[1];
+            dataMap.computeIfPresent(key, (k, old) -> {
+                bucketKeys[ChecksumTree.bucketOf(k)].remove(k);
+                removed[0] = old;
+                return null;
+            });
+            updateChecksumTree(key, null);
+            return removed[0];
+        } finally {
+            checksumTreeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the checksum tree of the keys a server is responsible for
+     */
+    public ChecksumTree getChecksumTree(String server) {
+        checkChecksumTrees();
+        ChecksumTree tree = checksumTrees.get(server);
+        return tree == null ? new ChecksumTree() : tree;
+    }
+
+    /**
+     * Update the checksum of a key whose value was changed in place
+     */
+    public void refreshChecksum(String key) {
+        checksumTreeLock.readLock().lock();
+        try {
+            updateChecksumTree(key, dataMap.get(key));
+        } finally {
+            checksumTreeLock.readLock().unlock();
+        }
+    }
+
+    private void updateChecksumTree(String key, Datum datum) {
+        String server = distroMapper.mapSrv(KeyBuilder.getServiceName(key));
+        ChecksumTree tree = checksumTrees.get(server);
+        if (datum == null || datum.value == null) {
+            if (tree != null) {
+                tree.remove(key);
+            }
+            return;
+        }
+        if (tree == null) {
+            ChecksumTree newTree = new ChecksumTree();
+            tree = checksumTrees.putIfAbsent(server, newTree);
+            if (tree == null) {
+                tree = newTree;
+            }
+        }
+        tree.put(key, datum.value.getChecksum());
+    }
+
+    private void checkChecksumTrees() {
+        List<String> servers = distroMapper.getHealthyList();
+        if (servers == checksumTreeServers || servers.equals(checksumTreeServers)) {
+            checksumTreeServers = servers;
+            return;
+        }
+        checksumTreeLock.writeLock().lock();
+        try {
+            if (servers.equals(checksumTreeServers)) {
+                return;
+            }
+            checksumTrees = new ConcurrentHashMap<>(16);
+            for (Map.Entry<String, Datum> entry : dataMap.entrySet()) {
+                updateChecksumTree(entry.getKey(), entry.getValue());
+            }
+            checksumTreeServers = servers;
+        } finally {
+            checksumTreeLock.writeLock().unlock();
+        }
     }
 
     public Set<String> keys() {
@@ -81,7 +193,54 @@ public class DataStore {
         return count;
     }
 
+    /**
+     * Read only, changes go through {@link #put(String, Datum)} and {@link #remove(String)} to keep the bucket index
+     */
     public Map<String, Datum> getDataMap() {
-        return dataMap;
+        return Collections.unmodifiableMap(dataMap);
+    }
+
+    /**
+     * Get the end of a chunk of whole buckets of {@link ChecksumTree}, which starts at fromBucket and has at least
+     * limit keys, or ends at toBucket
+     */
+    public int getChunkEnd(int fromBucket, int toBucket, int limit) {
+        int count = 0;
+        for (int bucket = fromBucket; bucket < toBucket; bucket++) {
+            count += bucketKeys[bucket].size();
+            if (count >= limit) {
+                return bucket + 1;
+            }
+        }
+        return toBucket;
+    }
+
+    /**
+     * Get the datums of keys in the buckets of {@link ChecksumTree} from fromBucket to toBucket, exclusive
+     */
+    public Map<String, Datum> getDataMap(int fromBucket, int toBucket) {
+        int size = 0;
+        for (int bucket = fromBucket; bucket < toBucket; bucket++) {
+            size += bucketKeys[bucket].size();
+        }
+        Map<String, Datum> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int bucket = fromBucket; bucket < toBucket; bucket++) {
+            for (String key : bucketKeys[bucket]) {
+                Datum datum = dataMap.get(key);
+                if (datum != null) {
+                    map.put(key, datum);
+                }
+            }
+        }
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] newBucketKeys() {
+        Set<String>[] bucketKeys = new Set[ChecksumTree.BUCKET_COUNT];
+        for (int i = 0; i < bucketKeys.length; i++) {
+            bucketKeys[i] = ConcurrentHashMap.newKeySet();
+        }
+        return bucketKeys;
     }
 }
@@ -17,11 +17,15 @@ package com.alibaba.nacos.naming.consistency.ephemeral.distro;
 
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.servers.Server;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
 import com.alibaba.nacos.naming.cluster.transport.Serializer;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.core.DistroMapper;
+import com.alibaba.nacos.naming.core.InstanceDelta;
+import com.alibaba.nacos.naming.core.Instances;
 import com.alibaba.nacos.naming.misc.*;
+import com.alibaba.nacos.naming.pojo.Record;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
@@ -53,6 +57,9 @@ public class DataSyncer {
     @Autowired
     private Serializer serializer;
 
+    @Autowired
+    private BinarySerializer binarySerializer;
+
     @Autowired
     private DistroMapper distroMapper;
 
@@ -114,10 +121,8 @@ public class DataSyncer {
                         return;
                     }
 
-                    byte[] data = serializer.serialize(datumMap);
-
                     long timestamp = System.currentTimeMillis();
-                    boolean success = NamingProxy.syncData(data, task.getTargetServer());
+                    boolean success = syncData(datumMap, task.getTargetServer());
                     if (!success) {
                         SyncTask syncTask = new SyncTask();
                         syncTask.setKeys(task.getKeys());
@@ -139,6 +144,40 @@ public class DataSyncer {
         }, delay);
     }
 
+    /**
+     * Send instance lists that have delta history as deltas to servers that accept them, and the others as whole
+     * datums. Whether a server accepts deltas is only known after it answered a Distro request, so the first sync
+     * to a server sends whole datums.
+     */
+    private boolean syncData(Map<String, Datum> datumMap, String targetServer) throws Exception {
+
+        Map<String, List<InstanceDelta>> deltaMap = new HashMap<>(datumMap.size());
+        Map<String, Datum> deltaDatums = new HashMap<>(datumMap.size());
+        if (partitionConfig.isDeltaSync() && NamingProxy.acceptsDelta(targetServer)) {
+            Iterator<Map.Entry<String, Datum>> iterator = datumMap.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Datum> entry = iterator.next();
+                Record value = entry.getValue().value;
+                if (value instanceof Instances && !((Instances) value).getDeltas().isEmpty()) {
+                    deltaMap.put(entry.getKey(), ((Instances) value).getDeltas());
+                    deltaDatums.put(entry.getKey(), entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+
+        if (!deltaMap.isEmpty() && !NamingProxy.syncDelta(serializer.serialize(deltaMap), targetServer)) {
+            // e.g. the server was downgraded, send the whole lists instead:
+            datumMap.putAll(deltaDatums);
+        }
+        if (datumMap.isEmpty()) {
+            return true;
+        }
+        Serializer datumSerializer = partitionConfig.isBinarySerializer()
+            && NamingProxy.acceptsBinary(targetServer) ? binarySerializer : serializer;
+        return NamingProxy.syncData(datumSerializer.serialize(datumMap), targetServer);
+    }
+
     public void retrySync(SyncTask syncTask) {
 
         Server server = new Server();
@@ -168,34 +207,72 @@ public class DataSyncer {
                     Loggers.EPHEMERAL.debug("server list is: {}", getServers());
                 }
 
-                // send local timestamps to other servers:
-                Map<String, String> keyChecksums = new HashMap<>(64);
-                for (String key : dataStore.keys()) {
-                    if (!distroMapper.responsible(KeyBuilder.getServiceName(key))) {
-                        continue;
-                    }
-
-                    keyChecksums.put(key, dataStore.get(key).value.getChecksum());
-                }
-
-                if (keyChecksums.isEmpty()) {
-                    return;
-                }
-
-                if (Loggers.EPHEMERAL.isDebugEnabled()) {
-                    Loggers.EPHEMERAL.debug("sync checksums: {}", keyChecksums);
-                }
-
+                Map<String, Object> treeMap = null;
+                Map<String, String> keyChecksums = null;
                 for (Server member : getServers()) {
                     if (NetUtils.localServer().equals(member.getKey())) {
                         continue;
                     }
-                    NamingProxy.syncChecksums(keyChecksums, member.getKey());
+                    if (partitionConfig.isChecksumTree() && NamingProxy.acceptsChecksumTree(member.getKey())) {
+                        if (treeMap == null) {
+                            treeMap = getChecksumTree();
+                        }
+                        if (!treeMap.isEmpty()) {
+                            NamingProxy.syncChecksumTree(treeMap, member.getKey());
+                        }
+                        continue;
+                    }
+                    // servers of older versions, or whose version is not known yet:
+                    if (keyChecksums == null) {
+                        keyChecksums = getKeyChecksums();
+                    }
+                    if (!keyChecksums.isEmpty()) {
+                        NamingProxy.syncChecksums(keyChecksums, member.getKey());
+                    }
                 }
             } catch (Exception e) {
                 Loggers.EPHEMERAL.error("timed sync task failed.", e);
             }
         }
+
+        /**
+         * Checksums of the keys this server is responsible for
+         */
+        private Map<String, String> getKeyChecksums() {
+            Map<String, String> keyChecksums = new HashMap<>(64);
+            for (String key : dataStore.keys()) {
+                if (!distroMapper.responsible(KeyBuilder.getServiceName(key))) {
+                    continue;
+                }
+
+                keyChecksums.put(key, dataStore.get(key).value.getChecksum());
+            }
+
+            if (Loggers.EPHEMERAL.isDebugEnabled()) {
+                Loggers.EPHEMERAL.debug("sync checksums: {}", keyChecksums);
+            }
+            return keyChecksums;
+        }
+
+        /**
+         * Root and bucket checksums of the keys this server is responsible for, empty if there is no key
+         */
+        private Map<String, Object> getChecksumTree() {
+
+            ChecksumTree tree = dataStore.getChecksumTree(NetUtils.localServer());
+            // instance lists change in place when health status of instances changes:
+            for (String key : tree.keys()) {
+                dataStore.refreshChecksum(key);
+            }
+
+            Map<String, Object> treeMap = new HashMap<>(4);
+            if (tree.isEmpty()) {
+                return treeMap;
+            }
+            treeMap.put("root", tree.getRootChecksum());
+            treeMap.put("buckets", tree.getBucketChecksums());
+            return treeMap;
+        }
     }
 
     public List<Server> getServers() {
@@ -15,6 +15,7 @@
  */
 package com.alibaba.nacos.naming.consistency.ephemeral.distro;
 
+import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.api.common.Constants;
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.core.utils.SystemUtils;
@@ -22,6 +23,7 @@ import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.ServerMode;
 import com.alibaba.nacos.naming.cluster.ServerStatus;
 import com.alibaba.nacos.naming.cluster.servers.Server;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
 import com.alibaba.nacos.naming.cluster.transport.Serializer;
 import com.alibaba.nacos.naming.consistency.ApplyAction;
 import com.alibaba.nacos.naming.consistency.Datum;
@@ -29,6 +31,7 @@ import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.consistency.RecordListener;
 import com.alibaba.nacos.naming.consistency.ephemeral.EphemeralConsistencyService;
 import com.alibaba.nacos.naming.core.DistroMapper;
+import com.alibaba.nacos.naming.core.InstanceDelta;
 import com.alibaba.nacos.naming.core.Instances;
 import com.alibaba.nacos.naming.core.Service;
 import com.alibaba.nacos.naming.misc.*;
@@ -39,6 +42,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
@@ -87,6 +91,9 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
     @Autowired
     private Serializer serializer;
 
+    @Autowired
+    private BinarySerializer binarySerializer;
+
     @Autowired
     private ServerListManager serverListManager;
 
@@ -98,10 +105,17 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
 
     private boolean initialized = false;
 
+    private volatile LoadProgress loadProgress;
+
     public volatile Notifier notifier = new Notifier();
 
     private Map<String, CopyOnWriteArrayList<RecordListener>> listeners = new ConcurrentHashMap<>();
 
+    /**
+     * Value of {@link #syncChecksumTasks}, the key marks the server being synced with
+     */
+    private static final String SYNC_CHECKSUM_IN_PROCESS = "1";
+
     private Map<String, String> syncChecksumTasks = new ConcurrentHashMap<>(16);
 
     @PostConstruct
@@ -131,6 +145,11 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
             Loggers.EPHEMERAL.info("waiting server list init...");
         }
 
+        if (globalConfig.isChunkedLoad() && loadInChunks()) {
+            initialized = true;
+            return;
+        }
+
         for (Server server : serverListManager.getHealthyServers()) {
             if (NetUtils.localServer().equals(server.getKey())) {
                 continue;
@@ -146,6 +165,92 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
         }
     }
 
+    /**
+     * Load data in chunks of whole buckets of {@link ChecksumTree} instead of all data at once. The buckets are
+     * split into ranges which are loaded from different servers in parallel. Each chunk is applied before the next
+     * one is requested, so only one chunk of each range is in memory at a time. A range whose server fails is
+     * continued by the next server from the bucket it stopped at.
+     */
+    private boolean loadInChunks() throws Exception {
+        final List<String> servers = new ArrayList<>();
+        for (Server server : serverListManager.getHealthyServers()) {
+            if (!NetUtils.localServer().equals(server.getKey())) {
+                servers.add(server.getKey());
+            }
+        }
+        if (servers.isEmpty()) {
+            return false;
+        }
+
+        int rangeCount = Math.max(1, Math.min(servers.size(), globalConfig.getLoadParallelism()));
+        loadProgress = new LoadProgress();
+        ExecutorService loadExecutor = Executors.newFixedThreadPool(rangeCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+
+                t.setDaemon(true);
+                t.setName("com.alibaba.nacos.naming.distro.loader");
+
+                return t;
+            }
+        });
+
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(rangeCount);
+            for (int i = 0; i < rangeCount; i++) {
+                final int fromBucket = ChecksumTree.BUCKET_COUNT * i / rangeCount;
+                final int toBucket = ChecksumTree.BUCKET_COUNT * (i + 1) / rangeCount;
+                final int serverIndex = i;
+                futures.add(loadExecutor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return loadRange(fromBucket, toBucket, servers, serverIndex);
+                    }
+                }));
+            }
+
+            boolean success = true;
+            for (Future<Boolean> future : futures) {
+                success = future.get() && success;
+            }
+            if (success) {
+                loadProgress.finish();
+            }
+            Loggers.EPHEMERAL.info("load data in chunks, success: {}, progress: {}", success, loadProgress);
+            return success;
+        } finally {
+            loadExecutor.shutdown();
+        }
+    }
+
+    private boolean loadRange(int fromBucket, int toBucket, List<String> servers, int serverIndex) {
+        int cursor = fromBucket;
+        for (int i = 0; i < servers.size() && cursor < toBucket; i++) {
+            String server = servers.get((serverIndex + i) % servers.size());
+            try {
+                while (cursor < toBucket) {
+                    HttpClient.HttpResult result = NamingProxy.getDataChunk(cursor, toBucket, server);
+                    int next = Integer.parseInt(result.getHeader(UtilsAndCommons.DISTRO_NEXT_BUCKET_HEADER));
+                    if (next <= cursor) {
+                        throw new IllegalStateException("chunk ends at bucket " + next + ", before " + cursor);
+                    }
+                    loadProgress.chunkLoaded(next - cursor, processData(result.getBytes()));
+                    cursor = next;
+                    Loggers.EPHEMERAL.info("loaded buckets to {} from {}, progress: {}", cursor, server, loadProgress);
+                }
+            } catch (Exception e) {
+                Loggers.EPHEMERAL.warn("load buckets from " + cursor + " to " + toBucket + " from " + server
+                    + " failed, try next server.", e);
+            }
+        }
+        return cursor >= toBucket;
+    }
+
+    public LoadProgress getLoadProgress() {
+        return loadProgress;
+    }
+
     @Override
     public void put(String key, Record value) throws NacosException {
         onPut(key, value);
@@ -194,64 +299,162 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
 
     public void onReceiveChecksums(Map<String, String> checksumMap, String server) {
 
-        if (syncChecksumTasks.containsKey(server)) {
+        if (syncChecksumTasks.putIfAbsent(server, SYNC_CHECKSUM_IN_PROCESS) != null) {
             // Already in process of this server:
             Loggers.EPHEMERAL.warn("sync checksum task already in process with {}", server);
             return;
         }
 
-        syncChecksumTasks.put(server, "1");
-
         try {
 
-            List<String> toUpdateKeys = new ArrayList<>();
-            List<String> toRemoveKeys = new ArrayList<>();
-            for (Map.Entry<String, String> entry : checksumMap.entrySet()) {
-                if (distroMapper.responsible(KeyBuilder.getServiceName(entry.getKey()))) {
-                    // this key should not be sent from remote server:
-                    Loggers.EPHEMERAL.error("receive responsible key timestamp of " + entry.getKey() + " from " + server);
-                    // abort the procedure:
-                    return;
-                }
-                if (!dataStore.contains(entry.getKey()) ||
-                    dataStore.get(entry.getKey()).value == null ||
-                    !dataStore.get(entry.getKey()).value.getChecksum().equals(entry.getValue())) {
-                    toUpdateKeys.add(entry.getKey());
+            List<String> localKeys = new ArrayList<>();
+            for (String key : dataStore.keys()) {
+                if (server.equals(distroMapper.mapSrv(KeyBuilder.getServiceName(key)))) {
+                    localKeys.add(key);
                 }
             }
 
-            for (String key : dataStore.keys()) {
+            syncChecksums(checksumMap, localKeys, server);
+        } finally {
+            // Remove this 'in process' flag:
+            syncChecksumTasks.remove(server);
+        }
+    }
 
-                if (!server.equals(distroMapper.mapSrv(KeyBuilder.getServiceName(key)))) {
-                    continue;
-                }
+    /**
+     * Compare the checksum tree of the keys a server is responsible for with the local one, and sync only the
+     * keys in the buckets that differ
+     */
+    public void onReceiveChecksumTree(String root, List<String> buckets, String server) {
 
-                if (!checksumMap.containsKey(key)) {
-                    toRemoveKeys.add(key);
-                }
-            }
+        ChecksumTree tree = dataStore.getChecksumTree(server);
+        if (tree.getRootChecksum().equals(root)) {
+            return;
+        }
 
-            Loggers.EPHEMERAL.info("to remove keys: {}, to update keys: {}, source: {}", toRemoveKeys, toUpdateKeys, server);
+        if (syncChecksumTasks.putIfAbsent(server, SYNC_CHECKSUM_IN_PROCESS) != null) {
+            // Already in process of this server:
+            Loggers.EPHEMERAL.warn("sync checksum task already in process with {}", server);
+            return;
+        }
 
-            for (String key : toRemoveKeys) {
-                onRemove(key);
-            }
+        try {
 
-            if (toUpdateKeys.isEmpty()) {
+            List<Integer> diffBuckets = tree.diff(buckets);
+            if (diffBuckets.isEmpty()) {
                 return;
             }
 
+            Map<String, String> checksumMap;
             try {
-                byte[] result = NamingProxy.getData(toUpdateKeys, server);
-                processData(result);
+                checksumMap = serializer.deserialize(NamingProxy.getChecksums(diffBuckets, server),
+                    new TypeReference<Map<String, String>>() {
+                    });
             } catch (Exception e) {
-                Loggers.EPHEMERAL.error("get data from " + server + " failed!", e);
+                Loggers.EPHEMERAL.error("get checksums from " + server + " failed!", e);
+                return;
+            }
+
+            if (Loggers.EPHEMERAL.isDebugEnabled()) {
+                Loggers.EPHEMERAL.debug("buckets {} differ from {}, checksums: {}", diffBuckets, server, checksumMap);
             }
+
+            syncChecksums(checksumMap, tree.getChecksums(diffBuckets).keySet(), server);
         } finally {
-            // Remove this 'in process' flag:
             syncChecksumTasks.remove(server);
         }
+    }
+
+    /**
+     * Get the keys whose checksums differ from the ones of the responsible server, and remove the local keys
+     * it does not have any more
+     *
+     * @param localKeys local keys the server is responsible for, of the same range as checksumMap
+     */
+    private void syncChecksums(Map<String, String> checksumMap, Collection<String> localKeys, String server) {
+
+        List<String> toUpdateKeys = new ArrayList<>();
+        List<String> toRemoveKeys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : checksumMap.entrySet()) {
+            if (distroMapper.responsible(KeyBuilder.getServiceName(entry.getKey()))) {
+                // this key should not be sent from remote server:
+                Loggers.EPHEMERAL.error("receive responsible key timestamp of " + entry.getKey() + " from " + server);
+                // abort the procedure:
+                return;
+            }
+            if (!dataStore.contains(entry.getKey()) ||
+                dataStore.get(entry.getKey()).value == null ||
+                !dataStore.get(entry.getKey()).value.getChecksum().equals(entry.getValue())) {
+                toUpdateKeys.add(entry.getKey());
+            }
+        }
+
+        for (String key : localKeys) {
+            if (!checksumMap.containsKey(key)) {
+                toRemoveKeys.add(key);
+            }
+        }
+
+        Loggers.EPHEMERAL.info("to remove keys: {}, to update keys: {}, source: {}", toRemoveKeys, toUpdateKeys, server);
+
+        for (String key : toRemoveKeys) {
+            onRemove(key);
+        }
+
+        if (toUpdateKeys.isEmpty()) {
+            return;
+        }
+
+        try {
+            byte[] result = NamingProxy.getData(toUpdateKeys, server);
+            processData(result);
+        } catch (Exception e) {
+            Loggers.EPHEMERAL.error("get data from " + server + " failed!", e);
+        }
+    }
+
+    /**
+     * Apply deltas of instance lists from the responsible server. Lists the deltas can not be applied to
+     * (missed too many changes, or synced from a server without revision) are fetched as a whole from the source.
+     */
+    public void onReceiveDeltas(Map<String, List<InstanceDelta>> deltaMap, String server) {
 
+        final List<String> toFetchKeys = new ArrayList<>();
+        for (Map.Entry<String, List<InstanceDelta>> entry : deltaMap.entrySet()) {
+            String key = entry.getKey();
+            if (!KeyBuilder.matchEphemeralInstanceListKey(key)) {
+                continue;
+            }
+
+            Datum datum = dataStore.get(key);
+            Instances instances = datum == null || datum.value == null ? new Instances() : (Instances) datum.value;
+            Instances result = instances.applyDeltas(entry.getValue());
+            if (result == null) {
+                toFetchKeys.add(key);
+                continue;
+            }
+            if (result != instances) {
+                onPut(key, result);
+            }
+        }
+
+        if (toFetchKeys.isEmpty()) {
+            return;
+        }
+
+        Loggers.EPHEMERAL.info("deltas not applicable, to update keys: {}, source: {}", toFetchKeys, server);
+
+        GlobalExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    byte[] result = NamingProxy.getData(toFetchKeys, server);
+                    processData(result);
+                } catch (Exception e) {
+                    Loggers.EPHEMERAL.error("get data from " + server + " failed!", e);
+                }
+            }
+        });
     }
 
     public boolean syncAllDataFromRemote(Server server) {
@@ -266,10 +469,13 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
         }
     }
 
-    public void processData(byte[] data) throws Exception {
+    /**
+     * @return count of datums applied
+     */
+    public int processData(byte[] data) throws Exception {
         if (data.length > 0) {
             Map<String, Datum<Instances>> datumMap =
-                serializer.deserializeMap(data, Instances.class);
+                binarySerializer.deserializeMap(data, Instances.class);
 
 
             for (Map.Entry<String, Datum<Instances>> entry : datumMap.entrySet()) {
@@ -315,7 +521,9 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
                 // Update data store if listener executed successfully:
                 dataStore.put(entry.getKey(), entry.getValue());
             }
+            return datumMap.size();
         }
+        return 0;
     }
 
     @Override
@@ -0,0 +1,78 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of loading data from other servers on startup, in buckets of {@link ChecksumTree}
+ *
+ * @author nkorange
+ * @since 1.0.0
+ */
+public class LoadProgress {
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final AtomicInteger loadedBuckets = new AtomicInteger();
+
+    private final AtomicInteger loadedChunks = new AtomicInteger();
+
+    private final AtomicLong loadedDatums = new AtomicLong();
+
+    private volatile long finishTime = -1L;
+
+    public void chunkLoaded(int buckets, int datums) {
+        loadedBuckets.addAndGet(buckets);
+        loadedChunks.incrementAndGet();
+        loadedDatums.addAndGet(datums);
+    }
+
+    public void finish() {
+        finishTime = System.currentTimeMillis();
+    }
+
+    public int getTotalBuckets() {
+        return ChecksumTree.BUCKET_COUNT;
+    }
+
+    public int getLoadedBuckets() {
+        return loadedBuckets.get();
+    }
+
+    public int getLoadedChunks() {
+        return loadedChunks.get();
+    }
+
+    public long getLoadedDatums() {
+        return loadedDatums.get();
+    }
+
+    public boolean isFinished() {
+        return finishTime > 0;
+    }
+
+    public long getCostMillis() {
+        return (isFinished() ? finishTime : System.currentTimeMillis()) - startTime;
+    }
+
+    @Override
+    public String toString() {
+        return "buckets: " + getLoadedBuckets() + "/" + getTotalBuckets() + ", chunks: " + getLoadedChunks()
+            + ", datums: " + getLoadedDatums() + ", cost: " + getCostMillis() + "ms";
+    }
+}
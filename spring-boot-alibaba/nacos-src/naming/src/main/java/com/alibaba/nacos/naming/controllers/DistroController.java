@@ -16,18 +16,24 @@
 package com.alibaba.nacos.naming.controllers;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.core.utils.WebUtils;
 import com.alibaba.nacos.naming.cluster.ServerMode;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
 import com.alibaba.nacos.naming.cluster.transport.Serializer;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.ChecksumTree;
 import com.alibaba.nacos.naming.consistency.ephemeral.distro.DataStore;
 import com.alibaba.nacos.naming.consistency.ephemeral.distro.DistroConsistencyServiceImpl;
+import com.alibaba.nacos.naming.core.InstanceDelta;
 import com.alibaba.nacos.naming.core.Instances;
 import com.alibaba.nacos.naming.core.ServiceManager;
 import com.alibaba.nacos.naming.exception.NacosException;
+import com.alibaba.nacos.naming.misc.GlobalConfig;
 import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.misc.NetUtils;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import org.apache.commons.io.IOUtils;
@@ -39,7 +45,10 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -55,6 +64,12 @@ public class DistroController {
     @Autowired
     private Serializer serializer;
 
+    @Autowired
+    private BinarySerializer binarySerializer;
+
+    @Autowired
+    private GlobalConfig globalConfig;
+
     @Autowired
     private DistroConsistencyServiceImpl consistencyService;
 
@@ -70,15 +85,15 @@ public class DistroController {
     @RequestMapping(value = "/datum", method = RequestMethod.PUT)
     public String onSyncDatum(HttpServletRequest request, HttpServletResponse response) throws Exception {
 
-        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        byte[] entity = IOUtils.toByteArray(request.getInputStream());
 
-        if (StringUtils.isBlank(entity)) {
+        if (entity.length == 0) {
             Loggers.EPHEMERAL.error("[onSync] receive empty entity!");
             throw new NacosException(NacosException.INVALID_PARAM, "receive empty entity!");
         }
 
-        Map<String, Datum<Instances>> dataMap =
-            serializer.deserializeMap(entity.getBytes(), Instances.class);
+        response.setHeader(BinarySerializer.HEADER, String.valueOf(BinarySerializer.VERSION));
+        Map<String, Datum<Instances>> dataMap = binarySerializer.deserializeMap(entity, Instances.class);
 
         for (Map.Entry<String, Datum<Instances>> entry : dataMap.entrySet()) {
             if (KeyBuilder.matchEphemeralInstanceListKey(entry.getKey())) {
@@ -94,9 +109,40 @@ public class DistroController {
         return "ok";
     }
 
+    @RequestMapping(value = "/delta", method = RequestMethod.PUT)
+    public String onSyncDelta(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        String source = WebUtils.required(request, "source");
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+
+        if (StringUtils.isBlank(entity)) {
+            Loggers.EPHEMERAL.error("[onSync] receive empty entity!");
+            throw new NacosException(NacosException.INVALID_PARAM, "receive empty entity!");
+        }
+
+        response.setHeader(BinarySerializer.HEADER, String.valueOf(BinarySerializer.VERSION));
+        Map<String, List<InstanceDelta>> deltaMap =
+            serializer.deserialize(entity.getBytes(), new TypeReference<Map<String, List<InstanceDelta>>>() {
+        });
+
+        for (String key : deltaMap.keySet()) {
+            if (KeyBuilder.matchEphemeralInstanceListKey(key)) {
+                String namespaceId = KeyBuilder.getNamespace(key);
+                String serviceName = KeyBuilder.getServiceName(key);
+                if (!serviceManager.containService(namespaceId, serviceName)
+                    && switchDomain.isDefaultInstanceEphemeral()) {
+                    serviceManager.createEmptyService(namespaceId, serviceName, true);
+                }
+            }
+        }
+        consistencyService.onReceiveDeltas(deltaMap, source);
+        return "ok";
+    }
+
     @RequestMapping(value = "/checksum", method = RequestMethod.PUT)
     public String syncChecksum(HttpServletRequest request, HttpServletResponse response) throws Exception {
         String source = WebUtils.required(request, "source");
+        response.setHeader(BinarySerializer.HEADER, String.valueOf(BinarySerializer.VERSION));
         String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
         Map<String, String> dataMap =
             serializer.deserialize(entity.getBytes(), new TypeReference<Map<String, String>>() {
@@ -105,6 +151,31 @@ public class DistroController {
         return "ok";
     }
 
+    @RequestMapping(value = "/checksum/tree", method = RequestMethod.PUT)
+    public String syncChecksumTree(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        String source = WebUtils.required(request, "source");
+        response.setHeader(BinarySerializer.HEADER, String.valueOf(BinarySerializer.VERSION));
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        JSONObject tree = JSON.parseObject(entity);
+        consistencyService.onReceiveChecksumTree(tree.getString("root"),
+            tree.getJSONArray("buckets").toJavaList(String.class), source);
+        return "ok";
+    }
+
+    @RequestMapping(value = "/checksums", method = RequestMethod.GET)
+    public void getChecksums(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        String buckets = JSON.parseObject(entity).getString("buckets");
+        String bucketSplitter = ",";
+        List<Integer> bucketIndexes = new ArrayList<>();
+        for (String bucket : buckets.split(bucketSplitter)) {
+            bucketIndexes.add(Integer.parseInt(bucket));
+        }
+        Map<String, String> checksums = dataStore.getChecksumTree(NetUtils.localServer()).getChecksums(bucketIndexes);
+        response.getWriter().write(new String(serializer.serialize(checksums), "UTF-8"));
+    }
+
     @RequestMapping(value = "/datum", method = RequestMethod.GET)
     public void get(HttpServletRequest request, HttpServletResponse response) throws Exception {
 
@@ -115,11 +186,45 @@ public class DistroController {
         for (String key : keys.split(keySplitter)) {
             datumMap.put(key, consistencyService.get(key));
         }
-        response.getWriter().write(new String(serializer.serialize(datumMap), "UTF-8"));
+        writeDatums(datumMap, request, response);
     }
 
     @RequestMapping(value = "/datums", method = RequestMethod.GET)
     public void getAllDatums(HttpServletRequest request, HttpServletResponse response) throws Exception {
-        response.getWriter().write(new String(serializer.serialize(dataStore.getDataMap()), "UTF-8"));
+        writeDatums(dataStore.getDataMap(), request, response);
+    }
+
+    /**
+     * Get datums of whole checksum tree buckets from the given one on, at least batchSyncKeyCount of them unless
+     * the end bucket is reached. The bucket to get next is told by {@link UtilsAndCommons#DISTRO_NEXT_BUCKET_HEADER}.
+     */
+    @RequestMapping(value = "/datums/chunk", method = RequestMethod.GET)
+    public void getDatumChunk(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        JSONObject params = JSON.parseObject(entity);
+        int fromBucket = params.getIntValue("from");
+        int toBucket = Math.min(params.getIntValue("to"), ChecksumTree.BUCKET_COUNT);
+        if (fromBucket < 0 || fromBucket >= toBucket) {
+            throw new NacosException(NacosException.INVALID_PARAM, "invalid bucket range: " + entity);
+        }
+
+        int end = dataStore.getChunkEnd(fromBucket, toBucket, globalConfig.getBatchSyncKeyCount());
+        response.setHeader(UtilsAndCommons.DISTRO_NEXT_BUCKET_HEADER, String.valueOf(end));
+        writeDatums(dataStore.getDataMap(fromBucket, end), request, response);
+    }
+
+    /**
+     * Write binary data if the requesting server told it can read it, otherwise JSON
+     */
+    private void writeDatums(Map<String, Datum> datumMap, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        response.setHeader(BinarySerializer.HEADER, String.valueOf(BinarySerializer.VERSION));
+        if (globalConfig.isBinarySerializer() && BinarySerializer.accepts(request.getHeader(BinarySerializer.HEADER))) {
+            response.setContentType("application/octet-stream");
+            response.getOutputStream().write(binarySerializer.serialize(datumMap));
+            return;
+        }
+        response.getWriter().write(new String(serializer.serialize(datumMap), "UTF-8"));
     }
 }
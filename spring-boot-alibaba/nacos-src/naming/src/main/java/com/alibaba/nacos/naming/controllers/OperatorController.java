@@ -23,6 +23,7 @@ import com.alibaba.nacos.core.utils.SystemUtils;
 import com.alibaba.nacos.core.utils.WebUtils;
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.ServerStatusManager;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.DistroConsistencyServiceImpl;
 import com.alibaba.nacos.naming.consistency.persistent.raft.RaftCore;
 import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Service;
@@ -77,6 +78,9 @@ public class OperatorController {
     @Autowired
     private RaftCore raftCore;
 
+    @Autowired
+    private DistroConsistencyServiceImpl distroConsistencyService;
+
     @RequestMapping("/push/state")
     public JSONObject pushState(HttpServletRequest request) {
 
@@ -184,6 +188,7 @@ public class OperatorController {
 
         if (StringUtils.equals(SwitchEntry.ACTION_VIEW, action)) {
             result.put("status", serverListManager.getDistroConfig());
+            result.put("load", distroConsistencyService.getLoadProgress());
             return result;
         }
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Order-independent checksum of a set: the sum modulo 2^128 of the 128-bit MD5 of each member.
+ * <p>
+ * Adding, removing or changing a member costs O(1) no matter how large the set is, and two sets with the same
+ * members always have the same checksum without being sorted first.
+ *
+ * @author nkorange
+ * @see Instance#getChecksumHash()
+ */
+public class Checksum {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 is not supported", e);
+            }
+        }
+    };
+
+    private static final int LONG_BYTES = Long.BYTES;
+
+    private static final int HEX_DIGITS_PER_LONG = Long.SIZE / 4;
+
+    private long high;
+
+    private long low;
+
+    /**
+     * MD5 of a string as {high 64 bits, low 64 bits}
+     */
+    public static long[] md5(String content) {
+        byte[] digest = MD5.get().digest(content.getBytes(UTF_8));
+        long high = 0L;
+        long low = 0L;
+        for (int i = 0; i < LONG_BYTES; i++) {
+            high = (high << Byte.SIZE) | (digest[i] & 0xFF);
+            low = (low << Byte.SIZE) | (digest[i + LONG_BYTES] & 0xFF);
+        }
+        return new long[]{high, low};
+    }
+
+    public synchronized void add(long[] hash) {
+        long sum = low + hash[1];
+        high += hash[0] + (Long.compareUnsigned(sum, low) < 0 ? 1L : 0L);
+        low = sum;
+    }
+
+    public synchronized void subtract(long[] hash) {
+        long difference = low - hash[1];
+        high -= hash[0] + (Long.compareUnsigned(low, hash[1]) < 0 ? 1L : 0L);
+        low = difference;
+    }
+
+    public void add(Checksum checksum) {
+        add(checksum.get());
+    }
+
+    public synchronized long[] get() {
+        return new long[]{high, low};
+    }
+
+    /**
+     * @return 32 hex digits
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(HEX_DIGITS_PER_LONG * 2);
+        appendHex(sb, high);
+        appendHex(sb, low);
+        return sb.toString();
+    }
+
+    private static void appendHex(StringBuilder sb, long value) {
+        String hex = Long.toHexString(value);
+        for (int i = hex.length(); i < HEX_DIGITS_PER_LONG; i++) {
+            sb.append('0');
+        }
+        sb.append(hex);
+    }
+}
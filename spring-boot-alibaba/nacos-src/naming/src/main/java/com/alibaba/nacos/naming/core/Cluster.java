@@ -45,11 +45,23 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
     @JSONField(serialize = false)
     private HealthCheckTask checkTask;
 
+    /**
+     * Instances keyed by themselves, so that a delta can replace an instance in place
+     */
     @JSONField(serialize = false)
-    private Set<Instance> persistentInstances = new HashSet<>();
+    private volatile Map<Instance, Instance> persistentInstances = new ConcurrentHashMap<>();
 
     @JSONField(serialize = false)
-    private Set<Instance> ephemeralInstances = new HashSet<>();
+    private volatile Map<Instance, Instance> ephemeralInstances = new ConcurrentHashMap<>();
+
+    /**
+     * Checksums of the instances above, updated by the instances themselves when they change
+     */
+    @JSONField(serialize = false)
+    private volatile Checksum persistentChecksum = new Checksum();
+
+    @JSONField(serialize = false)
+    private volatile Checksum ephemeralChecksum = new Checksum();
 
     @JSONField(serialize = false)
     private Service service;
@@ -81,13 +93,13 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
 
     public List<Instance> allIPs() {
         List<Instance> allInstances = new ArrayList<>();
-        allInstances.addAll(persistentInstances);
-        allInstances.addAll(ephemeralInstances);
+        allInstances.addAll(persistentInstances.values());
+        allInstances.addAll(ephemeralInstances.values());
         return allInstances;
     }
 
     public List<Instance> allIPs(boolean ephemeral) {
-        return ephemeral ? new ArrayList<>(ephemeralInstances) : new ArrayList<>(persistentInstances);
+        return ephemeral ? new ArrayList<>(ephemeralInstances.values()) : new ArrayList<>(persistentInstances.values());
     }
 
     public void init() {
@@ -125,7 +137,8 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
 
         cluster.setHealthChecker(getHealthChecker().clone());
         cluster.setService(getService());
-        cluster.persistentInstances = new HashSet<Instance>();
+        cluster.persistentInstances = new ConcurrentHashMap<>(persistentInstances.size());
+        cluster.persistentChecksum = new Checksum();
         cluster.checkTask = null;
         cluster.metadata = new HashMap<>(metadata);
         return cluster;
@@ -133,11 +146,12 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
 
     public void updateIPs(List<Instance> ips, boolean ephemeral) {
 
-        Set<Instance> toUpdateInstances = ephemeral ? ephemeralInstances : persistentInstances;
+        Map<Instance, Instance> toUpdateInstances = ephemeral ? ephemeralInstances : persistentInstances;
+        Checksum oldChecksum = ephemeral ? ephemeralChecksum : persistentChecksum;
 
         HashMap<String, Instance> oldIPMap = new HashMap<>(toUpdateInstances.size());
 
-        for (Instance ip : toUpdateInstances) {
+        for (Instance ip : toUpdateInstances.values()) {
             oldIPMap.put(ip.getDatumKey(), ip);
         }
 
@@ -184,16 +198,89 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
 
             for (Instance ip : deadIPs) {
                 HealthCheckStatus.remv(ip);
+                ip.detach(oldChecksum);
             }
         }
 
-        toUpdateInstances = new HashSet<>(ips);
+        toUpdateInstances = new ConcurrentHashMap<>(ips.size());
+        Checksum checksum = new Checksum();
+        for (Instance ip : ips) {
+            toUpdateInstances.put(ip, ip);
+            ip.attach(checksum);
+        }
 
         if (ephemeral) {
             ephemeralInstances = toUpdateInstances;
+            ephemeralChecksum = checksum;
         } else {
             persistentInstances = toUpdateInstances;
+            persistentChecksum = checksum;
+        }
+    }
+
+    /**
+     * Apply a delta of this cluster in place instead of rebuilding the whole instance set. Replaced instances
+     * have taken over the health status in {@link Instances#apply(String, List)}.
+     *
+     * @param action {@link UtilsAndCommons#UPDATE_INSTANCE_ACTION_ADD} or
+     *               {@link UtilsAndCommons#UPDATE_INSTANCE_ACTION_REMOVE}
+     */
+    public void applyDelta(String action, List<Instance> ips, boolean ephemeral) {
+
+        Map<Instance, Instance> toUpdateInstances = ephemeral ? ephemeralInstances : persistentInstances;
+        Checksum checksum = ephemeral ? ephemeralChecksum : persistentChecksum;
+
+        if (UtilsAndCommons.UPDATE_INSTANCE_ACTION_REMOVE.equals(action)) {
+            List<Instance> deadIPs = new ArrayList<>();
+            for (Instance ip : ips) {
+                Instance oldIP = toUpdateInstances.remove(ip);
+                if (oldIP != null) {
+                    HealthCheckStatus.remv(oldIP);
+                    oldIP.detach(checksum);
+                    deadIPs.add(oldIP);
+                }
+            }
+            if (deadIPs.size() > 0) {
+                Loggers.EVT_LOG.info("{} {SYNC} {IP-DEAD} cluster: {}, dead ips size: {}, content: {}",
+                    getService().getName(), getName(), deadIPs.size(), deadIPs.toString());
+            }
+            return;
         }
+
+        List<Instance> newIPs = new ArrayList<>();
+        for (Instance ip : ips) {
+            Instance oldIP = toUpdateInstances.put(ip, ip);
+            if (oldIP != ip) {
+                if (oldIP != null) {
+                    oldIP.detach(checksum);
+                }
+                ip.attach(checksum);
+            }
+            if (oldIP == null) {
+                HealthCheckStatus.reset(ip);
+                newIPs.add(ip);
+                continue;
+            }
+
+            if (oldIP != ip && !oldIP.toString().equals(ip.toString())) {
+                Loggers.EVT_LOG.info("{} {SYNC} {IP-UPDATED} {}->{}", getService().getName(), oldIP.toString(), ip.toString());
+            }
+        }
+        if (newIPs.size() > 0) {
+            Loggers.EVT_LOG.info("{} {SYNC} {IP-NEW} cluster: {}, new ips size: {}, content: {}",
+                getService().getName(), getName(), newIPs.size(), newIPs.toString());
+        }
+    }
+
+    /**
+     * Get the checksum of all instances of this cluster, which follows every change of them in O(1)
+     */
+    @JSONField(serialize = false)
+    public Checksum getChecksum() {
+        Checksum checksum = new Checksum();
+        checksum.add(persistentChecksum);
+        checksum.add(ephemeralChecksum);
+        return checksum;
     }
 
     public List<Instance> updatedIPs(Collection<Instance> a, Collection<Instance> b) {
@@ -327,7 +414,7 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
     }
 
     public boolean contains(Instance ip) {
-        return persistentInstances.contains(ip) || ephemeralInstances.contains(ip);
+        return persistentInstances.containsKey(ip) || ephemeralInstances.containsKey(ip);
     }
 
     public void validate() {
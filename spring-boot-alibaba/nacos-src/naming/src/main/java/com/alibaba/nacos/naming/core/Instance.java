@@ -22,6 +22,10 @@ import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import org.apache.commons.lang3.math.NumberUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,6 +52,16 @@ public class Instance extends com.alibaba.nacos.api.naming.pojo.Instance impleme
 
     private String app;
 
+    /**
+     * MD5 of the fields in checksums, calculated on first use and updated by the setters of these fields
+     */
+    private transient volatile long[] checksumHash;
+
+    /**
+     * Checksum of the cluster holding this instance, kept up to date when this instance changes
+     */
+    private transient volatile Checksum clusterChecksum;
+
     public static final Pattern IP_PATTERN
         = Pattern.compile("(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}):?(\\d{1,5})?");
 
@@ -157,6 +171,139 @@ public class Instance extends com.alibaba.nacos.api.naming.pojo.Instance impleme
         return instance;
     }
 
+    @Override
+    public void setIp(String ip) {
+        super.setIp(ip);
+        checksumChanged();
+    }
+
+    @Override
+    public void setPort(int port) {
+        super.setPort(port);
+        checksumChanged();
+    }
+
+    @Override
+    public void setWeight(double weight) {
+        super.setWeight(weight);
+        checksumChanged();
+    }
+
+    @Override
+    public void setHealthy(boolean healthy) {
+        super.setHealthy(healthy);
+        checksumChanged();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        checksumChanged();
+    }
+
+    @Override
+    public void setClusterName(String clusterName) {
+        super.setClusterName(clusterName);
+        checksumChanged();
+    }
+
+    @Override
+    public void setMetadata(Map<String, String> metadata) {
+        super.setMetadata(metadata);
+        checksumChanged();
+    }
+
+    /**
+     * Get the MD5 of the fields of this instance that are part of checksums, see {@link Checksum}
+     */
+    @JSONField(serialize = false)
+    public long[] getChecksumHash() {
+        long[] hash = checksumHash;
+        if (hash == null) {
+            synchronized (this) {
+                if (checksumHash == null) {
+                    checksumHash = Checksum.md5(checksumString());
+                }
+                hash = checksumHash;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Add this instance to the checksum of a cluster, moving it out of the one it was in
+     */
+    void attach(Checksum checksum) {
+        Checksum old;
+        long[] hash;
+        synchronized (this) {
+            old = clusterChecksum;
+            if (old == checksum) {
+                return;
+            }
+            clusterChecksum = checksum;
+            hash = getChecksumHash();
+        }
+        if (old != null) {
+            old.subtract(hash);
+        }
+        checksum.add(hash);
+    }
+
+    /**
+     * Remove this instance from the checksum of a cluster if it is in it
+     */
+    void detach(Checksum checksum) {
+        long[] hash;
+        synchronized (this) {
+            if (clusterChecksum != checksum) {
+                return;
+            }
+            clusterChecksum = null;
+            hash = getChecksumHash();
+        }
+        checksum.subtract(hash);
+    }
+
+    private void checksumChanged() {
+        long[] oldHash;
+        long[] newHash;
+        Checksum checksum;
+        synchronized (this) {
+            oldHash = checksumHash;
+            if (oldHash == null) {
+                // never used, nothing to update:
+                return;
+            }
+            newHash = Checksum.md5(checksumString());
+            if (newHash[0] == oldHash[0] && newHash[1] == oldHash[1]) {
+                return;
+            }
+            checksumHash = newHash;
+            checksum = clusterChecksum;
+        }
+        if (checksum != null) {
+            checksum.subtract(oldHash);
+            checksum.add(newHash);
+        }
+    }
+
+    private String checksumString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getIp()).append(":").append(getPort()).append(SPLITER).append(getWeight())
+            .append(SPLITER).append(isHealthy()).append(SPLITER).append(isEnabled())
+            .append(SPLITER).append(getClusterName()).append(SPLITER);
+        Map<String, String> metadata = getMetadata();
+        if (metadata != null && !metadata.isEmpty()) {
+            List<String> keys = new ArrayList<>(metadata.keySet());
+            Collections.sort(keys);
+            for (String key : keys) {
+                sb.append(key).append(":").append(metadata.get(key)).append(",");
+            }
+        }
+        return sb.toString();
+    }
+
     public String toIPAddr() {
         return getIp() + ":" + getPort();
     }
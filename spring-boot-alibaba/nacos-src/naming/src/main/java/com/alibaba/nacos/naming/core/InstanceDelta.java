@@ -0,0 +1,90 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import com.alibaba.fastjson.JSON;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One change of an instance list: instances added (or replaced) or removed, taking the list
+ * from revision {@code baseRevision} to revision {@code revision}.
+ *
+ * @author nkorange
+ * @see Instances#apply(String, List)
+ */
+public class InstanceDelta {
+
+    private long baseRevision;
+
+    private long revision;
+
+    /**
+     * {@link com.alibaba.nacos.naming.misc.UtilsAndCommons#UPDATE_INSTANCE_ACTION_ADD} or
+     * {@link com.alibaba.nacos.naming.misc.UtilsAndCommons#UPDATE_INSTANCE_ACTION_REMOVE}
+     */
+    private String action;
+
+    private List<Instance> instances = new ArrayList<>();
+
+    public InstanceDelta() {
+    }
+
+    public InstanceDelta(long baseRevision, long revision, String action, List<Instance> instances) {
+        this.baseRevision = baseRevision;
+        this.revision = revision;
+        this.action = action;
+        this.instances = instances;
+    }
+
+    public long getBaseRevision() {
+        return baseRevision;
+    }
+
+    public void setBaseRevision(long baseRevision) {
+        this.baseRevision = baseRevision;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public List<Instance> getInstances() {
+        return instances;
+    }
+
+    public void setInstances(List<Instance> instances) {
+        this.instances = instances;
+    }
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this);
+    }
+}
@@ -17,40 +17,174 @@ package com.alibaba.nacos.naming.core;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.annotation.JSONField;
-import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.pojo.Record;
-import org.apache.commons.lang3.RandomStringUtils;
-import org.apache.commons.lang3.StringUtils;
 
-import java.math.BigInteger;
-import java.nio.charset.Charset;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Package of instance list
+ * <p>
+ * An instance list is an immutable snapshot once published. Changes are made by {@link #apply(String, List)},
+ * which returns a new snapshot with a new random revision and remembers the last {@link #MAX_DELTA_HISTORY}
+ * deltas, so that listeners and Distro peers holding an earlier revision can catch up by applying only the
+ * changed instances instead of diffing the whole list. Revisions are positive, 0 means an empty list
+ * with no history.
  *
  * @author nkorange
  * @since 1.0.0
  */
 public class Instances implements Record {
 
+    /**
+     * Max count of deltas kept in a snapshot
+     */
+    public static final int MAX_DELTA_HISTORY = 16;
+
     private String cachedChecksum;
 
     private long lastCalculateTime = 0L;
 
     private List<Instance> instanceList = new ArrayList<>();
 
+    private long revision = 0L;
+
+    /**
+     * Deltas that lead to this revision, oldest first
+     */
+    private List<InstanceDelta> deltas = Collections.emptyList();
+
+    /**
+     * Instances by datum key, built on first use
+     */
+    private volatile Map<String, Instance> instanceMap;
+
     public List<Instance> getInstanceList() {
         return instanceList;
     }
 
     public void setInstanceList(List<Instance> instanceList) {
         this.instanceList = instanceList;
+        this.instanceMap = null;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    @JSONField(serialize = false)
+    public List<InstanceDelta> getDeltas() {
+        return deltas;
+    }
+
+    /**
+     * Get the deltas from a former revision to this one
+     *
+     * @param since revision already applied
+     * @return deltas to apply in order, empty if already up to date, or null if the history does not reach back
+     * to {@code since} and the whole list should be used instead. A list without revision is always used as a whole.
+     */
+    public List<InstanceDelta> deltasSince(long since) {
+        if (since == revision && revision != 0L) {
+            return Collections.emptyList();
+        }
+        for (int i = 0; i < deltas.size(); i++) {
+            if (deltas.get(i).getBaseRevision() == since) {
+                return deltas.subList(i, deltas.size());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add (or replace) or remove instances by datum key and return the result as a new snapshot.
+     * A replaced instance keeps the health status of the old one unless it is marked.
+     *
+     * @param action {@link UtilsAndCommons#UPDATE_INSTANCE_ACTION_ADD} or
+     *               {@link UtilsAndCommons#UPDATE_INSTANCE_ACTION_REMOVE}
+     */
+    public Instances apply(String action, List<Instance> ips) {
+        long newRevision;
+        do {
+            newRevision = ThreadLocalRandom.current().nextLong(1L, Long.MAX_VALUE);
+        } while (newRevision == revision);
+        return apply(new InstanceDelta(revision, newRevision, action, ips));
+    }
+
+    /**
+     * Replay deltas received from the server responsible for this list
+     *
+     * @return the new snapshot, this if already up to date, or null if the deltas can not be applied to this
+     * revision
+     */
+    public Instances applyDeltas(List<InstanceDelta> received) {
+        // a list without revision comes from a server of older version, its content is unknown to the sender:
+        boolean unknownToSender = revision == 0L && !instanceList.isEmpty();
+        if (received.isEmpty() || unknownToSender) {
+            return null;
+        }
+        if (received.get(received.size() - 1).getRevision() == revision) {
+            return this;
+        }
+        Instances result = null;
+        for (InstanceDelta delta : received) {
+            if (result == null && delta.getBaseRevision() == revision) {
+                result = this;
+            }
+            if (result != null) {
+                result = result.apply(delta);
+            }
+        }
+        return result;
+    }
+
+    private Instances apply(InstanceDelta delta) {
+        Map<String, Instance> map = new LinkedHashMap<>(getInstanceMap());
+        boolean remove = UtilsAndCommons.UPDATE_INSTANCE_ACTION_REMOVE.equals(delta.getAction());
+        for (Instance ip : delta.getInstances()) {
+            if (remove) {
+                map.remove(ip.getDatumKey());
+                continue;
+            }
+            Instance old = map.put(ip.getDatumKey(), ip);
+            if (old != null && !ip.isMarked()) {
+                ip.setHealthy(old.isHealthy());
+            }
+        }
+
+        List<InstanceDelta> history = new ArrayList<>(MAX_DELTA_HISTORY);
+        for (int i = Math.max(0, deltas.size() + 1 - MAX_DELTA_HISTORY); i < deltas.size(); i++) {
+            history.add(deltas.get(i));
+        }
+        history.add(delta);
+
+        Instances result = new Instances();
+        result.instanceList = new ArrayList<>(map.values());
+        result.instanceMap = map;
+        result.revision = delta.getRevision();
+        result.deltas = history;
+        return result;
+    }
+
+    private Map<String, Instance> getInstanceMap() {
+        Map<String, Instance> map = instanceMap;
+        if (map == null) {
+            map = new LinkedHashMap<>(instanceList.size() * 4 / 3 + 1);
+            for (Instance instance : instanceList) {
+                map.put(instance.getDatumKey(), instance);
+            }
+            instanceMap = map;
+        }
+        return map;
     }
 
     @Override
@@ -69,42 +203,17 @@ public class Instances implements Record {
         return cachedChecksum;
     }
 
+    /**
+     * Sum the checksums cached by the instances, see {@link Checksum}. Instances are shared by snapshots of the
+     * list, so the sum is not kept up to date by them like the one of a {@link Cluster}, but changing an instance
+     * only costs hashing that instance again.
+     */
     private void recalculateChecksum() {
-        StringBuilder sb = new StringBuilder();
-        Collections.sort(instanceList);
+        Checksum checksum = new Checksum();
         for (Instance ip : instanceList) {
-            String string = ip.getIp() + ":" + ip.getPort() + "_" + ip.getWeight() + "_"
-                + ip.isHealthy() + "_" + ip.isEnabled() + "_" + ip.getClusterName() + "_" + convertMap2String(ip.getMetadata());
-            sb.append(string);
-            sb.append(",");
-        }
-        MessageDigest md5;
-        try {
-            md5 = MessageDigest.getInstance("MD5");
-            cachedChecksum =
-                new BigInteger(1, md5.digest((sb.toString()).getBytes(Charset.forName("UTF-8")))).toString(16);
-        } catch (NoSuchAlgorithmException e) {
-            Loggers.SRV_LOG.error("error while calculating checksum(md5) for instances", e);
-            cachedChecksum = RandomStringUtils.randomAscii(32);
+            checksum.add(ip.getChecksumHash());
         }
+        cachedChecksum = checksum.toString();
         lastCalculateTime = System.currentTimeMillis();
     }
-
-    public String convertMap2String(Map<String, String> map) {
-
-        if (map == null || map.isEmpty()) {
-            return StringUtils.EMPTY;
-        }
-
-        StringBuilder sb = new StringBuilder();
-        List<String> keys = new ArrayList<>(map.keySet());
-        Collections.sort(keys);
-        for (String key : keys) {
-            sb.append(key);
-            sb.append(":");
-            sb.append(map.get(key));
-            sb.append(",");
-        }
-        return sb.toString();
-    }
 }
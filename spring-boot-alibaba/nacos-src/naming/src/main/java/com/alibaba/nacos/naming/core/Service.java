@@ -32,12 +32,8 @@ import com.alibaba.nacos.naming.selector.NoneSelector;
 import com.alibaba.nacos.naming.selector.Selector;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.ListUtils;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import java.math.BigInteger;
-import java.nio.charset.Charset;
-import java.security.MessageDigest;
 import java.util.*;
 
 /**
@@ -71,7 +67,26 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     private volatile long lastModifiedMillis = 0L;
 
-    private volatile String checksum;
+    /**
+     * MD5 of {@link #getServiceString()}, instances have checksums of their own
+     */
+    private volatile long[] metaChecksum;
+
+    /**
+     * Revisions of the instance lists applied to clusters, -1 to apply the whole list on next change
+     */
+    @JSONField(serialize = false)
+    private volatile long ephemeralRevision = 0L;
+
+    @JSONField(serialize = false)
+    private volatile long persistentRevision = 0L;
+
+    /**
+     * Serializes the changes of the instance lists, see {@link ServiceManager#addInstance}. It's not the monitor of
+     * the service since the lock is held while the change is written to the consistency service.
+     */
+    @JSONField(serialize = false)
+    private final Object instanceChangeLock = new Object();
 
     /**
      * TODO set customized push expire time:
@@ -87,6 +102,11 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         super(name);
     }
 
+    @JSONField(serialize = false)
+    public Object getInstanceChangeLock() {
+        return instanceChangeLock;
+    }
+
     @JSONField(serialize = false)
     public PushService getPushService() {
         return SpringContext.getAppContext().getBean(PushService.class);
@@ -152,9 +172,40 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
     @Override
     public void onChange(String key, Instances value) throws Exception {
 
-        Loggers.SRV_LOG.info("[NACOS-RAFT] datum is changed, key: {}, value: {}", key, value);
+        boolean ephemeral = KeyBuilder.matchEphemeralInstanceListKey(key);
+
+        synchronized (this) {
+            List<InstanceDelta> deltas = value.deltasSince(ephemeral ? ephemeralRevision : persistentRevision);
+
+            if (deltas != null && deltas.isEmpty()) {
+                // already applied:
+                return;
+            }
+
+            if (deltas != null) {
+                Loggers.SRV_LOG.info("[NACOS-RAFT] datum is changed, key: {}, deltas: {}", key, deltas);
+                for (InstanceDelta delta : deltas) {
+                    checkInstances(key, delta.getInstances());
+                }
+                applyDeltas(deltas, ephemeral);
+            } else {
+                Loggers.SRV_LOG.info("[NACOS-RAFT] datum is changed, key: {}, value: {}", key, value);
+                checkInstances(key, value.getInstanceList());
+                updateIPs(value.getInstanceList(), ephemeral);
+            }
+
+            if (ephemeral) {
+                ephemeralRevision = value.getRevision();
+            } else {
+                persistentRevision = value.getRevision();
+            }
+        }
 
-        for (Instance instance : value.getInstanceList()) {
+        recalculateChecksum();
+    }
+
+    private void checkInstances(String key, List<Instance> instances) {
+        for (Instance instance : instances) {
 
             if (instance == null) {
                 // Reject this abnormal instance list:
@@ -169,10 +220,6 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
                 instance.setWeight(0.01D);
             }
         }
-
-        updateIPs(value.getInstanceList(), KeyBuilder.matchEphemeralInstanceListKey(key));
-
-        recalculateChecksum();
     }
 
     @Override
@@ -252,6 +299,46 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     }
 
+    /**
+     * Apply only the changed instances to clusters, the deltas are continuous from the revision last applied
+     */
+    private void applyDeltas(List<InstanceDelta> deltas, boolean ephemeral) {
+        for (InstanceDelta delta : deltas) {
+            Map<String, List<Instance>> ipMap = new HashMap<>(4);
+            for (Instance instance : delta.getInstances()) {
+                if (StringUtils.isEmpty(instance.getClusterName())) {
+                    instance.setClusterName(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+                }
+
+                if (!clusterMap.containsKey(instance.getClusterName())) {
+                    Loggers.SRV_LOG.warn("cluster: {} not found, ip: {}, will create new cluster with default configuration.",
+                        instance.getClusterName(), instance.toJSON());
+                    Cluster cluster = new Cluster(instance.getClusterName());
+                    cluster.setService(this);
+                    cluster.init();
+                    getClusterMap().put(instance.getClusterName(), cluster);
+                }
+
+                List<Instance> clusterIPs = ipMap.get(instance.getClusterName());
+                if (clusterIPs == null) {
+                    clusterIPs = new ArrayList<>();
+                    ipMap.put(instance.getClusterName(), clusterIPs);
+                }
+                clusterIPs.add(instance);
+            }
+
+            for (Map.Entry<String, List<Instance>> entry : ipMap.entrySet()) {
+                clusterMap.get(entry.getKey()).applyDelta(delta.getAction(), entry.getValue(), ephemeral);
+            }
+        }
+
+        setLastModifiedMillis(System.currentTimeMillis());
+        getPushService().serviceChanged(namespaceId, getName());
+
+        Loggers.EVT_LOG.info("[IP-UPDATED] namespace: {}, service: {}, deltas: {}",
+            getNamespaceId(), getName(), deltas.size());
+    }
+
     public void init() {
 
         HealthCheckReactor.scheduleCheck(clientBeatCheckTask);
@@ -320,20 +407,6 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
         serviceObject.put("name", service.getName());
 
-        List<Instance> ips = service.allIPs();
-        int invalidIPCount = 0;
-        int ipCount = 0;
-        for (Instance ip : ips) {
-            if (!ip.isHealthy()) {
-                invalidIPCount++;
-            }
-
-            ipCount++;
-        }
-
-        serviceObject.put("ipCount", ipCount);
-        serviceObject.put("invalidIPCount", invalidIPCount);
-
         serviceObject.put("owners", service.getOwners());
         serviceObject.put("token", service.getToken());
 
@@ -428,50 +501,34 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         recalculateChecksum();
     }
 
+    /**
+     * Get the checksum of the service meta and all instances. Each instance keeps its part up to date when it is
+     * added, removed or changed, so this costs only a few additions per cluster.
+     */
     public String getChecksum() {
-        if (StringUtils.isEmpty(checksum)) {
+        long[] meta = metaChecksum;
+        if (meta == null) {
             recalculateChecksum();
+            meta = metaChecksum;
         }
 
-        return checksum;
+        Checksum checksum = new Checksum();
+        checksum.add(meta);
+        for (Cluster cluster : clusterMap.values()) {
+            checksum.add(cluster.getChecksum());
+        }
+        return checksum.toString();
     }
 
-    public synchronized void recalculateChecksum() {
-        List<Instance> ips = allIPs();
-
-        StringBuilder ipsString = new StringBuilder();
-        ipsString.append(getServiceString());
-
+    /**
+     * Recalculate the checksum of the service meta, needed after the service or its clusters are changed
+     */
+    public void recalculateChecksum() {
+        String serviceString = getServiceString();
         if (Loggers.SRV_LOG.isDebugEnabled()) {
-            Loggers.SRV_LOG.debug("service to json: " + getServiceString());
-        }
-
-        if (CollectionUtils.isNotEmpty(ips)) {
-            Collections.sort(ips);
-        }
-
-        for (Instance ip : ips) {
-            String string = ip.getIp() + ":" + ip.getPort() + "_" + ip.getWeight() + "_"
-                + ip.isHealthy() + "_" + ip.getClusterName();
-            ipsString.append(string);
-            ipsString.append(",");
-        }
-
-        try {
-            String result;
-            try {
-                MessageDigest md5 = MessageDigest.getInstance("MD5");
-                result = new BigInteger(1, md5.digest((ipsString.toString()).getBytes(Charset.forName("UTF-8")))).toString(16);
-            } catch (Exception e) {
-                Loggers.SRV_LOG.error("[NACOS-DOM] error while calculating checksum(md5)", e);
-                result = RandomStringUtils.randomAscii(32);
-            }
-
-            checksum = result;
-        } catch (Exception e) {
-            Loggers.SRV_LOG.error("[NACOS-DOM] error while calculating checksum(md5)", e);
-            checksum = RandomStringUtils.randomAscii(32);
+            Loggers.SRV_LOG.debug("service to json: " + serviceString);
         }
+        metaChecksum = Checksum.md5(serviceString);
     }
 
     private void updateOrAddCluster(Collection<Cluster> clusters) {
@@ -497,6 +554,11 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
             cluster.destroy();
         }
+        if (!deadClusters.isEmpty()) {
+            // instances of dead clusters are dropped, rebuild from the whole list on next change:
+            oldDom.ephemeralRevision = -1L;
+            oldDom.persistentRevision = -1L;
+        }
     }
 
     public void addCluster(Cluster cluster) {
@@ -413,18 +413,24 @@ public class ServiceManager implements RecordListener<Service> {
         addInstance(namespaceId, serviceName, instance.isEphemeral(), instance);
     }
 
+    /**
+     * Add or update instances. The new instance list is derived from the current one by a delta, so that
+     * listeners and Distro peers only need to apply the changed instances.
+     * <p>
+     * Changes of the same service are serialized, otherwise concurrent changes derived from the same list
+     * overwrite each other.
+     */
     public void addInstance(String namespaceId, String serviceName, boolean ephemeral, Instance... ips) throws NacosException {
 
         String key = KeyBuilder.buildInstanceListKey(namespaceId, serviceName, ephemeral);
 
         Service service = getService(namespaceId, serviceName);
 
-        List<Instance> instanceList = addIpAddresses(service, ephemeral, ips);
+        synchronized (service.getInstanceChangeLock()) {
+            Instances instances = addIpAddresses(service, ephemeral, ips);
 
-        Instances instances = new Instances();
-        instances.setInstanceList(instanceList);
-
-        consistencyService.put(key, instances);
+            consistencyService.put(key, instances);
+        }
     }
 
     public void removeInstance(String namespaceId, String serviceName, boolean ephemeral, Instance... ips) throws NacosException {
@@ -433,12 +439,11 @@ public class ServiceManager implements RecordListener<Service> {
 
         Service service = getService(namespaceId, serviceName);
 
-        List<Instance> instanceList = substractIpAddresses(service, ephemeral, ips);
-
-        Instances instances = new Instances();
-        instances.setInstanceList(instanceList);
+        synchronized (service.getInstanceChangeLock()) {
+            Instances instances = substractIpAddresses(service, ephemeral, ips);
 
-        consistencyService.put(key, instances);
+            consistencyService.put(key, instances);
+        }
     }
 
     public Instance getInstance(String namespaceId, String serviceName, String cluster, String ip, int port) {
@@ -464,24 +469,12 @@ public class ServiceManager implements RecordListener<Service> {
         return null;
     }
 
-    public List<Instance> updateIpAddresses(Service service, String action, boolean ephemeral, Instance... ips) throws NacosException {
+    public Instances updateIpAddresses(Service service, String action, boolean ephemeral, Instance... ips) throws NacosException {
 
         Datum datum = consistencyService.get(KeyBuilder.buildInstanceListKey(service.getNamespaceId(), service.getName(), ephemeral));
 
-        Map<String, Instance> oldInstanceMap = new HashMap<>(16);
-        List<Instance> currentIPs = service.allIPs(ephemeral);
-        Map<String, Instance> map = new ConcurrentHashMap<>(currentIPs.size());
-
-        for (Instance instance : currentIPs) {
-            map.put(instance.toIPAddr(), instance);
-        }
-        if (datum != null) {
-            oldInstanceMap = setValid(((Instances) datum.value).getInstanceList(), map);
-        }
-
-        // use HashMap for deep copy:
-        HashMap<String, Instance> instanceMap = new HashMap<>(oldInstanceMap.size());
-        instanceMap.putAll(oldInstanceMap);
+        // instances in the datum are the ones held by clusters, so their health status is up to date:
+        Instances oldInstances = datum == null || datum.value == null ? new Instances() : (Instances) datum.value;
 
         for (Instance instance : ips) {
             if (!service.getClusterMap().containsKey(instance.getClusterName())) {
@@ -492,45 +485,26 @@ public class ServiceManager implements RecordListener<Service> {
                 Loggers.SRV_LOG.warn("cluster: {} not found, ip: {}, will create new cluster with default configuration.",
                     instance.getClusterName(), instance.toJSON());
             }
-
-            if (UtilsAndCommons.UPDATE_INSTANCE_ACTION_REMOVE.equals(action)) {
-                instanceMap.remove(instance.getDatumKey());
-            } else {
-                instanceMap.put(instance.getDatumKey(), instance);
-            }
-
         }
 
-        if (instanceMap.size() <= 0 && UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD.equals(action)) {
+        Instances instances = oldInstances.apply(action, Arrays.asList(ips));
+
+        if (instances.getInstanceList().size() <= 0 && UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD.equals(action)) {
             throw new IllegalArgumentException("ip list can not be empty, service: " + service.getName() + ", ip list: "
-                + JSON.toJSONString(instanceMap.values()));
+                + JSON.toJSONString(instances.getInstanceList()));
         }
 
-        return new ArrayList<>(instanceMap.values());
+        return instances;
     }
 
-    public List<Instance> substractIpAddresses(Service service, boolean ephemeral, Instance... ips) throws NacosException {
+    public Instances substractIpAddresses(Service service, boolean ephemeral, Instance... ips) throws NacosException {
         return updateIpAddresses(service, UtilsAndCommons.UPDATE_INSTANCE_ACTION_REMOVE, ephemeral, ips);
     }
 
-    public List<Instance> addIpAddresses(Service service, boolean ephemeral, Instance... ips) throws NacosException {
+    public Instances addIpAddresses(Service service, boolean ephemeral, Instance... ips) throws NacosException {
         return updateIpAddresses(service, UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD, ephemeral, ips);
     }
 
-    private Map<String, Instance> setValid(List<Instance> oldInstances, Map<String, Instance> map) {
-
-        Map<String, Instance> instanceMap = new HashMap<>(oldInstances.size());
-        for (Instance instance : oldInstances) {
-            Instance instance1 = map.get(instance.toIPAddr());
-            if (instance1 != null) {
-                instance.setHealthy(instance1.isHealthy());
-                instance.setLastBeat(instance1.getLastBeat());
-            }
-            instanceMap.put(instance.getDatumKey(), instance);
-        }
-        return instanceMap;
-    }
-
     public Service getService(String namespaceId, String serviceName) {
         if (serviceMap.get(namespaceId) == null) {
             return null;
@@ -701,8 +675,6 @@ public class ServiceManager implements RecordListener<Service> {
                             continue;
                         }
 
-                        service.recalculateChecksum();
-
                         checksum.addItem(serviceName, service.getChecksum());
                     }
 
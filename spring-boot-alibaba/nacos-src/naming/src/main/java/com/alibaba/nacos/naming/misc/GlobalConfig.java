@@ -39,6 +39,21 @@ public class GlobalConfig {
     @Value("${nacos.naming.distro.taskDispatchThreadCount}")
     private int taskDispatchThreadCount = Runtime.getRuntime().availableProcessors();
 
+    @Value("${nacos.naming.distro.deltaSync:true}")
+    private boolean deltaSync = true;
+
+    @Value("${nacos.naming.distro.checksumTree:true}")
+    private boolean checksumTree = true;
+
+    @Value("${nacos.naming.distro.serializer:binary}")
+    private String serializer = "binary";
+
+    @Value("${nacos.naming.distro.chunkedLoad:true}")
+    private boolean chunkedLoad = true;
+
+    @Value("${nacos.naming.distro.loadParallelism:3}")
+    private int loadParallelism = 3;
+
     @Value("${nacos.naming.data.warmup}")
     private boolean dataWarmup = false;
 
@@ -61,6 +76,46 @@ public class GlobalConfig {
         return taskDispatchThreadCount;
     }
 
+    /**
+     * Sync changed instances instead of whole instance lists to servers that tell they accept them, see
+     * {@link NamingProxy#acceptsDelta(String)}
+     */
+    public boolean isDeltaSync() {
+        return deltaSync;
+    }
+
+    /**
+     * Sync bucket checksums of keys and then checksums of the keys in differing buckets only, instead of
+     * checksums of all keys, to servers that tell they accept them, see
+     * {@link NamingProxy#acceptsChecksumTree(String)}. Other servers still get checksums of all keys.
+     */
+    public boolean isChecksumTree() {
+        return checksumTree;
+    }
+
+    /**
+     * Send instance lists as binary data to servers that tell they can read it, instead of JSON.
+     * Set to json to always send JSON, binary data and JSON are both read either way.
+     */
+    public boolean isBinarySerializer() {
+        return "binary".equals(serializer);
+    }
+
+    /**
+     * Load data in chunks from several servers in parallel on startup, instead of all data from one server.
+     * Data is loaded all at once from servers without chunk support either way.
+     */
+    public boolean isChunkedLoad() {
+        return chunkedLoad;
+    }
+
+    /**
+     * Max count of servers data is loaded from in parallel on startup
+     */
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
     public boolean isDataWarmup() {
         return dataWarmup;
     }
@@ -31,6 +31,7 @@ import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -46,6 +47,7 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
@@ -324,16 +326,9 @@ public class HttpClient {
                 httpPut.setHeader(entry.getKey(), entry.getValue());
             }
 
-            httpPut.setEntity(new StringEntity(new String(content, "UTF-8"), ContentType.create("application/json", "UTF-8")));
+            httpPut.setEntity(new ByteArrayEntity(content, ContentType.create("application/json", "UTF-8")));
 
-            HttpResponse response = httpClient.execute(httpPut);
-            HttpEntity entity = response.getEntity();
-
-            HeaderElement[] headerElements = entity.getContentType().getElements();
-            String charset = headerElements[0].getParameterByName("charset").getValue();
-
-            return new HttpResult(response.getStatusLine().getStatusCode(),
-                IOUtils.toString(entity.getContent(), charset), Collections.<String, String>emptyMap());
+            return getResult(httpClient.execute(httpPut));
         } catch (Exception e) {
             return new HttpResult(500, e.toString(), Collections.<String, String>emptyMap());
         }
@@ -355,14 +350,7 @@ public class HttpClient {
             }
 
             httpGetWithEntity.setEntity(new StringEntity(content, ContentType.create("application/json", "UTF-8")));
-            HttpResponse response = httpClient.execute(httpGetWithEntity);
-            HttpEntity entity = response.getEntity();
-
-            HeaderElement[] headerElements = entity.getContentType().getElements();
-            String charset = headerElements[0].getParameterByName("charset").getValue();
-
-            return new HttpResult(response.getStatusLine().getStatusCode(),
-                IOUtils.toString(entity.getContent(), charset), Collections.<String, String>emptyMap());
+            return getResult(httpClient.execute(httpGetWithEntity));
         } catch (Exception e) {
             return new HttpResult(500, e.toString(), Collections.<String, String>emptyMap());
         }
@@ -395,6 +383,29 @@ public class HttpClient {
         }
     }
 
+    /**
+     * Binary responses are kept as bytes only, others are also decoded with their charset, UTF-8 by default
+     */
+    private static HttpResult getResult(HttpResponse response) throws IOException {
+        Map<String, String> respHeaders = new HashMap<String, String>(16);
+        for (Header header : response.getAllHeaders()) {
+            respHeaders.put(header.getName(), header.getValue());
+        }
+
+        HttpEntity entity = response.getEntity();
+        byte[] bytes = entity == null ? new byte[0] : IOUtils.toByteArray(entity.getContent());
+        ContentType contentType = entity == null ? null : ContentType.get(entity);
+        int code = response.getStatusLine().getStatusCode();
+
+        if (contentType != null
+            && ContentType.APPLICATION_OCTET_STREAM.getMimeType().equals(contentType.getMimeType())) {
+            return new HttpResult(code, StringUtils.EMPTY, bytes, respHeaders);
+        }
+        Charset charset = contentType == null || contentType.getCharset() == null ?
+            Charset.forName("UTF-8") : contentType.getCharset();
+        return new HttpResult(code, new String(bytes, charset), bytes, respHeaders);
+    }
+
     private static HttpResult getResult(HttpURLConnection conn) throws IOException {
         int respCode = conn.getResponseCode();
 
@@ -494,14 +505,30 @@ public class HttpClient {
     public static class HttpResult {
         final public int code;
         final public String content;
+        final private byte[] bytes;
         final private Map<String, String> respHeaders;
 
         public HttpResult(int code, String content, Map<String, String> respHeaders) {
+            this(code, content, null, respHeaders);
+        }
+
+        public HttpResult(int code, String content, byte[] bytes, Map<String, String> respHeaders) {
             this.code = code;
             this.content = content;
+            this.bytes = bytes;
             this.respHeaders = respHeaders;
         }
 
+        /**
+         * Raw response body, the only one of binary responses
+         */
+        public byte[] getBytes() {
+            if (bytes != null) {
+                return bytes;
+            }
+            return content.getBytes(Charset.forName("UTF-8"));
+        }
+
         public String getHeader(String name) {
             return respHeaders.get(name);
         }
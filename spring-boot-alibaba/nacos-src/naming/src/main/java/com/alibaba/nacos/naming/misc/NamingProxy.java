@@ -18,13 +18,16 @@ package com.alibaba.nacos.naming.misc;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.nacos.core.utils.SystemUtils;
 import com.alibaba.nacos.naming.boot.RunningConfig;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
 import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.Response;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author nacos
@@ -33,31 +36,110 @@ public class NamingProxy {
 
     private static final String DATA_ON_SYNC_URL = "/distro/datum";
 
+    private static final String DELTA_ON_SYNC_URL = "/distro/delta";
+
     private static final String DATA_GET_URL = "/distro/datum";
 
     private static final String ALL_DATA_GET_URL = "/distro/datums";
 
+    private static final String DATA_CHUNK_GET_URL = "/distro/datums/chunk";
+
     private static final String TIMESTAMP_SYNC_URL = "/distro/checksum";
 
+    private static final String CHECKSUM_TREE_SYNC_URL = "/distro/checksum/tree";
+
+    private static final String CHECKSUMS_GET_URL = "/distro/checksums";
+
+    /**
+     * Binary data versions other servers told they can read, see {@link BinarySerializer#HEADER}
+     */
+    private static final Map<String, String> SERIALIZER_VERSIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Delta sync was added together with binary data version 1, servers telling any version in
+     * {@link BinarySerializer#HEADER} accept deltas
+     */
+    private static final int DELTA_SINCE_VERSION = 1;
+
+    /**
+     * Checksum trees were added together with binary data version 1 as well
+     */
+    private static final int CHECKSUM_TREE_SINCE_VERSION = 1;
+
+    /**
+     * Whether the server told it can read binary data of this server, it is only known after it answered
+     * a Distro request
+     */
+    public static boolean acceptsBinary(String server) {
+        return BinarySerializer.accepts(SERIALIZER_VERSIONS.get(server));
+    }
+
+    /**
+     * Whether the server told it accepts deltas of instance lists, see {@link #syncDelta(byte[], String)}
+     */
+    public static boolean acceptsDelta(String server) {
+        return NumberUtils.toInt(SERIALIZER_VERSIONS.get(server), 0) >= DELTA_SINCE_VERSION;
+    }
+
+    /**
+     * Whether the server told it accepts checksum trees, see {@link #syncChecksumTree(Map, String)}
+     */
+    public static boolean acceptsChecksumTree(String server) {
+        return NumberUtils.toInt(SERIALIZER_VERSIONS.get(server), 0) >= CHECKSUM_TREE_SINCE_VERSION;
+    }
+
+    private static void updateSerializerVersion(String server, HttpClient.HttpResult result) {
+        updateSerializerVersion(server, result.getHeader(BinarySerializer.HEADER));
+    }
+
+    private static void updateSerializerVersion(String server, String version) {
+        if (version == null) {
+            SERIALIZER_VERSIONS.remove(server);
+        } else {
+            SERIALIZER_VERSIONS.put(server, version);
+        }
+    }
+
+    private static Map<String, String> distroHeaders() {
+        Map<String, String> headers = new HashMap<>(16);
+        headers.put("Client-Version", UtilsAndCommons.SERVER_VERSION);
+        headers.put("User-Agent", UtilsAndCommons.SERVER_VERSION);
+        headers.put(BinarySerializer.HEADER, String.valueOf(BinarySerializer.VERSION));
+        return headers;
+    }
+
     public static void syncChecksums(Map<String, String> checksumMap, String server) {
+        asyncPutLarge(TIMESTAMP_SYNC_URL, JSON.toJSONBytes(checksumMap), server);
+    }
 
-        try {
-            Map<String, String> headers = new HashMap<>(128);
+    /**
+     * Sync root and bucket checksums of the keys this server is responsible for, the target server gets the
+     * checksums of the keys in the buckets that differ by {@link #getChecksums(List, String)}. Only for servers
+     * that {@link #acceptsChecksumTree(String)}.
+     */
+    public static void syncChecksumTree(Map<String, Object> tree, String server) {
+        asyncPutLarge(CHECKSUM_TREE_SYNC_URL, JSON.toJSONBytes(tree), server);
+    }
+
+    private static void asyncPutLarge(final String url, byte[] data, final String server) {
 
-            headers.put("Client-Version", UtilsAndCommons.SERVER_VERSION);
-            headers.put("User-Agent", UtilsAndCommons.SERVER_VERSION);
+        try {
+            Map<String, String> headers = distroHeaders();
             headers.put("Connection", "Keep-Alive");
 
             HttpClient.asyncHttpPutLarge("http://" + server + RunningConfig.getContextPath()
-                    + UtilsAndCommons.NACOS_NAMING_CONTEXT + TIMESTAMP_SYNC_URL + "?source=" + NetUtils.localServer(),
-                headers, JSON.toJSONBytes(checksumMap),
+                    + UtilsAndCommons.NACOS_NAMING_CONTEXT + url + "?source=" + NetUtils.localServer(),
+                headers, data,
                 new AsyncCompletionHandler() {
                     @Override
                     public Object onCompleted(Response response) throws Exception {
+                        // learn the version of servers that only get checksums from this server:
+                        updateSerializerVersion(server, HttpURLConnection.HTTP_OK == response.getStatusCode()
+                            ? response.getHeader(BinarySerializer.HEADER) : null);
                         if (HttpURLConnection.HTTP_OK != response.getStatusCode()) {
                             Loggers.EPHEMERAL.error("failed to req API: {}, code: {}, msg: {}",
                                 "http://" + server + RunningConfig.getContextPath() +
-                                    UtilsAndCommons.NACOS_NAMING_CONTEXT + TIMESTAMP_SYNC_URL,
+                                    UtilsAndCommons.NACOS_NAMING_CONTEXT + url,
                                 response.getStatusCode(), response.getResponseBody());
                         }
                         return null;
@@ -67,7 +149,7 @@ public class NamingProxy {
                     public void onThrowable(Throwable t) {
                         Loggers.EPHEMERAL.error("failed to req API:" + "http://" + server
                             + RunningConfig.getContextPath()
-                            + UtilsAndCommons.NACOS_NAMING_CONTEXT + TIMESTAMP_SYNC_URL, t);
+                            + UtilsAndCommons.NACOS_NAMING_CONTEXT + url, t);
                     }
                 });
         } catch (Exception e) {
@@ -80,10 +162,11 @@ public class NamingProxy {
         Map<String, String> params = new HashMap<>(8);
         params.put("keys", StringUtils.join(keys, ","));
         HttpClient.HttpResult result = HttpClient.httpGetLarge("http://" + server + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL, new HashMap<>(8), JSON.toJSONString(params));
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL, distroHeaders(), JSON.toJSONString(params));
 
         if (HttpURLConnection.HTTP_OK == result.code) {
-            return result.content.getBytes();
+            updateSerializerVersion(server, result);
+            return result.getBytes();
         }
 
         throw new IOException("failed to req API: " + "http://" + server
@@ -92,16 +175,33 @@ public class NamingProxy {
             + result.code + " msg: " + result.content);
     }
 
-    public static byte[] getAllData(String server) throws Exception {
+    public static byte[] getChecksums(List<Integer> buckets, String server) throws Exception {
 
         Map<String, String> params = new HashMap<>(8);
-        HttpClient.HttpResult result = HttpClient.httpGet("http://" + server + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL, new ArrayList<>(), params);
+        params.put("buckets", StringUtils.join(buckets, ","));
+        HttpClient.HttpResult result = HttpClient.httpGetLarge("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + CHECKSUMS_GET_URL, new HashMap<>(8), JSON.toJSONString(params));
 
         if (HttpURLConnection.HTTP_OK == result.code) {
             return result.content.getBytes();
         }
 
+        throw new IOException("failed to req API: " + "http://" + server
+            + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + CHECKSUMS_GET_URL + ". code: "
+            + result.code + " msg: " + result.content);
+    }
+
+    public static byte[] getAllData(String server) throws Exception {
+
+        HttpClient.HttpResult result = HttpClient.httpGetLarge("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL, distroHeaders(), StringUtils.EMPTY);
+
+        if (HttpURLConnection.HTTP_OK == result.code) {
+            updateSerializerVersion(server, result);
+            return result.getBytes();
+        }
+
         throw new IOException("failed to req API: " + "http://" + server
             + RunningConfig.getContextPath()
             + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL + ". code: "
@@ -109,30 +209,70 @@ public class NamingProxy {
     }
 
 
+    /**
+     * Get datums of a chunk of checksum tree buckets, starting at fromBucket and ending before toBucket or at the
+     * bucket told by {@link UtilsAndCommons#DISTRO_NEXT_BUCKET_HEADER}
+     */
+    public static HttpClient.HttpResult getDataChunk(int fromBucket, int toBucket, String server) throws Exception {
+
+        Map<String, String> params = new HashMap<>(8);
+        params.put("from", String.valueOf(fromBucket));
+        params.put("to", String.valueOf(toBucket));
+        HttpClient.HttpResult result = HttpClient.httpGetLarge("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_CHUNK_GET_URL, distroHeaders(), JSON.toJSONString(params));
+
+        if (HttpURLConnection.HTTP_OK == result.code) {
+            updateSerializerVersion(server, result);
+            return result;
+        }
+
+        throw new IOException("failed to req API: " + "http://" + server
+            + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_CHUNK_GET_URL + ". code: "
+            + result.code + " msg: " + result.content);
+    }
+
     public static boolean syncData(byte[] data, String curServer) throws Exception {
+        return putData(DATA_ON_SYNC_URL, data, curServer);
+    }
+
+    /**
+     * Sync deltas of instance lists, the target server gets the whole lists from this server if the deltas can not
+     * be applied
+     */
+    public static boolean syncDelta(byte[] data, String curServer) throws Exception {
+        return putData(DELTA_ON_SYNC_URL + "?source=" + NetUtils.localServer(), data, curServer);
+    }
+
+    private static boolean putData(String url, byte[] data, String curServer) throws Exception {
         try {
-            Map<String, String> headers = new HashMap<>(128);
+            Map<String, String> headers = distroHeaders();
 
-            headers.put("Client-Version", UtilsAndCommons.SERVER_VERSION);
-            headers.put("User-Agent", UtilsAndCommons.SERVER_VERSION);
             headers.put("Accept-Encoding", "gzip,deflate,sdch");
             headers.put("Connection", "Keep-Alive");
             headers.put("Content-Encoding", "gzip");
+            if (BinarySerializer.isBinary(data)) {
+                headers.put("Content-Type", "application/octet-stream");
+            }
 
             HttpClient.HttpResult result = HttpClient.httpPutLarge("http://" + curServer + RunningConfig.getContextPath()
-                + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_ON_SYNC_URL, headers, data);
+                + UtilsAndCommons.NACOS_NAMING_CONTEXT + url, headers, data);
 
             if (HttpURLConnection.HTTP_OK == result.code) {
+                updateSerializerVersion(curServer, result);
                 return true;
             }
 
             if (HttpURLConnection.HTTP_NOT_MODIFIED == result.code) {
+                updateSerializerVersion(curServer, result);
                 return true;
             }
 
+            SERIALIZER_VERSIONS.remove(curServer);
+
             throw new IOException("failed to req API:" + "http://" + curServer
                 + RunningConfig.getContextPath()
-                + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_ON_SYNC_URL + ". code:"
+                + UtilsAndCommons.NACOS_NAMING_CONTEXT + url + ". code:"
                 + result.code + " msg: " + result.content);
         } catch (Exception e) {
             Loggers.SRV_LOG.warn("NamingProxy", e);
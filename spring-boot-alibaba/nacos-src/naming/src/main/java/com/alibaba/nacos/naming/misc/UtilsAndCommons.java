@@ -69,6 +69,8 @@ public class UtilsAndCommons {
 
     public static final String NACOS_SERVER_HEADER = "Nacos-Server";
 
+    public static final String DISTRO_NEXT_BUCKET_HEADER = "Distro-Next-Bucket";
+
     public static final String NACOS_VERSION = "1.0.0";
 
     public static final String SUPER_TOKEN = "xy";
@@ -0,0 +1,124 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author nkorange
+ */
+public class BinarySerializerTest {
+
+    private final BinarySerializer serializer = new BinarySerializer();
+
+    @Test
+    public void roundTrip() {
+        Map<String, Datum> datumMap = new HashMap<>(8);
+        datumMap.put("com.alibaba.nacos.naming.iplist.ephemeral.public##DEFAULT_GROUP@@a", datum("a", 3));
+        datumMap.put("com.alibaba.nacos.naming.iplist.ephemeral.public##DEFAULT_GROUP@@b", datum("b", 0));
+        datumMap.put("com.alibaba.nacos.naming.iplist.ephemeral.public##DEFAULT_GROUP@@c", null);
+
+        byte[] data = serializer.serialize(datumMap);
+        Assert.assertTrue(BinarySerializer.isBinary(data));
+        Assert.assertTrue(data.length < new FastJsonSerializer().serialize(datumMap).length);
+
+        Map<String, Datum<Instances>> result = serializer.deserializeMap(data, Instances.class);
+        Assert.assertEquals(2, result.size());
+        for (Map.Entry<String, Datum<Instances>> entry : result.entrySet()) {
+            Datum expected = datumMap.get(entry.getKey());
+            Datum<Instances> actual = entry.getValue();
+            Assert.assertEquals(expected.key, actual.key);
+            Assert.assertEquals(expected.timestamp.get(), actual.timestamp.get());
+
+            Instances expectedInstances = (Instances) expected.value;
+            Assert.assertEquals(expectedInstances.getRevision(), actual.value.getRevision());
+            Assert.assertEquals(expectedInstances.getInstanceList().size(), actual.value.getInstanceList().size());
+            for (int i = 0; i < expectedInstances.getInstanceList().size(); i++) {
+                Instance expectedInstance = expectedInstances.getInstanceList().get(i);
+                Instance actualInstance = actual.value.getInstanceList().get(i);
+                Assert.assertEquals(expectedInstance.toJSON(), actualInstance.toJSON());
+                Assert.assertEquals(expectedInstance.getLastBeat(), actualInstance.getLastBeat());
+                Assert.assertEquals(expectedInstance.isMarked(), actualInstance.isMarked());
+                Assert.assertEquals(expectedInstance.isMockValid(), actualInstance.isMockValid());
+                Assert.assertEquals(Double.doubleToLongBits(expectedInstance.getWeight()),
+                    Double.doubleToLongBits(actualInstance.getWeight()));
+            }
+            Assert.assertEquals(expectedInstances.getChecksum(), actual.value.getChecksum());
+        }
+    }
+
+    @Test
+    public void readJson() {
+        Map<String, Datum> datumMap = new HashMap<>(8);
+        datumMap.put("key", datum("a", 2));
+
+        byte[] data = new FastJsonSerializer().serialize(datumMap);
+        Assert.assertFalse(BinarySerializer.isBinary(data));
+
+        Map<String, Datum<Instances>> result = serializer.deserializeMap(data, Instances.class);
+        Assert.assertEquals(2, result.get("key").value.getInstanceList().size());
+    }
+
+    @Test
+    public void otherDataIsJson() {
+        Map<String, String> checksums = new HashMap<>(8);
+        checksums.put("key", "checksum");
+        Assert.assertArrayEquals(new FastJsonSerializer().serialize(checksums), serializer.serialize(checksums));
+    }
+
+    @Test
+    public void negotiate() {
+        Assert.assertFalse(BinarySerializer.accepts(null));
+        Assert.assertFalse(BinarySerializer.accepts("0"));
+        Assert.assertTrue(BinarySerializer.accepts(String.valueOf(BinarySerializer.VERSION)));
+    }
+
+    private static Datum datum(String serviceName, int count) {
+        List<Instance> instanceList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Instance instance = new Instance("1.1.1." + i, 8080 + i, i % 2 == 0 ? "c1" : "c2", "tenant", "app");
+            instance.setServiceName("DEFAULT_GROUP@@" + serviceName);
+            instance.setWeight(0.5D * i);
+            instance.setHealthy(i % 2 == 0);
+            instance.setMarked(i == 1);
+            instance.setMockValid(i == 2);
+            instance.setInstanceId(instance.generateInstanceId());
+            Map<String, String> metadata = new HashMap<>(4);
+            metadata.put("version", "1." + i);
+            metadata.put("中文", "值");
+            instance.setMetadata(metadata);
+            instanceList.add(instance);
+        }
+        Instances instances = new Instances();
+        instances.setInstanceList(instanceList);
+        instances.setRevision(count);
+
+        Datum<Instances> datum = new Datum<>();
+        datum.key = "com.alibaba.nacos.naming.iplist.ephemeral.public##DEFAULT_GROUP@@" + serviceName;
+        datum.value = instances;
+        datum.timestamp.set(count + 1000L);
+        return datum;
+    }
+}
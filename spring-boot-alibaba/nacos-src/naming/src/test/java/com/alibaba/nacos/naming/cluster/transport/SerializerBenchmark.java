@@ -0,0 +1,130 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of Distro data transport: {@link FastJsonSerializer} against {@link BinarySerializer} on a batch of
+ * instance lists like the ones synced between servers.
+ * <p>
+ * Run the main method, or java -cp test-classes:classes:deps org.openjdk.jmh.Main SerializerBenchmark
+ *
+ * @author nkorange
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    /**
+     * Keys of one sync batch, see nacos.naming.distro.batchSyncKeyCount
+     */
+    @Param({"10", "1000"})
+    int serviceCount;
+
+    @Param({"10"})
+    int instanceCount;
+
+    Serializer json = new FastJsonSerializer();
+
+    Serializer binary = new BinarySerializer();
+
+    Map<String, Datum> datumMap;
+
+    byte[] jsonData;
+
+    byte[] binaryData;
+
+    @Setup
+    public void setup() {
+        datumMap = new HashMap<>(serviceCount * 2);
+        for (int i = 0; i < serviceCount; i++) {
+            String serviceName = "DEFAULT_GROUP@@com.alibaba.nacos.benchmark.service." + i;
+            List<Instance> instanceList = new ArrayList<>(instanceCount);
+            for (int j = 0; j < instanceCount; j++) {
+                Instance instance = new Instance("10.0." + i % 256 + "." + j, 8080, j % 2 == 0 ? "c1" : "c2");
+                instance.setServiceName(serviceName);
+                instance.setInstanceId(instance.generateInstanceId());
+                Map<String, String> metadata = new HashMap<>(4);
+                metadata.put("version", "1.0." + j);
+                metadata.put("protocol", "dubbo");
+                instance.setMetadata(metadata);
+                instanceList.add(instance);
+            }
+            Instances instances = new Instances();
+            instances.setInstanceList(instanceList);
+            instances.setRevision(i);
+
+            Datum<Instances> datum = new Datum<>();
+            datum.key = "com.alibaba.nacos.naming.iplist.ephemeral.public##" + serviceName;
+            datum.value = instances;
+            datum.timestamp.set(i);
+            datumMap.put(datum.key, datum);
+        }
+        jsonData = json.serialize(datumMap);
+        binaryData = binary.serialize(datumMap);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() {
+        return json.serialize(datumMap);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return binary.serialize(datumMap);
+    }
+
+    @Benchmark
+    public Map<String, Datum<Instances>> deserializeJson() {
+        return json.deserializeMap(jsonData, Instances.class);
+    }
+
+    @Benchmark
+    public Map<String, Datum<Instances>> deserializeBinary() {
+        return binary.deserializeMap(binaryData, Instances.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author nkorange
+ */
+public class ChecksumTreeTest {
+
+    @Test
+    public void diff() {
+        ChecksumTree local = new ChecksumTree();
+        ChecksumTree remote = new ChecksumTree();
+        for (int i = 0; i < 1000; i++) {
+            local.put("key" + i, "checksum" + i);
+        }
+        // order does not matter:
+        for (int i = 999; i >= 0; i--) {
+            remote.put("key" + i, "checksum" + i);
+        }
+        Assert.assertEquals(remote.getRootChecksum(), local.getRootChecksum());
+        Assert.assertTrue(local.diff(remote.getBucketChecksums()).isEmpty());
+
+        remote.put("key1", "changed");
+        remote.remove("key2");
+        Assert.assertNotEquals(remote.getRootChecksum(), local.getRootChecksum());
+
+        List<Integer> buckets = local.diff(remote.getBucketChecksums());
+        Assert.assertTrue(buckets.contains(ChecksumTree.bucketOf("key1")));
+        Assert.assertTrue(buckets.contains(ChecksumTree.bucketOf("key2")));
+        Assert.assertTrue(buckets.size() <= 2);
+
+        Map<String, String> checksums = remote.getChecksums(buckets);
+        Assert.assertEquals("changed", checksums.get("key1"));
+        Assert.assertFalse(checksums.containsKey("key2"));
+        Assert.assertTrue(local.getChecksums(buckets).containsKey("key2"));
+        Assert.assertTrue(checksums.size() < 1000);
+
+        remote.put("key1", "checksum1");
+        remote.put("key2", "checksum2");
+        Assert.assertEquals(remote.getRootChecksum(), local.getRootChecksum());
+    }
+}
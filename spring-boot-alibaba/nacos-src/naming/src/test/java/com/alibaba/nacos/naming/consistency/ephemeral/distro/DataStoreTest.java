@@ -0,0 +1,81 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.core.DistroMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author nkorange
+ */
+public class DataStoreTest {
+
+    @Test
+    public void chunks() {
+        DistroMapper distroMapper = Mockito.mock(DistroMapper.class);
+        Mockito.when(distroMapper.getHealthyList()).thenReturn(Collections.singletonList("1.1.1.1:8848"));
+        Mockito.when(distroMapper.mapSrv(Mockito.anyString())).thenReturn("1.1.1.1:8848");
+        DataStore dataStore = new DataStore();
+        ReflectionTestUtils.setField(dataStore, "distroMapper", distroMapper);
+        for (int i = 0; i < 1000; i++) {
+            Datum datum = new Datum();
+            datum.key = KeyBuilder.buildInstanceListKey("public", "DEFAULT_GROUP@@service" + i, true);
+            dataStore.put(datum.key, datum);
+        }
+
+        Set<String> keys = new HashSet<>();
+        int chunks = 0;
+        int cursor = 0;
+        while (cursor < ChecksumTree.BUCKET_COUNT) {
+            int end = dataStore.getChunkEnd(cursor, ChecksumTree.BUCKET_COUNT, 100);
+            Assert.assertTrue(end > cursor);
+            Map<String, Datum> chunk = dataStore.getDataMap(cursor, end);
+            if (end < ChecksumTree.BUCKET_COUNT) {
+                Assert.assertTrue(chunk.size() >= 100);
+            }
+            for (String key : chunk.keySet()) {
+                int bucket = ChecksumTree.bucketOf(key);
+                Assert.assertTrue(bucket >= cursor && bucket < end);
+                Assert.assertTrue(keys.add(key));
+            }
+            cursor = end;
+            chunks++;
+        }
+        Assert.assertEquals(1000, keys.size());
+        Assert.assertTrue(chunks > 1 && chunks <= 10);
+
+        // ranges split between servers:
+        Assert.assertEquals(128, dataStore.getChunkEnd(0, 128, 10000));
+        Assert.assertEquals(1000, dataStore.getDataMap(0, 128).size() + dataStore.getDataMap(128, 256).size());
+
+        // removed keys leave their chunks:
+        String removedKey = KeyBuilder.buildInstanceListKey("public", "DEFAULT_GROUP@@service0", true);
+        dataStore.remove(removedKey);
+        int bucket = ChecksumTree.bucketOf(removedKey);
+        Assert.assertFalse(dataStore.getDataMap(bucket, bucket + 1).containsKey(removedKey));
+        Assert.assertEquals(999, dataStore.getDataMap(0, ChecksumTree.BUCKET_COUNT).size());
+    }
+}
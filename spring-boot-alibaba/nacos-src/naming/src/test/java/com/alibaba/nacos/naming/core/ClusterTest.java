@@ -16,11 +16,14 @@
 package com.alibaba.nacos.naming.core;
 
 import com.alibaba.nacos.api.naming.pojo.AbstractHealthChecker;
+import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -97,4 +100,77 @@ public class ClusterTest {
         Assert.assertEquals("1.1.1.1", ips.get(1).getIp());
         Assert.assertEquals(2345, ips.get(1).getPort());
     }
+
+    @Test
+    public void applyDelta() {
+
+        Instance instance1 = new Instance();
+        instance1.setIp("1.1.1.1");
+        instance1.setPort(1234);
+
+        Instance instance2 = new Instance();
+        instance2.setIp("1.1.1.1");
+        instance2.setPort(2345);
+
+        cluster.applyDelta(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD, Arrays.asList(instance1, instance2), true);
+        Assert.assertEquals(2, cluster.allIPs(true).size());
+        Assert.assertEquals(0, cluster.allIPs(false).size());
+
+        Instance updated = new Instance();
+        updated.setIp("1.1.1.1");
+        updated.setPort(1234);
+        updated.setWeight(2.0D);
+        cluster.applyDelta(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD, Collections.singletonList(updated), true);
+        List<Instance> ips = cluster.allIPs(true);
+        Assert.assertEquals(2, ips.size());
+        Assert.assertTrue(ips.get(0) == updated || ips.get(1) == updated);
+
+        cluster.applyDelta(UtilsAndCommons.UPDATE_INSTANCE_ACTION_REMOVE, Collections.singletonList(instance2), true);
+        ips = cluster.allIPs(true);
+        Assert.assertEquals(1, ips.size());
+        Assert.assertSame(updated, ips.get(0));
+        Assert.assertTrue(cluster.contains(instance1));
+        Assert.assertFalse(cluster.contains(instance2));
+    }
+
+    @Test
+    public void checksum() {
+
+        Instance instance1 = new Instance();
+        instance1.setIp("1.1.1.1");
+        instance1.setPort(1234);
+
+        Instance instance2 = new Instance();
+        instance2.setIp("1.1.1.1");
+        instance2.setPort(2345);
+
+        String empty = cluster.getChecksum().toString();
+        cluster.updateIPs(Arrays.asList(instance1, instance2), true);
+        String full = cluster.getChecksum().toString();
+        Assert.assertNotEquals(empty, full);
+
+        Instances instances = new Instances();
+        instances.setInstanceList(Arrays.asList(instance2, instance1));
+        Assert.assertEquals(full, instances.getChecksum());
+
+        instance1.setHealthy(false);
+        Assert.assertNotEquals(full, cluster.getChecksum().toString());
+        Assert.assertEquals(cluster.getChecksum().toString(), instances.getChecksum());
+        instance1.setHealthy(true);
+        Assert.assertEquals(full, cluster.getChecksum().toString());
+
+        cluster.applyDelta(UtilsAndCommons.UPDATE_INSTANCE_ACTION_REMOVE, Arrays.asList(instance1, instance2), true);
+        Assert.assertEquals(empty, cluster.getChecksum().toString());
+        // removed instances no longer count:
+        instance1.setWeight(2.0D);
+        Assert.assertEquals(empty, cluster.getChecksum().toString());
+
+        cluster.applyDelta(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD, Collections.singletonList(instance2), true);
+        Instance updated = new Instance();
+        updated.setIp("1.1.1.1");
+        updated.setPort(2345);
+        cluster.applyDelta(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD, Collections.singletonList(updated), true);
+        instances.setInstanceList(Collections.singletonList(updated));
+        Assert.assertEquals(instances.getChecksum(), cluster.getChecksum().toString());
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author nkorange
+ */
+public class InstancesTest {
+
+    @Test
+    public void applyDelta() {
+        Instances empty = new Instances();
+        Instances one = empty.apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD,
+            Collections.singletonList(instance("1.1.1.1", 80, true)));
+        Instances two = one.apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD,
+            Collections.singletonList(instance("1.1.1.2", 80, true)));
+
+        Assert.assertEquals(0, empty.getInstanceList().size());
+        Assert.assertEquals(1, one.getInstanceList().size());
+        Assert.assertEquals(2, two.getInstanceList().size());
+        Assert.assertTrue(two.getRevision() > 0);
+        Assert.assertEquals(2, two.getDeltas().size());
+
+        Assert.assertEquals(0, two.deltasSince(two.getRevision()).size());
+        Assert.assertEquals(1, two.deltasSince(one.getRevision()).size());
+        Assert.assertEquals(2, two.deltasSince(0L).size());
+        Assert.assertNull(two.deltasSince(-1L));
+        // no revision, always applied as a whole:
+        Assert.assertNull(empty.deltasSince(0L));
+    }
+
+    @Test
+    public void replaceKeepsHealth() {
+        Instance old = instance("1.1.1.1", 80, false);
+        Instances instances = new Instances().apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD,
+            Collections.singletonList(old));
+
+        Instance updated = instance("1.1.1.1", 80, true);
+        updated.setWeight(2.0D);
+        instances = instances.apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD, Collections.singletonList(updated));
+        Assert.assertEquals(1, instances.getInstanceList().size());
+        Assert.assertSame(updated, instances.getInstanceList().get(0));
+        Assert.assertFalse(updated.isHealthy());
+
+        instances = instances.apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_REMOVE,
+            Collections.singletonList(instance("1.1.1.1", 80, true)));
+        Assert.assertEquals(0, instances.getInstanceList().size());
+    }
+
+    @Test
+    public void historyIsBounded() {
+        Instances instances = new Instances();
+        for (int i = 0; i < Instances.MAX_DELTA_HISTORY + 2; i++) {
+            instances = instances.apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD,
+                Collections.singletonList(instance("1.1.1." + i, 80, true)));
+        }
+        Assert.assertEquals(Instances.MAX_DELTA_HISTORY, instances.getDeltas().size());
+        Assert.assertNull(instances.deltasSince(0L));
+    }
+
+    @Test
+    public void replayDeltas() {
+        Instances source = new Instances().apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD,
+            Collections.singletonList(instance("1.1.1.1", 80, true)));
+        Instances replica = new Instances().applyDeltas(copy(source.getDeltas()));
+        Assert.assertEquals(source.getRevision(), replica.getRevision());
+
+        source = source.apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD,
+            Collections.singletonList(instance("1.1.1.2", 80, true)));
+        source = source.apply(UtilsAndCommons.UPDATE_INSTANCE_ACTION_REMOVE,
+            Collections.singletonList(instance("1.1.1.1", 80, true)));
+
+        Instances caughtUp = replica.applyDeltas(copy(source.getDeltas()));
+        Assert.assertEquals(source.getRevision(), caughtUp.getRevision());
+        Assert.assertEquals(1, caughtUp.getInstanceList().size());
+        Assert.assertEquals("1.1.1.2", caughtUp.getInstanceList().get(0).getIp());
+
+        // already up to date:
+        Assert.assertSame(caughtUp, caughtUp.applyDeltas(copy(source.getDeltas())));
+        // unknown revision, the whole list is needed:
+        Assert.assertNull(new Instances().applyDeltas(copy(source.getDeltas().subList(1, 3))));
+
+        Instances unversioned = new Instances();
+        unversioned.setInstanceList(Collections.singletonList(instance("1.1.1.3", 80, true)));
+        Assert.assertNull(unversioned.applyDeltas(copy(source.getDeltas())));
+    }
+
+    private static List<InstanceDelta> copy(List<InstanceDelta> deltas) {
+        return JSON.parseObject(JSON.toJSONString(deltas), new TypeReference<List<InstanceDelta>>() {
+        });
+    }
+
+    private static Instance instance(String ip, int port, boolean healthy) {
+        Instance instance = new Instance();
+        instance.setIp(ip);
+        instance.setPort(port);
+        instance.setClusterName(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+        instance.setHealthy(healthy);
+        return instance;
+    }
+}